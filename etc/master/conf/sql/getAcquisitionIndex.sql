@@ -0,0 +1,25 @@
+##
+## References
+##
+#menu "ECpdsBase"
+#name "getAcquisitionIndex"
+#group "select"
+
+##
+## Variable(s)
+##
+#prompt "destination;Destination name;%"
+
+##
+## Request(s)
+##
+SELECT DAT.DAT_UNIQUE_KEY, DAT.STA_CODE, DAF.DAF_ID, DAF.DAF_TIME_FILE, DAF.DAF_SIZE
+FROM
+  DATA_TRANSFER DAT, DATA_FILE DAF
+WHERE
+  DAT.DAF_ID = DAF.DAF_ID
+  AND DAT.DAT_UNIQUE_KEY IS NOT NULL
+  AND (NOT (DAT.DAT_DELETED<>0))
+  AND (
+    DAT.DES_NAME = '$destination'
+    OR DAT.DES_NAME IN (SELECT DES_NAME FROM ALIAS WHERE ALI_DES_NAME = '$destination'))
@@ -27,9 +27,14 @@ package ecmwf.common.callback;
  */
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
- * The Class ByteStream.
+ * The Class ByteStream. The bytes can be sent deflated (see deflate), in which case they are inflated transparently
+ * when requested.
  */
 public final class ByteStream implements Serializable {
     /** The Constant serialVersionUID. */
@@ -41,6 +46,9 @@ public final class ByteStream implements Serializable {
     /** The _len. */
     private final int _len;
 
+    /** The _compressed (the bytes are deflated and the len is the length of the original data). */
+    private final boolean _compressed;
+
     /**
      * Instantiates a new byte stream.
      *
@@ -58,6 +66,49 @@ public final class ByteStream implements Serializable {
             _len = -1;
             _b = null;
         }
+        _compressed = false;
+    }
+
+    /**
+     * Instantiates a new byte stream with deflated bytes.
+     *
+     * @param len
+     *            the len of the original data
+     * @param deflated
+     *            the deflated bytes
+     */
+    private ByteStream(final int len, final byte[] deflated) {
+        _len = len;
+        _b = deflated;
+        _compressed = true;
+    }
+
+    /**
+     * Create a byte stream with the deflated bytes, or with the original bytes if they do not compress.
+     *
+     * @param b
+     *            the b
+     * @param len
+     *            the len
+     *
+     * @return the byte stream
+     */
+    public static ByteStream deflate(final byte[] b, final int len) {
+        if (len > 0) {
+            final var deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(b, 0, len);
+                deflater.finish();
+                final var buffer = new byte[len];
+                final var size = deflater.deflate(buffer);
+                if (deflater.finished() && size < len) {
+                    return new ByteStream(len, Arrays.copyOf(buffer, size));
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        return new ByteStream(b, len);
     }
 
     /**
@@ -66,7 +117,35 @@ public final class ByteStream implements Serializable {
      * @return the bytes
      */
     public byte[] getBytes() {
-        return _b;
+        if (!_compressed) {
+            return _b;
+        }
+        final var inflater = new Inflater();
+        try {
+            inflater.setInput(_b);
+            final var result = new byte[_len];
+            var count = 0;
+            while (count < _len && !inflater.finished() && !inflater.needsInput()) {
+                count += inflater.inflate(result, count, _len - count);
+            }
+            if (count != _len) {
+                throw new IllegalStateException("Corrupted data (" + count + "/" + _len + " bytes)");
+            }
+            return result;
+        } catch (final DataFormatException e) {
+            throw new IllegalStateException("Corrupted data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Checks if is compressed.
+     *
+     * @return true, if the bytes were sent deflated
+     */
+    public boolean isCompressed() {
+        return _compressed;
     }
 
     /**
@@ -28,12 +28,63 @@ package ecmwf.common.callback;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.rmi.UnmarshalException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ecmwf.common.technical.Cnf;
+import ecmwf.common.technical.ThreadService;
 
 /**
- * The Class LocalInputStream.
+ * The Class LocalInputStream. The chunks are requested in advance to the RemoteInputStream, with up to "window"
+ * requests in flight, so that over a high latency link the throughput is not bound by the round trip time of every
+ * chunk. The size of the chunks starts small and is doubled each time a chunk comes back full, up to "maxChunkSize",
+ * and it is reduced when the remote stream delivers less than half of the requested size. With a window of 1 the
+ * chunks are requested one by one when needed (no prefetching). If the remote stream does not support the sequenced
+ * reads (older version) then the chunks are read one by one for this stream.
  */
 public final class LocalInputStream extends InputStream {
+    /** The Constant WINDOW. */
+    private static final int WINDOW = Cnf.at("LocalInputStream", "window", 4);
+
+    /** The Constant MIN_CHUNK_SIZE. */
+    private static final int MIN_CHUNK_SIZE = Math.max(1024, Cnf.at("LocalInputStream", "minChunkSize", 64 * 1024));
+
+    /** The Constant MAX_CHUNK_SIZE. */
+    private static final int MAX_CHUNK_SIZE = Math.max(MIN_CHUNK_SIZE,
+            Cnf.at("LocalInputStream", "maxChunkSize", 1024 * 1024));
+
+    /** The Constant COMPRESS (ask the remote stream to deflate the chunks). */
+    private static final boolean COMPRESS = Cnf.at("LocalInputStream", "compress", false);
+
+    /** The Constant EXECUTOR (virtual threads if allowed by the ThreadService). */
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            (ThreadService.isVirtualThreadAllowed() ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true))
+                    .name("LocalInputStream-", 0).factory());
+
+    /** The Constant _streams. */
+    private static final AtomicLong _streams = new AtomicLong(0);
+
+    /** The Constant _calls. */
+    private static final AtomicLong _calls = new AtomicLong(0);
+
+    /** The Constant _bytes. */
+    private static final AtomicLong _bytes = new AtomicLong(0);
+
+    /** The Constant _compressed. */
+    private static final AtomicLong _compressed = new AtomicLong(0);
+
+    /** The Constant _rtt (in nanoseconds, for all the calls). */
+    private static final AtomicLong _rtt = new AtomicLong(0);
+
+    /** The Constant _stalls (the reader had to wait for a chunk). */
+    private static final AtomicLong _stalls = new AtomicLong(0);
 
     /** The closed. */
     private final AtomicBoolean closed = new AtomicBoolean(false);
@@ -41,6 +92,41 @@ public final class LocalInputStream extends InputStream {
     /** The in. */
     private final RemoteInputStream in;
 
+    /** The requests in flight (in order). */
+    private final ArrayDeque<Request> window = new ArrayDeque<>();
+
+    /** The sequence of the next chunk to request. */
+    private long sequence = 0;
+
+    /** The chunk size. */
+    private int chunkSize = MIN_CHUNK_SIZE;
+
+    /** The current chunk. */
+    private byte[] buffer = null;
+
+    /** The position in the current chunk. */
+    private int position = 0;
+
+    /** The limit of the current chunk. */
+    private int limit = 0;
+
+    /** The eof. */
+    private boolean eof = false;
+
+    /** The remote stream does not support the sequenced reads (the chunks are then read one by one). */
+    private boolean unsequenced = false;
+
+    /**
+     * The Request.
+     *
+     * @param future
+     *            the future
+     * @param len
+     *            the requested len
+     */
+    private record Request(Future<ByteStream> future, int len) {
+    }
+
     /**
      * Instantiates a new local input stream.
      *
@@ -51,6 +137,141 @@ public final class LocalInputStream extends InputStream {
         this.in = in;
     }
 
+    /**
+     * Gets the statistics of the streams.
+     *
+     * @return the statistics
+     */
+    public static String getStatistics() {
+        final var calls = _calls.get();
+        return "streams=" + _streams.get() + ",calls=" + calls + ",bytes=" + _bytes.get() + ",compressed="
+                + _compressed.get() + ",rtt=" + (calls > 0 ? _rtt.get() / calls / 1_000_000 : 0) + "ms,chunk="
+                + (calls > 0 ? _bytes.get() / calls : 0) + ",stalls=" + _stalls.get();
+    }
+
+    /**
+     * Checks if the chunks are prefetched.
+     *
+     * @return true, if successful
+     */
+    private static boolean prefetch() {
+        return WINDOW > 1;
+    }
+
+    /**
+     * Fill the window with new requests.
+     */
+    private void request() {
+        if (sequence == 0) {
+            _streams.incrementAndGet();
+        }
+        while (window.size() < WINDOW) {
+            final var current = sequence++;
+            final var len = chunkSize;
+            window.add(new Request(EXECUTOR.submit(() -> {
+                final var start = System.nanoTime();
+                try {
+                    return in.read(current, len, COMPRESS);
+                } finally {
+                    _rtt.addAndGet(System.nanoTime() - start);
+                    _calls.incrementAndGet();
+                }
+            }), len));
+        }
+    }
+
+    /**
+     * Get the next chunk from the window.
+     *
+     * @return true, if successful (false if the end of the stream is reached)
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private boolean fill() throws IOException {
+        while (!eof) {
+            final ByteStream data;
+            final int requested;
+            if (unsequenced) {
+                requested = chunkSize;
+                data = in.read(requested);
+            } else {
+                request();
+                final var request = window.remove();
+                final var future = request.future();
+                if (!future.isDone()) {
+                    _stalls.incrementAndGet();
+                }
+                try {
+                    data = future.get();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for chunk");
+                } catch (final ExecutionException e) {
+                    final var cause = e.getCause();
+                    if (isUnknownMethod(cause)) {
+                        // The remote stream is running an older version (no chunk could have been read)!
+                        unsequenced = true;
+                        cancel();
+                        continue;
+                    }
+                    throw cause instanceof final IOException ioe ? ioe : new IOException("Reading chunk", cause);
+                }
+                requested = request.len();
+            }
+            final var len = data.getLen();
+            if (len < 0) {
+                // The remote stream is closed and the requests left in the window will get nothing!
+                eof = true;
+                cancel();
+                return false;
+            }
+            _bytes.addAndGet(len);
+            if (data.isCompressed()) {
+                _compressed.incrementAndGet();
+            }
+            if (len == requested) {
+                chunkSize = Math.min(MAX_CHUNK_SIZE, chunkSize * 2);
+            } else if (len < requested / 2) {
+                chunkSize = Math.max(MIN_CHUNK_SIZE, chunkSize / 2);
+            }
+            if (len > 0) {
+                buffer = data.getBytes();
+                position = 0;
+                limit = len;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the read failed because the method is not known by the remote object (the UnmarshalException is
+     * wrapped in a ServerException when it is thrown on the server side).
+     *
+     * @param cause
+     *            the cause
+     *
+     * @return true, if the sequenced reads are not supported by the remote stream
+     */
+    private static boolean isUnknownMethod(final Throwable cause) {
+        for (var t = cause; t != null; t = t.getCause()) {
+            if (t instanceof UnmarshalException && t.getMessage() != null
+                    && t.getMessage().contains("unrecognized method hash")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cancel the requests in flight (their results are not needed).
+     */
+    private void cancel() {
+        window.forEach(request -> request.future().cancel(false));
+        window.clear();
+    }
+
     /**
      * Available.
      *
@@ -63,6 +284,8 @@ public final class LocalInputStream extends InputStream {
     public int available() throws IOException {
         if (closed.get())
             throw new IOException("Cannot close stream: stream is already closed");
+        if (prefetch() && sequence > 0)
+            return limit - position;
         return in.available();
     }
 
@@ -74,8 +297,12 @@ public final class LocalInputStream extends InputStream {
      */
     @Override
     public void close() throws IOException {
-        if (closed.compareAndSet(false, true))
-            in.close();
+        if (closed.compareAndSet(false, true)) {
+            cancel();
+            buffer = null;
+            if (!eof) // Otherwise the remote stream closed itself!
+                in.close();
+        }
     }
 
     /**
@@ -90,7 +317,11 @@ public final class LocalInputStream extends InputStream {
     public int read() throws IOException {
         if (closed.get())
             throw new IOException("Cannot read from stream: stream is already closed");
-        return in.read();
+        if (!prefetch())
+            return in.read();
+        if (position >= limit && !fill())
+            return -1;
+        return buffer[position++] & 0xff;
     }
 
     /**
@@ -128,6 +359,16 @@ public final class LocalInputStream extends InputStream {
     public int read(final byte[] b, final int off, int len) throws IOException {
         if (closed.get())
             throw new IOException("Cannot read from stream: stream is already closed");
+        if (prefetch()) {
+            if (len == 0)
+                return 0;
+            if (position >= limit && !fill())
+                return -1;
+            len = Math.min(len, limit - position);
+            System.arraycopy(buffer, position, b, off, len);
+            position += len;
+            return len;
+        }
         final var data = in.read(len);
         if ((len = data.getLen()) > 0) {
             System.arraycopy(data.getBytes(), 0, b, off, len);
@@ -145,6 +386,8 @@ public final class LocalInputStream extends InputStream {
     public void reset() throws IOException {
         if (closed.get())
             throw new IOException("Cannot reset stream: stream is already closed");
+        if (prefetch() && sequence > 0)
+            throw new IOException("Cannot reset stream: data already prefetched");
         in.reset();
     }
 
@@ -163,6 +406,8 @@ public final class LocalInputStream extends InputStream {
     public long skip(final long n) throws IOException {
         if (closed.get())
             throw new IOException("Cannot skip stream: stream is already closed");
+        if (prefetch())
+            return super.skip(n);
         return in.skip(n);
     }
 }
@@ -104,6 +104,28 @@ public interface RemoteInputStream extends Remote {
      */
     ByteStream read(int len) throws IOException, RemoteException;
 
+    /**
+     * Read the chunk with the given sequence number. The chunks are read from the stream in the order of their
+     * sequence numbers, whatever the order in which the requests are received, so that a client can have several
+     * requests in flight at the same time. Once the end of the stream is reached all the pending and following
+     * requests get an empty byte stream (len of -1).
+     *
+     * @param sequence
+     *            the sequence number (starting at 0)
+     * @param len
+     *            the len
+     * @param compress
+     *            deflate the chunk if it compresses
+     *
+     * @return the byte stream
+     *
+     * @throws java.io.IOException
+     *             Signals that an I/O exception has occurred.
+     * @throws java.rmi.RemoteException
+     *             the remote exception
+     */
+    ByteStream read(long sequence, int len, boolean compress) throws IOException, RemoteException;
+
     /**
      * Reset.
      *
@@ -29,9 +29,13 @@ package ecmwf.common.callback;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.rmi.RemoteException;
 import java.util.Objects;
 
+import javax.management.timer.Timer;
+
+import ecmwf.common.technical.Cnf;
 import ecmwf.common.technical.StreamPlugThread;
 
 /**
@@ -41,12 +45,25 @@ public final class RemoteInputStreamImp extends RemoteManagement implements Remo
     /** The Constant serialVersionUID. */
     private static final long serialVersionUID = 4473817650326462267L;
 
+    /** The Constant SEQUENCE_TIMEOUT (maximum wait for the previous chunks to be requested). */
+    private static final long SEQUENCE_TIMEOUT = Cnf.durationAt("RemoteInputStream", "sequenceTimeOut",
+            5 * Timer.ONE_MINUTE);
+
     /** The in. */
     private final transient InputStream in;
 
     /** The i. */
     private transient int i = 0;
 
+    /** The lock (for the sequenced reads). */
+    private final transient Object lock = new Object();
+
+    /** The sequence of the next chunk to read. */
+    private transient long sequence = 0;
+
+    /** The eof. */
+    private transient volatile boolean eof = false;
+
     /**
      * Instantiates a new remote input stream imp.
      *
@@ -153,6 +170,62 @@ public final class RemoteInputStreamImp extends RemoteManagement implements Remo
         return bs;
     }
 
+    /**
+     * Read the chunk with the given sequence number. The request waits for the chunks with a lower sequence number to
+     * be read first. As much data as available is put in the chunk, without blocking once some data were read.
+     *
+     * @param sequence
+     *            the sequence
+     * @param len
+     *            the len
+     * @param compress
+     *            the compress
+     *
+     * @return the byte stream
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    @Override
+    public ByteStream read(final long sequence, final int len, final boolean compress) throws IOException {
+        synchronized (lock) {
+            final var timeout = System.currentTimeMillis() + SEQUENCE_TIMEOUT;
+            while (!eof && sequence != this.sequence) {
+                final var wait = timeout - System.currentTimeMillis();
+                if (wait <= 0) {
+                    throw new IOException("Chunk " + this.sequence + " not requested (waiting to send " + sequence
+                            + ")");
+                }
+                try {
+                    lock.wait(Math.min(wait, Timer.ONE_SECOND));
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for chunk " + this.sequence);
+                }
+            }
+            if (eof) {
+                return new ByteStream(null, -1);
+            }
+            try {
+                final var holder = new byte[len];
+                var count = i = in.read(holder, 0, len);
+                int read;
+                while (count >= 0 && count < len && in.available() > 0
+                        && (read = in.read(holder, count, len - count)) > 0) {
+                    count += read;
+                }
+                if (count == -1) {
+                    close();
+                    return new ByteStream(holder, -1);
+                }
+                return compress ? ByteStream.deflate(holder, count) : new ByteStream(holder, count);
+            } finally {
+                this.sequence++;
+                lock.notifyAll();
+            }
+        }
+    }
+
     /**
      * Reset.
      *
@@ -196,6 +269,7 @@ public final class RemoteInputStreamImp extends RemoteManagement implements Remo
      */
     @Override
     public void close() throws IOException {
+        eof = true;
         try {
             in.close();
         } finally {
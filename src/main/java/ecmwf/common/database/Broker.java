@@ -91,6 +91,26 @@ interface Broker extends AutoCloseable {
      */
     CloseableResultSetWrapper executeQuery(boolean release, String sql) throws BrokerException, SQLException;
 
+    /**
+     * Execute query with a prepared statement and bind the parameters.
+     *
+     * @param release
+     *            the release
+     * @param sql
+     *            the sql with the placeholders
+     * @param parameters
+     *            the parameters
+     *
+     * @return the result set
+     *
+     * @throws BrokerException
+     *             the broker exception
+     * @throws SQLException
+     *             the SQL exception
+     */
+    CloseableResultSetWrapper executeQuery(boolean release, String sql, List<Object> parameters)
+            throws BrokerException, SQLException;
+
     /**
      * Execute update.
      *
@@ -150,6 +170,26 @@ interface Broker extends AutoCloseable {
      */
     <T extends DataBaseObject> CloseableIterator<T> getIterator(Class<T> target, String sql) throws BrokerException;
 
+    /**
+     * Gets the iterator and bind the parameters.
+     *
+     * @param <T>
+     *            the generic type
+     * @param target
+     *            the target
+     * @param sql
+     *            the sql with the placeholders
+     * @param parameters
+     *            the parameters
+     *
+     * @return the iterator
+     *
+     * @throws BrokerException
+     *             the broker exception
+     */
+    <T extends DataBaseObject> CloseableIterator<T> getIterator(Class<T> target, String sql, List<Object> parameters)
+            throws BrokerException;
+
     /**
      * Gets the primary key values.
      *
@@ -194,4 +234,15 @@ interface Broker extends AutoCloseable {
      *            the update
      */
     void store(DataBaseObject object, boolean update);
+
+    /**
+     * Store the objects in the database within a single transaction, sending the requests to the database in JDBC
+     * batches. If update is true then it does an update of existing objects, otherwise the objects are created.
+     *
+     * @param objects
+     *            the objects
+     * @param update
+     *            the update
+     */
+    void store(List<? extends DataBaseObject> objects, boolean update);
 }
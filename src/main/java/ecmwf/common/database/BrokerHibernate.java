@@ -106,6 +106,9 @@ final class BrokerHibernate implements Broker {
     /** The Constant RETRY_TRANSACTION_DELAY. */
     private static final long RETRY_TRANSACTION_DELAY = Cnf.at("DataBase", "retryTransactionDelay", 1000);
 
+    /** The Constant BATCH_SIZE. */
+    private static final int BATCH_SIZE = Cnf.at("DataBase", "batchSize", 100);
+
     /** The Constant DEBUG_CACHE. */
     private static final boolean DEBUG_CACHE = Cnf.at("DataBase", "debugCache", false);
 
@@ -348,6 +351,26 @@ final class BrokerHibernate implements Broker {
         }
     }
 
+    /**
+     * Validate the encoding of the sql and of the parameters which will be bound to the statement.
+     *
+     * @param sql
+     *            the sql
+     * @param parameters
+     *            the parameters
+     *
+     * @throws BrokerException
+     *             the broker exception
+     */
+    private static void validateSqlEncoding(final String sql, final List<Object> parameters) throws BrokerException {
+        validateSqlEncoding(sql);
+        for (final Object parameter : parameters) {
+            if (parameter instanceof final String value) {
+                validateSqlEncoding(value);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -365,7 +388,22 @@ final class BrokerHibernate implements Broker {
     @Override
     public CloseableResultSetWrapper executeQuery(final boolean release, final String sql)
             throws BrokerException, SQLException {
-        validateSqlEncoding(sql);
+        return executeQuery(release, sql, List.of());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Same as executeQuery(release, sql) but the sql contains placeholders and is always executed through a
+     * PreparedStatement, which is cached by the driver for the connection (see GenericJdbcConnectionWrapper), with the
+     * parameters bound in order.
+     *
+     * @see ecmwf.common.database.Broker#executeQuery(boolean, java.lang.String, java.util.List)
+     */
+    @Override
+    public CloseableResultSetWrapper executeQuery(final boolean release, final String sql,
+            final List<Object> parameters) throws BrokerException, SQLException {
+        validateSqlEncoding(sql, parameters);
         setReadOnly(true);
         session.setDefaultReadOnly(true);
         if (release)
@@ -382,9 +420,9 @@ final class BrokerHibernate implements Broker {
                     try (var setStatement = connection.createStatement()) {
                         setStatement.execute(setStmt);
                     }
-                    return createStreamingResultSet(connection, selectStmt);
+                    return createStreamingResultSet(connection, selectStmt, parameters);
                 } else {
-                    return createStreamingResultSet(connection, sql);
+                    return createStreamingResultSet(connection, sql, parameters);
                 }
             });
         } catch (final Exception e) {
@@ -400,19 +438,24 @@ final class BrokerHibernate implements Broker {
      *            the connection
      * @param sql
      *            the sql
+     * @param parameters
+     *            the parameters to bind (if any a PreparedStatement is always used)
      *
      * @return the closeable result set wrapper
      *
      * @throws SQLException
      *             the SQL exception
      */
-    private CloseableResultSetWrapper createStreamingResultSet(final Connection connection, final String sql)
-            throws SQLException {
-        if (ENABLE_STREAMING_FETCH) {
+    private CloseableResultSetWrapper createStreamingResultSet(final Connection connection, final String sql,
+            final List<Object> parameters) throws SQLException {
+        if (ENABLE_STREAMING_FETCH || !parameters.isEmpty()) {
             PreparedStatement ps = null;
             try {
                 ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-                ps.setFetchSize(Integer.MIN_VALUE);
+                ps.setFetchSize(ENABLE_STREAMING_FETCH ? Integer.MIN_VALUE : FETCH_SIZE);
+                for (var i = 0; i < parameters.size(); i++) {
+                    ps.setObject(i + 1, parameters.get(i));
+                }
                 return new CloseableResultSetWrapper(ps, ps.executeQuery());
             } catch (final Exception ex) {
                 if (ps != null) {
@@ -601,12 +644,29 @@ final class BrokerHibernate implements Broker {
     @Override
     public <T extends DataBaseObject> CloseableIterator<T> getIterator(final Class<T> target, final String sql)
             throws BrokerException {
-        validateSqlEncoding(sql);
+        return getIterator(target, sql, List.of());
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Same as getIterator(target, sql) but the sql contains placeholders and the parameters are bound in order to the
+     * native query.
+     *
+     * @see ecmwf.common.database.Broker#getIterator(java.lang.Class, java.lang.String, java.util.List)
+     */
+    @Override
+    public <T extends DataBaseObject> CloseableIterator<T> getIterator(final Class<T> target, final String sql,
+            final List<Object> parameters) throws BrokerException {
+        validateSqlEncoding(sql, parameters);
         setReadOnly(true);
         session.setDefaultReadOnly(true);
         ScrollableResults<T> results = null;
         try {
             final NativeQuery<T> query = session.createNativeQuery(sql, target);
+            for (var i = 0; i < parameters.size(); i++) {
+                query.setParameter(i + 1, parameters.get(i));
+            }
             query.setFetchSize(FETCH_SIZE);
             query.setReadOnly(true);
             query.setCacheable(false);
@@ -702,31 +762,58 @@ final class BrokerHibernate implements Broker {
     }
 
     /**
-     * This method performs a CRUD (Create, Read, Update, Delete) operation on the underlying database object. It begins
+     * {@inheritDoc}
+     *
+     * This method performs a save or update of all the given objects in one transaction.
+     *
+     * @see ecmwf.common.database.Broker#store(java.util.List, boolean)
+     */
+    @Override
+    public void store(final List<? extends DataBaseObject> objects, final boolean update) {
+        if (!objects.isEmpty()) {
+            retryablePerform(update ? ExecuteOperation.UPDATE : ExecuteOperation.SAVE, objects,
+                    RETRY_TRANSACTION_COUNT);
+        }
+    }
+
+    /**
+     * This method performs a CRUD (Create, Read, Update, Delete) operation on the underlying database objects. It begins
      * by setting the connection to read-write mode. It then begins a transaction and executes the specified operation
-     * (saveOrUpdate, save, update, or delete) on the specified database object. If an exception occurs during the
-     * transaction, the transaction is rolled back and the exception is rethrown. Finally, the Hibernate session is
+     * (saveOrUpdate, save, update, or delete) on each of the specified database objects. The requests are sent to the
+     * database in JDBC batches and the session is flushed and cleared after each batch. If an exception occurs during
+     * the transaction, the transaction is rolled back and the exception is rethrown. Finally, the Hibernate session is
      * cleared.
      *
      * @param operation
      *            the operation
-     * @param object
-     *            the object
+     * @param objects
+     *            the objects
      */
-    private void perform(final ExecuteOperation operation, final DataBaseObject object) {
+    private void perform(final ExecuteOperation operation, final List<? extends DataBaseObject> objects) {
         setReadOnly(false);
+        final var batch = objects.size() > 1;
         try {
+            if (batch) {
+                session.setJdbcBatchSize(BATCH_SIZE);
+            }
             session.beginTransaction();
-            switch (operation) {
-            case SAVE:
-                session.persist(object);
-                break;
-            case UPDATE:
-                session.merge(object);
-                break;
-            case DELETE:
-                session.remove(object);
-                break;
+            var count = 0;
+            for (final DataBaseObject object : objects) {
+                switch (operation) {
+                case SAVE:
+                    session.persist(object);
+                    break;
+                case UPDATE:
+                    session.merge(object);
+                    break;
+                case DELETE:
+                    session.remove(object);
+                    break;
+                }
+                if (batch && ++count % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
             }
             session.flush();
             session.getTransaction().commit();
@@ -735,6 +822,9 @@ final class BrokerHibernate implements Broker {
             session.getTransaction().rollback();
             throw e;
         } finally {
+            if (batch) {
+                session.setJdbcBatchSize(null);
+            }
             session.clear();
         }
     }
@@ -750,8 +840,23 @@ final class BrokerHibernate implements Broker {
      *            the retry count
      */
     private void retryablePerform(final ExecuteOperation operation, final DataBaseObject object, final int retryCount) {
+        retryablePerform(operation, List.of(object), retryCount);
+    }
+
+    /**
+     * Perform the request and retry if required.
+     *
+     * @param operation
+     *            the operation
+     * @param objects
+     *            the objects
+     * @param retryCount
+     *            the retry count
+     */
+    private void retryablePerform(final ExecuteOperation operation, final List<? extends DataBaseObject> objects,
+            final int retryCount) {
         try {
-            perform(operation, object);
+            perform(operation, objects);
         } catch (final TransactionException e) {
             if ((retryCount <= 0) || !worthRetrying(e)) {
                 throw e;
@@ -761,7 +866,7 @@ final class BrokerHibernate implements Broker {
             } catch (final InterruptedException _) {
                 Thread.currentThread().interrupt();
             }
-            retryablePerform(operation, object, retryCount - 1);
+            retryablePerform(operation, objects, retryCount - 1);
         }
     }
 
@@ -98,6 +98,27 @@ public class DBIterator<E extends DataBaseObject> implements Iterator<E>, Closea
         TRACKER.onOpen();
     }
 
+    /**
+     * Instantiates a new DB iterator. The parameters of the request are bound if required.
+     *
+     * @param broker
+     *            the broker
+     * @param target
+     *            the target
+     * @param request
+     *            the request
+     *
+     * @throws BrokerException
+     *             the broker exception
+     */
+    DBIterator(final Broker broker, final Class<E> target, final SQLRequest request) throws BrokerException {
+        this.iterator = request.isPrepared()
+                ? broker.getIterator(target, request.getSql(), request.getParameters())
+                : broker.getIterator(target, request.getSql());
+        this.broker = broker;
+        TRACKER.onOpen();
+    }
+
     /**
      * Checks for next.
      *
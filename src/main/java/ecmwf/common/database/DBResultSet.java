@@ -90,9 +90,30 @@ final class DBResultSet implements AutoCloseable {
      *             the SQL exception
      */
     DBResultSet(final Broker broker, final String sql) throws BrokerException, SQLException {
+        this(broker, new SQLRequest(null, sql));
+    }
+
+    /**
+     * Instantiates a new DB result set. The parameters of the request are bound if required, unless the number of rows
+     * have to be found, in which case the text of the request is used so that it can be rewritten.
+     *
+     * @param broker
+     *            the broker
+     * @param request
+     *            the request
+     *
+     * @throws BrokerException
+     *             the broker exception
+     * @throws SQLException
+     *             the SQL exception
+     */
+    DBResultSet(final Broker broker, final SQLRequest request) throws BrokerException, SQLException {
+        final var sql = request.toString();
         hasCalcFoundRows = Pattern.compile("(?i)^\\s*SELECT\\s+SQL_CALC_FOUND_ROWS\\s+").matcher(sql).find();
         sqlQuery = hasCalcFoundRows && EMULATE_CALC_FOUND_ROWS ? getInitialSQL(sql) : sql;
-        wrapper = broker.executeQuery(true, sqlQuery);
+        wrapper = request.isPrepared() && !hasCalcFoundRows
+                ? broker.executeQuery(true, request.getSql(), request.getParameters())
+                : broker.executeQuery(true, sqlQuery);
         resultSet = wrapper.getResultSet();
         this.broker = broker;
         TRACKER.onOpen();
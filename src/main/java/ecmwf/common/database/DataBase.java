@@ -45,7 +45,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
@@ -106,6 +109,12 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
     /** The brokerFactory. */
     private BrokerFactory brokerFactory = null;
 
+    /** The latencies per SQL request name. */
+    private final Map<String, SQLLatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    /** The modifications per DataBaseObject class (insert, update and remove done through this DataBase). */
+    private final Map<Class<?>, AtomicLong> modifications = new ConcurrentHashMap<>();
+
     /**
      * Initialise.
      *
@@ -337,6 +346,52 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
         return hash;
     }
 
+    /**
+     * String array to hashtable. Only the values in the form "key=value" are kept, and they are not escaped as they
+     * are expected to be bound to a prepared statement.
+     *
+     * @param values
+     *            the values
+     *
+     * @return the hashtable
+     */
+    private static Map<String, String> stringArrayToMapWithBindableSQLValues(final String[] values) {
+        final Map<String, String> hash = new HashMap<>();
+        for (final String value : values) {
+            final var index = value.indexOf("=");
+            if (index > 0 && value.charAt(index - 1) != '-') {
+                hash.put(value.substring(0, index), value.substring(index + 1));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Record the execution time of a SQL request from the repository.
+     *
+     * @param request
+     *            the request
+     * @param start
+     *            the start
+     */
+    private void recordLatency(final SQLRequest request, final long start) {
+        recordLatency(request.getName(), start);
+    }
+
+    /**
+     * Record the execution time of a request.
+     *
+     * @param name
+     *            the name of the request
+     * @param start
+     *            the start time of the request
+     */
+    private void recordLatency(final String name, final long start) {
+        if (name != null) {
+            latencies.computeIfAbsent(name, _ -> new SQLLatencyHistogram()).record(System.currentTimeMillis() - start);
+        }
+    }
+
     /**
      * Escape SQL values to avoid SQL injections.
      *
@@ -445,6 +500,36 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
         }
     }
 
+    /**
+     * Execute select. The parameters of the request are bound to a prepared statement if required.
+     *
+     * @param request
+     *            the request
+     *
+     * @return the DB result set
+     *
+     * @throws SQLException
+     *             the SQL exception
+     */
+    protected DBResultSet executeSelect(final SQLRequest request) throws SQLException {
+        if (debugSql) {
+            _log.debug("executeSelect: {}", request);
+        }
+        try (var broker = brokerFactory.getBroker()) {
+            final var start = System.currentTimeMillis();
+            final var result = new DBResultSet(broker, request);
+            recordLatency(request, start);
+            logSqlRequest(request.toString(), start, System.currentTimeMillis(), result.getFoundRows());
+            return result;
+        } catch (final SQLException e) {
+            error("executeSelect", request.toString(), e);
+            throw e;
+        } catch (final Exception e) {
+            error("executeSelect", request.toString(), e);
+            throw new SQLException("Database not available");
+        }
+    }
+
     /**
      * Select.
      *
@@ -758,7 +843,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
      */
     protected DBResultSet executeSelect(final String menu, final String name, final String[] values)
             throws SQLException, IOException {
-        return dataFile.executeQuery(menu, "select", name, stringArrayToMapWithEscapedSQLValues(values));
+        return dataFile.executeQuery(menu, "select", name, stringArrayToMapWithEscapedSQLValues(values),
+                stringArrayToMapWithBindableSQLValues(values));
     }
 
     /**
@@ -810,7 +896,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
 
     protected <T extends DataBaseObject> DBIterator<T> executeQuery(final String menu, final String name,
             final Class<T> resultClass, final String[] values) throws SQLException, IOException {
-        return dataFile.executeQuery(menu, "query", name, resultClass, stringArrayToMapWithEscapedSQLValues(values));
+        return dataFile.executeQuery(menu, "query", name, resultClass, stringArrayToMapWithEscapedSQLValues(values),
+                stringArrayToMapWithBindableSQLValues(values));
     }
 
     /**
@@ -853,7 +940,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
      */
     protected int executeCountAsInt(final String menu, final String name, final String[] values)
             throws SQLException, IOException {
-        try (var rs = dataFile.executeQuery(menu, "count", name, stringArrayToMapWithEscapedSQLValues(values))) {
+        try (var rs = dataFile.executeQuery(menu, "count", name, stringArrayToMapWithEscapedSQLValues(values),
+                stringArrayToMapWithBindableSQLValues(values))) {
             return rs.next() ? rs.getInt(1) : -1;
         }
     }
@@ -898,7 +986,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
      */
     protected long executeCountAsLong(final String menu, final String name, final String[] values)
             throws SQLException, IOException {
-        try (var rs = dataFile.executeQuery(menu, "count", name, stringArrayToMapWithEscapedSQLValues(values))) {
+        try (var rs = dataFile.executeQuery(menu, "count", name, stringArrayToMapWithEscapedSQLValues(values),
+                stringArrayToMapWithBindableSQLValues(values))) {
             return rs.next() ? rs.getLong(1) : -1;
         }
     }
@@ -978,6 +1067,13 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
             if ("Repository".equals(attributeName)) {
                 return dataFile.getRepository();
             }
+            if ("StatementLatencies".equals(attributeName)) {
+                final var result = new StringBuilder();
+                for (final Map.Entry<String, SQLLatencyHistogram> entry : new TreeMap<>(latencies).entrySet()) {
+                    result.append(entry.getKey()).append(": ").append(entry.getValue()).append(NL);
+                }
+                return result.toString();
+            }
         } catch (final Exception e) {
             _log.warn("Getting an MBean attribute", e);
             throw new MBeanException(e);
@@ -1047,12 +1143,17 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
                 new MBeanAttributeInfo("MaxCount", "java.lang.Long",
                         "MaxCount: DebugSql automaticaly set for a request which return more than MaxCount elements.",
                         true, true, false),
-                new MBeanAttributeInfo(
-                        "Repository", "java.lang.String", "Repository: path for SQL scripts.", true, false, false) },
+                new MBeanAttributeInfo("Repository", "java.lang.String", "Repository: path for SQL scripts.", true,
+                        false, false),
+                new MBeanAttributeInfo("StatementLatencies", "java.lang.String",
+                        "StatementLatencies: execution times of the SQL scripts.", true, false, false) },
                 new MBeanConstructorInfo[0],
                 new MBeanOperationInfo[] {
                         new MBeanOperationInfo("clearCache", "clearCache(): clear the object cache", null, "void",
                                 MBeanOperationInfo.ACTION),
+                        new MBeanOperationInfo("resetStatementLatencies",
+                                "resetStatementLatencies(): reset the execution times of the SQL scripts", null,
+                                "void", MBeanOperationInfo.ACTION),
                         new MBeanOperationInfo("reloadRepository",
                                 "reloadRepository(): reload the scripts from the repository", null, "void",
                                 MBeanOperationInfo.ACTION),
@@ -1137,6 +1238,10 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
                 clearCache();
                 return Boolean.TRUE;
             }
+            if ("resetStatementLatencies".equals(operationName) && signature.length == 0) {
+                latencies.clear();
+                return Boolean.TRUE;
+            }
             if ("updateScriptContent".equals(operationName) && signature.length == 3
                     && "java.lang.String".equals(signature[0]) && "java.lang.String".equals(signature[1])
                     && "java.lang.String".equals(signature[2])) {
@@ -1323,6 +1428,7 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
                     }
                 }
                 broker.store(object, false);
+                modified(object);
             } catch (final Throwable e) {
                 error("Insert", object, e);
                 throw new DataBaseException(e.getMessage());
@@ -1359,6 +1465,7 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
                 try (var broker = brokerFactory.getBroker()) {
                     broker.store(object, true);
                     // The update was successful!
+                    modified(object);
                     return;
                 } catch (final Throwable t) {
                     error("Update", object, throwable = t);
@@ -1407,6 +1514,44 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
         }
     }
 
+    /**
+     * Try to insert or update a list of DataBase Objects in a single transaction, using JDBC batches. If the
+     * transaction fails then the objects are stored one by one, so that a single faulty object does not prevent the
+     * others from being recorded. In case of problem it will fail silently. The duration of the batches is recorded
+     * in the statement latencies (e.g. "batch.update.DataTransfer").
+     *
+     * @param <T>
+     *            the generic type
+     * @param objects
+     *            the objects
+     * @param update
+     *            the update
+     *
+     * @return the objects stored
+     */
+    public <T extends DataBaseObject> List<T> tryStore(final List<T> objects, final boolean update) {
+        if (objects.isEmpty()) {
+            return objects;
+        }
+        final var name = "batch." + (update ? "update." : "insert.") + Format.getClassName(objects.get(0));
+        final var start = System.currentTimeMillis();
+        try (var broker = brokerFactory.getBroker()) {
+            broker.store(objects, update);
+            recordLatency(name, start);
+            objects.forEach(this::modified);
+            return objects;
+        } catch (final Throwable t) {
+            _log.warn("Batch of {} object(s) NOT stored ({}), storing them one by one", objects.size(), name, t);
+        }
+        final List<T> stored = new ArrayList<>(objects.size());
+        for (final T object : objects) {
+            if (update ? tryUpdate(object) : tryInsert(object, true)) {
+                stored.add(object);
+            }
+        }
+        return stored;
+    }
+
     /**
      * Removes the.
      *
@@ -1437,6 +1582,7 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
                     continue;
                 }
                 broker.delete(object);
+                modified(object);
             }
         } catch (final Throwable e) {
             error("Remove", object, e);
@@ -1444,6 +1590,31 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
         }
     }
 
+    /**
+     * Record a modification of an object of the class (e.g. to know when something built from these objects has to
+     * be rebuilt).
+     *
+     * @param object
+     *            the object
+     */
+    private void modified(final DataBaseObject object) {
+        modifications.computeIfAbsent(object.getClass(), _ -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Gets the number of modifications (insert, update and remove) done through this DataBase for the objects of the
+     * specified class since it was started.
+     *
+     * @param clazz
+     *            the clazz
+     *
+     * @return the modifications
+     */
+    public long getModifications(final Class<? extends DataBaseObject> clazz) {
+        final var count = modifications.get(clazz);
+        return count != null ? count.get() : 0;
+    }
+
     /**
      * Clear cache.
      */
@@ -1548,8 +1719,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
         /**
          * Execute query.
          *
-         * @param sql
-         *            the sql
+         * @param request
+         *            the request
          *
          * @return the DB result set
          *
@@ -1557,8 +1728,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
          *             the SQL exception
          */
         @Override
-        public DBResultSet executeQuery(final String sql) throws SQLException {
-            return executeSelect(sql);
+        public DBResultSet executeQuery(final SQLRequest request) throws SQLException {
+            return executeSelect(request);
         }
 
         /**
@@ -1568,8 +1739,8 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
          *            the generic type
          * @param resultClass
          *            the result class
-         * @param originalSql
-         *            the original sql
+         * @param request
+         *            the request
          *
          * @return the DB iterator
          *
@@ -1577,18 +1748,19 @@ public class DataBase extends DataGet implements MBeanService, Closeable {
          *             the SQL exception
          */
         @Override
-        public <T extends DataBaseObject> DBIterator<T> executeQuery(final Class<T> resultClass, final String sql)
-                throws SQLException {
+        public <T extends DataBaseObject> DBIterator<T> executeQuery(final Class<T> resultClass,
+                final SQLRequest request) throws SQLException {
             if (debugSql) {
-                _log.debug("executeQuery: {}", sql);
+                _log.debug("executeQuery: {}", request);
             }
             try (var broker = brokerFactory.getBroker()) {
                 final var start = System.currentTimeMillis();
-                final var result = new DBIterator<>(broker, resultClass, sql);
-                logSqlRequest(sql, start, System.currentTimeMillis(), -1);
+                final var result = new DBIterator<>(broker, resultClass, request);
+                recordLatency(request, start);
+                logSqlRequest(request.toString(), start, System.currentTimeMillis(), -1);
                 return result;
             } catch (final Exception e) {
-                error("executeQuery", sql, e);
+                error("executeQuery", request.toString(), e);
                 throw new SQLException("Database not available");
             }
         }
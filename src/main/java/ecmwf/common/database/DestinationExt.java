@@ -53,6 +53,29 @@ public class DestinationExt extends Destination {
         super(name);
     }
 
+    /**
+     * Instantiates a new destination ext from an existing destination and its pending transfers statistics.
+     *
+     * @param destination
+     *            the destination
+     * @param pendingTransfersCount
+     *            the pending transfers count
+     * @param minQueueTime
+     *            the min queue time
+     */
+    public DestinationExt(final Destination destination, final int pendingTransfersCount,
+            final java.sql.Timestamp minQueueTime) {
+        super(destination.getName());
+        setResetFrequency(destination.getResetFrequency());
+        setStopIfDirty(destination.getStopIfDirty());
+        setUpdate(destination.getUpdate());
+        setStatusCode(destination.getStatusCode());
+        setSchedulerValueId(destination.getSchedulerValueId());
+        setSchedulerValue(destination.getSchedulerValue());
+        this.pendingTransfersCount = pendingTransfersCount;
+        this.minQueueTime = minQueueTime;
+    }
+
     /**
      * Gets the min queue time.
      *
@@ -2089,6 +2089,61 @@ public final class ECpdsBase extends DataBase {
         return list.toArray(new DataTransfer[list.size()]);
     }
 
+    /**
+     * Gets the unique keys of the data transfers of a destination (and its aliases), used to warm up the acquisition
+     * index. Only the unique key, status code and data file (identifier, time and size) are set in the data transfers.
+     *
+     * @param destinationName
+     *            the destination name
+     *
+     * @return the data transfers
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     * @throws SQLException
+     *             the SQL exception
+     */
+    public CloseableIterator<DataTransfer> getAcquisitionIndex(final String destinationName)
+            throws IOException, SQLException {
+        return new CloseableIterator<>() {
+            final DBResultSet rs = ecpds.getAcquisitionIndex(destinationName);
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    return rs.next();
+                } catch (final SQLException _) {
+                    return false;
+                }
+            }
+
+            @Override
+            public DataTransfer next() {
+                final var transfer = new DataTransfer();
+                try {
+                    final var file = new DataFile();
+                    file.setId(rs.getLong("DAF_ID"));
+                    file.setTimeFile(new Timestamp(rs.getLong("DAF_TIME_FILE")));
+                    file.setSize(rs.getLong("DAF_SIZE"));
+                    transfer.setDataFileId(file.getId());
+                    transfer.setDataFile(file);
+                    transfer.setUniqueKey(rs.getString("DAT_UNIQUE_KEY"));
+                    transfer.setStatusCode(rs.getString("STA_CODE"));
+                } catch (final SQLException e) {
+                    _log.warn("getAcquisitionIndex", e);
+                }
+                return transfer;
+            }
+
+            @Override
+            public void close() {
+                if (rs != null) {
+                    rs.close();
+                }
+            }
+        };
+    }
+
     /**
      * Gets the existing storage directories.
      *
@@ -2381,6 +2381,25 @@ final class ECpdsGet {
                 new String[] { "uniqueKey=" + paramUniqueKey, "destination=" + paramDestination });
     }
 
+    /**
+     * Gets the unique keys of the data transfers of a destination (and its aliases) with the time and size of their
+     * data files.
+     *
+     * @param paramDestination
+     *            the param destination
+     *
+     * @return the acquisition index
+     *
+     * @throws SQLException
+     *             the SQL exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    DBResultSet getAcquisitionIndex(final String paramDestination) throws SQLException, IOException {
+        return _database.executeSelect("ECpdsBase", "getAcquisitionIndex",
+                new String[] { "destination=" + paramDestination });
+    }
+
     /**
      * Gets the transfer history per data transfer.
      *
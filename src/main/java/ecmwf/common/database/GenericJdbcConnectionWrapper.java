@@ -27,18 +27,28 @@ package ecmwf.common.database;
  */
 
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.hibernate.Session;
 import org.hibernate.internal.SessionImpl;
 
 import com.zaxxer.hikari.pool.ProxyConnection;
 
+import ecmwf.common.technical.Cnf;
+
 /**
  * Wrapper utility to abstract and handle underlying JDBC connections from Hibernate sessions, supporting both MariaDB
  * and MySQL drivers.
  */
 class GenericJdbcConnectionWrapper {
 
+    /** The Constant STATEMENT_CACHE_SIZE (number of prepared statements cached per connection, 0 to disable). */
+    private static final int STATEMENT_CACHE_SIZE = Cnf.at("DataBase", "statementCacheSize", 250);
+
+    /** The Constant STATEMENT_CACHE_SQL_LIMIT (max length of a sql to be cached, MySQL only). */
+    private static final int STATEMENT_CACHE_SQL_LIMIT = Cnf.at("DataBase", "statementCacheSqlLimit", 8192);
+
     /**
      * Generic interface representing JDBC connections with basic common operations needed (readOnly, autoCommit, host
      * info).
@@ -218,6 +228,34 @@ class GenericJdbcConnectionWrapper {
         return null;
     }
 
+    /**
+     * Gets the driver properties required to cache the prepared statements per connection on the server side, so that
+     * the requests with placeholders are only parsed and planned once per connection by the database. The properties
+     * are specific to the MariaDB and MySQL drivers, and nothing is returned for any other driver.
+     *
+     * @param driver
+     *            the driver class name
+     *
+     * @return the driver properties
+     */
+    public static Map<String, String> getStatementCacheProperties(final String driver) {
+        final Map<String, String> properties = new HashMap<>();
+        if (STATEMENT_CACHE_SIZE <= 0) {
+            return properties;
+        }
+        if ("org.mariadb.jdbc.Driver".equals(driver)) {
+            properties.put("useServerPrepStmts", "true");
+            properties.put("cachePrepStmts", "true");
+            properties.put("prepStmtCacheSize", String.valueOf(STATEMENT_CACHE_SIZE));
+        } else if ("com.mysql.cj.jdbc.Driver".equals(driver) || "com.mysql.jdbc.Driver".equals(driver)) {
+            properties.put("useServerPrepStmts", "true");
+            properties.put("cachePrepStmts", "true");
+            properties.put("prepStmtCacheSize", String.valueOf(STATEMENT_CACHE_SIZE));
+            properties.put("prepStmtCacheSqlLimit", String.valueOf(STATEMENT_CACHE_SQL_LIMIT));
+        }
+        return properties;
+    }
+
     /**
      * Detects the underlying connection type for the given Hibernate session, returning a GenericJdbcConnection wrapper
      * for MariaDB or MySQL connections.
@@ -203,6 +203,9 @@ public class HibernateSessionFactory {
                 .setProperty("hibernate.connection.url", protocol + ":" + subProtocol + ":" + alias)
                 .setProperty("hibernate.connection.username", user)
                 .setProperty("hibernate.connection.password", password);
+        // Prepared statements cached per connection by the driver (through the Hikari pool)
+        GenericJdbcConnectionWrapper.getStatementCacheProperties(driver)
+                .forEach((key, value) -> conf.setProperty("hibernate.hikari.dataSource." + key, value));
         conf.addFile(getFile(HIBERNATE_HBM));
         conf.configure(getFile(HIBERNATE_CFG));
         conf.setEntityNotFoundDelegate((entityName, id) -> _log.error("Entity not found: {}#{}", id, entityName));
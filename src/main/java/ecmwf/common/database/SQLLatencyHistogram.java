@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.database;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The Class SQLLatencyHistogram. Distribution of the execution times of a SQL request, with fixed buckets in
+ * milliseconds.
+ */
+final class SQLLatencyHistogram {
+    /** The Constant BOUNDS (upper bound of each bucket in ms, the last bucket is unbounded). */
+    private static final long[] BOUNDS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000 };
+
+    /** The buckets. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+    /** The count. */
+    private final AtomicLong count = new AtomicLong(0);
+
+    /** The total. */
+    private final AtomicLong total = new AtomicLong(0);
+
+    /** The max. */
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Record the execution time of a request.
+     *
+     * @param duration
+     *            the duration in ms
+     */
+    void record(final long duration) {
+        var i = 0;
+        while (i < BOUNDS.length && duration > BOUNDS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.incrementAndGet();
+        total.addAndGet(duration);
+        max.accumulateAndGet(duration, Math::max);
+    }
+
+    /**
+     * Gets the count.
+     *
+     * @return the count
+     */
+    long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns a summary of the histogram, only the buckets with some requests are displayed (e.g. "count=12 avg=3ms
+     * max=20ms [&lt;=1ms:2 &lt;=5ms:8 &lt;=25ms:2]").
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        final var requests = count.get();
+        final var result = new StringBuilder("count=").append(requests).append(" avg=")
+                .append(requests > 0 ? total.get() / requests : 0).append("ms max=").append(max.get()).append("ms [");
+        var first = true;
+        for (var i = 0; i < buckets.length(); i++) {
+            final var value = buckets.get(i);
+            if (value > 0) {
+                if (!first) {
+                    result.append(' ');
+                }
+                result.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append("ms:")
+                        .append(value);
+                first = false;
+            }
+        }
+        return result.append(']').toString();
+    }
+}
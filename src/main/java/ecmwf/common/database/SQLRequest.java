@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.database;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Class SQLRequest. SQL request resolved from a script of the repository. The parameters which could be bound are
+ * replaced by placeholders in the sql (e.g. DES_NAME = ?) and their values are provided separately, so that the same
+ * sql is sent to the database whatever the values are and can be prepared only once per connection. The text of the
+ * request with the values substituted is also available for the logs and for the requests which cannot be prepared.
+ */
+public final class SQLRequest {
+    /** The name (menu.name of the script). */
+    private final String name;
+
+    /** The sql with the placeholders. */
+    private final String sql;
+
+    /** The parameters. */
+    private final List<Object> parameters;
+
+    /** The text with the values substituted. */
+    private final String text;
+
+    /**
+     * Instantiates a new SQL request.
+     *
+     * @param name
+     *            the name
+     * @param sql
+     *            the sql with the placeholders
+     * @param parameters
+     *            the parameters
+     * @param text
+     *            the text with the values substituted
+     */
+    SQLRequest(final String name, final String sql, final List<Object> parameters, final String text) {
+        this.name = name;
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(parameters);
+        this.text = text;
+    }
+
+    /**
+     * Instantiates a new SQL request without parameters.
+     *
+     * @param name
+     *            the name
+     * @param text
+     *            the text
+     */
+    SQLRequest(final String name, final String text) {
+        this(name, text, Collections.emptyList(), text);
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the sql with the placeholders.
+     *
+     * @return the sql
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Gets the parameters.
+     *
+     * @return the parameters
+     */
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Checks if is prepared.
+     *
+     * @return true, if some parameters have to be bound
+     */
+    public boolean isPrepared() {
+        return !parameters.isEmpty();
+    }
+
+    /**
+     * Returns the text of the request with the values substituted.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -38,10 +38,12 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import javax.script.ScriptException;
 
@@ -63,6 +65,18 @@ public abstract class ScriptFile {
     /** The allFiles. */
     private final ConcurrentHashMap<String, File> allFiles = new ConcurrentHashMap<>();
 
+    /** The Constant MARKER_START. Start of the placeholder of a bound parameter while the request is resolved. */
+    private static final char MARKER_START = '\uE000';
+
+    /** The Constant MARKER_END. End of the placeholder of a bound parameter while the request is resolved. */
+    private static final char MARKER_END = '\uE001';
+
+    /** The Constant MARKER. */
+    private static final Pattern MARKER = Pattern.compile(MARKER_START + "(\\d+)" + MARKER_END);
+
+    /** The Constant NUMBER. */
+    private static final Pattern NUMBER = Pattern.compile("-?\\d{1,18}");
+
     /**
      * Escapes a value for safe embedding inside a JavaScript double-quoted string literal. Prevents injection when
      * user-supplied parameter values are substituted into {@code #if $()} conditions before the JS engine evaluates
@@ -97,18 +111,149 @@ public abstract class ScriptFile {
         return target;
     }
 
+    /**
+     * Substitute the parameter in a line of the request. If the parameter is a whole quoted literal (e.g.
+     * '$destination') or if it is a number outside of any literal (e.g. LIMIT $limit) then it is replaced by a
+     * placeholder and its value will be bound to the statement. Otherwise (e.g. like '%$search%') the value is
+     * substituted in the text as usual.
+     *
+     * @param target
+     *            the line
+     * @param name
+     *            the name of the parameter (e.g. $destination)
+     * @param value
+     *            the value (escaped for sql)
+     * @param bindable
+     *            the value to bind (not escaped)
+     * @param bound
+     *            the bound parameters (value and text for each placeholder)
+     *
+     * @return the string
+     */
+    private static final String bindString(final String target, final String name, final String value,
+            final String bindable, final List<Object[]> bound) {
+        final var result = new StringBuilder(target.length() + 16);
+        final var numeric = NUMBER.matcher(bindable).matches();
+        final var length = target.length();
+        var literal = -1; // Start of the string literal the scan is in (-1 if none)
+        var from = 0;
+        var i = 0;
+        while (i < length) {
+            if (!target.startsWith(name, i)) {
+                final var c = target.charAt(i);
+                if (c == '\\' && literal != -1) {
+                    // An escaped character inside a literal (e.g. \' from a value substituted earlier)!
+                    i += 2;
+                    continue;
+                }
+                if (c == '\'') {
+                    // A quote inside a literal ('') closes it and opens a new one, which is fine for our purpose!
+                    literal = literal == -1 ? i : -1;
+                }
+                i++;
+                continue;
+            }
+            final var end = i + name.length();
+            if (literal == i - 1 && end < length && target.charAt(end) == '\'') {
+                result.append(target, from, i - 1);
+                result.append(MARKER_START).append(bound.size()).append(MARKER_END);
+                bound.add(new Object[] { bindable, "'" + value + "'" });
+                literal = -1;
+                from = i = end + 1;
+            } else if (numeric && literal == -1 && (end == length
+                    || !Character.isLetterOrDigit(target.charAt(end)) && target.charAt(end) != '_')) {
+                result.append(target, from, i);
+                result.append(MARKER_START).append(bound.size()).append(MARKER_END);
+                bound.add(new Object[] { Long.valueOf(bindable), value });
+                from = i = end;
+            } else {
+                result.append(target, from, i).append(value);
+                from = i = end;
+            }
+        }
+        return result.append(target, from, length).toString();
+    }
+
+    /**
+     * Build the request from the resolved sql. The placeholders of the bound parameters are replaced by a question mark
+     * in the sql and by their values in the text.
+     *
+     * @param name
+     *            the name
+     * @param resolved
+     *            the resolved sql
+     * @param bound
+     *            the bound parameters
+     *
+     * @return the SQL request
+     */
+    private static final SQLRequest getRequest(final String name, final String resolved, final List<Object[]> bound) {
+        if (bound.isEmpty()) {
+            return new SQLRequest(name, resolved);
+        }
+        final var matcher = MARKER.matcher(resolved);
+        final var sql = new StringBuilder(resolved.length());
+        final var text = new StringBuilder(resolved.length());
+        final List<Object> parameters = new ArrayList<>();
+        var from = 0;
+        while (matcher.find()) {
+            final var parameter = bound.get(Integer.parseInt(matcher.group(1)));
+            sql.append(resolved, from, matcher.start()).append('?');
+            text.append(resolved, from, matcher.start()).append(parameter[1]);
+            parameters.add(parameter[0]);
+            from = matcher.end();
+        }
+        sql.append(resolved, from, resolved.length());
+        text.append(resolved, from, resolved.length());
+        return new SQLRequest(name, sql.toString(), parameters, text.toString());
+    }
+
+    /**
+     * Convert the value of a parameter to the value bound to a #if $() condition. The numbers and booleans keep their
+     * type, as when they were substituted in the text of the condition.
+     *
+     * @param value
+     *            the value
+     *
+     * @return the object
+     */
+    private static final Object toScriptValue(final String value) {
+        if (NUMBER.matcher(value).matches()) {
+            return Long.valueOf(value);
+        }
+        if ("true".equals(value) || "false".equals(value)) {
+            return Boolean.valueOf(value);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the condition of a #if line.
+     *
+     * @param line
+     *            the line
+     *
+     * @return the condition
+     */
+    private static final String getCondition(final String line) {
+        return line.substring(line.indexOf('(') + 1, line.lastIndexOf(')'));
+    }
+
     /**
      * Evaluate the query according to the user choices.
      *
      * @param sql
      *            the sql
+     * @param parameters
+     *            the parameters which were not substituted in the #if $() conditions
      *
      * @return the string
      *
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      */
-    private static final String evalQuery(final String sql) throws IOException {
+    private static final String evalQuery(final String sql, final Map<String, Object> parameters)
+            throws IOException {
         final var result = new StringBuilder();
         final var dis = new BufferedReader(new StringReader(sql));
         try (dis) {
@@ -120,7 +265,7 @@ public abstract class ScriptFile {
                     result.append(line).append("\n");
                     line = dis.readLine();
                 } else if (line.startsWith("#if") && line.length() > 3) {
-                    final var condition = line.substring(line.indexOf('(') + 1, line.lastIndexOf(')'));
+                    final var condition = getCondition(line);
                     final var javascript = line.indexOf("$(") != -1;
                     while ((line = dis.readLine()) != null && !line.startsWith("#fi") && !line.startsWith("#if")) {
                         if (line != null && !line.startsWith("#")) {
@@ -134,7 +279,8 @@ public abstract class ScriptFile {
                     }
                     // Test the condition!
                     if (javascript) {
-                        if (Boolean.TRUE.equals(ScriptManager.exec(Boolean.class, ScriptManager.JS, condition))) {
+                        if (Boolean.TRUE.equals(ScriptManager.execTemplate(Boolean.class, ScriptManager.JS, condition,
+                                parameters, false))) {
                             result.append(thenStr);
                         } else if (elseStr != null) {
                             result.append(elseStr);
@@ -299,16 +445,20 @@ public abstract class ScriptFile {
      * _execute request.
      *
      * @param values
-     *            the values
+     *            the values (escaped for sql)
+     * @param bindings
+     *            the values which can be bound to the statement (not escaped), or null if the request should not use
+     *            placeholders
      * @param request
      *            the request
      *
-     * @return the string
+     * @return the SQL request
      *
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      */
-    private final String executeRequest(Map<String, String> values, final String request) throws IOException {
+    private final SQLRequest executeRequest(Map<String, String> values, Map<String, String> bindings,
+            final String request) throws IOException {
         final Map<String, String> params = new HashMap<>();
         final List<String> keys = new ArrayList<>();
         final Map<String, String> resolved = new HashMap<>();
@@ -328,6 +478,11 @@ public abstract class ScriptFile {
         if (currentTimeMillis == null) {
             values.put("currentTimeMillis", String.valueOf(now));
         }
+        if (bindings != null) {
+            bindings = new HashMap<>(bindings);
+            bindings.putIfAbsent("currentTimeMillis", values.get("currentTimeMillis"));
+        }
+        final List<Object[]> bound = new ArrayList<>();
         final var dis = new BufferedReader(new StringReader(request));
         final var date = DataBase.formatDate(now);
         final var time = DataBase.formatTime(now);
@@ -396,6 +551,12 @@ public abstract class ScriptFile {
             dis.close();
         }
         if (sql.length() > 0) {
+            // The names of the parameters and the values to bind to the #if $() conditions
+            final List<String> names = new ArrayList<>();
+            for (final String parameter : keys) {
+                names.add("$" + parameter);
+            }
+            final Map<String, Object> conditionParameters = new LinkedHashMap<>();
             // Parameters to prompt?
             for (final String parameter : keys) {
                 if (sql.indexOf("$" + parameter) == -1) {
@@ -420,13 +581,24 @@ public abstract class ScriptFile {
                 // literal, so it must be JS-escaped to prevent logic injection.
                 final var paramToken = "$" + parameter;
                 final var rawValue = value.toString();
+                conditionParameters.put(paramToken, toScriptValue(rawValue));
+                // Only the values provided by the caller can be bound (not the default ones).
+                final var bindable = bindings != null && rawValue.equals(values.get(parameter))
+                        ? bindings.get(parameter) : null;
+                final var javascript = sql.indexOf("#if $(") != -1;
                 final String eval;
-                if (sql.indexOf("#if $(") != -1) {
-                    // Apply JS-safe escaping on #if $() lines, plain value everywhere else.
+                if (javascript || bindable != null) {
+                    // Apply JS-safe escaping on #if $() lines, plain value everywhere else. The parameters of the
+                    // #if $() conditions are not substituted if they can be passed as bindings to the script.
                     final var sb = new StringBuilder(sql.length() + 16);
                     for (final String sqlLine : sql.toString().split("\n", -1)) {
-                        if (sqlLine.startsWith("#if $(") || sqlLine.startsWith("#else")) {
+                        if (javascript && sqlLine.startsWith("#if $(")
+                                && ScriptManager.isBindable(ScriptManager.JS, getCondition(sqlLine), names)) {
+                            sb.append(sqlLine);
+                        } else if (javascript && (sqlLine.startsWith("#if $(") || sqlLine.startsWith("#else"))) {
                             sb.append(evalString(sqlLine, paramToken, escapeForJs(rawValue)));
+                        } else if (bindable != null && !sqlLine.startsWith("#")) {
+                            sb.append(bindString(sqlLine, paramToken, rawValue, bindable, bound));
                         } else {
                             sb.append(evalString(sqlLine, paramToken, rawValue));
                         }
@@ -440,16 +612,19 @@ public abstract class ScriptFile {
                 sql.append(eval);
             }
             // process sql - #if - #else - #fi
-            final var eval = evalQuery(sql.toString());
+            final var eval = evalQuery(sql.toString(), conditionParameters);
             sql.setLength(0);
             sql.append(eval);
-            showHelp(sql.toString(), help.toString());
+        }
+        final var result = getRequest(menu + "." + name, sql.toString(), bound);
+        if (sql.length() > 0) {
+            showHelp(result.toString(), help.toString());
         }
         if (help.isEmpty()) {
             if (confirm != null && !getConfirmation(menu + " -> " + name, confirm)) {
                 return null;
             }
-            return sql.toString();
+            return result;
         }
         return null;
     }
@@ -475,7 +650,35 @@ public abstract class ScriptFile {
      */
     public DBResultSet executeQuery(final String menu, final String group, final String name,
             final Map<String, String> values) throws SQLException, IOException {
-        return executeQuery(executeRequest(values, getScriptContent(menu, group, name)));
+        return executeQuery(menu, group, name, values, null);
+    }
+
+    /**
+     * Execute query. The quoted or numeric parameters with a value in the bindings are bound to a prepared statement
+     * rather than being substituted in the sql.
+     *
+     * @param menu
+     *            the menu
+     * @param group
+     *            the group
+     * @param name
+     *            the name
+     * @param values
+     *            the values (escaped for sql)
+     * @param bindings
+     *            the values which can be bound (not escaped)
+     *
+     * @return the DB result set
+     *
+     * @throws java.sql.SQLException
+     *             the SQL exception
+     * @throws java.io.IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public DBResultSet executeQuery(final String menu, final String group, final String name,
+            final Map<String, String> values, final Map<String, String> bindings) throws SQLException, IOException {
+        return executeQuery(executeRequest(values, bindings != null ? bindings : Map.of(),
+                getScriptContent(menu, group, name)));
     }
 
     /**
@@ -504,7 +707,40 @@ public abstract class ScriptFile {
     public <T extends DataBaseObject> DBIterator<T> executeQuery(final String menu, final String group,
             final String name, final Class<T> resultClass, final Map<String, String> values)
             throws SQLException, IOException {
-        return executeQuery(resultClass, executeRequest(values, getScriptContent(menu, group, name)));
+        return executeQuery(menu, group, name, resultClass, values, null);
+    }
+
+    /**
+     * Execute query. The quoted or numeric parameters with a value in the bindings are bound to a prepared statement
+     * rather than being substituted in the sql.
+     *
+     * @param <T>
+     *            the generic type
+     * @param menu
+     *            the menu
+     * @param group
+     *            the group
+     * @param name
+     *            the name
+     * @param resultClass
+     *            the result class
+     * @param values
+     *            the values (escaped for sql)
+     * @param bindings
+     *            the values which can be bound (not escaped)
+     *
+     * @return the DB iterator
+     *
+     * @throws java.sql.SQLException
+     *             the SQL exception
+     * @throws java.io.IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public <T extends DataBaseObject> DBIterator<T> executeQuery(final String menu, final String group,
+            final String name, final Class<T> resultClass, final Map<String, String> values,
+            final Map<String, String> bindings) throws SQLException, IOException {
+        return executeQuery(resultClass, executeRequest(values, bindings != null ? bindings : Map.of(),
+                getScriptContent(menu, group, name)));
     }
 
     /**
@@ -526,7 +762,7 @@ public abstract class ScriptFile {
      */
     public DBResultSet executeQuery(final String menu, final String group, final String name)
             throws SQLException, IOException {
-        return executeQuery(executeRequest(null, getScriptContent(menu, group, name)));
+        return executeQuery(executeRequest(null, Map.of(), getScriptContent(menu, group, name)));
     }
 
     /**
@@ -552,21 +788,21 @@ public abstract class ScriptFile {
      */
     public <T extends DataBaseObject> DBIterator<T> executeQuery(final String menu, final String group,
             final String name, final Class<T> resultClass) throws SQLException, IOException {
-        return executeQuery(resultClass, executeRequest(null, getScriptContent(menu, group, name)));
+        return executeQuery(menu, group, name, resultClass, null, null);
     }
 
     /**
      * Execute query.
      *
-     * @param sql
-     *            the sql
+     * @param request
+     *            the request
      *
      * @return the DB result set
      *
      * @throws java.sql.SQLException
      *             the SQL exception
      */
-    public abstract DBResultSet executeQuery(String sql) throws SQLException;
+    public abstract DBResultSet executeQuery(SQLRequest request) throws SQLException;
 
     /**
      * Execute query.
@@ -575,15 +811,15 @@ public abstract class ScriptFile {
      *            the generic type
      * @param resultClass
      *            the result class
-     * @param sql
-     *            the sql
+     * @param request
+     *            the request
      *
      * @return the DB iterator
      *
      * @throws java.sql.SQLException
      *             the SQL exception
      */
-    public abstract <T extends DataBaseObject> DBIterator<T> executeQuery(Class<T> resultClass, String sql)
+    public abstract <T extends DataBaseObject> DBIterator<T> executeQuery(Class<T> resultClass, SQLRequest request)
             throws SQLException;
 
     /**
@@ -607,7 +843,8 @@ public abstract class ScriptFile {
      */
     public int executeUpdate(final String menu, final String group, final String name, final Map<String, String> values)
             throws SQLException, IOException {
-        return executeUpdate(executeRequest(values, getScriptContent(menu, group, name)));
+        final var request = executeRequest(values, null, getScriptContent(menu, group, name));
+        return executeUpdate(request != null ? request.toString() : null);
     }
 
     /**
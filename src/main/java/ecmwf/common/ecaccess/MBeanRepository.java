@@ -27,6 +27,7 @@ package ecmwf.common.ecaccess;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -146,6 +147,15 @@ public abstract class MBeanRepository<O> extends MBeanScheduler {
         _maxAuthorisedSize = maxAuthorisedSize;
     }
 
+    /**
+     * Gets the max authorised size.
+     *
+     * @return the max authorised size
+     */
+    public long getMaxAuthorisedSize() {
+        return _maxAuthorisedSize;
+    }
+
     /**
      * Gets the comparator.
      *
@@ -196,6 +206,15 @@ public abstract class MBeanRepository<O> extends MBeanScheduler {
         return getList(_comparator);
     }
 
+    /**
+     * Gets the values, without copying nor sorting them. The collection is a live view of the repository.
+     *
+     * @return the values
+     */
+    protected Collection<O> getValues() {
+        return Collections.unmodifiableCollection(_objects.values());
+    }
+
     /**
      * Gets the size.
      *
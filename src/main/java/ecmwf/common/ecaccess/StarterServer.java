@@ -68,6 +68,7 @@ import ecmwf.common.plugin.PluginEvent;
 import ecmwf.common.plugin.PluginInfo;
 import ecmwf.common.starter.Starter;
 import ecmwf.common.starter.ToBeStarted;
+import ecmwf.common.technical.ScriptManager;
 import ecmwf.common.technical.Singletons;
 import ecmwf.common.text.Format;
 
@@ -170,6 +171,7 @@ public abstract class StarterServer extends CallBackObject
         this.remoteCnf = new RemoteCnfImp();
         new MBeanManager("ECaccess:service=" + Format.getClassName(this), this);
         new MBeanManager("ECaccess:service=PluginContainer", plugins);
+        new MBeanManager("ECaccess:service=ScriptManager", ScriptManager.getMBeanService());
     }
 
     /**
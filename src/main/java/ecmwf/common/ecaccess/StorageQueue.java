@@ -0,0 +1,339 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.ecaccess;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * The Class StorageQueue. Queue shared between the StorageThreads of a StorageRepository. The objects are indexed by
+ * their key, so an object which is already waiting in the queue is not added twice but replaced by its latest version
+ * (keeping its position). The objects are ordered with the comparator of the repository if any, and in order of
+ * arrival otherwise.
+ *
+ * @param <O>
+ *            the generic type
+ */
+final class StorageQueue<O> {
+    /** The lock. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The not empty condition. */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** The elements (key to element). */
+    private final Map<String, Element<O>> elements = new HashMap<>();
+
+    /** The queue. */
+    private final PriorityQueue<Element<O>> queue;
+
+    /** The sequence. */
+    private long sequence = 0;
+
+    /** The queue is released (no more waiting). */
+    private volatile boolean released = false;
+
+    /** The count of objects processed. */
+    private final AtomicLong count = new AtomicLong(0);
+
+    /** The total latency. */
+    private final AtomicLong totalLatency = new AtomicLong(0);
+
+    /** The max latency. */
+    private final AtomicLong maxLatency = new AtomicLong(0);
+
+    /** The count of objects merged with an object already in the queue. */
+    private final AtomicLong merged = new AtomicLong(0);
+
+    /**
+     * The Class Element.
+     *
+     * @param <O>
+     *            the generic type
+     */
+    private static final class Element<O> {
+        /** The key. */
+        final String key;
+
+        /** The object used for the ordering (the first version received). */
+        final O first;
+
+        /** The sequence. */
+        final long sequence;
+
+        /** The time when the object was queued. */
+        final long time = System.currentTimeMillis();
+
+        /** The latest version of the object. */
+        O object;
+
+        /**
+         * Instantiates a new element.
+         *
+         * @param key
+         *            the key
+         * @param object
+         *            the object
+         * @param sequence
+         *            the sequence
+         */
+        Element(final String key, final O object, final long sequence) {
+            this.key = key;
+            this.first = object;
+            this.object = object;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Instantiates a new storage queue. The comparator is requested every time two objects are compared as it might be
+     * set on the repository after the creation of the queue.
+     *
+     * @param comparator
+     *            the comparator supplier
+     */
+    StorageQueue(final Supplier<Comparator<O>> comparator) {
+        queue = new PriorityQueue<>((e1, e2) -> {
+            final var current = comparator.get();
+            final var result = current != null ? current.compare(e1.first, e2.first) : 0;
+            return result != 0 ? result : Long.compare(e1.sequence, e2.sequence);
+        });
+    }
+
+    /**
+     * Adds the object to the queue, or replace the object with the same key if it is already in the queue.
+     *
+     * @param key
+     *            the key
+     * @param object
+     *            the object
+     *
+     * @return true, if the object was added (false if it was merged)
+     */
+    boolean offer(final String key, final O object) {
+        lock.lock();
+        try {
+            final var element = elements.get(key);
+            if (element != null) {
+                element.object = object;
+                merged.incrementAndGet();
+                return false;
+            }
+            final var added = new Element<>(key, object, sequence++);
+            elements.put(key, added);
+            queue.add(added);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the next object, waiting up to the specified delay if the queue is empty.
+     *
+     * @param timeout
+     *            the timeout in ms
+     *
+     * @return the object or null if the queue is still empty after the delay (or if the queue was released)
+     *
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    O poll(final long timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            if (queue.isEmpty() && timeout > 0) {
+                notEmpty.await(timeout, TimeUnit.MILLISECONDS);
+            }
+            final var element = queue.poll();
+            if (element == null) {
+                return null;
+            }
+            elements.remove(element.key);
+            final var latency = System.currentTimeMillis() - element.time;
+            count.incrementAndGet();
+            totalLatency.addAndGet(latency);
+            maxLatency.accumulateAndGet(latency, Math::max);
+            return element.object;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a batch of objects. Wait up to the timeout for a first object, then wait up to the window (measured from the
+     * time the first object was queued) for the batch to be completed, so that successive versions of the same object
+     * are merged in the queue and the objects are processed together.
+     *
+     * @param max
+     *            the max number of objects in the batch
+     * @param window
+     *            the window in ms
+     * @param timeout
+     *            the timeout in ms
+     *
+     * @return the objects (empty if the queue is still empty after the timeout or if the queue was released)
+     *
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    List<O> pollBatch(final int max, final long window, final long timeout) throws InterruptedException {
+        final List<O> result = new ArrayList<>();
+        lock.lock();
+        try {
+            if (queue.isEmpty() && timeout > 0) {
+                notEmpty.await(timeout, TimeUnit.MILLISECONDS);
+            }
+            final var first = queue.peek();
+            if (first == null) {
+                return result;
+            }
+            final var deadline = first.time + window;
+            long remaining;
+            while (queue.size() < max && !released && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                notEmpty.await(remaining, TimeUnit.MILLISECONDS);
+            }
+            final var current = System.currentTimeMillis();
+            Element<O> element;
+            while (result.size() < max && (element = queue.poll()) != null) {
+                elements.remove(element.key);
+                final var latency = current - element.time;
+                count.incrementAndGet();
+                totalLatency.addAndGet(latency);
+                maxLatency.accumulateAndGet(latency, Math::max);
+                result.add(element.object);
+            }
+            if (!queue.isEmpty()) {
+                notEmpty.signal();
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release all the threads waiting for an object (e.g. at shutdown time).
+     */
+    void release() {
+        lock.lock();
+        try {
+            released = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size
+     */
+    int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if is empty.
+     *
+     * @return true, if is empty
+     */
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the count of objects processed.
+     *
+     * @return the count
+     */
+    long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the count of objects merged with an object already in the queue.
+     *
+     * @return the merged count
+     */
+    long getMerged() {
+        return merged.get();
+    }
+
+    /**
+     * Gets the average time spent by the objects in the queue.
+     *
+     * @return the average latency in ms
+     */
+    long getAverageLatency() {
+        final var processed = count.get();
+        return processed > 0 ? totalLatency.get() / processed : 0;
+    }
+
+    /**
+     * Gets the max time spent by an object in the queue.
+     *
+     * @return the max latency in ms
+     */
+    long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+    /**
+     * Gets the time spent in the queue by the oldest object still waiting.
+     *
+     * @return the current latency in ms
+     */
+    long getCurrentLatency() {
+        lock.lock();
+        try {
+            var oldest = Long.MAX_VALUE;
+            for (final Element<O> element : queue) {
+                oldest = Math.min(oldest, element.time);
+            }
+            return oldest == Long.MAX_VALUE ? 0 : System.currentTimeMillis() - oldest;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -27,8 +27,8 @@ package ecmwf.common.ecaccess;
  */
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.AttributeNotFoundException;
 import javax.management.MBeanAttributeInfo;
@@ -46,7 +46,11 @@ import ecmwf.common.technical.Cnf;
 import ecmwf.common.text.Format;
 
 /**
- * The Class StorageRepository.
+ * The Class StorageRepository. The objects which are expired are handed over to a pool of StorageThreads through a
+ * shared queue indexed by the key of the objects (an object which is already waiting in the queue is replaced by its
+ * latest version). The objects which are already expired when they are put in the repository go straight to the
+ * queue, the others are kept in the repository until the next step finds them expired. Optionally, the objects can
+ * be taken from the queue and updated by batches (write-behind).
  *
  * @param <O>
  *            the generic type
@@ -55,8 +59,8 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
     /** The Constant _log. */
     private static final Logger _log = LogManager.getLogger(StorageRepository.class);
 
-    /** The _vector. */
-    private final List<O> storageContent = Collections.synchronizedList(new ArrayList<>());
+    /** The shared queue. */
+    private final StorageQueue<O> storageQueue = new StorageQueue<>(this::getComparator);
 
     /** The _threads. */
     private final List<StorageThread<O>> storageThreadsList;
@@ -64,6 +68,33 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
     /** The _size. */
     private final int size;
 
+    /** The StorageThreads are started. */
+    private volatile boolean started = false;
+
+    /** The max queue size. */
+    private long maxQueueSize = 0;
+
+    /** The batch size. */
+    private int batchSize = 1;
+
+    /** The batch window. */
+    private long batchWindow = 0;
+
+    /** The batch count. */
+    private final AtomicLong batchCount = new AtomicLong(0);
+
+    /** The batched objects. */
+    private final AtomicLong batchedObjects = new AtomicLong(0);
+
+    /** The batch max size. */
+    private final AtomicLong batchMaxSize = new AtomicLong(0);
+
+    /** The batch total duration. */
+    private final AtomicLong batchDuration = new AtomicLong(0);
+
+    /** The batch max duration. */
+    private final AtomicLong batchMaxDuration = new AtomicLong(0);
+
     /**
      * Instantiates a new storage repository.
      *
@@ -104,6 +135,57 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
      */
     public abstract void update(O object) throws Exception;
 
+    /**
+     * Update a batch of objects. By default the objects are updated one by one. This method should be overridden if
+     * the objects can be stored together.
+     *
+     * @param objects
+     *            the objects
+     *
+     * @throws java.lang.Exception
+     *             the exception
+     */
+    public void update(final List<O> objects) throws Exception {
+        for (final O object : objects) {
+            update(object);
+        }
+    }
+
+    /**
+     * Sets the batch parameters. The StorageThreads take up to batchSize objects from the queue, waiting up to
+     * batchWindow ms after the first one was queued for the batch to be completed. Successive versions of the same
+     * object received within the window are merged. The objects then go to the update(List) method.
+     *
+     * @param batchSize
+     *            the batch size (1 to disable)
+     * @param batchWindow
+     *            the batch window in ms
+     */
+    public void setBatch(final int batchSize, final long batchWindow) {
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWindow = Math.max(0, batchWindow);
+    }
+
+    /**
+     * Sets the max number of objects waiting in the queue. The producers are delayed when the queue is full. If not
+     * set then the max authorised size of the repository applies.
+     *
+     * @param maxQueueSize
+     *            the max queue size (0 for the max authorised size)
+     */
+    public void setMaxQueueSize(final long maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    /**
+     * Gets the batch size.
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -118,6 +200,7 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
             thread.setThreadNameAndCookie(className, null, null, null);
             thread.execute();
         }
+        started = !storageThreadsList.isEmpty();
         _log.info("{} StorageThread(s) started for {}", storageThreadsList.size(), className);
     }
 
@@ -138,6 +221,7 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
     @Override
     public void shutdown() {
         super.shutdown();
+        started = false;
         for (final StorageThread<O> thread : storageThreadsList) {
             if (thread != null) {
                 thread.shutdown();
@@ -148,7 +232,44 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
     /**
      * {@inheritDoc}
      *
-     * Next step.
+     * Puts the object. If the object is already expired then it is handed over directly to the StorageThreads
+     * rather than waiting for the next step of the repository.
+     */
+    @Override
+    public void put(final O object) {
+        if (object == null || !started || !expired(object)) {
+            super.put(object);
+            return;
+        }
+        final var maxSize = maxQueueSize > 0 ? maxQueueSize : getMaxAuthorisedSize();
+        var maxWait = 0L;
+        while (maxSize > 0 && storageQueue.size() >= maxSize) {
+            maxWait += 1000;
+            waitFor(1000L);
+        }
+        // A previous version of the object might still be in the repository!
+        removeValue(object);
+        storageQueue.offer(getKey(object), object);
+        if (maxWait > 0) {
+            _log.warn("Submission delayed by {}", Format.formatDuration(maxWait));
+        }
+    }
+
+    /**
+     * Put the object back in the repository after a failed update. The object is not queued straight away so that it
+     * is only retried at the next step of the repository.
+     *
+     * @param object
+     *            the object
+     */
+    protected void retry(final O object) {
+        super.put(object);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Next step. Look for the objects which have expired since they were put in the repository.
      */
     @Override
     public int nextStep() {
@@ -158,66 +279,77 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
             }
             waitFor(Cnf.at("StorageRepository", "storageRepositoryDelay", Timer.ONE_HOUR));
         }
-        var elementsAdded = false;
-        for (final O object : getList()) {
-            if (object == null) {
+        for (final O object : getValues()) {
+            if (object == null || !expired(object)) {
                 continue;
             }
-            if (expired(object)) {
-                removeValue(object);
-                if (storageThreadsList.isEmpty()) {
-                    try {
-                        update(object);
-                    } catch (final Throwable t) {
-                        _log.warn("update", t);
-                        put(object);
-                    }
-                } else {
-                    elementsAdded = true;
-                    addElement(object);
-                }
+            final var current = removeValue(object);
+            if (current == null) {
+                continue; // Already processed!
             }
-        }
-        if (elementsAdded) {
-            for (final StorageThread<O> element : storageThreadsList) {
-                element.wakeup();
+            if (started) {
+                storageQueue.offer(getKey(current), current);
+            } else {
+                try {
+                    update(current);
+                } catch (final Throwable t) {
+                    _log.warn("update", t);
+                    retry(current);
+                }
             }
         }
         return NEXT_STEP_DELAY;
     }
 
     /**
-     * Adds the element.
+     * Checks if is empty.
      *
-     * @param object
-     *            the object
+     * @return true, if is empty
      */
-    private void addElement(final O object) {
-        synchronized (storageContent) {
-            if (!storageContent.contains(object)) {
-                storageContent.add(object);
-            }
-        }
+    boolean isEmpty() {
+        return storageQueue.isEmpty();
     }
 
     /**
-     * Checks if is empty.
+     * Gets the next elements (up to the batch size), waiting up to the specified delay if there is none.
      *
-     * @return true, if is empty
+     * @param timeout
+     *            the timeout in ms
+     *
+     * @return the next elements (empty if there is none)
+     *
+     * @throws InterruptedException
+     *             the interrupted exception
      */
-    boolean isEmpty() {
-        return storageContent.isEmpty();
+    List<O> getNextElements(final long timeout) throws InterruptedException {
+        if (batchSize > 1) {
+            return storageQueue.pollBatch(batchSize, batchWindow, timeout);
+        }
+        final var object = storageQueue.poll(timeout);
+        return object != null ? List.of(object) : List.of();
     }
 
     /**
-     * Gets the next element.
+     * Record the processing of a batch.
      *
-     * @return the next element
+     * @param size
+     *            the number of objects in the batch
+     * @param duration
+     *            the duration in ms
      */
-    O getNextElement() {
-        synchronized (storageContent) {
-            return storageContent.isEmpty() ? null : storageContent.remove(0);
-        }
+    void recordBatch(final int size, final long duration) {
+        batchCount.incrementAndGet();
+        batchedObjects.addAndGet(size);
+        batchMaxSize.accumulateAndGet(size, Math::max);
+        batchDuration.addAndGet(duration);
+        batchMaxDuration.accumulateAndGet(duration, Math::max);
+    }
+
+    /**
+     * Release the StorageThreads waiting for an element.
+     */
+    void release() {
+        storageQueue.release();
     }
 
     /**
@@ -228,13 +360,37 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
     @Override
     public MBeanInfo getMBeanInfo() {
         final var infoLength = storageThreadsList != null ? storageThreadsList.size() : 0;
-        final var infos = new MBeanAttributeInfo[infoLength + 1];
+        final var infos = new MBeanAttributeInfo[infoLength + 11];
         for (var i = 0; i < infoLength; i++) {
             infos[i] = new MBeanAttributeInfo("StorageThreadStatus_" + i, "java.lang.String",
                     "StorageThreadStatus_" + i + ": status of the storage thread.", true, false, false);
         }
         infos[infoLength] = new MBeanAttributeInfo("SharedSpoolSize", "int",
                 "SharedSpoolSize: size of the shared spool between workers.", true, false, false);
+        infos[infoLength + 1] = new MBeanAttributeInfo("SharedSpoolLatency", "long",
+                "SharedSpoolLatency: time spent in the shared spool by the oldest waiting object (ms).", true, false,
+                false);
+        infos[infoLength + 2] = new MBeanAttributeInfo("SharedSpoolAverageLatency", "long",
+                "SharedSpoolAverageLatency: average time spent in the shared spool by the objects (ms).", true, false,
+                false);
+        infos[infoLength + 3] = new MBeanAttributeInfo("SharedSpoolMaxLatency", "long",
+                "SharedSpoolMaxLatency: max time spent in the shared spool by an object (ms).", true, false, false);
+        infos[infoLength + 4] = new MBeanAttributeInfo("SharedSpoolProcessed", "long",
+                "SharedSpoolProcessed: number of objects taken from the shared spool by the workers.", true, false,
+                false);
+        infos[infoLength + 5] = new MBeanAttributeInfo("SharedSpoolMerged", "long",
+                "SharedSpoolMerged: number of objects merged with an object already in the shared spool.", true,
+                false, false);
+        infos[infoLength + 6] = new MBeanAttributeInfo("BatchCount", "long",
+                "BatchCount: number of batches processed by the workers.", true, false, false);
+        infos[infoLength + 7] = new MBeanAttributeInfo("BatchAverageSize", "long",
+                "BatchAverageSize: average number of objects per batch.", true, false, false);
+        infos[infoLength + 8] = new MBeanAttributeInfo("BatchMaxSize", "long",
+                "BatchMaxSize: max number of objects in a batch.", true, false, false);
+        infos[infoLength + 9] = new MBeanAttributeInfo("BatchAverageDuration", "long",
+                "BatchAverageDuration: average time to process a batch (ms).", true, false, false);
+        infos[infoLength + 10] = new MBeanAttributeInfo("BatchMaxDuration", "long",
+                "BatchMaxDuration: max time to process a batch (ms).", true, false, false);
         return MBeanManager.addMBeanInfo(super.getMBeanInfo(), """
                 The StorageRepository is used to manage a cache \
                 of storage objects. A number of threads are \
@@ -259,7 +415,39 @@ public abstract class StorageRepository<O> extends MBeanRepository<O> {
                 return storageThreadsList.get(Integer.parseInt(attributeName.substring(20))).getStatus();
             }
             if ("SharedSpoolSize".equals(attributeName)) {
-                return storageContent.size();
+                return storageQueue.size();
+            }
+            if ("SharedSpoolLatency".equals(attributeName)) {
+                return storageQueue.getCurrentLatency();
+            }
+            if ("SharedSpoolAverageLatency".equals(attributeName)) {
+                return storageQueue.getAverageLatency();
+            }
+            if ("SharedSpoolMaxLatency".equals(attributeName)) {
+                return storageQueue.getMaxLatency();
+            }
+            if ("SharedSpoolProcessed".equals(attributeName)) {
+                return storageQueue.getCount();
+            }
+            if ("SharedSpoolMerged".equals(attributeName)) {
+                return storageQueue.getMerged();
+            }
+            if ("BatchCount".equals(attributeName)) {
+                return batchCount.get();
+            }
+            if ("BatchAverageSize".equals(attributeName)) {
+                final var count = batchCount.get();
+                return count > 0 ? batchedObjects.get() / count : 0L;
+            }
+            if ("BatchMaxSize".equals(attributeName)) {
+                return batchMaxSize.get();
+            }
+            if ("BatchAverageDuration".equals(attributeName)) {
+                final var count = batchCount.get();
+                return count > 0 ? batchDuration.get() / count : 0L;
+            }
+            if ("BatchMaxDuration".equals(attributeName)) {
+                return batchMaxDuration.get();
             }
         } catch (final Exception e) {
             _log.warn("Getting an MBean attribute", e);
@@ -26,6 +26,7 @@ package ecmwf.common.ecaccess;
  * @since 2024-07-01
  */
 
+import java.util.List;
 import java.util.concurrent.TimeoutException;
 
 import javax.management.timer.Timer;
@@ -51,7 +52,7 @@ class StorageThread<O> extends WakeupThread {
     private final StorageRepository<O> _repository;
 
     /** The _run. */
-    private boolean _run = true;
+    private volatile boolean _run = true;
 
     /** The _duration. */
     private long _duration = 0;
@@ -95,6 +96,7 @@ class StorageThread<O> extends WakeupThread {
      */
     void shutdown() {
         _run = false;
+        _repository.release();
         wakeup();
         try {
             join(Timer.ONE_MINUTE);
@@ -121,24 +123,34 @@ class StorageThread<O> extends WakeupThread {
      */
     @Override
     public void configurableRun() {
-        while (_run || !_run && !_repository.isEmpty()) {
-            if (_repository.isEmpty()
-                    && waitFor(Cnf.at("StorageRepository", "storageThreadDelay", 15 * Timer.ONE_SECOND))) {
+        while (_run || !_repository.isEmpty()) {
+            final List<O> objects;
+            try {
+                objects = _repository.getNextElements(
+                        _run ? Cnf.at("StorageRepository", "storageThreadDelay", 15 * Timer.ONE_SECOND) : 0);
+            } catch (final InterruptedException e) {
+                break;
+            }
+            if (objects.isEmpty()) {
                 continue;
             }
-            O object = null;
-            while ((object = _repository.getNextElement()) != null) {
-                try {
-                    final var start = System.currentTimeMillis();
-                    _repository.update(object);
-                    _duration += System.currentTimeMillis() - start;
-                    object = null;
-                    _updated++;
-                } catch (final Throwable t) {
-                    _notUpdated++;
-                    _log.error("Updating (" + _notUpdated + ")", t);
-                    if (_run) {
-                        _repository.put(object);
+            try {
+                final var start = System.currentTimeMillis();
+                if (objects.size() == 1) {
+                    _repository.update(objects.get(0));
+                } else {
+                    _repository.update(objects);
+                }
+                final var duration = System.currentTimeMillis() - start;
+                _repository.recordBatch(objects.size(), duration);
+                _duration += duration;
+                _updated += objects.size();
+            } catch (final Throwable t) {
+                _notUpdated += objects.size();
+                _log.error("Updating (" + _notUpdated + ")", t);
+                if (_run) {
+                    for (final O object : objects) {
+                        _repository.retry(object);
                     }
                 }
             }
@@ -27,6 +27,7 @@ package ecmwf.common.ectrans;
  */
 
 import ecmwf.common.database.MSUser;
+import ecmwf.common.technical.TokenBucket;
 
 /**
  * The Interface ECtransCallback.
@@ -79,4 +80,14 @@ public interface ECtransCallback {
      *            the comment
      */
     void failed(TransferModule module, String comment);
-}
\ No newline at end of file
+
+    /**
+     * Gets the token bucket the transfers should draw from (e.g. the bucket of the destination on the data mover). By
+     * default there is no shared bucket.
+     *
+     * @return the token bucket or null
+     */
+    default TokenBucket getTokenBucket() {
+        return null;
+    }
+}
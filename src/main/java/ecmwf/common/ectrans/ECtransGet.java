@@ -185,9 +185,14 @@ public final class ECtransGet extends ECtransAction {
             }
             // Any transfer rate throttling?
             final var rate = setup.getByteSize(HOST_RETRIEVAL_RATE_THROTTLING);
-            if (rate != null && rate.size() > 0) {
+            final var limit = rate != null ? rate.size() : 0;
+            final var bucket = getECtransCallback().getTokenBucket();
+            if (bucket != null) {
+                _log.debug("Setting a throttled output stream (shared)");
+                out = new ThrottledOutputStream(out, bucket.newTransfer(limit));
+            } else if (limit > 0) {
                 _log.debug("Setting a throttled output stream");
-                out = new ThrottledOutputStream(out, rate.size());
+                out = new ThrottledOutputStream(out, limit);
             }
             if (interruptible) {
                 _log.debug("Setting an interruptible output stream");
@@ -620,6 +620,12 @@ public enum ECtransOptions {
     /** The host ftp mkdirs. */
     HOST_FTP_MKDIRS("mkdirs", String.class, "yes", Arrays.asList("yes", "no", "remote")),
 
+    /** The host ftp mkdirs cache. */
+    HOST_FTP_MKDIRS_CACHE("mkdirsCache", String.class, "session", Arrays.asList("none", "session", "host")),
+
+    /** The host ftp mkdirs cache ttl. */
+    HOST_FTP_MKDIRS_CACHE_TTL("mkdirsCacheTtl", Duration.class, Duration.ofMinutes(5)),
+
     /** The host ftp prefix. */
     HOST_FTP_PREFIX("prefix", String.class, ""),
 
@@ -758,6 +764,12 @@ public enum ECtransOptions {
     /** The host ftps mkdirs. */
     HOST_FTPS_MKDIRS("mkdirs", Boolean.class, true),
 
+    /** The host ftps mkdirs cache. */
+    HOST_FTPS_MKDIRS_CACHE("mkdirsCache", String.class, "session", Arrays.asList("none", "session", "host")),
+
+    /** The host ftps mkdirs cache ttl. */
+    HOST_FTPS_MKDIRS_CACHE_TTL("mkdirsCacheTtl", Duration.class, Duration.ofMinutes(5)),
+
     /** The host ftps prefix. */
     HOST_FTPS_PREFIX("prefix", String.class, ""),
 
@@ -881,6 +893,12 @@ public enum ECtransOptions {
     /** The host sftp mkdirs. */
     HOST_SFTP_MKDIRS("mkdirs", Boolean.class, true),
 
+    /** The host sftp mkdirs cache. */
+    HOST_SFTP_MKDIRS_CACHE("mkdirsCache", String.class, "session", Arrays.asList("none", "session", "host")),
+
+    /** The host sftp mkdirs cache ttl. */
+    HOST_SFTP_MKDIRS_CACHE_TTL("mkdirsCacheTtl", Duration.class, Duration.ofMinutes(5)),
+
     /** The host sftp prefix. */
     HOST_SFTP_PREFIX("prefix", String.class, ""),
 
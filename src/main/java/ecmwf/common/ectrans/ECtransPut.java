@@ -247,9 +247,14 @@ public final class ECtransPut extends ECtransAction {
                 }
                 // Any transfer rate throttling?
                 final var rate = setup.getByteSize(HOST_UPLOAD_RATE_THROTTLING);
-                if (rate != null && rate.size() > 0) {
+                final var limit = rate != null ? rate.size() : 0;
+                final var bucket = getECtransCallback().getTokenBucket();
+                if (bucket != null) {
+                    _log.debug("Setting a throttled input stream (shared)");
+                    in = new ThrottledInputStream(in, bucket.newTransfer(limit));
+                } else if (limit > 0) {
                     _log.debug("Setting a throttled input stream");
-                    in = new ThrottledInputStream(in, rate.size());
+                    in = new ThrottledInputStream(in, limit);
                 }
                 if (interruptible) {
                     _log.debug("Setting an interruptible input stream");
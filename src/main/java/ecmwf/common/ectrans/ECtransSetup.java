@@ -30,12 +30,14 @@ import static ecmwf.common.ectrans.ECtransOptions.HOST_ECTRANS_DEBUG;
 import static ecmwf.common.text.Util.isNotEmpty;
 
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Period;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -73,6 +75,15 @@ public final class ECtransSetup implements Serializable {
     /** The Constant SEPARATOR. */
     public static final String SEPARATOR = "###### END-OF-PROPERTIES ######\n";
 
+    /** The Constant PARSE_CACHE_SIZE. */
+    private static final int PARSE_CACHE_SIZE = Cnf.at("ECtransSetup", "parseCacheSize", 1000);
+
+    /** The Constant PARSED (the data already parsed, by content). */
+    private static final Map<String, ParsedData> PARSED = new ConcurrentHashMap<>();
+
+    /** The Constant NONE (null value in the typed cache). */
+    private static final Object NONE = new Object();
+
     /** The script content. */
     private final StringBuilder scriptContent = new StringBuilder();
 
@@ -88,6 +99,9 @@ public final class ECtransSetup implements Serializable {
     /** The debug flag. */
     private boolean debug = false;
 
+    /** The typed values already converted (cleared when the data content is updated). */
+    private transient Map<String, Object> typedValues = new ConcurrentHashMap<>();
+
     /**
      * Instantiates a new ectrans setup.
      *
@@ -122,6 +136,23 @@ public final class ECtransSetup implements Serializable {
         setData(currentModuleName, data);
     }
 
+    /**
+     * Instantiates a new ectrans setup with the content of another one and a new list of parameters (no need to parse
+     * the data again).
+     *
+     * @param setup
+     *            the setup
+     * @param parameters
+     *            the parameters (sorted)
+     */
+    private ECtransSetup(final ECtransSetup setup, final List<Pair<?>> parameters) {
+        parameterList.addAll(parameters);
+        currentModuleName = setup.currentModuleName;
+        dataContent.putAll(setup.dataContent);
+        scriptContent.append(setup.scriptContent);
+        debug = setup.debug;
+    }
+
     /**
      * Allow getting a new instance with the added parameters provided.
      *
@@ -134,9 +165,10 @@ public final class ECtransSetup implements Serializable {
         final List<Pair<?>> parametersList = new ArrayList<>(parameterList);
         if (parameters != null) {
             parametersList.addAll(Arrays.asList(parameters));
+            Collections.sort(parametersList, (final Pair<?> p1, final Pair<?> p2) -> Integer
+                    .compare(p2.getKey().length(), p1.getKey().length()));
         }
-        return new ECtransSetup(currentModuleName, getData(),
-                parametersList.toArray(new Pair<?>[parametersList.size()]));
+        return new ECtransSetup(this, parametersList);
     }
 
     /**
@@ -185,7 +217,7 @@ public final class ECtransSetup implements Serializable {
 
     /**
      * Extract the properties from the data string and the script if a separator is found. If a script is found then it
-     * is stored.
+     * is stored. The data are only parsed once for a given content, the following calls are using the cached result.
      *
      * @param moduleName
      *            the module name
@@ -196,29 +228,99 @@ public final class ECtransSetup implements Serializable {
         this.currentModuleName = moduleName;
         dataContent.clear();
         scriptContent.setLength(0);
+        typedValues.clear();
         if (isNotEmpty(data)) {
-            final var sb = new StringBuilder(Format.windowsToUnix(data.trim()).concat("\n"));
-            var indexStart = 0;
-            var indexStop = 0;
-            var index = -1;
-            var foundSeparator = false;
-            while (sb.length() > 0 && !(foundSeparator = sb.indexOf(SEPARATOR) == 0)
-                    && (indexStart = removeSpacesInName(sb).indexOf("=\"")) != -1
-                    && (indexStop = sb.substring(indexStart + 2).indexOf("\"\n")) != -1) {
-                final var name = sb.substring(0, indexStart).trim();
-                if ((index = name.indexOf(".")) != -1) {
-                    set(name.substring(0, index), name.substring(index + 1),
-                            sb.substring(indexStart + 2, indexStart + 2 + indexStop));
+            var parsed = PARSED.get(data);
+            if (parsed == null) {
+                parsed = parse(data);
+                if (PARSE_CACHE_SIZE > 0) {
+                    if (PARSED.size() >= PARSE_CACHE_SIZE) {
+                        PARSED.clear();
+                    }
+                    PARSED.put(data, parsed);
                 }
-                sb.delete(0, indexStart + 2 + indexStop + 2);
-            }
-            if (foundSeparator) {
-                scriptContent.append(sb.substring(SEPARATOR.length()).trim());
             }
+            dataContent.putAll(parsed.properties());
+            scriptContent.append(parsed.script());
         }
         debug = getBoolean(HOST_ECTRANS_DEBUG);
     }
 
+    /**
+     * Parse the data string. The properties are read in a single pass (no copy of the remaining data for each line).
+     * If a line is not in the expected format then the remaining data are parsed the legacy way.
+     *
+     * @param data
+     *            the data
+     *
+     * @return the parsed data
+     */
+    private static ParsedData parse(final String data) {
+        final Map<String, String> properties = new HashMap<>();
+        final var content = Format.windowsToUnix(data.trim()).concat("\n");
+        final var length = content.length();
+        var position = 0;
+        var script = "";
+        while (position < length) {
+            if (content.startsWith(SEPARATOR, position)) {
+                script = content.substring(position + SEPARATOR.length()).trim();
+                break;
+            }
+            // Find the start of the value, the white spaces in the name are ignored (e.g. ectrans.debug = "yes")
+            final var name = new StringBuilder();
+            var indexStart = position;
+            char c;
+            while (indexStart < length && (c = content.charAt(indexStart)) != '"') {
+                if (!Character.isWhitespace(c)) {
+                    name.append(c);
+                }
+                indexStart++;
+            }
+            final int indexStop;
+            if (indexStart >= length || name.isEmpty() || name.charAt(name.length() - 1) != '='
+                    || (indexStop = content.indexOf("\"\n", indexStart + 1)) == -1) {
+                script = parse(properties, new StringBuilder(content.substring(position)));
+                break;
+            }
+            name.setLength(name.length() - 1);
+            final var index = name.indexOf(".");
+            if (index != -1) {
+                properties.put(name.substring(0, index).trim() + "." + name.substring(index + 1).trim(),
+                        getValue(content.substring(indexStart + 1, indexStop), false));
+            }
+            position = indexStop + 2;
+        }
+        return new ParsedData(Map.copyOf(properties), script);
+    }
+
+    /**
+     * Parse the data the legacy way.
+     *
+     * @param properties
+     *            the properties
+     * @param sb
+     *            the data
+     *
+     * @return the script
+     */
+    private static String parse(final Map<String, String> properties, final StringBuilder sb) {
+        var indexStart = 0;
+        var indexStop = 0;
+        var index = -1;
+        var foundSeparator = false;
+        while (sb.length() > 0 && !(foundSeparator = sb.indexOf(SEPARATOR) == 0)
+                && (indexStart = removeSpacesInName(sb).indexOf("=\"")) != -1
+                && (indexStop = sb.substring(indexStart + 2).indexOf("\"\n")) != -1) {
+            final var name = sb.substring(0, indexStart).trim();
+            if ((index = name.indexOf(".")) != -1) {
+                properties.put(name.substring(0, index).trim() + "." + name.substring(index + 1).trim(),
+                        getValue(sb.substring(indexStart + 2, indexStart + 2 + indexStop), false));
+            }
+            sb.delete(0, indexStart + 2 + indexStop + 2);
+        }
+        return foundSeparator ? sb.substring(SEPARATOR.length()).trim() : "";
+    }
+
     /**
      * Sets the data.
      *
@@ -242,6 +344,7 @@ public final class ECtransSetup implements Serializable {
     private String remove(final String moduleName, final String name) {
         final var parameter = moduleName + "." + name;
         String value;
+        typedValues.clear();
         if ((value = dataContent.remove(parameter)) == null) {
             value = getValue(Cnf.at("ECtrans", parameter), true);
             if (debug) {
@@ -297,6 +400,7 @@ public final class ECtransSetup implements Serializable {
         for (final String key : toRemove) {
             dataContent.remove(key);
         }
+        typedValues.clear();
     }
 
     /**
@@ -1486,14 +1590,23 @@ public final class ECtransSetup implements Serializable {
      *
      * @return the object of type class
      */
+    @SuppressWarnings("unchecked")
     private <T> T getFromProperties(final ECtransOptions option, final Class<T> clazz) {
+        final var key = option.getModule() + "." + option.getName() + ":" + clazz.getName();
+        final var cached = typedValues.get(key);
+        if (cached != null) {
+            return cached == NONE ? null : (T) cached;
+        }
         final var found = get(option.getModule(), option.getName(), null);
+        final T value;
         if (found == null || found.isBlank() && clazz != String.class) {
             // Nothing in the configuration or empty value, let's use the default!
-            return option.getDefaultValue(clazz);
+            value = option.getDefaultValue(clazz);
         } else {
-            return cast(found, clazz);
+            value = cast(found, clazz);
         }
+        typedValues.put(key, value == null ? NONE : value);
+        return value;
     }
 
     /**
@@ -1547,14 +1660,25 @@ public final class ECtransSetup implements Serializable {
      *
      * @return the list of object of type class
      */
+    @SuppressWarnings("unchecked")
     private <T> List<T> list(final ECtransOptions option, final Class<T> clazz) {
+        final var key = option.getModule() + "." + option.getName() + ":[" + clazz.getName();
+        final var cached = typedValues.get(key);
+        if (cached != null) {
+            return (List<T>) cached;
+        }
         final var found = get(option.getModule(), option.getName(), null);
+        final List<T> values;
         if (found == null || found.isBlank() && clazz != String.class) {
             // Nothing in the configuration or empty value, let's use the default!
-            return option.getDefaultValues(clazz);
+            values = option.getDefaultValues(clazz);
         } else {
-            return castList(found, clazz);
+            values = castList(found, clazz);
+        }
+        if (values != null) {
+            typedValues.put(key, values);
         }
+        return values;
     }
 
     /**
@@ -1808,6 +1932,7 @@ public final class ECtransSetup implements Serializable {
      */
     private void set(final String moduleName, final String name, final String value) {
         dataContent.put(moduleName.trim() + "." + name.trim(), getValue(value, false));
+        typedValues.clear();
     }
 
     /**
@@ -1987,4 +2112,32 @@ public final class ECtransSetup implements Serializable {
     public String getModuleName() {
         return currentModuleName;
     }
+
+    /**
+     * Read object (the typed values are not serialized).
+     *
+     * @param in
+     *            the in
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     * @throws ClassNotFoundException
+     *             the class not found exception
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        typedValues = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * The ParsedData. The properties and script found in a data string, shared by all the ECtransSetup created with
+     * the same data.
+     *
+     * @param properties
+     *            the properties (immutable)
+     * @param script
+     *            the script
+     */
+    private record ParsedData(Map<String, String> properties, String script) {
+    }
 }
@@ -0,0 +1,340 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.ectrans;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ecmwf.common.technical.Cnf;
+
+/**
+ * The Class RemoteDirectoryCache. Remember the remote directories which are known to exist (or not) for a
+ * TransferModule session, so that the mkdirs done before every put (and the cd done at connection time) do not have to
+ * walk the remote path again and again when the session is reused for many files in the same directories. The cache can
+ * be private to the session ("session" mode) or shared by all the sessions opened on the same host, port, user and
+ * working directory ("host" mode). The entries expire after a configurable time and are invalidated when a transfer
+ * fails in the directory.
+ */
+public final class RemoteDirectoryCache {
+    /** The Constant MODE_NONE. */
+    public static final String MODE_NONE = "none";
+
+    /** The Constant MODE_SESSION. */
+    public static final String MODE_SESSION = "session";
+
+    /** The Constant MODE_HOST. */
+    public static final String MODE_HOST = "host";
+
+    /** The Constant MAX_ENTRIES. */
+    private static final int MAX_ENTRIES = Cnf.at("RemoteDirectoryCache", "maxEntries", 10000);
+
+    /** The Constant DISABLED. */
+    private static final RemoteDirectoryCache DISABLED = new RemoteDirectoryCache(MODE_NONE, 0);
+
+    /** The Constant _hosts. */
+    private static final Map<String, RemoteDirectoryCache> _hosts = new ConcurrentHashMap<>();
+
+    /** The Constant _totalAvoidedRoundTrips (for all the caches). */
+    private static final AtomicLong _totalAvoidedRoundTrips = new AtomicLong(0);
+
+    /** The Constant _totalInvalidations (for all the caches). */
+    private static final AtomicLong _totalInvalidations = new AtomicLong(0);
+
+    /** The _entries (path to expiry time, negative for a missing directory). */
+    private final Map<String, Long> _entries = new ConcurrentHashMap<>();
+
+    /** The _mode. */
+    private final String _mode;
+
+    /** The _ttl. */
+    private volatile long _ttl;
+
+    /** The _hits. */
+    private final AtomicLong _hits = new AtomicLong(0);
+
+    /** The _misses. */
+    private final AtomicLong _misses = new AtomicLong(0);
+
+    /** The _avoided round trips. */
+    private final AtomicLong _avoidedRoundTrips = new AtomicLong(0);
+
+    /** The _invalidations. */
+    private final AtomicLong _invalidations = new AtomicLong(0);
+
+    /**
+     * Instantiates a new remote directory cache.
+     *
+     * @param mode
+     *            the mode
+     * @param ttl
+     *            the ttl
+     */
+    private RemoteDirectoryCache(final String mode, final long ttl) {
+        _mode = mode;
+        _ttl = ttl;
+    }
+
+    /**
+     * Gets a cache for a new session. In "host" mode the cache is shared by all the sessions with the same key, in
+     * "session" mode a new cache is returned, and if the mode is "none" or the ttl is not positive then the cache
+     * returned never remember anything.
+     *
+     * @param mode
+     *            the mode (none, session or host)
+     * @param key
+     *            the key (e.g. host, port, user and working directory)
+     * @param ttl
+     *            the time to live of the entries in ms
+     *
+     * @return the remote directory cache
+     */
+    public static RemoteDirectoryCache getInstance(final String mode, final String key, final long ttl) {
+        if (ttl <= 0 || mode == null || MODE_NONE.equalsIgnoreCase(mode)) {
+            return DISABLED;
+        }
+        if (MODE_HOST.equalsIgnoreCase(mode)) {
+            final var cache = _hosts.computeIfAbsent(key, _ -> new RemoteDirectoryCache(MODE_HOST, ttl));
+            cache._ttl = ttl;
+            return cache;
+        }
+        return new RemoteDirectoryCache(MODE_SESSION, ttl);
+    }
+
+    /**
+     * Normalize the path (no trailing separator).
+     *
+     * @param path
+     *            the path
+     *
+     * @return the string
+     */
+    private static String _normalize(final String path) {
+        var end = path.length();
+        while (end > 1 && (path.charAt(end - 1) == '/' || path.charAt(end - 1) == '\\')) {
+            end--;
+        }
+        return end == path.length() ? path : path.substring(0, end);
+    }
+
+    /**
+     * Checks if is enabled.
+     *
+     * @return true, if is enabled
+     */
+    public boolean isEnabled() {
+        return this != DISABLED;
+    }
+
+    /**
+     * Checks if the directory is known to exist. If it does then the round trips which are avoided are recorded.
+     *
+     * @param path
+     *            the path
+     * @param roundTrips
+     *            the number of round trips avoided if the directory exists
+     *
+     * @return true, if the directory is known to exist
+     */
+    public boolean exists(final String path, final int roundTrips) {
+        if (!isEnabled() || path == null) {
+            return false;
+        }
+        final var key = _normalize(path);
+        final var expiry = _entries.get(key);
+        if (expiry != null && expiry > 0) {
+            if (expiry > System.currentTimeMillis()) {
+                _hits.incrementAndGet();
+                _avoidedRoundTrips.addAndGet(roundTrips);
+                _totalAvoidedRoundTrips.addAndGet(roundTrips);
+                return true;
+            }
+            _entries.remove(key, expiry);
+        }
+        _misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Checks if the directory is known to be missing. If it is then the round trip which is avoided is recorded.
+     *
+     * @param path
+     *            the path
+     *
+     * @return true, if the directory is known to be missing
+     */
+    public boolean isMissing(final String path) {
+        if (!isEnabled() || path == null) {
+            return false;
+        }
+        final var key = _normalize(path);
+        final var expiry = _entries.get(key);
+        if (expiry != null && expiry < 0) {
+            if (-expiry > System.currentTimeMillis()) {
+                _hits.incrementAndGet();
+                _avoidedRoundTrips.incrementAndGet();
+                _totalAvoidedRoundTrips.incrementAndGet();
+                return true;
+            }
+            _entries.remove(key, expiry);
+        }
+        return false;
+    }
+
+    /**
+     * Record that the directory exists (e.g. it was created or we could cd into it).
+     *
+     * @param path
+     *            the path
+     */
+    public void setExists(final String path) {
+        _put(path, System.currentTimeMillis() + _ttl);
+    }
+
+    /**
+     * Record that the directory does not exist (e.g. we could not cd into it).
+     *
+     * @param path
+     *            the path
+     */
+    public void setMissing(final String path) {
+        _put(path, -(System.currentTimeMillis() + _ttl));
+    }
+
+    /**
+     * Put an entry in the cache. The cache is cleared if it is full.
+     *
+     * @param path
+     *            the path
+     * @param expiry
+     *            the expiry
+     */
+    private void _put(final String path, final long expiry) {
+        if (isEnabled() && path != null) {
+            if (_entries.size() >= MAX_ENTRIES) {
+                _entries.clear();
+            }
+            _entries.put(_normalize(path), expiry);
+        }
+    }
+
+    /**
+     * Invalidate the directory and all its sub-directories (e.g. a transfer failed in this directory).
+     *
+     * @param path
+     *            the path
+     */
+    public void invalidate(final String path) {
+        if (isEnabled() && path != null && !_entries.isEmpty()) {
+            final var key = _normalize(path);
+            final var prefix = key.endsWith("/") ? key : key + "/";
+            if (_entries.keySet().removeIf(entry -> entry.equals(key) || entry.startsWith(prefix))) {
+                _invalidations.incrementAndGet();
+                _totalInvalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Invalidate the parent directory of a file.
+     *
+     * @param fileName
+     *            the file name
+     */
+    public void invalidateParent(final String fileName) {
+        if (isEnabled() && fileName != null) {
+            final var index = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+            if (index > 0) {
+                invalidate(fileName.substring(0, index));
+            }
+        }
+    }
+
+    /**
+     * Invalidate the parent directory of a file along with all its own parents, so that the whole path is created
+     * again by the next mkdirs (e.g. a put failed in a directory taken from the cache, which might have been removed on
+     * the remote side).
+     *
+     * @param fileName
+     *            the file name
+     */
+    public void invalidatePath(final String fileName) {
+        if (isEnabled() && fileName != null && !_entries.isEmpty()) {
+            final var index = Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\'));
+            if (index > 0) {
+                final var key = _normalize(fileName.substring(0, index));
+                final var prefix = key.endsWith("/") ? key : key + "/";
+                if (_entries.keySet().removeIf(entry -> entry.equals(key) || entry.startsWith(prefix)
+                        || key.startsWith(entry.endsWith("/") ? entry : entry + "/"))) {
+                    _invalidations.incrementAndGet();
+                    _totalInvalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Clear the cache.
+     */
+    public void clear() {
+        _entries.clear();
+    }
+
+    /**
+     * Gets the avoided round trips.
+     *
+     * @return the avoided round trips
+     */
+    public long getAvoidedRoundTrips() {
+        return _avoidedRoundTrips.get();
+    }
+
+    /**
+     * Returns a summary of the cache activity.
+     *
+     * @return the string
+     */
+    @Override
+    public String toString() {
+        return "mode=" + _mode + ",entries=" + _entries.size() + ",hits=" + _hits.get() + ",misses=" + _misses.get()
+                + ",avoidedRoundTrips=" + _avoidedRoundTrips.get() + ",invalidations=" + _invalidations.get();
+    }
+
+    /**
+     * Gets the status of all the caches (the shared caches are listed individually).
+     *
+     * @return the status
+     */
+    public static String getStatus() {
+        final var sb = new StringBuilder("avoidedRoundTrips=").append(_totalAvoidedRoundTrips.get())
+                .append(",invalidations=").append(_totalInvalidations.get()).append(",hosts=").append(_hosts.size());
+        for (final Map.Entry<String, RemoteDirectoryCache> entry : _hosts.entrySet()) {
+            sb.append('\n').append(entry.getKey()).append(": ").append(entry.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -39,6 +39,8 @@ import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_LISTEN_ADDRESS;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_LOGIN;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_MD5_EXT;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_MKDIRS;
+import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_MKDIRS_CACHE;
+import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_MKDIRS_CACHE_TTL;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_MKDIRS_CMD_INDEX;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_MKSUFFIX;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_FTPS_PASSIVE;
@@ -92,6 +94,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import ecmwf.common.ectrans.ECtransSetup;
+import ecmwf.common.ectrans.RemoteDirectoryCache;
 import ecmwf.common.ectrans.TransferModule;
 import ecmwf.common.security.RandomString;
 import ecmwf.common.technical.PipedInputStream;
@@ -168,6 +171,12 @@ public final class FtpsModule extends TransferModule {
     /** The key. */
     private String key = null;
 
+    /** The directory cache. */
+    private RemoteDirectoryCache directoryCache = null;
+
+    /** Some directories of the current put were taken from the directory cache. */
+    private boolean mkdirsCached = false;
+
     /** The ignore check. */
     private boolean ignoreCheck = true;
 
@@ -336,6 +345,8 @@ public final class FtpsModule extends TransferModule {
         try {
             key = SessionCache.getKey(host, port, user, dir, connectionType, closeTimeout, connectionTimeout,
                     readTimeout, sendBufferSize, receiveBufferSize, listenAddress == null ? "default" : listenAddress);
+            directoryCache = RemoteDirectoryCache.getInstance(setup.getString(HOST_FTPS_MKDIRS_CACHE), key,
+                    setup.getDuration(HOST_FTPS_MKDIRS_CACHE_TTL).toMillis());
             if (keepAlive <= 0 || (ftp = cache.remove(key)) == null || !serverIsOpen(ftp)) {
                 ftp = new FTPClient();
                 if (!setup.getBoolean(HOST_FTPS_STRICT)) {
@@ -389,13 +400,21 @@ public final class FtpsModule extends TransferModule {
                 ftp.setType(FTPClient.TYPE_BINARY);
                 if (!dir.isEmpty()) {
                     if (mkdirs) {
-                        try {
-                            ftpCd(dir);
-                        } catch (final IOException _) {
+                        var found = false;
+                        if (!directoryCache.isMissing(dir)) {
+                            try {
+                                ftpCd(dir);
+                                found = true;
+                            } catch (final IOException _) {
+                                directoryCache.setMissing(dir);
+                            }
+                        }
+                        if (!found) {
                             mkdirs(dir);
                             setStatus("CD");
                             ftpCd(dir);
                         }
+                        directoryCache.setExists(dir);
                     } else {
                         setStatus("CD");
                         ftpCd(dir);
@@ -539,20 +558,33 @@ public final class FtpsModule extends TransferModule {
      * @param dir
      *            the dir
      *
+     * @return true, if some directories were taken from the cache
+     *
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      */
-    private void mkdirs(final String dir) throws IOException {
+    private boolean mkdirs(final String dir) throws IOException {
+        final var token = new StringTokenizer(dir, "\\/");
+        final var length = token.countTokens();
+        // The directories are not cached if some commands have to be triggered!
+        final var useCache = !isNotEmpty(preMkdirsCmd) && !isNotEmpty(postMkdirsCmd);
+        if (useCache && directoryCache.exists(dir, length)) {
+            _log.debug("Mkdirs {} (cached)", dir);
+            return true;
+        }
         _log.debug("Mkdirs {}", dir);
         setStatus("MKDIRS");
-        final var token = new StringTokenizer(dir, "\\/");
         final var path = new StringBuilder(dir.startsWith("\\") || dir.startsWith("/") ? File.separator : "");
         var index = 0;
-        final var length = token.countTokens();
+        var cached = false;
         while (token.hasMoreElements()) {
             path.append(token.nextToken() + File.separator);
             final var currentPath = usecleanpath ? Format.getCleanPath(path.toString()) : path.toString();
             index++;
+            if (useCache && directoryCache.exists(currentPath, 1)) {
+                cached = true;
+                continue;
+            }
             if ((mkdirsCmdIndex > 0 && mkdirsCmdIndex >= index || mkdirsCmdIndex < 0 && length + mkdirsCmdIndex < index)
                     && isNotEmpty(preMkdirsCmd)) {
                 execMkdirsCmd("pre", preMkdirsCmd, currentPath);
@@ -565,11 +597,16 @@ public final class FtpsModule extends TransferModule {
             } catch (final IOException _) {
                 // We ignore it, the directory might already exists!
             }
+            if (useCache) {
+                // Might not be true, but will be invalidated if the put fails!
+                directoryCache.setExists(currentPath);
+            }
             if ((mkdirsCmdIndex > 0 && mkdirsCmdIndex >= index || mkdirsCmdIndex < 0 && length + mkdirsCmdIndex < index)
                     && isNotEmpty(postMkdirsCmd)) {
                 execMkdirsCmd("post", postMkdirsCmd, currentPath);
             }
         }
+        return cached;
     }
 
     /**
@@ -621,9 +658,7 @@ public final class FtpsModule extends TransferModule {
             throw new IOException("Append/resume not compatible with " + getSetup().getModuleName() + ".usetmp");
         }
         final var dir = new File(name).getParent();
-        if (mkdirs && dir != null) {
-            mkdirs(dir);
-        }
+        mkdirsCached = mkdirs && dir != null && mkdirs(dir);
         if (prePutCmd != null && !prePutCmd.isBlank()) {
             final var s = Format.replaceAll(prePutCmd, "$filename", name);
             final var tokenizer = new StringTokenizer(s, ";");
@@ -653,7 +688,25 @@ public final class FtpsModule extends TransferModule {
         name = prePut(name, null, posn);
         _log.debug("Put file {} ({})", name, posn);
         setStatus("PUT");
-        ftpPut(name, posn);
+        try {
+            ftpPut(name, posn);
+        } catch (final IOException e) {
+            if (!mkdirsCached) {
+                directoryCache.invalidateParent(name);
+                throw e;
+            }
+            // The directories were taken from the cache and might have been removed on the remote side!
+            _log.debug("Put failed in a cached directory (retrying after mkdirs)", e);
+            mkdirsCached = false;
+            directoryCache.invalidatePath(putName);
+            mkdirs(new File(putName).getParent());
+            try {
+                ftpPut(name, posn);
+            } catch (final IOException retry) {
+                directoryCache.invalidateParent(name);
+                throw retry;
+            }
+        }
         transferHandled = true;
         return ftpsOutput;
     }
@@ -670,6 +723,9 @@ public final class FtpsModule extends TransferModule {
         if (putName == null && getName == null) {
             throw new IOException("A check should only occur after a put/get");
         }
+        if (error && putName != null) {
+            directoryCache.invalidateParent(putName);
+        }
         if (transferHandled && transferError != null) {
             throw new IOException(transferError);
         }
@@ -115,6 +115,7 @@ import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
@@ -131,8 +132,10 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -1271,8 +1274,8 @@ public final class HttpModule extends TransferModule {
      */
     private class ProcessEntryAsList implements ProcessEntry {
 
-        /** The result list. */
-        final List<String> resultList = Collections.synchronizedList(new ArrayList<>());
+        /** The result list (in insertion order, the duplicates are checked against the set). */
+        final Set<String> resultList = Collections.synchronizedSet(new LinkedHashSet<>());
 
         /**
          * Adds the.
@@ -1331,7 +1334,7 @@ public final class HttpModule extends TransferModule {
          *
          * @return the list
          */
-        public List<String> getList() {
+        public Set<String> getList() {
             return resultList;
         }
     }
@@ -1675,6 +1678,45 @@ public final class HttpModule extends TransferModule {
         return result;
     }
 
+    /**
+     * Gets the configuration of the structured listing parser (csv, json, xml or stac). The pattern is pushed down to
+     * the parser so that the entries which are not selected are discarded as soon as they are parsed.
+     *
+     * @param parser
+     *            the parser name
+     * @param options
+     *            the parser options
+     * @param pattern
+     *            the pattern the links have to match (may be null or empty)
+     *
+     * @return the parser configuration or null if this is not a structured listing (e.g. html)
+     */
+    private static ParserConfig getParserConfig(final String parser, final String options, final String pattern) {
+        final Map<String, String> properties;
+        if (parser.equalsIgnoreCase("csv")) {
+            properties = mergeParserOptions(Map.of("delimiter", ",", "nameCol", "0", "timeCol", "1", "urlCol", "2"),
+                    options);
+        } else if (parser.equalsIgnoreCase("json")) {
+            properties = mergeParserOptions(
+                    Map.of("arrayPath", "items", "nameField", "name", "urlField", "url", "timeField", "time"), options);
+        } else if (parser.equalsIgnoreCase("xml")) {
+            properties = mergeParserOptions(
+                    Map.of("arrayPath", "items.item", "nameField", "name", "urlField", "url", "timeField", "time"),
+                    options);
+        } else if (parser.equalsIgnoreCase("stac")) {
+            properties = mergeParserOptions(Map.of("arrayPath", "features", "nameField", "id", "urlField",
+                    "assets.data.href", "timeField", "properties.start_datetime"), options);
+        } else {
+            return null;
+        }
+        // The raw lines of the records are not used
+        properties.putIfAbsent("keepLine", "false");
+        if (isNotEmpty(pattern)) {
+            properties.putIfAbsent("linkRegex", pattern);
+        }
+        return new ParserConfig(parser.toLowerCase(), properties);
+    }
+
     /**
      * The Class FormattingVisitor.
      */
@@ -1982,27 +2024,58 @@ public final class HttpModule extends TransferModule {
                 try {
                     getResponse = execute(targetHttpHost, request, 200);
                     final var entity = getResponse.getEntity();
-                    if ((entity == null) || (entity.getContentLength() >= maxSize)) {
-                        throw new IOException("Couldn't get list from: " + request.getRequestUri()
-                                + (entity != null ? " (length is " + entity.getContentLength() + " bytes > "
-                                        + Format.formatSize(maxSize) + ")" : ""));
-                    }
-                    // Let's get the full content
-                    final String content;
-                    try {
-                        content = EntityUtils.toString(entity);
-                    } catch (final ParseException e) {
-                        throw new IOException(e.getMessage(), e.getCause());
-                    }
-                    if (content != null && !content.isBlank()) {
-                        if (getDebug()) {
-                            _log.debug("Content: {}", content);
+                    final var parser = getSetup().getString(HOST_HTTP_PARSER);
+                    final var config = getParserConfig(parser, getSetup().getString(HOST_HTTP_PARSER_OPTIONS),
+                            pattern);
+                    if (config != null && entity != null) {
+                        // The entries are parsed while the listing is downloaded, so the listing is never loaded in
+                        // memory and its size is not limited by the maxSize option
+                        final var maxFiles = getSetup().getInteger(HOST_HTTP_LIST_MAX_FILES);
+                        final var filesCount = new AtomicInteger(resultListSize + listSize);
+                        final var selected = new AtomicInteger(0);
+                        final var currentDirectory = directory;
+                        final var contentType = ContentType.parseLenient(entity.getContentType());
+                        final var charset = contentType != null && contentType.getCharset() != null
+                                ? contentType.getCharset() : StandardCharsets.UTF_8;
+                        try (var reader = new InputStreamReader(entity.getContent(), charset)) {
+                            listingEngine.process(config, reader, result -> {
+                                if (result.link == null || result.link.isBlank()) {
+                                    return true;
+                                }
+                                if (filesCount.get() >= maxFiles) {
+                                    _log.debug("Processed maximum number of files: {}", filesCount.get());
+                                    return false;
+                                }
+                                filesCount.incrementAndGet();
+                                selected.incrementAndGet();
+                                final var altName = isNotEmpty(result.name) ? result.name : null;
+                                final var entrySize = result.size >= 0 ? ByteSize.of(result.size) : null;
+                                final var entryDate = result.time >= 0 ? result.time : null;
+                                addEntry(manager, resultList, rootDirectory, currentDirectory, result.link, level,
+                                        pattern, counter, altName, entrySize, entryDate, null, null);
+                                return true;
+                            });
+                        } catch (final Exception e) {
+                            _log.warn("Parsing: {}", config.getType(), e);
+                        }
+                        listSize += selected.get();
+                    } else if (parser.equalsIgnoreCase("html")) { // Legacy processing (default)
+                        if ((entity == null) || (entity.getContentLength() >= maxSize)) {
+                            throw new IOException("Couldn't get list from: " + request.getRequestUri()
+                                    + (entity != null ? " (length is " + entity.getContentLength() + " bytes > "
+                                            + Format.formatSize(maxSize) + ")" : ""));
+                        }
+                        // Let's get the full content
+                        final String content;
+                        try {
+                            content = EntityUtils.toString(entity);
+                        } catch (final ParseException e) {
+                            throw new IOException(e.getMessage(), e.getCause());
                         }
-                        final var parser = getSetup().getString(HOST_HTTP_PARSER);
-                        final var parserOptions = getSetup().getString(HOST_HTTP_PARSER_OPTIONS);
-                        final ParserConfig config;
-                        if (parser.equalsIgnoreCase("html")) { // Legacy processing (default)
-                            config = null;
+                        if (content != null && !content.isBlank()) {
+                            if (getDebug()) {
+                                _log.debug("Content: {}", content);
+                            }
                             final var doc = Jsoup.parse(content);
                             final var select = getSetup().getString(HOST_HTTP_SELECT);
                             if (select.isEmpty()) {
@@ -2055,44 +2128,9 @@ public final class HttpModule extends TransferModule {
                                     }
                                 }
                             }
-                        } else if (parser.equalsIgnoreCase("csv")) {
-                            config = new ParserConfig("csv",
-                                    mergeParserOptions(
-                                            Map.of("delimiter", ",", "nameCol", "0", "timeCol", "1", "urlCol", "2"),
-                                            parserOptions));
-                        } else if (parser.equalsIgnoreCase("json")) {
-                            config = new ParserConfig("json", mergeParserOptions(Map.of("arrayPath", "items",
-                                    "nameField", "name", "urlField", "url", "timeField", "time"), parserOptions));
-                        } else if (parser.equalsIgnoreCase("xml")) {
-                            config = new ParserConfig("xml", mergeParserOptions(Map.of("arrayPath", "items.item",
-                                    "nameField", "name", "urlField", "url", "timeField", "time"), parserOptions));
-                        } else if (parser.equalsIgnoreCase("stac")) {
-                            config = new ParserConfig("stac",
-                                    mergeParserOptions(
-                                            Map.of("arrayPath", "features", "nameField", "id", "urlField",
-                                                    "assets.data.href", "timeField", "properties.start_datetime"),
-                                            parserOptions));
-                        } else if (parser.equalsIgnoreCase("script")) {
-                            config = null;
-                        } else {
-                            config = null;
-                        }
-                        if (config != null) {
-                            try {
-                                for (final var result : listingEngine.process(config, content)) {
-                                    if (result.link != null && !result.link.isBlank()) {
-                                        listSize++;
-                                        final var altName = isNotEmpty(result.name) ? result.name : null;
-                                        final var entrySize = result.size >= 0 ? ByteSize.of(result.size) : null;
-                                        final var entryDate = result.time >= 0 ? result.time : null;
-                                        addEntry(manager, resultList, rootDirectory, directory, result.link, level,
-                                                pattern, counter, altName, entrySize, entryDate, null, null);
-                                    }
-                                }
-                            } catch (final Exception e) {
-                                _log.warn("Parsing: {}", config.getType(), e);
-                            }
                         }
+                    } else if (entity == null) {
+                        throw new IOException("Couldn't get list from: " + request.getRequestUri());
                     }
                 } finally {
                     closeResponse(getResponse);
@@ -65,6 +65,8 @@ import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_LOGIN;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MAC;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MD5_EXT;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MKDIRS;
+import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MKDIRS_CACHE;
+import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MKDIRS_CACHE_TTL;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MKDIRS_CMD_INDEX;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_MKSUFFIX;
 import static ecmwf.common.ectrans.ECtransOptions.HOST_SFTP_OPTIONS;
@@ -102,6 +104,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -126,6 +129,7 @@ import com.jcraft.jsch.UserInfo;
 import ecmwf.common.ectrans.AllocateInterface;
 import ecmwf.common.ectrans.ECtransConstants;
 import ecmwf.common.ectrans.ECtransSetup;
+import ecmwf.common.ectrans.RemoteDirectoryCache;
 import ecmwf.common.ectrans.TransferModule;
 import ecmwf.common.rmi.ClientSocketFactory;
 import ecmwf.common.rmi.ClientSocketStatistics;
@@ -133,6 +137,7 @@ import ecmwf.common.rmi.SocketConfig;
 import ecmwf.common.security.RandomString;
 import ecmwf.common.technical.ExecutorManager;
 import ecmwf.common.technical.ExecutorRunnable;
+import ecmwf.common.technical.SessionCache;
 import ecmwf.common.technical.StreamPlugThread;
 import ecmwf.common.text.Format;
 import ecmwf.common.text.Format.DuplicatedChooseScore;
@@ -229,6 +234,12 @@ public class JSftpModule extends TransferModule {
     /** The socket factory. */
     private JschSocketFactory socketFactory = null;
 
+    /** The directory cache. */
+    private RemoteDirectoryCache directoryCache = null;
+
+    /** Some directories of the current put were taken from the directory cache. */
+    private boolean mkdirsCached = false;
+
     static {
         // Allow ssh-rsa by default for our legacy customers!
         JSch.setConfig("server_host_key", JSch.getConfig("server_host_key") + ",ssh-rsa");
@@ -529,16 +540,27 @@ public class JSftpModule extends TransferModule {
             }
             sftp.setUseWriteFlushWorkaround(setup.getBoolean(HOST_SFTP_USE_WRITE_FLUSH));
             sftp.connect();
+            directoryCache = RemoteDirectoryCache.getInstance(setup.getString(HOST_SFTP_MKDIRS_CACHE),
+                    SessionCache.getKey(host, port, user, dir),
+                    setup.getDuration(HOST_SFTP_MKDIRS_CACHE_TTL).toMillis());
             if (isNotEmpty(dir)) {
                 if (mkdirs) {
-                    try {
-                        sftp.cd(dir);
-                    } catch (final SftpException _) {
+                    var found = false;
+                    if (!directoryCache.isMissing(dir)) {
+                        try {
+                            sftp.cd(dir);
+                            found = true;
+                        } catch (final SftpException _) {
+                            directoryCache.setMissing(dir);
+                        }
+                    }
+                    if (!found) {
                         setStatus("MKDIRS");
                         mkdirs(dir);
                         setStatus("CD");
                         sftp.cd(dir);
                     }
+                    directoryCache.setExists(dir);
                 } else {
                     setStatus("CD");
                     sftp.cd(dir);
@@ -617,20 +639,33 @@ public class JSftpModule extends TransferModule {
      * @param dir
      *            the dir
      *
+     * @return true, if some directories were taken from the cache
+     *
      * @throws java.io.IOException
      *             Signals that an I/O exception has occurred.
      */
-    public void mkdirs(final String dir) throws IOException {
+    public boolean mkdirs(final String dir) throws IOException {
+        final var token = new StringTokenizer(dir, "\\/");
+        final var length = token.countTokens();
+        // The directories are not cached if some commands have to be triggered!
+        final var useCache = !isNotEmpty(preMkdirsCmd) && !isNotEmpty(postMkdirsCmd);
+        if (useCache && directoryCache.exists(dir, length)) {
+            _log.debug("Mkdirs {} (cached)", dir);
+            return true;
+        }
         _log.debug("Mkdirs {}", dir);
         setStatus("MKDIRS");
-        final var token = new StringTokenizer(dir, "\\/");
         final var path = new StringBuilder(dir.startsWith("\\") || dir.startsWith("/") ? File.separator : "");
         var index = 0;
-        final var length = token.countTokens();
+        var cached = false;
         while (token.hasMoreElements()) {
             path.append(token.nextToken() + File.separator);
             final var currentPath = usecleanpath ? Format.getCleanPath(path.toString()) : path.toString();
             index++;
+            if (useCache && directoryCache.exists(currentPath, 1)) {
+                cached = true;
+                continue;
+            }
             if ((mkdirsCmdIndex > 0 && mkdirsCmdIndex >= index || mkdirsCmdIndex < 0 && length + mkdirsCmdIndex < index)
                     && isNotEmpty(preMkdirsCmd)) {
                 execMkdirsCmd("pre", preMkdirsCmd, currentPath);
@@ -640,11 +675,16 @@ public class JSftpModule extends TransferModule {
             } catch (final SftpException _) {
                 // Ignored
             }
+            if (useCache) {
+                // Might not be true, but will be invalidated if the put fails!
+                directoryCache.setExists(currentPath);
+            }
             if ((mkdirsCmdIndex > 0 && mkdirsCmdIndex >= index || mkdirsCmdIndex < 0 && length + mkdirsCmdIndex < index)
                     && isNotEmpty(postMkdirsCmd)) {
                 execMkdirsCmd("post", postMkdirsCmd, currentPath);
             }
         }
+        return cached;
     }
 
     /**
@@ -769,9 +809,10 @@ public class JSftpModule extends TransferModule {
             throw new IOException("Append not compatible with " + getSetup().getModuleName() + ".usetmp");
         }
         final var dir = new File(name).getParent();
+        mkdirsCached = false;
         if (mkdirs && dir != null) {
             try {
-                mkdirs(dir);
+                mkdirsCached = mkdirs(dir);
             } catch (final IOException _) {
             }
         }
@@ -822,7 +863,17 @@ public class JSftpModule extends TransferModule {
             sftpOutput = sftp.put(name, posn > 0 ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE);
         } catch (final SftpException e) {
             _log.debug("put", e);
-            throwIOException(e, "put " + name);
+            if (!retryInCachedDirectory(e)) {
+                directoryCache.invalidateParent(name);
+                throwIOException(e, "put " + name);
+            }
+            try {
+                sftpOutput = sftp.put(name, posn > 0 ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE);
+            } catch (final SftpException retry) {
+                _log.debug("put", retry);
+                directoryCache.invalidateParent(name);
+                throwIOException(retry, "put " + name);
+            }
         }
         return sftpOutput;
     }
@@ -860,11 +911,45 @@ public class JSftpModule extends TransferModule {
             sftp.put(in, name, posn > 0 ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE);
         } catch (final SftpException e) {
             _log.debug("put", e);
-            throwIOException(e, "put " + name);
+            if (!retryInCachedDirectory(e)) {
+                directoryCache.invalidateParent(name);
+                throwIOException(e, "put " + name);
+            }
+            try {
+                sftp.put(in, name, posn > 0 ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE);
+            } catch (final SftpException retry) {
+                _log.debug("put", retry);
+                directoryCache.invalidateParent(name);
+                throwIOException(retry, "put " + name);
+            }
         }
         return true;
     }
 
+    /**
+     * Check if a failed put can be retried. This is the case if the remote file could not be created in a directory
+     * taken from the cache, which might have been removed on the remote side. The directories are then created again
+     * (no data were sent yet, as the error was raised when opening the remote file).
+     *
+     * @param e
+     *            the exception
+     *
+     * @return true, if the put can be retried
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private boolean retryInCachedDirectory(final SftpException e) throws IOException {
+        if (!mkdirsCached || e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+            return false;
+        }
+        _log.debug("Put failed in a cached directory (retrying after mkdirs)");
+        mkdirsCached = false;
+        directoryCache.invalidatePath(putName);
+        mkdirs(new File(putName).getParent());
+        return true;
+    }
+
     /**
      * Tries to find the correct error message for the transfer history.
      *
@@ -937,6 +1022,9 @@ public class JSftpModule extends TransferModule {
             throw new IOException("A check should only occur after a put/get");
         }
         if (error) {
+            if (putName != null) {
+                directoryCache.invalidateParent(putName);
+            }
             // Nothing more to check
             return;
         }
@@ -998,8 +1086,7 @@ public class JSftpModule extends TransferModule {
         if (isNotEmpty(execCmd)) {
             String s;
             try {
-                s = Format.replaceAll(execCmd, "$filename", remoteName);
-                s = Format.choose(s);
+                s = Format.choose(execCmd, Map.of("$filename", remoteName));
             } catch (final DuplicatedChooseScore e) {
                 throw new IOException("Could not compute exec command (multiple choices selected)");
             } catch (final ScriptException e) {
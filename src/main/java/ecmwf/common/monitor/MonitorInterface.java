@@ -18,6 +18,9 @@
 
 package ecmwf.common.monitor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * ECMWF Product Data Store (OpenECPDS) Project
  *
@@ -46,4 +49,24 @@ public interface MonitorInterface {
      *             the exception
      */
     void sendMessage(String name, String service, int status, String message) throws Exception;
+
+    /**
+     * Sends a batch of messages. By default the messages are sent one by one.
+     *
+     * @param managers
+     *            the monitor managers to send
+     *
+     * @return the monitor managers which could not be sent
+     */
+    default List<MonitorManager> sendMessages(final List<MonitorManager> managers) {
+        final List<MonitorManager> failed = new ArrayList<>();
+        for (final MonitorManager manager : managers) {
+            try {
+                sendMessage(manager.getName(), manager.getService(), manager.getStatus(), manager.getComment());
+            } catch (final Exception e) {
+                failed.add(manager);
+            }
+        }
+        return failed;
+    }
 }
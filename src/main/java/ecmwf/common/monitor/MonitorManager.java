@@ -31,6 +31,7 @@ package ecmwf.common.monitor;
 import static ecmwf.common.text.Util.isNotEmpty;
 
 import java.io.Serializable;
+import java.util.List;
 
 import javax.management.timer.Timer;
 
@@ -204,6 +205,29 @@ public final class MonitorManager implements Serializable {
         throw new MonitorException("Invalid color string: " + status);
     }
 
+    /**
+     * Update a batch of monitor managers (with their current status and comment).
+     *
+     * @param managers
+     *            the managers
+     *
+     * @return the managers which could not be sent
+     *
+     * @throws MonitorException
+     *             the monitor exception
+     */
+    public static synchronized List<MonitorManager> update(final List<MonitorManager> managers)
+            throws MonitorException {
+        checkIfIsActivated();
+        if (_debug) {
+            for (final MonitorManager manager : managers) {
+                _log.debug("Notification: " + manager._name + "," + manager._service + "," + manager._status + ","
+                        + manager._comment);
+            }
+        }
+        return _dontSend || managers.isEmpty() ? List.of() : getProvider().sendMessages(managers);
+    }
+
     /**
      * _status.
      *
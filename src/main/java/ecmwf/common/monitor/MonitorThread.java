@@ -23,7 +23,9 @@ package ecmwf.common.monitor;
  *
  * The Class MonitorThread. This thread is constantly checking internal
  * components which requires monitoring and send notifications to the monitoring
- * application using the selected provider.
+ * application using the selected provider. Only the statuses which have changed
+ * since they were last published (or which were not published for a while) are
+ * sent, in a single batch per cycle.
  *
  * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
  * @version 6.7.7
@@ -31,13 +33,18 @@ package ecmwf.common.monitor;
  */
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.management.timer.Timer;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import ecmwf.common.technical.Cnf;
 import ecmwf.common.technical.ThreadService.ConfigurableLoopRunnable;
 
 /**
@@ -47,9 +54,47 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
     /** The Constant _log. */
     private static final Logger _log = LogManager.getLogger(MonitorThread.class);
 
+    /** The Constant REFRESH_INTERVAL (an unchanged status is published again after this interval). */
+    private static final long REFRESH_INTERVAL = Cnf.durationAt("Monitor", "refreshInterval", 30 * Timer.ONE_MINUTE);
+
+    /** The Constant SLOW_BATCH (a batch taking longer is considered as slow). */
+    private static final long SLOW_BATCH = Cnf.durationAt("Monitor", "slowBatch", Timer.ONE_MINUTE);
+
+    /** The Constant MAX_BACKOFF (maximum number of cycles skipped when the monitoring is slow or failing). */
+    private static final int MAX_BACKOFF = Cnf.at("Monitor", "maxBackoff", 8);
+
     /** The _this. */
     private static MonitorThread _this;
 
+    /**
+     * The Published. What was last published for a status.
+     *
+     * @param name
+     *            the name
+     * @param service
+     *            the service
+     * @param status
+     *            the status
+     * @param comment
+     *            the comment
+     * @param time
+     *            the time
+     */
+    private record Published(String name, String service, int status, String comment, long time) {
+        /**
+         * Checks if the monitor manager is the same as the one published.
+         *
+         * @param manager
+         *            the manager
+         *
+         * @return true, if successful
+         */
+        boolean isSame(final MonitorManager manager) {
+            return status == manager.getStatus() && Objects.equals(name, manager.getName())
+                    && Objects.equals(service, manager.getService()) && Objects.equals(comment, manager.getComment());
+        }
+    }
+
     /**
      * The Class MonitorEntry.
      */
@@ -77,6 +122,18 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
     /** The _callbacks. */
     private final Map<String, MonitorEntry> _callbacks = new ConcurrentHashMap<>();
 
+    /** The _published (per key). */
+    private final Map<String, Published> _published = new ConcurrentHashMap<>();
+
+    /** The _dirty (statuses waiting to be published, only the latest one per key). */
+    private final Map<String, MonitorManager> _dirty = new LinkedHashMap<>();
+
+    /** The _backoff (number of cycles to skip before to publish again). */
+    private int _backoff = 0;
+
+    /** The _skip (number of cycles left to skip). */
+    private int _skip = 0;
+
     /**
      * Instantiates a new monitor thread.
      */
@@ -141,6 +198,7 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
             _log.debug("UnSubscribing " + name);
         }
         _callbacks.remove(name);
+        _published.remove(name);
     }
 
     /**
@@ -161,6 +219,7 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
         }
         for (final String key : toRemove) {
             _callbacks.remove(key);
+            _published.remove(key);
         }
     }
 
@@ -191,8 +250,14 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
                                 _log.warn("No service defined for: " + key);
                             }
                         }
-                        // Let's update the event!
-                        manager.update();
+                        // Let's publish the event if it has changed!
+                        final var published = _published.get(key);
+                        if (published == null || !published.isSame(manager)
+                                || System.currentTimeMillis() - published.time() >= REFRESH_INTERVAL) {
+                            _dirty.put(key, manager);
+                        } else {
+                            _dirty.remove(key);
+                        }
                     } else {
                         _log.warn("Callback not found: " + key);
                     }
@@ -200,11 +265,54 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
                     _log.warn("Sending status for " + key, t);
                 }
             }
+            _publish();
         } catch (final Throwable t) {
             _log.warn("Sending status", t);
         }
     }
 
+    /**
+     * Publish the statuses which have changed in a single batch. If the previous batch was slow or failed then some
+     * cycles are skipped (twice as many each time, up to the maximum) and the changes are coalesced in the meantime.
+     * The statuses which could not be sent are kept for the next batch, unless a newer one is already waiting.
+     *
+     * @throws MonitorException
+     *             the monitor exception
+     */
+    private void _publish() throws MonitorException {
+        _dirty.keySet().retainAll(_callbacks.keySet());
+        if (_dirty.isEmpty()) {
+            return;
+        }
+        if (_skip > 0) {
+            _skip--;
+            _log.debug("Publishing delayed ({} status(es) waiting)", _dirty.size());
+            return;
+        }
+        final var batch = new LinkedHashMap<>(_dirty);
+        _dirty.clear();
+        final var start = System.currentTimeMillis();
+        final var failed = MonitorManager.update(new ArrayList<>(batch.values()));
+        final var duration = System.currentTimeMillis() - start;
+        for (final Map.Entry<String, MonitorManager> entry : batch.entrySet()) {
+            final var manager = entry.getValue();
+            if (failed.contains(manager)) {
+                _dirty.putIfAbsent(entry.getKey(), manager);
+            } else if (_callbacks.containsKey(entry.getKey())) {
+                _published.put(entry.getKey(), new Published(manager.getName(), manager.getService(),
+                        manager.getStatus(), manager.getComment(), start));
+            }
+        }
+        if (!failed.isEmpty() || duration > SLOW_BATCH) {
+            _skip = _backoff = Math.min(MAX_BACKOFF, Math.max(1, _backoff * 2));
+            _log.warn("Publishing {} status(es) took {} ms ({} failed), skipping {} cycle(s)", batch.size(), duration,
+                    failed.size(), _skip);
+        } else {
+            _backoff = 0;
+            _log.debug("Published {} status(es) in {} ms", batch.size(), duration);
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -213,5 +321,7 @@ public final class MonitorThread extends ConfigurableLoopRunnable {
     @Override
     public void configurableLoopEnd() {
         _callbacks.clear();
+        _published.clear();
+        _dirty.clear();
     }
 }
@@ -26,6 +26,11 @@ package ecmwf.common.monitor.module;
  * @since 2024-07-01
  */
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.logging.log4j.LogManager;
 
 import org.apache.logging.log4j.Logger;
@@ -50,8 +55,7 @@ public final class OpsviewProvider implements MonitorInterface {
     @Override
     public void sendMessage(final String hostname, final String service, final int status, final String message)
             throws MonitorException {
-        final var realHostname = hostname.startsWith(service + "/") ? hostname.substring((service + "/").length())
-                : hostname;
+        final var realHostname = _getHostname(hostname, service);
         try {
             // In Opsview:
             // Status code '0' means that the Service Check is running successfully
@@ -68,4 +72,44 @@ public final class OpsviewProvider implements MonitorInterface {
                     + ",message=" + message + ")", t);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Sends a batch of messages through the OpsViewManager.
+     */
+    @Override
+    public List<MonitorManager> sendMessages(final List<MonitorManager> managers) {
+        final Map<OpsViewManager.Detail, MonitorManager> details = new LinkedHashMap<>();
+        for (final MonitorManager manager : managers) {
+            final var status = manager.getStatus();
+            details.put(new OpsViewManager.Detail(_getHostname(manager.getName(), manager.getService()),
+                    manager.getService(), status == MonitorManager.BLUE ? MonitorManager.GREEN : status,
+                    manager.getComment()), manager);
+        }
+        try {
+            final List<MonitorManager> failed = new ArrayList<>();
+            for (final OpsViewManager.Detail detail : OpsViewManager.detail(new ArrayList<>(details.keySet()))) {
+                failed.add(details.get(detail));
+            }
+            return failed;
+        } catch (final Throwable t) {
+            _log.warn("Cannot send notifications (" + managers.size() + " status(es))", t);
+            return managers;
+        }
+    }
+
+    /**
+     * Gets the hostname. In Bologna, "DataMover/bodh1ecpdmv-02" should be translated into "bodh1ecpdmv-02".
+     *
+     * @param hostname
+     *            the hostname
+     * @param service
+     *            the service
+     *
+     * @return the hostname
+     */
+    private static String _getHostname(final String hostname, final String service) {
+        return hostname.startsWith(service + "/") ? hostname.substring((service + "/").length()) : hostname;
+    }
 }
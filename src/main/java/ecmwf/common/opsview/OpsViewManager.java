@@ -37,6 +37,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.net.ssl.SSLContext;
@@ -107,6 +109,9 @@ public final class OpsViewManager {
     /** The Constant PASSWORD. */
     private static final String PASSWORD = Cnf.at("OpsViewManager", "password", "");
 
+    /** The Constant DETAIL_CONCURRENCY (detail requests of a batch sent at the same time). */
+    private static final int DETAIL_CONCURRENCY = Math.max(1, Cnf.at("OpsViewManager", "detailConcurrency", 8));
+
     /** The Constant DISSEMINATION_FILTER_NAME. */
     public static final String DISSEMINATION_FILTER_NAME = Cnf.at("OpsViewManager", "disseminationFilterName",
             "ECPDS_Dissemination");
@@ -298,6 +303,78 @@ public final class OpsViewManager {
         } while (true);
     }
 
+    /**
+     * The Detail. A status to set for a service check.
+     *
+     * @param hostname
+     *            the host name
+     * @param service
+     *            the service
+     * @param status
+     *            the status
+     * @param message
+     *            the message
+     */
+    public record Detail(String hostname, String service, int status, String message) {
+    }
+
+    /**
+     * Detail a batch of statuses. The requests share the same token and are sent concurrently through the REST
+     * client (up to the configured concurrency). If some requests fail then they are sent again once with a new token.
+     *
+     * @param details
+     *            the details
+     *
+     * @return the details which could not be sent
+     *
+     * @throws OpsViewManagerException
+     *             the ops view manager exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred (no token)
+     */
+    public static List<Detail> detail(final List<Detail> details) throws OpsViewManagerException, IOException {
+        final var lastTry = getLastTry();
+        var failed = details;
+        do {
+            final var headers = Map.of("X-Opsview-Username", USER, "X-Opsview-Token", getToken(lastTry.get()));
+            final var permits = new Semaphore(DETAIL_CONCURRENCY);
+            final List<CompletableFuture<Detail>> futures = new ArrayList<>(failed.size());
+            for (final Detail detail : failed) {
+                final var state = OBJECT_MAPPER.createObjectNode();
+                state.putObject("set_state").put("result", detail.status()).put("output", detail.message());
+                final var request = request(URL_DETAIL, "POST", headers,
+                        Map.of("hostname", detail.hostname(), "servicename", detail.service()), state);
+                try {
+                    permits.acquire();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("OpsView request interrupted", e);
+                }
+                futures.add(REST_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((r, t) -> {
+                    permits.release();
+                    if (t != null) {
+                        _log.warn("URL: {}, Error: {}, Request: {}", URL_DETAIL, t.getMessage(), state);
+                        return detail;
+                    }
+                    if (r.statusCode() != 200) {
+                        _log.warn("URL: {}, Code: {}, Request: {}", URL_DETAIL, r.statusCode(), state);
+                        return detail;
+                    }
+                    return null;
+                }));
+            }
+            final List<Detail> result = new ArrayList<>();
+            for (final CompletableFuture<Detail> future : futures) {
+                final var detail = future.join();
+                if (detail != null) {
+                    result.add(detail);
+                }
+            }
+            failed = result;
+        } while (!failed.isEmpty() && lastTry.compareAndSet(false, true));
+        return failed;
+    }
+
     /**
      * Gets the filter.
      *
@@ -510,29 +587,30 @@ public final class OpsViewManager {
     private static CloseableClientResponse send(final String url, final String method,
             final Map<String, String> headers, final Map<String, String> query, final Object body) throws IOException {
         try {
-            final var builder = HttpRequest.newBuilder(buildUri(url, query)).timeout(Duration.ofSeconds(30))
-                    .header("Accept", "application/json");
-            headers.forEach(builder::header);
-            if (body != null) {
-                builder.header("Content-Type", "application/json");
-            }
-            final HttpRequest request;
-            if (body == null) {
-                request = builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
-            } else if (body instanceof String s) {
-                request = builder.method(method, HttpRequest.BodyPublishers.ofString(s)).build();
-            } else {
-                request = builder
-                        .method(method, HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)))
-                        .build();
-            }
-            return new CloseableClientResponse(REST_CLIENT.send(request, HttpResponse.BodyHandlers.ofString()));
+            return new CloseableClientResponse(
+                    REST_CLIENT.send(request(url, method, headers, query, body), HttpResponse.BodyHandlers.ofString()));
         } catch (final InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException("OpsView request interrupted", e);
         }
     }
 
+    private static HttpRequest request(final String url, final String method, final Map<String, String> headers,
+            final Map<String, String> query, final Object body) throws IOException {
+        final var builder = HttpRequest.newBuilder(buildUri(url, query)).timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        headers.forEach(builder::header);
+        if (body == null) {
+            return builder.method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+        builder.header("Content-Type", "application/json");
+        if (body instanceof String s) {
+            return builder.method(method, HttpRequest.BodyPublishers.ofString(s)).build();
+        }
+        return builder.method(method, HttpRequest.BodyPublishers.ofString(OBJECT_MAPPER.writeValueAsString(body)))
+                .build();
+    }
+
     private static URI buildUri(final String url, final Map<String, String> query) {
         if (query.isEmpty()) {
             return URI.create(url);
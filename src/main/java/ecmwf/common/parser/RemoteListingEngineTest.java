@@ -1,6 +1,8 @@
 package ecmwf.common.parser;
 
+import java.io.StringReader;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ecmwf.common.ftp.FtpParser;
 import ecmwf.common.parser.core.ParserConfig;
@@ -32,6 +34,7 @@ public class RemoteListingEngineTest {
         testXml(engine);
         testStac(engine);
         testS3(engine);
+        testStreaming(engine);
 
         System.out.println("====================================");
         System.out.println("ALL TESTS COMPLETED");
@@ -173,6 +176,38 @@ public class RemoteListingEngineTest {
         print(result);
     }
 
+    // ------------------------------------------------------------
+    // Streaming (large S3 inventory with size filter)
+    // ------------------------------------------------------------
+    private static void testStreaming(RemoteListingEngine engine) throws Exception {
+
+        System.out.println("\n[STREAMING TEST]");
+
+        int records = 1_000_000;
+
+        StringBuilder input = new StringBuilder("key,size,last_modified\n");
+
+        for (int i = 0; i < records; i++) {
+            input.append("dir/file").append(i).append(".nc,").append(i).append(",2024-01-01T10:00:00Z\n");
+        }
+
+        ParserConfig config = new ParserConfig("s3", Map.of("minSize", String.valueOf(records - 3), "keepLine",
+                "false"));
+
+        AtomicInteger count = new AtomicInteger();
+
+        long start = System.nanoTime();
+
+        engine.process(config, new StringReader(input.toString()), e -> {
+            count.incrementAndGet();
+            System.out.println("name=" + e.name + ", size=" + e.size + ", time=" + e.time + ", link=" + e.link);
+            return true;
+        });
+
+        System.out.println(count.get() + " entries selected out of " + records + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
     // ------------------------------------------------------------
     // Helper
     // ------------------------------------------------------------
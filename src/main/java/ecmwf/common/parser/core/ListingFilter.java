@@ -0,0 +1,74 @@
+package ecmwf.common.parser.core;
+
+import java.util.regex.Pattern;
+
+import ecmwf.common.ftp.FtpParser;
+
+/**
+ * Filter applied by the parsers to every entry before it is handed over, so that the entries which are not wanted are
+ * discarded as soon as they are parsed.
+ *
+ * <p>
+ * The filter can be built from the following {@link ParserConfig} properties:
+ * </p>
+ *
+ * <ul>
+ * <li>nameRegex: regular expression the name must match</li>
+ * <li>linkRegex: regular expression the link must match</li>
+ * <li>minSize / maxSize: size range in bytes (only checked if the size is known)</li>
+ * <li>minAge / maxAge: age range in milliseconds (only checked if the time is known)</li>
+ * </ul>
+ */
+public class ListingFilter {
+
+    public static final ListingFilter ACCEPT_ALL = new ListingFilter(null, null, -1, -1, -1, -1);
+
+    private final Pattern namePattern;
+    private final Pattern linkPattern;
+    private final long minSize;
+    private final long maxSize;
+    private final long minAge;
+    private final long maxAge;
+    private final long now = System.currentTimeMillis();
+
+    public ListingFilter(String nameRegex, String linkRegex, long minSize, long maxSize, long minAge, long maxAge) {
+        this.namePattern = nameRegex != null && !nameRegex.isEmpty() ? Pattern.compile(nameRegex) : null;
+        this.linkPattern = linkRegex != null && !linkRegex.isEmpty() ? Pattern.compile(linkRegex) : null;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+    }
+
+    public static ListingFilter from(ParserConfig config) {
+        String nameRegex = config.get("nameRegex");
+        String linkRegex = config.get("linkRegex");
+        long minSize = config.getLong("minSize", -1);
+        long maxSize = config.getLong("maxSize", -1);
+        long minAge = config.getLong("minAge", -1);
+        long maxAge = config.getLong("maxAge", -1);
+        if (nameRegex == null && linkRegex == null && minSize < 0 && maxSize < 0 && minAge < 0 && maxAge < 0) {
+            return ACCEPT_ALL;
+        }
+        return new ListingFilter(nameRegex, linkRegex, minSize, maxSize, minAge, maxAge);
+    }
+
+    public boolean accept(FtpParser.FileEntry e) {
+        if (namePattern != null && (e.name == null || !namePattern.matcher(e.name).matches())) {
+            return false;
+        }
+        if (linkPattern != null && (e.link == null || !linkPattern.matcher(e.link).matches())) {
+            return false;
+        }
+        if (e.size >= 0 && ((minSize >= 0 && e.size < minSize) || (maxSize >= 0 && e.size > maxSize))) {
+            return false;
+        }
+        if (e.time >= 0) {
+            long age = now - e.time;
+            if ((minAge >= 0 && age < minAge) || (maxAge >= 0 && age > maxAge)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
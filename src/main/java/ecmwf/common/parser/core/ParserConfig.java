@@ -40,6 +40,17 @@ public class ParserConfig {
         }
     }
 
+    public long getLong(String key, long defaultValue) {
+        String v = properties.get(key);
+        if (v == null)
+            return defaultValue;
+        try {
+            return Long.parseLong(v);
+        } catch (Exception e) {
+            return defaultValue;
+        }
+    }
+
     public boolean getBoolean(String key, boolean defaultValue) {
         String v = properties.get(key);
         if (v == null)
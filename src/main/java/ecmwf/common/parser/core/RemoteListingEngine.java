@@ -1,5 +1,7 @@
 package ecmwf.common.parser.core;
 
+import java.io.Reader;
+
 import ecmwf.common.ftp.FtpParser;
 import ecmwf.common.parser.parsers.CsvListingParser;
 import ecmwf.common.parser.parsers.FtpListingParser;
@@ -74,6 +76,24 @@ import ecmwf.common.parser.parsers.XmlListingParser;
  * FtpParser.FileEntry[] entries = new RemoteListingEngine().process(config, content);
  * }</pre>
  *
+ * <h2>Streaming</h2>
+ *
+ * <p>
+ * Large listings (e.g. S3 inventories or STAC catalogues of several GB) should not be loaded as a single string. The
+ * streaming variant reads the listing from a {@link Reader} and hands over the entries one at a time, so the memory
+ * used does not depend on the size of the listing. The {@link ListingFilter} (regex, size and age) is applied in the
+ * parse loop, before the entries are handed over:
+ * </p>
+ *
+ * <pre>{@code
+ * try (Reader reader = new InputStreamReader(remoteConnection.open(url), StandardCharsets.UTF_8)) {
+ *     new RemoteListingEngine().process(config, reader, entry -> {
+ *         queue(entry);
+ *         return true; // false to stop the parsing
+ *     });
+ * }
+ * }</pre>
+ *
  * <h2>Typical OpenECPDS workflow</h2>
  *
  * <ol>
@@ -118,4 +138,14 @@ public class RemoteListingEngine {
         RemoteListingParser parser = registry.find(config.getType());
         return parser.parse(input, config);
     }
+
+    public void process(ParserConfig config, Reader input, RemoteListingHandler handler) throws Exception {
+        process(config, input, ListingFilter.from(config), handler);
+    }
+
+    public void process(ParserConfig config, Reader input, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception {
+        RemoteListingParser parser = registry.find(config.getType());
+        parser.parse(input, config, filter, handler);
+    }
 }
\ No newline at end of file
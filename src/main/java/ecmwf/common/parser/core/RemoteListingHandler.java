@@ -0,0 +1,20 @@
+package ecmwf.common.parser.core;
+
+import ecmwf.common.ftp.FtpParser;
+
+/**
+ * Callback receiving the entries of a remote listing as they are produced by a {@link RemoteListingParser}.
+ */
+@FunctionalInterface
+public interface RemoteListingHandler {
+
+    /**
+     * Handle an entry which passed the {@link ListingFilter}.
+     *
+     * @param entry
+     *            the entry
+     *
+     * @return false to stop the parsing (e.g. maximum number of entries reached)
+     */
+    boolean handle(FtpParser.FileEntry entry) throws Exception;
+}
@@ -1,5 +1,10 @@
 package ecmwf.common.parser.core;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
 import ecmwf.common.ftp.FtpParser;
 
 public interface RemoteListingParser {
@@ -8,5 +13,16 @@ public interface RemoteListingParser {
 
     boolean supports(String hint);
 
-    FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception;
-}
\ No newline at end of file
+    /**
+     * Parse the listing from the reader and hand over the entries accepted by the filter one at a time, without
+     * keeping the listing or the entries in memory.
+     */
+    void parse(Reader input, ParserConfig config, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception;
+
+    default FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception {
+        List<FtpParser.FileEntry> out = new ArrayList<>();
+        parse(new StringReader(input), config, ListingFilter.from(config), out::add);
+        return out.toArray(new FtpParser.FileEntry[0]);
+    }
+}
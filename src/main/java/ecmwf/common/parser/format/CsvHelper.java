@@ -4,6 +4,7 @@ import org.apache.commons.csv.*;
 
 import ecmwf.common.parser.core.ParserConfig;
 
+import java.io.Reader;
 import java.io.StringReader;
 
 public final class CsvHelper {
@@ -17,4 +18,11 @@ public final class CsvHelper {
 
         return format.parse(new StringReader(input));
     }
+
+    public static CSVParser parse(Reader input, ParserConfig config) throws Exception {
+
+        CSVFormat format = CsvFormatFactory.create(config);
+
+        return format.parse(input);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package ecmwf.common.parser.format;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Streaming navigation in a JSON (or XML through the XmlMapper) document. Only the nodes found at the requested path
+ * are materialised, one at a time, while the rest of the document is skipped.
+ */
+public final class JsonStream {
+
+    @FunctionalInterface
+    public interface NodeHandler {
+
+        boolean handle(JsonNode node) throws Exception;
+    }
+
+    private JsonStream() {
+    }
+
+    /**
+     * Hand over the elements found at the first of the paths which exists in the document. If the value at the path
+     * is an array then its elements are handed over, otherwise the value itself is handed over if single is set (e.g.
+     * repeated XML elements).
+     *
+     * @return false if the handler requested to stop
+     */
+    public static boolean forEach(JsonParser parser, boolean single, NodeHandler handler, String... paths)
+            throws Exception {
+        if (parser.nextToken() == null) {
+            return true;
+        }
+        List<String[]> candidates = new ArrayList<>();
+        for (String path : paths) {
+            candidates.add(path.split("\\."));
+        }
+        return walk(parser, candidates, 0, single, handler);
+    }
+
+    // The current token is the start of the value at the specified depth
+    private static boolean walk(JsonParser p, List<String[]> paths, int depth, boolean single, NodeHandler h)
+            throws Exception {
+        if (paths.get(0).length == depth) {
+            if (p.currentToken() == JsonToken.START_ARRAY) {
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (!h.handle(p.readValueAsTree())) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (single && p.currentToken() == JsonToken.START_OBJECT) {
+                return h.handle(p.readValueAsTree());
+            }
+            p.skipChildren();
+            return true;
+        }
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return true;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            List<String[]> matching = new ArrayList<>();
+            for (String[] path : paths) {
+                if (path.length > depth && path[depth].equals(name)) {
+                    matching.add(path);
+                }
+            }
+            if (matching.isEmpty()) {
+                p.skipChildren();
+            } else if (!walk(p, matching, depth + 1, single, h)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
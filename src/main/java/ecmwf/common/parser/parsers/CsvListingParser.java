@@ -1,16 +1,17 @@
 package ecmwf.common.parser.parsers;
 
+import java.io.Reader;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
 import ecmwf.common.ftp.FtpParser;
+import ecmwf.common.parser.core.ListingFilter;
 import ecmwf.common.parser.core.ParserConfig;
+import ecmwf.common.parser.core.RemoteListingHandler;
 import ecmwf.common.parser.core.RemoteListingParser;
 import ecmwf.common.parser.format.CsvHelper;
 
@@ -35,36 +36,45 @@ public class CsvListingParser implements RemoteListingParser {
     }
 
     @Override
-    public FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception {
-
-        CSVParser parser = CsvHelper.parse(input, config);
+    public void parse(Reader input, ParserConfig config, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception {
 
         int nameCol = config.getInt("nameCol", 0);
         int timeCol = config.getInt("timeCol", -1);
         int urlCol = config.getInt("urlCol", -1);
 
-        List<FtpParser.FileEntry> out = new ArrayList<>();
+        boolean keepLine = config.getBoolean("keepLine", true);
+
+        try (CSVParser parser = CsvHelper.parse(input, config)) {
 
-        for (CSVRecord r : parser) {
+            for (CSVRecord r : parser) {
 
-            FtpParser.FileEntry e = new FtpParser.FileEntry();
+                FtpParser.FileEntry e = new FtpParser.FileEntry();
 
-            e.name = safeGet(r, nameCol);
-            e.link = safeGet(r, urlCol);
-            e.line = r.toString();
+                e.name = safeGet(r, nameCol);
+                e.link = safeGet(r, urlCol);
 
-            // safer time parsing
-            if (timeCol >= 0) {
-                String t = safeGet(r, timeCol);
-                if (t != null) {
-                    e.time = parseTimeSafe(t);
+                // safer time parsing
+                if (timeCol >= 0) {
+                    String t = safeGet(r, timeCol);
+                    if (t != null) {
+                        e.time = parseTimeSafe(t);
+                    }
                 }
-            }
 
-            out.add(e);
-        }
+                if (!filter.accept(e)) {
+                    continue;
+                }
 
-        return out.toArray(new FtpParser.FileEntry[0]);
+                if (keepLine) {
+                    e.line = r.toString();
+                }
+
+                if (!handler.handle(e)) {
+                    break;
+                }
+            }
+        }
     }
 
     private long parseTimeSafe(String value) {
@@ -1,11 +1,21 @@
 package ecmwf.common.parser.parsers;
 
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
 import ecmwf.common.ftp.FtpParser;
+import ecmwf.common.parser.core.ListingFilter;
 import ecmwf.common.parser.core.ParserConfig;
+import ecmwf.common.parser.core.RemoteListingHandler;
 import ecmwf.common.parser.core.RemoteListingParser;
 
 public class FtpListingParser implements RemoteListingParser {
 
+    // Number of lines parsed at once
+    private static final int BATCH_SIZE = 1000;
+
     @Override
     public String name() {
         return "ftp";
@@ -18,14 +28,43 @@ public class FtpListingParser implements RemoteListingParser {
     }
 
     @Override
-    public FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception {
+    public void parse(Reader input, ParserConfig config, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception {
 
         String system = config.getOrDefault("system", "UNIX");
 
         String regex = config.get("regex");
 
-        String[] lines = input.split("\n");
+        BufferedReader reader = input instanceof BufferedReader br ? br : new BufferedReader(input);
+
+        List<String> lines = new ArrayList<>(BATCH_SIZE);
+
+        String line;
+
+        boolean more = true;
+
+        while (more) {
+
+            line = reader.readLine();
+
+            if (line != null) {
+                lines.add(line);
+                if (lines.size() < BATCH_SIZE) {
+                    continue;
+                }
+            } else {
+                more = false;
+            }
 
-        return FtpParser.parseDir(regex, system, null, null, "en", null, null, lines);
+            if (!lines.isEmpty()) {
+                for (FtpParser.FileEntry e : FtpParser.parseDir(regex, system, null, null, "en", null, null,
+                        lines.toArray(new String[0]))) {
+                    if (filter.accept(e) && !handler.handle(e)) {
+                        return;
+                    }
+                }
+                lines.clear();
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,18 @@
 package ecmwf.common.parser.parsers;
 
+import java.io.Reader;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import ecmwf.common.ftp.FtpParser;
+import ecmwf.common.parser.core.ListingFilter;
 import ecmwf.common.parser.core.ParserConfig;
+import ecmwf.common.parser.core.RemoteListingHandler;
 import ecmwf.common.parser.core.RemoteListingParser;
 import ecmwf.common.parser.format.JsonPath;
+import ecmwf.common.parser.format.JsonStream;
 
 public class JsonListingParser implements RemoteListingParser {
 
@@ -27,50 +29,50 @@ public class JsonListingParser implements RemoteListingParser {
     }
 
     @Override
-    public FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception {
-
-        JsonNode root = mapper.readTree(input);
+    public void parse(Reader input, ParserConfig config, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception {
 
         String arrayPath = config.getOrDefault("arrayPath", "items");
 
-        JsonNode array = JsonPath.get(root, arrayPath);
-
-        if (array == null || !array.isArray()) {
-            return new FtpParser.FileEntry[0];
-        }
-
         String nameField = config.getOrDefault("nameField", "name");
 
         String urlField = config.getOrDefault("urlField", "url");
 
         String timeField = config.getOrDefault("timeField", "time");
 
-        List<FtpParser.FileEntry> out = new ArrayList<>();
+        boolean keepLine = config.getBoolean("keepLine", true);
+
+        try (JsonParser parser = mapper.createParser(input)) {
 
-        for (JsonNode n : array) {
+            JsonStream.forEach(parser, false, n -> {
 
-            FtpParser.FileEntry e = new FtpParser.FileEntry();
+                FtpParser.FileEntry e = new FtpParser.FileEntry();
 
-            e.name = JsonPath.text(n, nameField);
+                e.name = JsonPath.text(n, nameField);
 
-            e.link = JsonPath.text(n, urlField);
+                e.link = JsonPath.text(n, urlField);
 
-            e.line = n.toString();
+                try {
 
-            try {
+                    String t = JsonPath.text(n, timeField);
 
-                String t = JsonPath.text(n, timeField);
+                    if (t != null) {
+                        e.time = Instant.parse(t).toEpochMilli();
+                    }
 
-                if (t != null) {
-                    e.time = Instant.parse(t).toEpochMilli();
+                } catch (Exception ignored) {
                 }
 
-            } catch (Exception ignored) {
-            }
+                if (!filter.accept(e)) {
+                    return true;
+                }
 
-            out.add(e);
-        }
+                if (keepLine) {
+                    e.line = n.toString();
+                }
 
-        return out.toArray(new FtpParser.FileEntry[0]);
+                return handler.handle(e);
+            }, arrayPath);
+        }
     }
-}
\ No newline at end of file
+}
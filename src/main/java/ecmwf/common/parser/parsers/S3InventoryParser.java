@@ -1,15 +1,16 @@
 package ecmwf.common.parser.parsers;
 
+import java.io.Reader;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 
 import ecmwf.common.ftp.FtpParser;
+import ecmwf.common.parser.core.ListingFilter;
 import ecmwf.common.parser.core.ParserConfig;
+import ecmwf.common.parser.core.RemoteListingHandler;
 import ecmwf.common.parser.core.RemoteListingParser;
 
 public class S3InventoryParser implements RemoteListingParser {
@@ -26,13 +27,12 @@ public class S3InventoryParser implements RemoteListingParser {
     }
 
     @Override
-    public FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception {
+    public void parse(Reader input, ParserConfig config, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception {
 
         CSVFormat format = CSVFormat.DEFAULT.builder().setTrim(true).setIgnoreEmptyLines(true).setHeader()
                 .setSkipHeaderRecord(true).build();
 
-        CSVParser parser = CSVParser.parse(input, format);
-
         // Column mapping (configurable, but safe defaults)
         String keyCol = config.getOrDefault("keyCol", "key");
         String sizeCol = config.getOrDefault("sizeCol", "size");
@@ -42,51 +42,61 @@ public class S3InventoryParser implements RemoteListingParser {
         // Optional base URL for HTTP access
         String baseUrl = config.getOrDefault("baseUrl", null);
 
-        List<FtpParser.FileEntry> out = new ArrayList<>();
+        // The raw debug line is only kept on request (one string per record otherwise)
+        boolean keepLine = config.getBoolean("keepLine", true);
 
-        for (CSVRecord r : parser) {
+        try (CSVParser parser = format.parse(input)) {
 
-            FtpParser.FileEntry e = new FtpParser.FileEntry();
+            for (CSVRecord r : parser) {
 
-            // --- NAME (S3 object key) ---
-            e.name = safeGet(r, keyCol);
+                FtpParser.FileEntry e = new FtpParser.FileEntry();
 
-            // --- SIZE ---
-            try {
-                String sizeStr = safeGet(r, sizeCol);
-                e.size = sizeStr != null ? Long.parseLong(sizeStr) : -1;
-            } catch (Exception ignored) {
-                e.size = -1;
-            }
+                // --- NAME (S3 object key) ---
+                e.name = safeGet(r, keyCol);
 
-            // --- TIME ---
-            try {
-                String timeStr = safeGet(r, timeCol);
-                if (timeStr != null) {
-                    e.time = parseTime(timeStr);
+                // --- SIZE ---
+                try {
+                    String sizeStr = safeGet(r, sizeCol);
+                    e.size = sizeStr != null ? Long.parseLong(sizeStr) : -1;
+                } catch (Exception ignored) {
+                    e.size = -1;
                 }
-            } catch (Exception ignored) {
-                e.time = -1;
-            }
 
-            // --- LINK (derived) ---
-            String bucket = safeGet(r, bucketCol);
+                // --- TIME ---
+                try {
+                    String timeStr = safeGet(r, timeCol);
+                    if (timeStr != null) {
+                        e.time = parseTime(timeStr);
+                    }
+                } catch (Exception ignored) {
+                    e.time = -1;
+                }
 
-            if (baseUrl != null && e.name != null) {
-                e.link = baseUrl + "/" + e.name;
-            } else if (bucket != null && e.name != null) {
-                e.link = "s3://" + bucket + "/" + e.name;
-            } else if (e.name != null) {
-                e.link = "s3://" + e.name;
-            }
+                // --- LINK (derived) ---
+                String bucket = safeGet(r, bucketCol);
 
-            // raw debug line
-            e.line = r.toString();
+                if (baseUrl != null && e.name != null) {
+                    e.link = baseUrl + "/" + e.name;
+                } else if (bucket != null && e.name != null) {
+                    e.link = "s3://" + bucket + "/" + e.name;
+                } else if (e.name != null) {
+                    e.link = "s3://" + e.name;
+                }
 
-            out.add(e);
-        }
+                if (!filter.accept(e)) {
+                    continue;
+                }
+
+                // raw debug line
+                if (keepLine) {
+                    e.line = r.toString();
+                }
 
-        return out.toArray(new FtpParser.FileEntry[0]);
+                if (!handler.handle(e)) {
+                    break;
+                }
+            }
+        }
     }
 
     private String safeGet(CSVRecord r, String col) {
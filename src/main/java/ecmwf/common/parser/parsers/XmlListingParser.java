@@ -1,16 +1,18 @@
 package ecmwf.common.parser.parsers;
 
+import java.io.Reader;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 
 import ecmwf.common.ftp.FtpParser;
+import ecmwf.common.parser.core.ListingFilter;
 import ecmwf.common.parser.core.ParserConfig;
+import ecmwf.common.parser.core.RemoteListingHandler;
 import ecmwf.common.parser.core.RemoteListingParser;
 import ecmwf.common.parser.format.JsonPath;
+import ecmwf.common.parser.format.JsonStream;
 
 public class XmlListingParser implements RemoteListingParser {
 
@@ -28,59 +30,45 @@ public class XmlListingParser implements RemoteListingParser {
     }
 
     @Override
-    public FtpParser.FileEntry[] parse(String input, ParserConfig config) throws Exception {
-
-        JsonNode root = mapper.readTree(input);
+    public void parse(Reader input, ParserConfig config, ListingFilter filter, RemoteListingHandler handler)
+            throws Exception {
 
         String arrayPath = config.getOrDefault("arrayPath", "items.item");
 
-        JsonNode array = JsonPath.get(root, arrayPath);
-
-        if (array == null) {
-            array = JsonPath.get(root, "item");
-        }
-
-        if (array == null) {
-            array = JsonPath.get(root, "items");
-        }
-
-        if (array == null || array.isNull()) {
-            return new FtpParser.FileEntry[0];
-        }
-
-        List<JsonNode> nodes = new ArrayList<>();
-
-        if (array.isArray()) {
-            array.forEach(nodes::add);
-        } else {
-            nodes.add(array);
-        }
-
         String nameField = config.getOrDefault("nameField", "name");
         String urlField = config.getOrDefault("urlField", "url");
         String timeField = config.getOrDefault("timeField", "time");
 
-        List<FtpParser.FileEntry> out = new ArrayList<>();
+        boolean keepLine = config.getBoolean("keepLine", true);
 
-        for (JsonNode n : nodes) {
+        // The repeated elements are handed over one by one, with item and items as fallbacks
+        try (JsonParser parser = mapper.createParser(input)) {
 
-            FtpParser.FileEntry e = new FtpParser.FileEntry();
+            JsonStream.forEach(parser, true, n -> {
 
-            e.name = JsonPath.text(n, nameField);
-            e.link = JsonPath.text(n, urlField);
-            e.line = n.toString();
+                FtpParser.FileEntry e = new FtpParser.FileEntry();
 
-            try {
-                String t = JsonPath.text(n, timeField);
-                if (t != null) {
-                    e.time = Instant.parse(t).toEpochMilli();
+                e.name = JsonPath.text(n, nameField);
+                e.link = JsonPath.text(n, urlField);
+
+                try {
+                    String t = JsonPath.text(n, timeField);
+                    if (t != null) {
+                        e.time = Instant.parse(t).toEpochMilli();
+                    }
+                } catch (Exception ignored) {
                 }
-            } catch (Exception ignored) {
-            }
 
-            out.add(e);
-        }
+                if (!filter.accept(e)) {
+                    return true;
+                }
+
+                if (keepLine) {
+                    e.line = n.toString();
+                }
 
-        return out.toArray(new FtpParser.FileEntry[0]);
+                return handler.handle(e);
+            }, arrayPath, "item", "items");
+        }
     }
-}
\ No newline at end of file
+}
@@ -26,16 +26,22 @@ package ecmwf.common.plugin;
  * @since 2024-07-01
  */
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
@@ -66,6 +72,30 @@ public abstract class SimplePlugin extends ServerPlugin {
     /** The Constant RESPONSE_SIZE. */
     private static final int RESPONSE_SIZE = 32;
 
+    /** The Constant READ_BUFFER_SIZE. */
+    private static final int READ_BUFFER_SIZE = Cnf.at("SimplePlugin", "readBufferSize", 8192);
+
+    /**
+     * The Constant PARSE_COMMAND_LENGTH. The parseCommand method is only called on the first characters of a line
+     * (e.g. to detect a ticket which is not followed by a new line), so that reading a long line is not quadratic.
+     */
+    private static final int PARSE_COMMAND_LENGTH = Cnf.at("SimplePlugin", "parseCommandLength", 32);
+
+    /** The Constant WITH_PARAMETERS. */
+    private static final MethodType WITH_PARAMETERS = MethodType.methodType(void.class, SimplePlugin.class,
+            String[].class);
+
+    /** The Constant WITHOUT_PARAMETERS. */
+    private static final MethodType WITHOUT_PARAMETERS = MethodType.methodType(void.class, SimplePlugin.class);
+
+    /** The Constant DISPATCH (the commands available for each plugin class, built once per class). */
+    private static final ClassValue<Dispatch> DISPATCH = new ClassValue<>() {
+        @Override
+        protected Dispatch computeValue(final Class<?> type) {
+            return new Dispatch(type);
+        }
+    };
+
     /** The _in. */
     private InputStream _in = null;
 
@@ -148,7 +178,7 @@ public abstract class SimplePlugin extends ServerPlugin {
     public void startConnection(final Socket socket) throws IOException {
         final var start = System.currentTimeMillis();
         try {
-            _in = socket.getInputStream();
+            _in = new BufferedInputStream(socket.getInputStream(), READ_BUFFER_SIZE);
             _out = socket.getOutputStream();
         } catch (final IOException e) {
             _log.debug("Can't open input/output streams", e);
@@ -222,7 +252,7 @@ public abstract class SimplePlugin extends ServerPlugin {
     }
 
     /**
-     * Invoke.
+     * Invoke. The method handles of the commands are resolved once per plugin class.
      *
      * @param command
      *            the command
@@ -233,9 +263,22 @@ public abstract class SimplePlugin extends ServerPlugin {
      *             the exception
      */
     public void invoke(final String command, final String[] parameters) throws Exception {
-        final var method = this.getClass().getMethod(command + "Req",
-                parameters == null ? null : new Class[] { String[].class });
-        method.invoke(this, parameters == null ? null : new Object[] { parameters });
+        final var dispatch = DISPATCH.get(getClass());
+        final var handle = (parameters == null ? dispatch.withoutParameters : dispatch.withParameters).get(command);
+        if (handle == null) {
+            throw new NoSuchMethodException(getClass().getName() + "." + command + "Req");
+        }
+        try {
+            if (parameters == null) {
+                handle.invokeExact(this);
+            } else {
+                handle.invokeExact(this, parameters);
+            }
+        } catch (final Exception | Error e) {
+            throw e;
+        } catch (final Throwable t) {
+            throw new InvocationTargetException(t);
+        }
     }
 
     /**
@@ -285,7 +328,7 @@ public abstract class SimplePlugin extends ServerPlugin {
                 }
                 buffer.append(c);
                 final String command;
-                if ((command = parseCommand(buffer.toString())) != null) {
+                if (buffer.length() <= PARSE_COMMAND_LENGTH && (command = parseCommand(buffer.toString())) != null) {
                     return command;
                 }
             }
@@ -485,6 +528,45 @@ public abstract class SimplePlugin extends ServerPlugin {
         return new String[] { param };
     }
 
+    /**
+     * The Class Dispatch. The public methods with a name ending with "Req" and taking either no parameter or an array
+     * of String, resolved once as method handles.
+     */
+    private static final class Dispatch {
+        /** The with parameters. */
+        final Map<String, MethodHandle> withParameters = new HashMap<>();
+
+        /** The without parameters. */
+        final Map<String, MethodHandle> withoutParameters = new HashMap<>();
+
+        /**
+         * Instantiates a new dispatch.
+         *
+         * @param type
+         *            the plugin class
+         */
+        Dispatch(final Class<?> type) {
+            final var lookup = MethodHandles.publicLookup();
+            for (final var method : type.getMethods()) {
+                final var name = method.getName();
+                if (!name.endsWith("Req") || Modifier.isStatic(method.getModifiers())) {
+                    continue;
+                }
+                final var command = name.substring(0, name.length() - 3);
+                final var parameterTypes = method.getParameterTypes();
+                try {
+                    if (parameterTypes.length == 0) {
+                        withoutParameters.put(command, lookup.unreflect(method).asType(WITHOUT_PARAMETERS));
+                    } else if (parameterTypes.length == 1 && parameterTypes[0] == String[].class) {
+                        withParameters.put(command, lookup.unreflect(method).asType(WITH_PARAMETERS));
+                    }
+                } catch (final IllegalAccessException | RuntimeException e) {
+                    _log.debug("Command {} not available for {}", command, type.getName(), e);
+                }
+            }
+        }
+    }
+
     /**
      * The Class ParameterException.
      */
@@ -133,17 +133,7 @@ public final class InterruptibleInputStream extends FilterInputStream {
                 super.close();
             } finally {
                 if (monitor != null) {
-                    LOG.debug("Interrupting RMI monitor thread");
-                    monitor.setLoop(false);
-                    monitor.interrupt();
-                    try {
-                        monitor.join(5000); // wait max 5s
-                    } catch (final InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        LOG.warn("Interrupted while joining RMI monitor thread", e);
-                    } catch (final Throwable t) {
-                        LOG.warn("RMI monitor thread did not terminate cleanly", t);
-                    }
+                    monitor.cancel();
                 }
             }
         } else {
@@ -19,21 +19,70 @@ package ecmwf.common.rmi.interruptible;
  */
 
 import java.net.Socket;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ecmwf.common.technical.Cnf;
 
 /**
- * The Class InterruptibleMonitor.
+ * The Class InterruptibleMonitor. Flag a stream when the RMI socket of its server thread is no longer alive. All the
+ * monitors are checked by a single thread driven by a timer wheel: the sockets are spread over the slots of the wheel
+ * and one slot is checked at every tick, so that every socket is checked once per revolution (checkIntervalInMillis)
+ * and the work is spread evenly over time. A socket shared by several streams is only checked once. A connection
+ * loss is detected at the latest after one revolution and one tick.
  */
-final class InterruptibleMonitor extends Thread {
+final class InterruptibleMonitor {
+
+    /** The Constant _log. */
+    private static final Logger _log = LogManager.getLogger(InterruptibleMonitor.class);
+
+    /** The Constant INTERVAL. */
+    private static final long INTERVAL = Math.max(10,
+            Cnf.at("InterruptibleMonitor", "checkIntervalInMillis", 2000L));
+
+    /** The Constant SLOTS. */
+    private static final int SLOTS = (int) Math.max(1,
+            Math.min(INTERVAL / 10, Cnf.at("InterruptibleMonitor", "wheelSlots", 20)));
+
+    /** The Constant TICK. */
+    private static final long TICK = INTERVAL / SLOTS;
+
+    /** The Constant WHEEL (for each slot, the monitors per socket). */
+    @SuppressWarnings("unchecked")
+    private static final Map<Socket, Set<InterruptibleMonitor>>[] WHEEL = new Map[SLOTS];
+
+    /** The Constant _checks. */
+    private static final AtomicLong _checks = new AtomicLong(0);
+
+    /** The Constant _registered. */
+    private static final AtomicLong _registered = new AtomicLong(0);
+
+    /** The Constant _lost. */
+    private static final AtomicLong _lost = new AtomicLong(0);
+
+    /** The Constant _slot (next slot to check). */
+    private static int _slot = 0;
+
+    static {
+        for (var i = 0; i < SLOTS; i++) {
+            WHEEL[i] = new ConcurrentHashMap<>();
+        }
+        Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("InterruptibleMonitor", 0).factory())
+                .scheduleAtFixedRate(InterruptibleMonitor::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+    }
 
     /** The rmi socket. */
     private final Socket rmiSocket;
 
     /** The closed. */
-    private final AtomicBoolean closed = new AtomicBoolean(false);
-
-    /** The loop. */
-    private volatile boolean loop = true;
+    private volatile boolean closed = false;
 
     /**
      * Instantiates a new interruptible monitor.
@@ -51,41 +100,76 @@ final class InterruptibleMonitor extends Thread {
      * @return true, if is closed
      */
     public boolean isClosed() {
-        return closed.get();
+        return closed;
     }
 
     /**
-     * Sets the loop.
+     * Register the monitor in the wheel.
+     */
+    public void execute() {
+        getSlot(rmiSocket).computeIfAbsent(rmiSocket, _ -> ConcurrentHashMap.newKeySet()).add(this);
+        _registered.incrementAndGet();
+    }
+
+    /**
+     * Remove the monitor from the wheel.
+     */
+    public void cancel() {
+        getSlot(rmiSocket).computeIfPresent(rmiSocket, (_, monitors) -> {
+            monitors.remove(this);
+            return monitors.isEmpty() ? null : monitors;
+        });
+    }
+
+    /**
+     * Gets the slot of the socket in the wheel.
      *
-     * @param loop
-     *            the new loop
+     * @param socket
+     *            the socket
+     *
+     * @return the slot
      */
-    public void setLoop(final boolean loop) {
-        this.loop = loop;
+    private static Map<Socket, Set<InterruptibleMonitor>> getSlot(final Socket socket) {
+        return WHEEL[Math.floorMod(System.identityHashCode(socket), SLOTS)];
     }
 
     /**
-     * Execute.
+     * Check the sockets of the current slot and move to the next one.
      */
-    public void execute() {
-        start();
+    private static void tick() {
+        final var slot = WHEEL[_slot];
+        _slot = (_slot + 1) % SLOTS;
+        try {
+            slot.entrySet().removeIf(entry -> {
+                _checks.incrementAndGet();
+                if (InterruptibleRMIServerSocket.isCurrentRMIServerThreadSocketAlive(entry.getKey())) {
+                    return false;
+                }
+                entry.getValue().forEach(monitor -> monitor.closed = true);
+                _lost.incrementAndGet();
+                return true;
+            });
+        } catch (final Throwable t) {
+            // Never let the scheduler stop!
+            _log.warn("Checking RMI sockets", t);
+        }
     }
 
     /**
-     * Run.
+     * Gets the status of the monitors.
+     *
+     * @return the status
      */
-    @Override
-    public void run() {
-        while (loop && !closed.get()) {
-            if (!InterruptibleRMIServerSocket.isCurrentRMIServerThreadSocketAlive(rmiSocket)) {
-                closed.set(true);
-            }
-            try {
-                Thread.sleep(2000);
-            } catch (final InterruptedException _) {
-                Thread.currentThread().interrupt();
-                break;
+    static String getStatus() {
+        var sockets = 0;
+        var monitors = 0;
+        for (final var slot : WHEEL) {
+            for (final var current : slot.values()) {
+                sockets++;
+                monitors += current.size();
             }
         }
+        return "sockets=" + sockets + ",streams=" + monitors + ",registered=" + _registered.get() + ",lost="
+                + _lost.get() + ",checks=" + _checks.get() + ",interval=" + INTERVAL + "ms,slots=" + SLOTS;
     }
 }
@@ -93,6 +93,15 @@ public final class InterruptibleRMIServerSocket extends ServerSocket {
         return InterruptibleRMIServerSideSocket.isCurrentRMIServerThreadSocketAlive(socket);
     }
 
+    /**
+     * Gets the status of the shared monitor watching the RMI sockets of the interruptible streams.
+     *
+     * @return the monitor status
+     */
+    public static String getMonitorStatus() {
+        return InterruptibleMonitor.getStatus();
+    }
+
     /**
      * Accept.
      *
@@ -48,6 +48,7 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
@@ -58,6 +59,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -100,6 +102,29 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
     /** The local host. */
     private static final String localHost = mover.getRoot();
 
+    /** The Constant READ_WINDOW_SIZE (bytes kept for the out of order read requests of a download). */
+    private static final int READ_WINDOW_SIZE = Math.max(Cnf.at("SshPlugin", "readWindowSize", 2 * 1024 * 1024),
+            65536);
+
+    /** The Constant READ_MAX_STREAMS (streams opened in parallel for the download of a large file). */
+    private static final int READ_MAX_STREAMS = Cnf.at("SshPlugin", "readMaxStreams", 1);
+
+    /** The Constant READ_PARALLEL_MIN_SIZE (minimum size of a file to open streams in parallel). */
+    private static final long READ_PARALLEL_MIN_SIZE = Cnf.at("SshPlugin", "readParallelMinSize",
+            256L * 1024 * 1024);
+
+    /** The streams opened for the downloads. */
+    private static final AtomicLong _readStreams = new AtomicLong(0);
+
+    /** The streams closed and reopened because a request was outside of the windows. */
+    private static final AtomicLong _readReopens = new AtomicLong(0);
+
+    /** The streams opened in parallel for large files. */
+    private static final AtomicLong _readParallelStreams = new AtomicLong(0);
+
+    /** The read requests served from a window (behind the stream position). */
+    private static final AtomicLong _readWindowHits = new AtomicLong(0);
+
     /**
      * The Class RemoteFile.
      */
@@ -228,31 +253,142 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
         }
     }
 
+    /**
+     * The Class ReadCursor. A stream opened on the remote file at a given offset, with a window keeping the last bytes
+     * read from the stream. A read request starting in the window or a little ahead of the stream position (less than
+     * the window size) is served without reopening the stream: the bytes already read are copied from the window and
+     * the bytes ahead are read into the window, so that a request which was skipped and arrives later is still
+     * available in memory.
+     */
+    private static final class ReadCursor implements Closeable {
+        /** The proxy. */
+        private final ProxySocket proxy;
+
+        /** The in. */
+        private final InputStream in;
+
+        /** The window (circular, the byte at offset x is at index x % window.length). */
+        private final byte[] window;
+
+        /** The offset where the stream was opened. */
+        private final long start;
+
+        /** Current position in the backend stream. */
+        private long pos;
+
+        /** The end of the stream was reached. */
+        private boolean eof = false;
+
+        /** The last use (to find the least recently used cursor). */
+        private long lastUsed = 0;
+
+        /**
+         * Instantiates a new read cursor.
+         *
+         * @param proxy
+         *            the proxy
+         * @param in
+         *            the in
+         * @param offset
+         *            the offset
+         * @param windowSize
+         *            the window size
+         */
+        ReadCursor(final ProxySocket proxy, final InputStream in, final long offset, final int windowSize) {
+            this.proxy = proxy;
+            this.in = in;
+            this.window = new byte[windowSize];
+            this.start = offset;
+            this.pos = offset;
+        }
+
+        /**
+         * Check if a read request at the specified offset can be served by this cursor.
+         *
+         * @param from
+         *            the from
+         *
+         * @return true, if successful
+         */
+        boolean covers(final long from) {
+            return from >= Math.max(start, pos - window.length) && from <= pos + window.length;
+        }
+
+        /**
+         * Read. The number of bytes returned is limited to the size of the window.
+         *
+         * @param from
+         *            the from
+         * @param buffer
+         *            the buffer
+         * @param bufStart
+         *            the buf start
+         * @param len
+         *            the len
+         *
+         * @return the int
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        int read(final long from, final byte[] buffer, final int bufStart, final int len) throws IOException {
+            final var target = from + Math.min(len, window.length);
+            while (pos < target && !eof) {
+                final var index = (int) (pos % window.length);
+                final var count = in.read(window, index, (int) Math.min(window.length - index, target - pos));
+                if (count < 0) {
+                    eof = true;
+                } else {
+                    pos += count;
+                }
+            }
+            if (from >= pos) {
+                return len == 0 ? 0 : -1;
+            }
+            final var length = (int) (Math.min(target, pos) - from);
+            final var index = (int) (from % window.length);
+            final var first = Math.min(length, window.length - index);
+            System.arraycopy(window, index, buffer, bufStart, first);
+            System.arraycopy(window, 0, buffer, bufStart + first, length - first);
+            return length;
+        }
+
+        /**
+         * Close.
+         */
+        @Override
+        public void close() {
+            closeQuietly(proxy);
+            closeQuietly(in);
+        }
+    }
+
     /**
      * The Class ReadFile.
+     *
+     * The pipelined read requests of the SFTP clients do not always arrive in order, so every open file keeps one or
+     * more cursors with a sliding window (see ReadCursor). A stream is only reopened when a request falls outside all
+     * the windows. For large files, several streams can be opened at different offsets.
      */
     private final class ReadFile extends OpenFile {
         /** The closed. */
         private final AtomicBoolean closed = new AtomicBoolean(false);
 
+        /** The cursors. */
+        private final List<ReadCursor> cursors = new ArrayList<>();
+
         /** The bytes count. */
         private long bytesCount = 0;
 
         /** The start. */
         private long start = 0;
 
-        /** Current position in the backend stream. */
-        private long pos = 0;
+        /** The number of reads (used to find the least recently used cursor). */
+        private long reads = 0;
 
-        /** The proxy. */
+        /** The proxy of the last cursor used (to record the event when the file is closed). */
         private ProxySocket proxy = null;
 
-        /** The in. */
-        private InputStream in = null;
-
-        /** Buffer used for forward-seek skipping. */
-        private static final int SKIP_BUF_SIZE = 65536;
-
         /**
          * Instantiates a new read file.
          *
@@ -271,16 +407,23 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
          * @param offset
          *            the offset
          *
+         * @return the read cursor
+         *
          * @throws IOException
          *             Signals that an I/O exception has occurred.
          */
-        private void openProxySocket(final long offset) throws IOException {
+        private ReadCursor openProxySocket(final long offset) throws IOException {
             _log.debug("Opening ProxySocket (offset={})", offset);
             try {
                 final var path = getFile().getName();
                 final var url = getURL(getSftpSubsystemProxy(), path);
-                proxy = getFileSystem(getSftpSubsystemProxy(), url).getProxySocketInput(url.dir, offset);
-                in = proxy.getDataInputStream();
+                final var socket = getFileSystem(getSftpSubsystemProxy(), url).getProxySocketInput(url.dir, offset);
+                final var size = getFileAttributes().size();
+                // No need for a window bigger than the file!
+                final var windowSize = size > 0 ? (int) Math.min(READ_WINDOW_SIZE, Math.max(size - offset, 0) + 1)
+                        : READ_WINDOW_SIZE;
+                _readStreams.incrementAndGet();
+                return new ReadCursor(socket, socket.getDataInputStream(), offset, windowSize);
             } catch (final EccmdException e) {
                 throw new IOException(e.getMessage());
             } finally {
@@ -291,6 +434,49 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
             }
         }
 
+        /**
+         * Gets the cursor for a read request. If no cursor can serve the request then a new one is opened, either in
+         * parallel (for a large file) or replacing the least recently used cursor.
+         *
+         * @param from
+         *            the from
+         *
+         * @return the read cursor
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        private ReadCursor getCursor(final long from) throws IOException {
+            // Prefer the cursor with the data already in the window, or the closest one before the request
+            ReadCursor best = null;
+            for (final ReadCursor cursor : cursors) {
+                if (cursor.covers(from) && (best == null
+                        || Math.max(from - cursor.pos, 0) < Math.max(from - best.pos, 0))) {
+                    best = cursor;
+                }
+            }
+            if (best != null) {
+                if (from < best.pos) {
+                    _readWindowHits.incrementAndGet();
+                }
+                return best;
+            }
+            final var maxStreams = getFileAttributes().size() >= READ_PARALLEL_MIN_SIZE ? READ_MAX_STREAMS : 1;
+            if (cursors.size() >= Math.max(maxStreams, 1)) {
+                // Replace the least recently used cursor!
+                final var lru = cursors.stream().min(Comparator.comparingLong(cursor -> cursor.lastUsed)).get();
+                _log.debug("Seek outside of the window: {} -> {}, reopening stream", lru.pos, from);
+                cursors.remove(lru);
+                lru.close();
+                _readReopens.incrementAndGet();
+            } else if (!cursors.isEmpty()) {
+                _readParallelStreams.incrementAndGet();
+            }
+            final var cursor = openProxySocket(from);
+            cursors.add(cursor);
+            return cursor;
+        }
+
         /**
          * Read.
          *
@@ -310,35 +496,11 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
          */
         public synchronized int read(final long from, final byte[] buffer, final int bufStart, final int len)
                 throws IOException {
-            if (in == null) {
-                // First read: open the stream at the requested offset.
-                openProxySocket(from);
-                pos = from;
-            } else if (from < pos) {
-                // Backward seek: close the current stream and reopen at the new offset.
-                _log.debug("Backward seek: {} -> {}, reopening stream", pos, from);
-                closeQuietly(proxy);
-                closeQuietly(in);
-                proxy = null;
-                in = null;
-                openProxySocket(from);
-                pos = from;
-            } else if (from > pos) {
-                // Forward seek: skip ahead in the current stream.
-                final var skip = new byte[SKIP_BUF_SIZE];
-                var remaining = from - pos;
-                while (remaining > 0) {
-                    final var n = in.read(skip, 0, (int) Math.min(remaining, SKIP_BUF_SIZE));
-                    if (n < 0) {
-                        break;
-                    }
-                    pos += n;
-                    remaining -= n;
-                }
-            }
-            final var n = readFully(in, buffer, bufStart, len);
+            final var cursor = getCursor(from);
+            cursor.lastUsed = ++reads;
+            proxy = cursor.proxy;
+            final var n = cursor.read(from, buffer, bufStart, len);
             if (n > 0) {
-                pos += n;
                 bytesCount += n;
             }
             return n;
@@ -358,8 +520,12 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
                 return;
             }
             _log.debug("Closing ReadFile");
-            closeQuietly(proxy);
-            closeQuietly(in);
+            synchronized (this) {
+                for (final ReadCursor cursor : cursors) {
+                    cursor.close();
+                }
+                cursors.clear();
+            }
             try {
                 if (proxy != null) {
                     final var info = getAuthenticationInfo(getSftpSubsystemProxy());
@@ -382,7 +548,6 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
                 throw new IOException(e.getMessage());
             } finally {
                 proxy = null;
-                in = null;
             }
         }
     }
@@ -1438,6 +1603,18 @@ public class MinaFileSystemAccessor implements SftpFileSystemAccessor {
         }
     }
 
+    /**
+     * Gets the status of the downloads (streams opened, reopened because a request was outside of the windows or
+     * opened in parallel, and the read requests served from a window).
+     *
+     * @return the read status
+     */
+    public static String getReadStatus() {
+        return "streams=" + _readStreams.get() + ",reopens=" + _readReopens.get() + ",parallelStreams="
+                + _readParallelStreams.get() + ",windowHits=" + _readWindowHits.get() + ",windowSize="
+                + READ_WINDOW_SIZE + ",maxStreams=" + READ_MAX_STREAMS;
+    }
+
     /**
      * Close all files open.
      */
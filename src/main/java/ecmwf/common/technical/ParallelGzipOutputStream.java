@@ -0,0 +1,276 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.technical;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The Class ParallelGzipOutputStream. Block parallel gzip compression (in the same way as pigz). The data are cut in
+ * blocks which are deflated by a pool of threads shared by all the streams, each block using the last 32KB of the
+ * previous block as a dictionary and ending with a sync flush, so that the blocks put together are a single standard
+ * deflate stream. The result is a standard gzip file (single member) which can be read by any gzip implementation.
+ */
+public final class ParallelGzipOutputStream extends FilterOutputStream {
+    /** The Constant THREADS. */
+    public static final int THREADS = Cnf.at("Filter", "parallelThreads", Runtime.getRuntime().availableProcessors());
+
+    /** The Constant BLOCK_SIZE. */
+    private static final int BLOCK_SIZE = Math.max(64 * 1024, Cnf.at("Filter", "parallelBlockSize", 1024 * 1024));
+
+    /** The Constant LEVEL. */
+    private static final int LEVEL = Cnf.at("Filter", "gzipLevel", Deflater.DEFAULT_COMPRESSION);
+
+    /** The Constant DICTIONARY_SIZE. */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /** The Constant HEADER. */
+    private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /** The Constant EXECUTOR. */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Math.max(1, THREADS),
+            Thread.ofPlatform().name("ParallelGzip-", 0).daemon().factory());
+
+    /** The _crc. */
+    private final CRC32 _crc = new CRC32();
+
+    /** The _pending blocks (in order). */
+    private final ArrayDeque<Future<byte[]>> _pending = new ArrayDeque<>();
+
+    /** The _single. */
+    private final byte[] _single = new byte[1];
+
+    /** The _block. */
+    private byte[] _block = new byte[BLOCK_SIZE];
+
+    /** The _count. */
+    private int _count = 0;
+
+    /** The _dictionary. */
+    private byte[] _dictionary = null;
+
+    /** The _size. */
+    private long _size = 0;
+
+    /** The _closed. */
+    private boolean _closed = false;
+
+    /**
+     * Instantiates a new parallel gzip output stream.
+     *
+     * @param out
+     *            the out
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public ParallelGzipOutputStream(final OutputStream out) throws IOException {
+        super(out);
+        out.write(HEADER);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final int b) throws IOException {
+        _single[0] = (byte) b;
+        write(_single, 0, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        if (_closed) {
+            throw new IOException("Stream closed");
+        }
+        _crc.update(b, off, len);
+        _size += len;
+        while (len > 0) {
+            final var length = Math.min(len, _block.length - _count);
+            System.arraycopy(b, off, _block, _count, length);
+            _count += length;
+            off += length;
+            len -= length;
+            if (_count == _block.length) {
+                _submit(false);
+            }
+        }
+    }
+
+    /**
+     * Submit the current block for compression. If too many blocks are waiting then the oldest ones are written
+     * first.
+     *
+     * @param last
+     *            the last
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void _submit(final boolean last) throws IOException {
+        final var block = _block;
+        final var count = _count;
+        final var dictionary = _dictionary;
+        _pending.add(EXECUTOR.submit(() -> _deflate(block, count, dictionary, last)));
+        if (!last) {
+            _dictionary = Arrays.copyOfRange(block, Math.max(0, count - DICTIONARY_SIZE), count);
+            _block = new byte[BLOCK_SIZE];
+            _count = 0;
+        }
+        while (_pending.size() > 2 * THREADS) {
+            _writeNext();
+        }
+    }
+
+    /**
+     * Write the next compressed block.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void _writeNext() throws IOException {
+        try {
+            out.write(_pending.remove().get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (final ExecutionException e) {
+            throw new IOException("Compressing block", e.getCause());
+        }
+    }
+
+    /**
+     * Deflate a block (raw deflate data, ending with a sync flush or with the final block).
+     *
+     * @param block
+     *            the block
+     * @param count
+     *            the count
+     * @param dictionary
+     *            the dictionary
+     * @param last
+     *            the last
+     *
+     * @return the compressed block
+     */
+    private static byte[] _deflate(final byte[] block, final int count, final byte[] dictionary,
+            final boolean last) {
+        final var deflater = new Deflater(LEVEL, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(block, 0, count);
+            final var result = new ByteArrayOutputStream(count / 2 + 64);
+            final var buffer = new byte[64 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    result.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The blocks are compressed in parallel, so a flush does not force the data already received to be compressed.
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Compress the last block and write the gzip trailer (crc and size of the original data).
+     */
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        try {
+            _submit(true);
+            while (!_pending.isEmpty()) {
+                _writeNext();
+            }
+            final var trailer = new byte[8];
+            _writeInt(trailer, 0, (int) _crc.getValue());
+            _writeInt(trailer, 4, (int) _size);
+            out.write(trailer);
+            out.flush();
+        } finally {
+            _pending.forEach(future -> future.cancel(true));
+            _pending.clear();
+            out.close();
+        }
+    }
+
+    /**
+     * Write an int in little endian.
+     *
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @param value
+     *            the value
+     */
+    private static void _writeInt(final byte[] buffer, final int offset, final int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >> 8);
+        buffer[offset + 2] = (byte) (value >> 16);
+        buffer[offset + 3] = (byte) (value >> 24);
+    }
+}
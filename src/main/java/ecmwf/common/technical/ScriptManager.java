@@ -29,6 +29,7 @@ package ecmwf.common.technical;
  */
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
@@ -36,8 +37,11 @@ import java.net.URL;
 import java.time.Duration;
 import java.time.Period;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
@@ -45,9 +49,18 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanConstructorInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
 import javax.script.ScriptException;
 
 import org.apache.logging.log4j.LogManager;
@@ -64,6 +77,9 @@ import org.graalvm.polyglot.Value;
 import org.graalvm.polyglot.proxy.ProxyExecutable;
 import org.graalvm.polyglot.proxy.ProxyObject;
 
+import ecmwf.common.mbean.MBeanService;
+import ecmwf.common.text.Format;
+
 /**
  * The Class ScriptManager.
  */
@@ -100,6 +116,27 @@ public final class ScriptManager implements AutoCloseable {
     /** The Constant ALLOW_VIRTUAL_THREAD. */
     private static final boolean ALLOW_VIRTUAL_THREAD = Cnf.at("ScriptManager", "allowVirtualThread", false);
 
+    /** The Constant SOURCE_CACHE_SIZE. */
+    private static final int SOURCE_CACHE_SIZE = Cnf.at("ScriptManager", "sourceCacheSize", 1_000);
+
+    /** The Constant SOURCES. Parsed sources by language and script body. */
+    private static final LruCache<Source> SOURCES = new LruCache<>(SOURCE_CACHE_SIZE);
+
+    /** The Constant TEMPLATES. Prepared templates by language, parameter names and template text. */
+    private static final LruCache<Template> TEMPLATES = new LruCache<>(SOURCE_CACHE_SIZE);
+
+    /** The Constant COMPILE_TIME. Time spent in the parsing of the sources. */
+    private static final AtomicLong COMPILE_TIME = new AtomicLong(0);
+
+    /** The Constant BOUND_COUNT. Number of templates executed with their parameters as bindings. */
+    private static final AtomicLong BOUND_COUNT = new AtomicLong(0);
+
+    /** The Constant SUBSTITUTED_COUNT. Number of templates executed with their parameters substituted in the text. */
+    private static final AtomicLong SUBSTITUTED_COUNT = new AtomicLong(0);
+
+    /** The Constant MBEAN_SERVICE. */
+    private static final MBeanService MBEAN_SERVICE = new ScriptManagerMBean();
+
     /** The Constant CASTERS. */
     private static final Map<Class<?>, Function<Value, ?>> CASTERS = new HashMap<>();
 
@@ -555,6 +592,133 @@ public final class ScriptManager implements AutoCloseable {
         exec(null, defaultLanguage, Collections.emptyMap(), script);
     }
 
+    /**
+     * Exec a script template. The parameters (e.g. $size1 or $target) are passed to the script as bindings rather than
+     * being substituted in the text of the template, so that the same template always results in the same source and
+     * is only parsed once. The parameters can be used in the template as identifiers (e.g. $size1 &gt; $size2) or as
+     * quoted strings (e.g. "$target".endsWith(".bin")). If a parameter cannot be bound (e.g. python script, parameter
+     * within a larger string or followed by a range like $target[1..2]) then the parameters are substituted in the
+     * text as before, in the order of the map (the numbers first).
+     *
+     * @param <T>
+     *            the generic type
+     * @param clazz
+     *            the clazz
+     * @param defaultLanguage
+     *            the default language
+     * @param template
+     *            the template
+     * @param parameters
+     *            the parameters
+     * @param ranges
+     *            the string parameters are substituted with their range if any (e.g. $target[1..2])
+     *
+     * @return the t
+     *
+     * @throws ScriptException
+     *             the script exception
+     */
+    public static <T> T execTemplate(final Class<T> clazz, final String defaultLanguage, final String template,
+            final Map<String, Object> parameters, final boolean ranges) throws ScriptException {
+        final var prepared = getTemplate(defaultLanguage, template, parameters.keySet());
+        if (prepared.script != null) {
+            BOUND_COUNT.incrementAndGet();
+            return exec(clazz, defaultLanguage, parameters, prepared.script);
+        }
+        SUBSTITUTED_COUNT.incrementAndGet();
+        return exec(clazz, defaultLanguage, substitute(template, parameters, ranges));
+    }
+
+    /**
+     * Checks if the parameters can be passed as bindings to the script template (see the execTemplate method).
+     *
+     * @param defaultLanguage
+     *            the default language
+     * @param template
+     *            the template
+     * @param names
+     *            the parameter names
+     *
+     * @return true, if the parameters can be bound
+     */
+    public static boolean isBindable(final String defaultLanguage, final String template,
+            final Collection<String> names) {
+        return getTemplate(defaultLanguage, template, names).script != null;
+    }
+
+    /**
+     * Gets the prepared template from the cache, or prepare it if not found.
+     *
+     * @param defaultLanguage
+     *            the default language
+     * @param template
+     *            the template
+     * @param parameters
+     *            the parameter names
+     *
+     * @return the template
+     */
+    private static Template getTemplate(final String defaultLanguage, final String template,
+            final Collection<String> parameters) {
+        final var names = parameters.stream().sorted((a, b) -> b.length() - a.length()).toList();
+        final var key = defaultLanguage + ":" + String.join(",", names) + ":" + template;
+        var prepared = TEMPLATES.get(key);
+        if (prepared == null) {
+            prepared = Template.prepare(defaultLanguage, template, names);
+            TEMPLATES.put(key, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * Substitute the parameters in the text of the template, in the order of the map (the numbers first and then the
+     * strings, which might contain anything).
+     *
+     * @param template
+     *            the template
+     * @param parameters
+     *            the parameters
+     * @param ranges
+     *            the string parameters are substituted with their range if any (e.g. $target[1..2])
+     *
+     * @return the script
+     *
+     * @throws ScriptException
+     *             the script exception
+     */
+    private static String substitute(final String template, final Map<String, Object> parameters,
+            final boolean ranges) throws ScriptException {
+        final var script = new StringBuilder(template);
+        try {
+            for (final Map.Entry<String, Object> entry : parameters.entrySet()) {
+                if (!(entry.getValue() instanceof String)) {
+                    Format.replaceAll(script, entry.getKey(), entry.getValue());
+                }
+            }
+            for (final Map.Entry<String, Object> entry : parameters.entrySet()) {
+                if (entry.getValue() instanceof final String value) {
+                    if (ranges) {
+                        Format.replaceAllExt(script, entry.getKey(), value);
+                    } else {
+                        Format.replaceAll(script, entry.getKey(), value);
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new ScriptException("Template " + template + " (" + e.getMessage() + ")");
+        }
+        return script.toString();
+    }
+
+    /**
+     * Gets the MBean service, which provide the statistics of the source and template caches.
+     *
+     * @return the MBean service
+     */
+    public static MBeanService getMBeanService() {
+        return MBEAN_SERVICE;
+    }
+
     /**
      * Instantiates a new script manager. Uses the requested script engine.
      *
@@ -609,8 +773,21 @@ public final class ScriptManager implements AutoCloseable {
         final var start = System.currentTimeMillis();
         try {
             currentThread.setContextClassLoader(ScriptManager.class.getClassLoader());
-            var value = getCache().context.eval(
-                    Source.create(currentLanguage, wrapScript(addMissingReturnToSingleLineJSExpression(scriptBody))));
+            // The parsed code is kept by the (shared) engine for the Source, so let's reuse the same Source object
+            // for the same script rather than creating a new one at each call!
+            final var key = currentLanguage + ":" + scriptBody;
+            var source = SOURCES.get(key);
+            final var context = getCache().context;
+            if (source == null) {
+                source = Source.create(currentLanguage,
+                        wrapScript(addMissingReturnToSingleLineJSExpression(scriptBody)));
+                // Only parse it here, the parsed code is then reused by the evaluation!
+                final var parseStart = System.currentTimeMillis();
+                context.parse(source);
+                COMPILE_TIME.addAndGet(System.currentTimeMillis() - parseStart);
+                SOURCES.put(key, source);
+            }
+            var value = context.eval(source);
             // In GraalVM Python, context.eval() returns the module object, not the last
             // expression. Read the actual result from the module's member (the fixed binding
             // variable set at the end of the wrapper) instead.
@@ -820,6 +997,359 @@ public final class ScriptManager implements AutoCloseable {
         }
     }
 
+    /**
+     * The Class Template. Script template where the quoted parameters (e.g. "$target") were replaced by the string
+     * value of their identifiers (e.g. String($target)), so that all the parameters can be passed as bindings.
+     */
+    private static final class Template {
+
+        /** The script (null if the parameters have to be substituted in the text). */
+        final String script;
+
+        /**
+         * Instantiates a new template.
+         *
+         * @param script
+         *            the script
+         */
+        private Template(final String script) {
+            this.script = script;
+        }
+
+        /**
+         * Prepare the template. Only javascript templates can be prepared.
+         *
+         * @param defaultLanguage
+         *            the default language
+         * @param template
+         *            the template
+         * @param names
+         *            the parameter names (longest first)
+         *
+         * @return the template
+         */
+        static Template prepare(final String defaultLanguage, final String template, final List<String> names) {
+            final var toLowerCase = template.toLowerCase();
+            final var header = toLowerCase.startsWith(JS + ":") ? JS.length() + 1 : 0;
+            if (header == 0 && (!JS.equals(defaultLanguage) || toLowerCase.startsWith(PYTHON + ":"))) {
+                return new Template(null);
+            }
+            final var result = new StringBuilder(template.substring(0, header));
+            final var length = template.length();
+            for (var i = header; i < length;) {
+                final var c = template.charAt(i);
+                final var next = i + 1 < length ? template.charAt(i + 1) : 0;
+                if (c == '"' || c == '\'' || c == '`') {
+                    final var end = endOfString(template, i);
+                    final var name = match(template, i + 1, names, false);
+                    if (c != '`' && name != null && i + name.length() + 2 == end && template.charAt(end - 1) == c) {
+                        result.append("String(").append(name).append(')'); // Quoted parameter
+                    } else if (contains(toLowerCase.substring(i, end), names)) {
+                        return new Template(null); // Parameter within a larger string
+                    } else {
+                        result.append(template, i, end);
+                    }
+                    i = end;
+                } else if (c == '/' && (next == '/' || next == '*')) {
+                    final var end = next == '/' ? template.indexOf('\n', i) : template.indexOf("*/", i + 2);
+                    final var stop = end == -1 ? length : next == '/' ? end : end + 2;
+                    result.append(template, i, stop);
+                    i = stop;
+                } else if (c == '$' && match(template, i, names, true) != null) {
+                    final var name = match(template, i, names, false);
+                    final var after = name != null ? i + name.length() : -1;
+                    if (name == null || i > 0 && Character.isJavaIdentifierPart(template.charAt(i - 1))
+                            || after < length && (Character.isJavaIdentifierPart(template.charAt(after))
+                                    || template.charAt(after) == '[')) {
+                        return new Template(null); // Not a plain identifier
+                    }
+                    result.append(name);
+                    i = after;
+                } else {
+                    result.append(c);
+                    i++;
+                }
+            }
+            return new Template(result.toString());
+        }
+
+        /**
+         * Find the end of the string starting at the specified position.
+         *
+         * @param template
+         *            the template
+         * @param start
+         *            the position of the opening quote
+         *
+         * @return the position following the closing quote
+         */
+        private static int endOfString(final String template, final int start) {
+            final var quote = template.charAt(start);
+            final var length = template.length();
+            for (var i = start + 1; i < length; i++) {
+                final var c = template.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    return i + 1;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Find the parameter name at the specified position.
+         *
+         * @param template
+         *            the template
+         * @param start
+         *            the start
+         * @param names
+         *            the names
+         * @param ignoreCase
+         *            the ignore case
+         *
+         * @return the name or null if none is found
+         */
+        private static String match(final String template, final int start, final List<String> names,
+                final boolean ignoreCase) {
+            for (final String name : names) {
+                if (template.regionMatches(ignoreCase, start, name, 0, name.length())) {
+                    return name;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Check if any of the parameter names is in the text.
+         *
+         * @param toLowerCase
+         *            the text in lower case
+         * @param names
+         *            the names
+         *
+         * @return true, if successful
+         */
+        private static boolean contains(final String toLowerCase, final List<String> names) {
+            for (final String name : names) {
+                if (toLowerCase.contains(name.toLowerCase())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The Class LruCache. Bounded cache where the least recently used entries are evicted first.
+     *
+     * @param <V>
+     *            the value type
+     */
+    private static final class LruCache<V> {
+
+        /** The hits. */
+        final AtomicLong hits = new AtomicLong(0);
+
+        /** The misses. */
+        final AtomicLong misses = new AtomicLong(0);
+
+        /** The evictions. */
+        final AtomicLong evictions = new AtomicLong(0);
+
+        /** The entries. */
+        private final Map<String, V> entries;
+
+        /**
+         * Instantiates a new LRU cache.
+         *
+         * @param maxSize
+         *            the max size
+         */
+        LruCache(final int maxSize) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, V> eldest) {
+                    final var remove = size() > maxSize;
+                    if (remove) {
+                        evictions.incrementAndGet();
+                    }
+                    return remove;
+                }
+            };
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @param key
+         *            the key
+         *
+         * @return the value or null if not in the cache
+         */
+        synchronized V get(final String key) {
+            final var value = entries.get(key);
+            (value != null ? hits : misses).incrementAndGet();
+            return value;
+        }
+
+        /**
+         * Put the value.
+         *
+         * @param key
+         *            the key
+         * @param value
+         *            the value
+         */
+        synchronized void put(final String key, final V value) {
+            entries.put(key, value);
+        }
+
+        /**
+         * Size.
+         *
+         * @return the size
+         */
+        synchronized int size() {
+            return entries.size();
+        }
+
+        /**
+         * Clear.
+         */
+        synchronized void clear() {
+            entries.clear();
+        }
+    }
+
+    /**
+     * The Class ScriptManagerMBean.
+     */
+    private static final class ScriptManagerMBean implements MBeanService {
+
+        /**
+         * Gets the attribute.
+         *
+         * @param attributeName
+         *            the attribute name
+         *
+         * @return the attribute
+         *
+         * @throws AttributeNotFoundException
+         *             the attribute not found exception
+         * @throws MBeanException
+         *             the MBean exception
+         */
+        @Override
+        public Object getAttribute(final String attributeName) throws AttributeNotFoundException, MBeanException {
+            return switch (attributeName) {
+            case "SourceCacheSize" -> SOURCES.size();
+            case "SourceCacheHits" -> SOURCES.hits.get();
+            case "SourceCacheMisses" -> SOURCES.misses.get();
+            case "SourceCacheEvictions" -> SOURCES.evictions.get();
+            case "CompileTime" -> COMPILE_TIME.get();
+            case "TemplateCacheSize" -> TEMPLATES.size();
+            case "TemplateCacheHits" -> TEMPLATES.hits.get();
+            case "TemplateCacheMisses" -> TEMPLATES.misses.get();
+            case "TemplateBoundCount" -> BOUND_COUNT.get();
+            case "TemplateSubstitutedCount" -> SUBSTITUTED_COUNT.get();
+            default -> throw new AttributeNotFoundException(
+                    "Cannot find " + attributeName + " attribute in " + this.getClass().getName());
+            };
+        }
+
+        /**
+         * Gets the MBean info.
+         *
+         * @return the MBean info
+         */
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return new MBeanInfo(this.getClass().getName(),
+                    "The ScriptManager allow executing javascript or python code. This MBean provides "
+                            + "operations to monitor the caches of parsed sources and templates.",
+                    new MBeanAttributeInfo[] {
+                            new MBeanAttributeInfo("SourceCacheSize", "java.lang.Integer",
+                                    "SourceCacheSize: number of parsed sources in the cache.", true, false, false),
+                            new MBeanAttributeInfo("SourceCacheHits", "java.lang.Long",
+                                    "SourceCacheHits: number of scripts found in the cache.", true, false, false),
+                            new MBeanAttributeInfo("SourceCacheMisses", "java.lang.Long",
+                                    "SourceCacheMisses: number of scripts not found in the cache.", true, false,
+                                    false),
+                            new MBeanAttributeInfo("SourceCacheEvictions", "java.lang.Long",
+                                    "SourceCacheEvictions: number of sources removed from the cache.", true, false,
+                                    false),
+                            new MBeanAttributeInfo("CompileTime", "java.lang.Long",
+                                    "CompileTime: time spent in the parsing of the sources (ms).", true,
+                                    false, false),
+                            new MBeanAttributeInfo("TemplateCacheSize", "java.lang.Integer",
+                                    "TemplateCacheSize: number of prepared templates in the cache.", true, false,
+                                    false),
+                            new MBeanAttributeInfo("TemplateCacheHits", "java.lang.Long",
+                                    "TemplateCacheHits: number of templates found in the cache.", true, false, false),
+                            new MBeanAttributeInfo("TemplateCacheMisses", "java.lang.Long",
+                                    "TemplateCacheMisses: number of templates not found in the cache.", true, false,
+                                    false),
+                            new MBeanAttributeInfo("TemplateBoundCount", "java.lang.Long",
+                                    "TemplateBoundCount: number of templates executed with bindings.", true, false,
+                                    false),
+                            new MBeanAttributeInfo("TemplateSubstitutedCount", "java.lang.Long",
+                                    "TemplateSubstitutedCount: number of templates executed with substitutions.",
+                                    true, false, false) },
+                    new MBeanConstructorInfo[0],
+                    new MBeanOperationInfo[] { new MBeanOperationInfo("clearCaches",
+                            "clearCaches(): remove all the parsed sources and templates from the caches",
+                            new MBeanParameterInfo[0], "java.lang.Boolean", MBeanOperationInfo.ACTION) },
+                    new MBeanNotificationInfo[0]);
+        }
+
+        /**
+         * Invoke.
+         *
+         * @param operationName
+         *            the operation name
+         * @param params
+         *            the params
+         * @param signature
+         *            the signature
+         *
+         * @return the object
+         *
+         * @throws NoSuchMethodException
+         *             the no such method exception
+         * @throws MBeanException
+         *             the MBean exception
+         */
+        @Override
+        public Object invoke(final String operationName, final Object[] params, final String[] signature)
+                throws NoSuchMethodException, MBeanException {
+            if ("clearCaches".equals(operationName) && signature.length == 0) {
+                SOURCES.clear();
+                TEMPLATES.clear();
+                return Boolean.TRUE;
+            }
+            throw new NoSuchMethodException(operationName);
+        }
+
+        /**
+         * Sets the attribute.
+         *
+         * @param name
+         *            the name
+         * @param value
+         *            the value
+         *
+         * @return true, if successful
+         */
+        @Override
+        public boolean setAttribute(final String name, final Object value) {
+            return false;
+        }
+    }
+
     /**
      * The Class ContextProvider.
      */
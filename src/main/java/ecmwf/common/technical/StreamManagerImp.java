@@ -35,7 +35,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -57,6 +61,9 @@ public final class StreamManagerImp implements StreamManager {
     /** The Constant _log. */
     private static final Logger _log = LogManager.getLogger(StreamManagerImp.class);
 
+    /** The Constant _statistics (count, original size, filtered size and duration per filter). */
+    private static final Map<String, AtomicLongArray> _statistics = new ConcurrentHashMap<>();
+
     /**
      * Instantiates a new stream manager imp.
      */
@@ -130,6 +137,10 @@ public final class StreamManagerImp implements StreamManager {
             // Using native Zip compression within Java!
             return new ZipOutputStream(out);
         } else if (GZIP.equalsIgnoreCase(filter)) {
+            if (ParallelGzipOutputStream.THREADS > 1) {
+                // Using block parallel compression within Java!
+                return new ParallelGzipOutputStream(out);
+            }
             return getCompressorOutputStream(CompressorStreamFactory.GZIP, out);
         } else if (LBZIP2.equalsIgnoreCase(filter)) {
             // Using binary Lbzip2 implementation!
@@ -202,7 +213,8 @@ public final class StreamManagerImp implements StreamManager {
      */
     public static boolean isFiltered(final OutputStream out) {
         return out instanceof CompressorOutputStream || out instanceof ZipOutputStream
-                || out instanceof CommandOutputStream || out instanceof LZ4FrameOutputStream;
+                || out instanceof CommandOutputStream || out instanceof LZ4FrameOutputStream
+                || out instanceof ParallelGzipOutputStream;
     }
 
     /**
@@ -392,6 +404,47 @@ public final class StreamManagerImp implements StreamManager {
         return result;
     }
 
+    /**
+     * Record the result of a filtering.
+     *
+     * @param filter
+     *            the filter
+     * @param originalSize
+     *            the original size
+     * @param filteredSize
+     *            the filtered size
+     * @param duration
+     *            the duration
+     */
+    public static void recordFilter(final String filter, final long originalSize, final long filteredSize,
+            final long duration) {
+        final var statistics = _statistics.computeIfAbsent(filter.toLowerCase(), _ -> new AtomicLongArray(4));
+        statistics.incrementAndGet(0);
+        statistics.addAndGet(1, originalSize);
+        statistics.addAndGet(2, filteredSize);
+        statistics.addAndGet(3, duration);
+    }
+
+    /**
+     * Gets the throughput and compression ratio of each filter since the start.
+     *
+     * @return the filter statistics
+     */
+    public static String getFilterStatistics() {
+        final var sb = new StringBuilder();
+        for (final Map.Entry<String, AtomicLongArray> entry : new TreeMap<>(_statistics).entrySet()) {
+            final var statistics = entry.getValue();
+            final var originalSize = statistics.get(1);
+            final var filteredSize = statistics.get(2);
+            sb.append(sb.isEmpty() ? "" : "\n").append(entry.getKey()).append(": count=").append(statistics.get(0))
+                    .append(",original=").append(Format.formatSize(originalSize)).append(",filtered=")
+                    .append(Format.formatSize(filteredSize)).append(",ratio=")
+                    .append(filteredSize > 0 ? String.format("%.2f", (double) originalSize / filteredSize) : "-")
+                    .append(",rate=").append(Format.formatRate(originalSize, statistics.get(3)));
+        }
+        return sb.toString();
+    }
+
     /**
      * Gets the filters.
      *
@@ -74,6 +74,15 @@ public final class ThreadService {
     private ThreadService() {
     }
 
+    /**
+     * Checks if the virtual threads are allowed (ThreadService allowVirtualThread option).
+     *
+     * @return true, if the virtual threads are allowed
+     */
+    public static boolean isVirtualThreadAllowed() {
+        return ALLOW_VIRTUAL_THREAD;
+    }
+
     /**
      * The Class CloseableExecutorService.
      */
@@ -492,11 +501,37 @@ public final class ThreadService {
          *            the use virtual threads
          */
         public final void execute(final boolean interruptibleRMIThread, final boolean useVirtualThreads) {
+            start(interruptibleRMIThread,
+                    new ConfigurableThreadFactory(interruptibleRMIThread, useVirtualThreads, false));
+        }
+
+        /**
+         * Execute in a new virtual thread if allowed by the allowVirtualThread option of the ThreadService (otherwise in
+         * a platform thread). This is used by the WaitingThread to run short activities without creating a platform
+         * thread each time.
+         */
+        final void executeVirtual() {
+            if (ALLOW_VIRTUAL_THREAD) {
+                start(false, Thread.ofVirtual().factory());
+            } else {
+                execute(false, false);
+            }
+        }
+
+        /**
+         * Start the thread.
+         *
+         * @param interruptibleRMIThread
+         *            the interruptible rmi thread
+         * @param factory
+         *            the factory
+         */
+        private void start(final boolean interruptibleRMIThread, final ThreadFactory factory) {
             if (started.compareAndSet(false, true)) {
                 final var start1 = System.currentTimeMillis();
                 interruptible = interruptibleRMIThread;
                 startedFrom = Thread.currentThread().getName();
-                thread = new ConfigurableThreadFactory(interruptible, useVirtualThreads, false).newThread(this);
+                thread = factory.newThread(this);
                 startTime = System.currentTimeMillis();
                 thread.start();
                 _log.debug("Execute started: elapsed1={}ms,elapsedTotal={}ms", startTime - start1,
@@ -30,19 +30,23 @@ import java.io.IOException;
 import java.io.InputStream;
 
 /**
- * The Class ThrottledInputStream.
+ * The Class ThrottledInputStream. The bytes read are charged to a TokenBucket, which can be private to the stream or
+ * shared with other transfers (e.g. all the transfers of a destination).
  */
 public class ThrottledInputStream extends InputStream {
 
-    /** The Constant SLEEP_DURATION_MS. */
-    private static final long SLEEP_DURATION_MS = 30;
-
     /** The in. */
     private final InputStream _in;
 
     /** The max bytes per sec. */
     private final long _maxBytesPerSec;
 
+    /** The bucket. */
+    private final TokenBucket _bucket;
+
+    /** The shared (bucket provided by the caller). */
+    private boolean _shared = false;
+
     /** The start time. */
     private final long _startTime = System.nanoTime();
 
@@ -80,6 +84,29 @@ public class ThrottledInputStream extends InputStream {
 
         this._in = inputStream;
         this._maxBytesPerSec = maxBytesPerSec;
+        this._bucket = new TokenBucket(maxBytesPerSec);
+    }
+
+    /**
+     * Instantiates a new throttled input stream sharing the specified bucket.
+     *
+     * @param inputStream
+     *            the input stream
+     * @param bucket
+     *            the bucket
+     */
+    public ThrottledInputStream(final InputStream inputStream, final TokenBucket bucket) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("inputStream shouldn't be null");
+        }
+        if (bucket == null) {
+            throw new IllegalArgumentException("bucket shouldn't be null");
+        }
+        this._in = inputStream;
+        this._maxBytesPerSec = bucket.getRate();
+        this._bucket = bucket;
+        this._shared = true;
+        bucket.open();
     }
 
     /**
@@ -89,6 +116,10 @@ public class ThrottledInputStream extends InputStream {
      */
     @Override
     public void close() throws IOException {
+        if (_shared) {
+            _shared = false;
+            _bucket.close();
+        }
         _in.close();
     }
 
@@ -99,10 +130,10 @@ public class ThrottledInputStream extends InputStream {
      */
     @Override
     public int read() throws IOException {
-        throttle();
         final var data = _in.read();
         if (data != -1) {
             _bytesRead++;
+            throttle(1);
         }
         return data;
     }
@@ -114,10 +145,10 @@ public class ThrottledInputStream extends InputStream {
      */
     @Override
     public int read(final byte[] b) throws IOException {
-        throttle();
         final var readLen = _in.read(b);
-        if (readLen != -1) {
+        if (readLen > 0) {
             _bytesRead += readLen;
+            throttle(readLen);
         }
         return readLen;
     }
@@ -129,29 +160,27 @@ public class ThrottledInputStream extends InputStream {
      */
     @Override
     public int read(final byte[] b, final int off, final int len) throws IOException {
-        throttle();
         final var readLen = _in.read(b, off, len);
-        if (readLen != -1) {
+        if (readLen > 0) {
             _bytesRead += readLen;
+            throttle(readLen);
         }
         return readLen;
     }
 
     /**
-     * Throttle.
+     * Charge the bytes read to the bucket and wait until the rate is respected.
+     *
+     * @param count
+     *            the number of bytes read
      *
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      */
-    private void throttle() throws IOException {
-        while (getBytesPerSec() > _maxBytesPerSec) {
-            try {
-                Thread.sleep(SLEEP_DURATION_MS);
-                _totalSleepTime += SLEEP_DURATION_MS;
-            } catch (final InterruptedException e) {
-                throw new IOException("Thread interrupted", e);
-            }
-        }
+    private void throttle(final long count) throws IOException {
+        final var start = System.nanoTime();
+        _bucket.consume(count);
+        _totalSleepTime += (System.nanoTime() - start) / 1000000;
     }
 
     /**
@@ -30,12 +30,14 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 /**
- * The Class ThrottledOutputStream.
+ * The Class ThrottledOutputStream. The bytes written are charged to a TokenBucket, which can be private to the stream
+ * or shared with other transfers (e.g. all the transfers of a destination). The large buffers are written in chunks so
+ * that the rate is respected smoothly.
  */
 public class ThrottledOutputStream extends OutputStream {
 
-    /** The Constant SLEEP_DURATION_MS. */
-    private static final long SLEEP_DURATION_MS = 30;
+    /** The Constant MAX_CHUNK_SIZE. */
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
 
     /** The out. */
     private final OutputStream _out;
@@ -43,6 +45,15 @@ public class ThrottledOutputStream extends OutputStream {
     /** The max bytes per second. */
     private final long _maxBytesPerSecond;
 
+    /** The bucket. */
+    private final TokenBucket _bucket;
+
+    /** The shared (bucket provided by the caller). */
+    private boolean _shared = false;
+
+    /** The chunk size. */
+    private final int _chunkSize;
+
     /** The start time. */
     private final long _startTime = System.nanoTime();
 
@@ -81,6 +92,31 @@ public class ThrottledOutputStream extends OutputStream {
 
         this._out = outputStream;
         this._maxBytesPerSecond = maxBytesPerSecond;
+        this._bucket = new TokenBucket(maxBytesPerSecond);
+        this._chunkSize = (int) Math.max(1, Math.min(MAX_CHUNK_SIZE, maxBytesPerSecond));
+    }
+
+    /**
+     * Instantiates a new throttled output stream sharing the specified bucket.
+     *
+     * @param outputStream
+     *            the output stream
+     * @param bucket
+     *            the bucket
+     */
+    public ThrottledOutputStream(final OutputStream outputStream, final TokenBucket bucket) {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("outputStream shouldn't be null");
+        }
+        if (bucket == null) {
+            throw new IllegalArgumentException("bucket shouldn't be null");
+        }
+        this._out = outputStream;
+        this._maxBytesPerSecond = bucket.getRate();
+        this._bucket = bucket;
+        this._shared = true;
+        bucket.open();
+        this._chunkSize = MAX_CHUNK_SIZE;
     }
 
     /**
@@ -90,9 +126,9 @@ public class ThrottledOutputStream extends OutputStream {
      */
     @Override
     public void write(final int arg0) throws IOException {
-        throttle();
         _out.write(arg0);
         _bytesWrite++;
+        throttle(1);
     }
 
     /**
@@ -102,27 +138,16 @@ public class ThrottledOutputStream extends OutputStream {
      */
     @Override
     public void write(final byte[] b, final int off, final int len) throws IOException {
-        if (len < _maxBytesPerSecond) {
-            throttle();
-            _bytesWrite = _bytesWrite + len;
-            _out.write(b, off, len);
-            return;
+        var currentOffSet = off;
+        var remainingBytesToWrite = len;
+        while (remainingBytesToWrite > 0) {
+            final var length = Math.min(remainingBytesToWrite, _chunkSize);
+            _out.write(b, currentOffSet, length);
+            _bytesWrite += length;
+            throttle(length);
+            currentOffSet += length;
+            remainingBytesToWrite -= length;
         }
-
-        long currentOffSet = off;
-        long remainingBytesToWrite = len;
-
-        do {
-            throttle();
-            remainingBytesToWrite = remainingBytesToWrite - _maxBytesPerSecond;
-            _bytesWrite = _bytesWrite + _maxBytesPerSecond;
-            _out.write(b, (int) currentOffSet, (int) _maxBytesPerSecond);
-            currentOffSet = currentOffSet + _maxBytesPerSecond;
-        } while (remainingBytesToWrite > _maxBytesPerSecond);
-
-        throttle();
-        _bytesWrite = _bytesWrite + remainingBytesToWrite;
-        _out.write(b, (int) currentOffSet, (int) remainingBytesToWrite);
     }
 
     /**
@@ -136,20 +161,18 @@ public class ThrottledOutputStream extends OutputStream {
     }
 
     /**
-     * Throttle.
+     * Charge the bytes written to the bucket and wait until the rate is respected.
+     *
+     * @param count
+     *            the number of bytes written
      *
      * @throws java.io.IOException
      *             Signals that an I/O exception has occurred.
      */
-    public void throttle() throws IOException {
-        while (getBytesPerSec() > _maxBytesPerSecond) {
-            try {
-                Thread.sleep(SLEEP_DURATION_MS);
-                _totalSleepTime += SLEEP_DURATION_MS;
-            } catch (final InterruptedException e) {
-                throw new IOException("Thread interrupted", e);
-            }
-        }
+    private void throttle(final long count) throws IOException {
+        final var start = System.nanoTime();
+        _bucket.consume(count);
+        _totalSleepTime += (System.nanoTime() - start) / 1000000;
     }
 
     /**
@@ -183,6 +206,10 @@ public class ThrottledOutputStream extends OutputStream {
      */
     @Override
     public void close() throws IOException {
+        if (_shared) {
+            _shared = false;
+            _bucket.close();
+        }
         _out.close();
     }
 }
@@ -0,0 +1,396 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.technical;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ecmwf.common.text.Format;
+
+/**
+ * The Class TokenBucket. Hierarchical token bucket used to share the bandwidth between the transfers (e.g. mover -&gt;
+ * network -&gt; destination -&gt; transfer). Each bucket has a rate (0 for no limit) and a burst allowance, and the
+ * bytes transferred through a bucket are also charged to all its parents, so that a class is capped at its own rate
+ * while the bandwidth not used by its siblings flows to the busy ones.
+ *
+ * The buckets are implemented with a theoretical arrival time (GCRA): the bytes are charged once they have been
+ * transferred, the theoretical arrival time is pushed forward by the time required to send them at the rate of the
+ * bucket, and the caller is parked until this time (minus the burst allowance) is reached. The requests are served in
+ * the order they are charged, which gives a fair share of the bandwidth to the transfers of a class.
+ *
+ * The classes (buckets with children) are created once and registered in their parent, with their rate and burst
+ * taken from the configuration (e.g. TokenBucket network.INTERNET=100MB and network.INTERNET.burst=10MB). The buckets
+ * of the transfers are not registered and are simply discarded at the end of the transfers.
+ */
+public final class TokenBucket {
+    /** The Constant ROOT_NAME. */
+    private static final String ROOT_NAME = "mover";
+
+    /** The Constant MAX_PARK_NANOS (max time parked at once before re-checking the thread is not interrupted). */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    /** The Constant ROOT. */
+    private static final TokenBucket ROOT = new TokenBucket(ROOT_NAME, null, getConfiguredRate(ROOT_NAME),
+            getConfiguredBurst(ROOT_NAME));
+
+    /** The name. */
+    private final String name;
+
+    /** The parent. */
+    private final TokenBucket parent;
+
+    /** The children (classes only). */
+    private final Map<String, TokenBucket> children = new ConcurrentHashMap<>();
+
+    /** The rate in bytes per second (0 for no limit). */
+    private volatile long rate;
+
+    /** The burst in bytes. */
+    private volatile long burst;
+
+    /** The theoretical arrival time in ns (System.nanoTime() might be negative). */
+    private long tat = System.nanoTime();
+
+    /** The bytes transferred. */
+    private final LongAdder bytes = new LongAdder();
+
+    /** The time spent parked by the transfers in ns. */
+    private final LongAdder parked = new LongAdder();
+
+    /** The number of transfers currently using this bucket (or one of its children). */
+    private final AtomicInteger active = new AtomicInteger(0);
+
+    /** The bytes at the time of the last sample. */
+    private long sampleBytes = 0;
+
+    /** The time of the last sample in ns. */
+    private long sampleTime = System.nanoTime();
+
+    /** The rate measured at the last sample. */
+    private long sampleRate = 0;
+
+    /**
+     * Instantiates a new token bucket.
+     *
+     * @param name
+     *            the name
+     * @param parent
+     *            the parent (null for the root)
+     * @param rate
+     *            the rate in bytes per second (0 for no limit)
+     * @param burst
+     *            the burst in bytes (0 for the default burst of 1 second)
+     */
+    private TokenBucket(final String name, final TokenBucket parent, final long rate, final long burst) {
+        this.name = name;
+        this.parent = parent;
+        setRate(rate, burst);
+    }
+
+    /**
+     * Instantiates a new standalone token bucket (e.g. for a single stream).
+     *
+     * @param rate
+     *            the rate in bytes per second (0 for no limit)
+     */
+    public TokenBucket(final long rate) {
+        this("stream", null, rate, 0);
+    }
+
+    /**
+     * Gets the root bucket of the current process.
+     *
+     * @return the root
+     */
+    public static TokenBucket getRoot() {
+        return ROOT;
+    }
+
+    /**
+     * Gets the configured rate of a class.
+     *
+     * @param path
+     *            the path of the class (e.g. network.INTERNET)
+     *
+     * @return the rate
+     */
+    private static long getConfiguredRate(final String path) {
+        return ByteSize.parse(Cnf.at("TokenBucket", path, "0")).size();
+    }
+
+    /**
+     * Gets the configured burst of a class.
+     *
+     * @param path
+     *            the path of the class (e.g. network.INTERNET)
+     *
+     * @return the burst
+     */
+    private static long getConfiguredBurst(final String path) {
+        return ByteSize.parse(Cnf.at("TokenBucket", path + ".burst", "0")).size();
+    }
+
+    /**
+     * Gets the class with the specified type and name under this bucket. The class is created if it does not exist
+     * yet, with the rate and burst found in the configuration for "type.name" (no limit by default).
+     *
+     * @param type
+     *            the type (e.g. network, destination)
+     * @param className
+     *            the class name
+     *
+     * @return the class
+     */
+    public TokenBucket getChild(final String type, final String className) {
+        final var path = type + "." + className;
+        return children.computeIfAbsent(path,
+                _ -> new TokenBucket(path, this, getConfiguredRate(path), getConfiguredBurst(path)));
+    }
+
+    /**
+     * Create a new bucket for a transfer under this class. The bucket is not registered.
+     *
+     * @param rate
+     *            the rate in bytes per second (0 for no limit)
+     *
+     * @return the token bucket
+     */
+    public TokenBucket newTransfer(final long rate) {
+        return new TokenBucket("transfer", this, rate, 0);
+    }
+
+    /**
+     * Sets the rate and burst.
+     *
+     * @param rate
+     *            the rate in bytes per second (0 for no limit)
+     * @param burst
+     *            the burst in bytes (0 for the default burst of 1 second)
+     */
+    public synchronized void setRate(final long rate, final long burst) {
+        this.rate = Math.max(0, rate);
+        this.burst = burst > 0 ? burst : this.rate; // 1 second at the rate of the bucket
+    }
+
+    /**
+     * Gets the name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the rate.
+     *
+     * @return the rate
+     */
+    public long getRate() {
+        return rate;
+    }
+
+    /**
+     * Charge the bytes to the rate of this bucket and return the time when the caller can proceed.
+     *
+     * @param count
+     *            the number of bytes
+     * @param now
+     *            the current time in ns
+     *
+     * @return the time in ns
+     */
+    private synchronized long charge(final long count, final long now) {
+        final var currentRate = rate;
+        if (currentRate <= 0) {
+            return now;
+        }
+        final var nanosPerByte = (double) TimeUnit.SECONDS.toNanos(1) / currentRate;
+        tat = Math.max(tat, now) + (long) (count * nanosPerByte);
+        return tat - (long) (burst * nanosPerByte);
+    }
+
+    /**
+     * Charge the bytes transferred to this bucket and all its parents, and park the current thread until the rate of
+     * all the buckets is respected. The buckets with no limit are not locked, so that the transfers do not contend on
+     * the root bucket when the bandwidth is not limited.
+     *
+     * @param count
+     *            the number of bytes transferred
+     *
+     * @throws IOException
+     *             if the thread was interrupted
+     */
+    public void consume(final long count) throws IOException {
+        if (count <= 0) {
+            return;
+        }
+        final var now = System.nanoTime();
+        var deadline = now;
+        for (var bucket = this; bucket != null; bucket = bucket.parent) {
+            bucket.bytes.add(count);
+            if (bucket.rate > 0) {
+                deadline = Math.max(deadline, bucket.charge(count, now));
+            }
+        }
+        if (deadline > now) {
+            var remaining = deadline - now;
+            while (remaining > 0) {
+                LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+                if (Thread.interrupted()) {
+                    throw new IOException("Thread interrupted");
+                }
+                remaining = deadline - System.nanoTime();
+            }
+            final var duration = System.nanoTime() - now;
+            for (var bucket = this; bucket != null; bucket = bucket.parent) {
+                bucket.parked.add(duration);
+            }
+        }
+    }
+
+    /**
+     * Notify that a transfer started to use this bucket.
+     */
+    public void open() {
+        for (var bucket = this; bucket != null; bucket = bucket.parent) {
+            bucket.active.incrementAndGet();
+        }
+    }
+
+    /**
+     * Notify that a transfer stopped using this bucket.
+     */
+    public void close() {
+        for (var bucket = this; bucket != null; bucket = bucket.parent) {
+            bucket.active.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the bytes transferred through this bucket.
+     *
+     * @return the bytes
+     */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    /**
+     * Gets the time spent parked by the transfers of this bucket.
+     *
+     * @return the parked time in ms
+     */
+    public long getParkedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(parked.sum());
+    }
+
+    /**
+     * Gets the current rate measured since the previous call (or the previous rate if called within a second).
+     *
+     * @return the current rate in bytes per second
+     */
+    public synchronized long getCurrentRate() {
+        final var now = System.nanoTime();
+        final var elapsed = now - sampleTime;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            final var current = bytes.sum();
+            sampleRate = (current - sampleBytes) * TimeUnit.SECONDS.toNanos(1) / elapsed;
+            sampleBytes = current;
+            sampleTime = now;
+        }
+        return sampleRate;
+    }
+
+    /**
+     * Gets the status of this bucket and all its classes, one line per class (e.g. "mover/network.INTERNET rate=10
+     * MB/s current=9.5 MB/s utilisation=95% active=3 parked=12s").
+     *
+     * @return the status
+     */
+    public String getStatus() {
+        final List<String> lines = new ArrayList<>();
+        addStatus(lines, name);
+        return String.join("\n", lines);
+    }
+
+    /**
+     * Adds the status of this bucket and its classes.
+     *
+     * @param lines
+     *            the lines
+     * @param path
+     *            the path of this bucket
+     */
+    private void addStatus(final List<String> lines, final String path) {
+        final var current = getCurrentRate();
+        final var limit = rate;
+        lines.add(path + " rate=" + (limit > 0 ? Format.formatSize(limit) + "/s" : "unlimited") + " current="
+                + Format.formatSize(current) + "/s"
+                + (limit > 0 ? " utilisation=" + current * 100 / limit + "%" : "") + " active=" + active.get()
+                + " bytes=" + Format.formatSize(getBytes()) + " parked=" + Format.formatDuration(getParkedTime()));
+        new TreeMap<>(children).forEach((_, child) -> child.addStatus(lines, path + "/" + child.name));
+    }
+
+    /**
+     * Find a class from its path (e.g. mover/network.INTERNET/destination.test).
+     *
+     * @param path
+     *            the path
+     *
+     * @return the token bucket or null if not found
+     */
+    public TokenBucket find(final String path) {
+        final var names = path.split("/");
+        if (names.length == 0 || !name.equals(names[0])) {
+            return null;
+        }
+        var bucket = this;
+        for (var i = 1; i < names.length && bucket != null; i++) {
+            bucket = bucket.children.get(names[i]);
+        }
+        return bucket;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * To string.
+     */
+    @Override
+    public String toString() {
+        return "TokenBucket{name=" + name + ", rate=" + rate + ", burst=" + burst + ", bytes=" + getBytes() + "}";
+    }
+}
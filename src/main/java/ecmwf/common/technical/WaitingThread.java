@@ -31,6 +31,8 @@ import static ecmwf.common.text.Util.isNotEmpty;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
+import javax.management.timer.Timer;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -38,12 +40,27 @@ import ecmwf.common.technical.ThreadService.ConfigurableRunnable;
 import ecmwf.common.text.Format;
 
 /**
- * The Class WaitingThread.
+ * The Class WaitingThread. Run an activity with a timeout. The activity is started in its own thread and the caller
+ * wait for its completion until the timeout is reached, in which case the activity is interrupted. If the virtual
+ * threads are allowed (ThreadService allowVirtualThread option) the activity is started in a virtual thread, so that no
+ * platform thread is created for each activity (e.g. the connect, exec and close of a TransferModule), and an interrupt
+ * also unblocks the socket I/O in progress.
  */
 public abstract class WaitingThread extends ConfigurableRunnable {
     /** The Constant _log. */
     private static final Logger _log = LogManager.getLogger(WaitingThread.class);
 
+    /** The Constant ALLOW_VIRTUAL_THREAD. */
+    private static final boolean ALLOW_VIRTUAL_THREAD = Cnf.at("WaitingThread", "allowVirtualThread",
+            ThreadService.isVirtualThreadAllowed());
+
+    /** The Constant INTERRUPT_GRACE_PERIOD (time given to an interrupted activity to complete). */
+    private static final long INTERRUPT_GRACE_PERIOD = Cnf.durationAt("WaitingThread", "interruptGracePeriod",
+            Timer.ONE_SECOND);
+
+    /** The _virtual thread. */
+    private boolean _virtualThread = ALLOW_VIRTUAL_THREAD;
+
     /** The _exception. */
     private Throwable _exception = null;
 
@@ -70,15 +87,14 @@ public abstract class WaitingThread extends ConfigurableRunnable {
      */
     public long exec(final long timeout, final boolean asynchronous) {
         if (asynchronous) {
-            final var runnable = new AsynchronousThread(timeout);
-            runnable.execute();
+            _start(new AsynchronousThread(timeout));
             return 0;
         }
         final var name = Format.getClassName(this);
         final var current = System.currentTimeMillis();
         _log.debug("Start activity " + name + " (timeout=" + timeout + ")");
         if (timeout > 0) {
-            execute();
+            _start(this);
             try {
                 if (join(timeout) && isAlive()) {
                     throw new TimeoutException("Timeout expired (" + Format.formatDuration(timeout) + ")");
@@ -91,6 +107,7 @@ public abstract class WaitingThread extends ConfigurableRunnable {
                 _exception = e;
                 _log.debug("Activity " + name + " interrupted (timeout=" + timeout + ")");
                 _timeOutExpired = true;
+                _awaitInterrupted(name);
             } catch (final InterruptedException e) {
                 _exception = e;
                 _log.debug("Activity " + name + " interrupted)");
@@ -107,6 +124,61 @@ public abstract class WaitingThread extends ConfigurableRunnable {
         return duration;
     }
 
+    /**
+     * Start the runnable in a virtual or a platform thread.
+     *
+     * @param runnable
+     *            the runnable
+     */
+    private void _start(final ConfigurableRunnable runnable) {
+        if (_virtualThread) {
+            runnable.executeVirtual();
+        } else {
+            runnable.execute();
+        }
+    }
+
+    /**
+     * Give some time to the interrupted activity to complete, so that the caller does not close the resources still in
+     * use by the activity (e.g. a TransferModule).
+     *
+     * @param name
+     *            the name
+     */
+    private void _awaitInterrupted(final String name) {
+        if (INTERRUPT_GRACE_PERIOD > 0) {
+            try {
+                join(INTERRUPT_GRACE_PERIOD);
+            } catch (final InterruptedException | ExecutionException | TimeoutException e) {
+                // Ignore
+            }
+            if (isAlive()) {
+                _log.debug("Activity " + name + " still running after interrupt");
+            }
+        }
+    }
+
+    /**
+     * Sets the virtual thread. Allow to select the type of thread used for this activity (default is the
+     * WaitingThread.allowVirtualThread option). A platform thread is used anyway if the virtual threads are not allowed
+     * by the ThreadService.
+     *
+     * @param virtualThread
+     *            the new virtual thread
+     */
+    public final void setVirtualThread(final boolean virtualThread) {
+        _virtualThread = virtualThread;
+    }
+
+    /**
+     * Checks if is virtual thread.
+     *
+     * @return true, if is virtual thread
+     */
+    public final boolean isVirtualThread() {
+        return _virtualThread;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.technical;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Simple manual benchmark of the WaitingThread backends (platform or virtual threads), which are used by the
+ * ECtransContainer for the connect, exec and close of the TransferModules.
+ *
+ * <p>
+ * The first test measures the latency of an empty activity executed with a timeout, which is the overhead added to
+ * every connection setup. The second test simulates concurrent transfers as done by the data mover: each transfer is
+ * started in a platform thread (like the ECtransThread) which connects (short activity), then blocks in the exec
+ * activity until all the transfers are running, and finally closes asynchronously. The number of transfers is doubled
+ * until the maximum is reached or no more thread can be created, and the number of platform threads per transfer is
+ * displayed.
+ * </p>
+ *
+ * <p>
+ * The virtual backend is only used if the virtual threads are allowed by the ThreadService (allowVirtualThread option),
+ * otherwise both tests run with platform threads.
+ * </p>
+ *
+ * <pre>
+ * Usage: java WaitingThreadBenchmark [latencyIterations] [maxTransfers]
+ * </pre>
+ */
+public class WaitingThreadBenchmark {
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the arguments
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public static void main(final String[] args) throws Exception {
+        final var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        final var maxTransfers = args.length > 1 ? Integer.parseInt(args[1]) : 8_000;
+        System.out.println("WaitingThread benchmark: latencyIterations=" + iterations + ", maxTransfers="
+                + maxTransfers + ", allowVirtualThread=" + ThreadService.isVirtualThreadAllowed());
+        for (final boolean virtual : new boolean[] { false, true }) {
+            final var backend = virtual ? "virtual" : "platform";
+            _latency(backend, virtual, iterations);
+            var max = 0;
+            for (var transfers = 500; transfers <= maxTransfers; transfers *= 2) {
+                if (!_transfers(backend, virtual, transfers)) {
+                    break;
+                }
+                max = transfers;
+            }
+            System.out.println("  " + backend + " max concurrent transfers: " + max);
+        }
+    }
+
+    /**
+     * Measure the latency of an empty activity.
+     *
+     * @param backend
+     *            the backend
+     * @param virtual
+     *            the virtual
+     * @param iterations
+     *            the iterations
+     *
+     * @throws Throwable
+     *             the throwable
+     */
+    private static void _latency(final String backend, final boolean virtual, final int iterations) throws Throwable {
+        final var durations = new long[iterations];
+        for (var i = 0; i < iterations; i++) {
+            final var activity = new Activity(() -> {
+            });
+            activity.setVirtualThread(virtual);
+            final var start = System.nanoTime();
+            activity.exec(Long.MAX_VALUE / 2, false);
+            activity.completed();
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+        final var total = Arrays.stream(durations).sum();
+        System.out.printf("  %-8s connect latency: avg=%dus p50=%dus p99=%dus%n", backend,
+                total / iterations / 1000, durations[iterations / 2] / 1000, durations[iterations * 99 / 100] / 1000);
+    }
+
+    /**
+     * Run the specified number of concurrent transfers.
+     *
+     * @param backend
+     *            the backend
+     * @param virtual
+     *            the virtual
+     * @param transfers
+     *            the transfers
+     *
+     * @return true, if all the transfers were running at the same time
+     *
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    private static boolean _transfers(final String backend, final boolean virtual, final int transfers)
+            throws InterruptedException {
+        final var threads = ManagementFactory.getThreadMXBean();
+        final var baseline = threads.getThreadCount();
+        final var running = new CountDownLatch(transfers);
+        final var release = new CountDownLatch(1);
+        final var failed = new AtomicBoolean(false);
+        final var callers = new Thread[transfers];
+        final var start = System.nanoTime();
+        var started = 0;
+        try {
+            for (; started < transfers && !failed.get(); started++) {
+                callers[started] = Thread.ofPlatform().daemon(true).start(() -> {
+                    try {
+                        final var connect = new Activity(() -> Thread.sleep(5));
+                        connect.setVirtualThread(virtual);
+                        connect.exec(60_000, false);
+                        connect.completed();
+                        final var exec = new Activity(() -> {
+                            running.countDown();
+                            release.await();
+                        });
+                        exec.setVirtualThread(virtual);
+                        exec.exec(600_000, false);
+                        exec.completed();
+                        final var close = new Activity(() -> Thread.sleep(1));
+                        close.setVirtualThread(virtual);
+                        close.exec(60_000, true);
+                    } catch (final Throwable t) {
+                        failed.set(true);
+                        running.countDown();
+                    }
+                });
+            }
+        } catch (final OutOfMemoryError e) {
+            failed.set(true);
+        }
+        // Release the latch for the transfers which were not started!
+        for (var i = started; i < transfers; i++) {
+            running.countDown();
+        }
+        running.await();
+        final var setup = (System.nanoTime() - start) / 1_000_000;
+        final var peak = threads.getThreadCount() - baseline;
+        release.countDown();
+        for (var i = 0; i < started; i++) {
+            callers[i].join();
+        }
+        final var success = !failed.get();
+        System.out.printf("  %-8s transfers=%-6d %s setup=%dms platformThreadsPerTransfer=%.2f%n", backend, transfers,
+                success ? "ok    " : "FAILED", setup, (double) peak / transfers);
+        return success;
+    }
+
+    /**
+     * The Interface Action.
+     */
+    @FunctionalInterface
+    private interface Action {
+        /**
+         * Run.
+         *
+         * @throws Exception
+         *             the exception
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * The Class Activity.
+     */
+    private static final class Activity extends WaitingThread {
+        /** The action. */
+        private final Action action;
+
+        /**
+         * Instantiates a new activity.
+         *
+         * @param action
+         *            the action
+         */
+        Activity(final Action action) {
+            this.action = action;
+        }
+
+        /**
+         * Action.
+         *
+         * @throws Exception
+         *             the exception
+         */
+        @Override
+        public void action() throws Exception {
+            action.run();
+        }
+    }
+}
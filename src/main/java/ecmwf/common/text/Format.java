@@ -63,6 +63,7 @@ import java.util.Date;
 import java.util.Formatter;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -1542,6 +1543,40 @@ public final class Format {
         }
     }
 
+    /**
+     * Find the best score to select the line (see the choose method). If the options are a script then the parameters
+     * (e.g. $filename) are passed to the script as bindings, otherwise they are substituted in the options (in the
+     * order of the map).
+     *
+     * @param options
+     *            the options to choose from.
+     * @param parameters
+     *            the parameters
+     *
+     * @return the selection
+     *
+     * @throws DuplicatedChooseScore
+     *             the duplicated choose score
+     * @throws ScriptException
+     *             the script exception
+     */
+    public static String choose(final String options, final Map<String, Object> parameters)
+            throws DuplicatedChooseScore, ScriptException {
+        final var chooseFrom = options.trim();
+        if (chooseFrom.startsWith("$(") && chooseFrom.endsWith(")")) {
+            // A missing value is an empty string, as when it is substituted!
+            final Map<String, Object> values = new LinkedHashMap<>();
+            parameters.forEach((name, value) -> values.put(name, value != null ? value : ""));
+            return choose(ScriptManager.execTemplate(String.class, ScriptManager.JS,
+                    chooseFrom.substring(2, chooseFrom.length() - 1), values, false));
+        }
+        final var sb = new StringBuilder(options);
+        for (final Map.Entry<String, Object> entry : parameters.entrySet()) {
+            replaceAll(sb, entry.getKey(), entry.getValue());
+        }
+        return choose(sb.toString());
+    }
+
     /**
      * Find the best score to select the line. If no match is found return the first line.
      *
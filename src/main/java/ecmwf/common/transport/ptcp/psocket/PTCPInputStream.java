@@ -26,7 +26,6 @@ package ecmwf.common.transport.ptcp.psocket;
  * @since 2024-07-01
  */
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -53,12 +52,6 @@ public class PTCPInputStream extends InputStream {
     /** The done synchro. */
     private Object _doneSynchro = null;
 
-    /** The out. */
-    private ByteArrayOutputStream _out = null;
-
-    /** The closed. */
-    private boolean _closed = false;
-
     /** The done. */
     private boolean _done = false;
 
@@ -76,7 +69,6 @@ public class PTCPInputStream extends InputStream {
      */
     public PTCPInputStream(final InputStream[] streams) throws IOException {
         _doneSynchro = new Object();
-        _out = new ByteArrayOutputStream();
         _numberOfStreams = streams.length;
         _buffer = new PTCPBuffer(_numberOfStreams);
         _prws = new PTCPReceiverThread[_numberOfStreams];
@@ -98,6 +90,7 @@ public class PTCPInputStream extends InputStream {
         synchronized (_doneSynchro) {
             if (!_done) {
                 _done = true;
+                _buffer.close();
                 for (var i = 0; i < _numberOfStreams; i++) {
                     try {
                         _prws[i].close();
@@ -183,48 +176,20 @@ public class PTCPInputStream extends InputStream {
      *
      * This method blocks until input data is available, end of file is detected, or an exception is thrown.
      *
-     * The parameter len must be larger than the size of data being sent over, or an IOException is thrown.
+     * The data are gathered from the re-assembly buffer directly into the array of the caller.
      */
     @Override
-    public int read(final byte[] b, final int off, int length) throws IOException {
+    public int read(final byte[] b, final int off, final int length) throws IOException {
         if (_done) {
             throw new IOException("Closed input stream");
         }
-        synchronized (_out) {
-            _fillBuffer(length);
-            final var buffer = _out.toByteArray();
-            _out.reset();
-            length = length > buffer.length ? buffer.length : length;
-            System.arraycopy(buffer, 0, b, off, length);
-            final var remaining = buffer.length - length;
-            if (remaining > 0) {
-                _out.write(buffer, length, remaining);
-            }
-            return length == 0 && _closed ? -1 : length;
+        if (length == 0) {
+            return 0;
         }
-    }
-
-    /**
-     * Fill buffer.
-     *
-     * @param length
-     *            the length
-     *
-     * @throws IOException
-     *             Signals that an I/O exception has occurred.
-     */
-    private void _fillBuffer(final int length) throws IOException {
         try {
-            byte[] received;
-            while (!_closed && _out.size() < length) {
-                if ((received = _buffer.read()) != null) {
-                    _out.write(received);
-                } else {
-                    _closed = true;
-                }
-            }
+            return _buffer.read(b, off, length);
         } catch (final InterruptedException e) {
-            _log.warn("Filling buffer", e);
+            _log.warn("Reading buffer", e);
             throw new IOException(e.getMessage());
         }
     }
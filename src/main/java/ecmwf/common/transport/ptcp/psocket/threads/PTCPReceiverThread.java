@@ -98,14 +98,11 @@ public class PTCPReceiverThread extends ConfigurableRunnable {
      */
     public void read() {
         var number = -1;
-        var size = 0;
-        byte[] data = null;
         try {
             if ((number = _din.readInt()) != -1) {
-                size = _din.readInt();
-                data = new byte[size];
-                _din.readFully(data, 0, size);
-                _buffer.write(number, data);
+                if (!_buffer.write(number, _din, _din.readInt())) {
+                    _done = true;
+                }
             } else {
                 _log.warn("Stream " + _id + " error (packetNumber=-1)");
                 _done = true;
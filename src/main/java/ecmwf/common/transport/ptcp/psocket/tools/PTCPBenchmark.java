@@ -0,0 +1,313 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.common.transport.ptcp.psocket.tools;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ecmwf.common.transport.ptcp.psocket.PTCPInputStream;
+import ecmwf.common.transport.ptcp.psocket.PTCPOutputStream;
+
+/**
+ * Simple manual throughput benchmark for the PTCP streams over the loopback interface.
+ *
+ * <p>
+ * The same PTCPOutputStream is used on the sending side, and the data are received either through the PTCPInputStream
+ * (ring buffer re-assembly), through the previous re-assembly algorithm (map of packets keyed by their number and
+ * copied into a new array at each read) or through a single plain socket for reference.
+ * </p>
+ *
+ * <pre>
+ * Usage: java PTCPBenchmark [numberOfStreams] [sizeInMB] [readSizeInKB] [iterations]
+ * </pre>
+ */
+public class PTCPBenchmark {
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the arguments
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public static void main(final String[] args) throws Exception {
+        final var streams = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        final var size = (args.length > 1 ? Long.parseLong(args[1]) : 1024) * 1024 * 1024;
+        final var readSize = (args.length > 2 ? Integer.parseInt(args[2]) : 256) * 1024;
+        final var iterations = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        System.out.println("PTCP benchmark: streams=" + streams + ", size=" + size / (1024 * 1024) + "MB, readSize="
+                + readSize / 1024 + "KB, iterations=" + iterations);
+        for (var i = 1; i <= iterations; i++) {
+            System.out.println("Iteration " + i);
+            _print("plain-socket", _run(1, size, readSize, Mode.PLAIN), size);
+            _print("ptcp-legacy", _run(streams, size, readSize, Mode.LEGACY), size);
+            _print("ptcp-ring", _run(streams, size, readSize, Mode.RING), size);
+        }
+    }
+
+    /**
+     * The Enum Mode.
+     */
+    private enum Mode {
+        /** The plain socket. */
+        PLAIN,
+        /** The legacy re-assembly. */
+        LEGACY,
+        /** The ring buffer re-assembly. */
+        RING
+    }
+
+    /**
+     * Prints the result.
+     *
+     * @param name
+     *            the name
+     * @param nanos
+     *            the duration in nanoseconds
+     * @param size
+     *            the size
+     */
+    private static void _print(final String name, final long nanos, final long size) {
+        final var seconds = nanos / 1e9;
+        System.out.printf("  %-14s %8.1f MB/s (%.3fs)%n", name, size / (1024.0 * 1024.0) / seconds, seconds);
+    }
+
+    /**
+     * Run one transfer over the loopback interface.
+     *
+     * @param streams
+     *            the number of streams
+     * @param size
+     *            the size
+     * @param readSize
+     *            the read size
+     * @param mode
+     *            the mode
+     *
+     * @return the duration in nanoseconds
+     *
+     * @throws Exception
+     *             the exception
+     */
+    private static long _run(final int streams, final long size, final int readSize, final Mode mode)
+            throws Exception {
+        try (var server = new ServerSocket(0, streams, InetAddress.getLoopbackAddress())) {
+            final var clients = new Socket[streams];
+            final var accepted = new Socket[streams];
+            for (var i = 0; i < streams; i++) {
+                clients[i] = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+                accepted[i] = server.accept();
+            }
+            final var sender = new Thread(() -> {
+                final var outs = new OutputStream[streams];
+                try {
+                    for (var i = 0; i < streams; i++) {
+                        outs[i] = clients[i].getOutputStream();
+                    }
+                    try (var out = mode == Mode.PLAIN ? outs[0] : new PTCPOutputStream(outs)) {
+                        final var chunk = new byte[readSize];
+                        for (var sent = 0L; sent < size; sent += chunk.length) {
+                            out.write(chunk, 0, (int) Math.min(chunk.length, size - sent));
+                        }
+                    }
+                } catch (final IOException e) {
+                    e.printStackTrace();
+                }
+            });
+            final var ins = new InputStream[streams];
+            for (var i = 0; i < streams; i++) {
+                ins[i] = accepted[i].getInputStream();
+            }
+            final var start = System.nanoTime();
+            sender.start();
+            final var buffer = new byte[readSize];
+            var received = 0L;
+            if (mode == Mode.LEGACY) {
+                final var legacy = new LegacyBuffer(ins);
+                byte[] data;
+                while ((data = legacy.read()) != null) {
+                    received += data.length;
+                }
+            } else {
+                try (var in = mode == Mode.PLAIN ? ins[0] : new PTCPInputStream(ins)) {
+                    int read;
+                    while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+                        received += read;
+                    }
+                }
+            }
+            final var duration = System.nanoTime() - start;
+            sender.join();
+            for (var i = 0; i < streams; i++) {
+                clients[i].close();
+                accepted[i].close();
+            }
+            if (received != size) {
+                System.out.println("  WARNING: " + mode + " received " + received + " byte(s) out of " + size);
+            }
+            return duration;
+        }
+    }
+
+    /**
+     * The Class LegacyBuffer. Copy of the previous re-assembly algorithm of the PTCPBuffer, with one receiving thread
+     * per stream, kept here as a reference for the comparison.
+     */
+    private static final class LegacyBuffer {
+
+        /** The buffer. */
+        private final Map<String, Object> _buffer = new ConcurrentHashMap<>();
+
+        /** The buffer size. */
+        private final int _bufferSize;
+
+        /** The exit array. */
+        private final boolean[] _exitArray;
+
+        /** The exit. */
+        private boolean _exit = false;
+
+        /** The in index. */
+        private int _inIndex = 0;
+
+        /** The out index. */
+        private int _outIndex = 0;
+
+        /**
+         * Instantiates a new legacy buffer and start the receiving threads.
+         *
+         * @param streams
+         *            the streams
+         */
+        LegacyBuffer(final InputStream[] streams) {
+            _bufferSize = streams.length;
+            _exitArray = new boolean[streams.length];
+            for (var i = 0; i < streams.length; i++) {
+                final var id = i;
+                final var din = new DataInputStream(streams[i]);
+                final var thread = new Thread(() -> {
+                    try {
+                        int number;
+                        while ((number = din.readInt()) != -1) {
+                            final var data = new byte[din.readInt()];
+                            din.readFully(data);
+                            write(number, data);
+                        }
+                    } catch (final EOFException e) {
+                        // End of stream
+                    } catch (final Exception e) {
+                        e.printStackTrace();
+                    }
+                    setExit(id);
+                });
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        /**
+         * Sets the exit.
+         *
+         * @param id
+         *            the id
+         */
+        synchronized void setExit(final int id) {
+            _exitArray[id] = true;
+            _exit = true;
+            for (final boolean exit : _exitArray) {
+                _exit = _exit && exit;
+            }
+        }
+
+        /**
+         * Write.
+         *
+         * @param index
+         *            the index
+         * @param o
+         *            the o
+         *
+         * @throws InterruptedException
+         *             the interrupted exception
+         */
+        synchronized void write(final int index, final Object o) throws InterruptedException {
+            while (index != _inIndex || _buffer.size() == _bufferSize) {
+                wait(5);
+                if (_exit) {
+                    break;
+                }
+            }
+            _buffer.put(String.valueOf(index), o);
+            _inIndex++;
+            notifyAll();
+        }
+
+        /**
+         * Read.
+         *
+         * @return the byte[]
+         *
+         * @throws InterruptedException
+         *             the interrupted exception
+         */
+        synchronized byte[] read() throws InterruptedException {
+            final var limit = _outIndex + _bufferSize;
+            while (_buffer.size() < _bufferSize && !_exit) {
+                wait(5);
+            }
+            var size = 0;
+            for (var i = _outIndex; i < limit; i++) {
+                final var packet = (byte[]) _buffer.get(String.valueOf(i));
+                if (packet != null) {
+                    size += packet.length;
+                }
+            }
+            final var data = new byte[size];
+            var start = 0;
+            for (var i = _outIndex; i < limit; i++) {
+                final var packet = (byte[]) _buffer.remove(String.valueOf(i));
+                if (packet != null) {
+                    System.arraycopy(packet, 0, data, start, packet.length);
+                    start += packet.length;
+                }
+                _outIndex++;
+            }
+            notifyAll();
+            return !_exit || data.length > 0 ? data : null;
+        }
+    }
+}
@@ -26,37 +26,72 @@ package ecmwf.common.transport.ptcp.psocket.tools;
  * @since 2024-07-01
  */
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * The Class PTCPBuffer.
+ * The Class PTCPBuffer. Ring buffer used to re-assemble the packets received in parallel on the different streams.
+ * The packet numbers are sequential and packet N is always received on stream N % numberOfStreams, so each slot of
+ * the ring is only ever written by one stream and read by the consumer, which allow to coordinate both sides with a
+ * sequence number per slot rather than with a lock. The packets are read directly from the streams into the byte
+ * arrays of the slots, which are allocated once and reused for the life of the buffer, and are copied from there into
+ * the array of the caller.
  */
 public class PTCPBuffer {
 
-    /** The Constant TIME_WAIT. */
-    private static final int TIME_WAIT = 5;
+    /** The Constant DEFAULT_DEPTH (number of packets per stream kept in the ring). */
+    private static final int DEFAULT_DEPTH = 4;
 
-    /** The buffer. */
-    private final Map<String, Object> _buffer;
+    /** The Constant PARK_NANOS. */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
 
-    /** The buffer size. */
-    private final int _bufferSize;
+    /** The Constant SPIN_COUNT. */
+    private static final int SPIN_COUNT = 64;
+
+    /** The Constant EMPTY. */
+    private static final int EMPTY = -1;
+
+    /** The slots. */
+    private final byte[][] _slots;
+
+    /** The sizes. */
+    private final int[] _sizes;
+
+    /** The sequence number currently published in each slot (or EMPTY). */
+    private final AtomicIntegerArray _published;
+
+    /** The capacity. */
+    private final int _capacity;
 
     /** The number of streams. */
     private final int _numberOfStreams;
 
+    /** The writers. */
+    private final Thread[] _writers;
+
     /** The exit array. */
-    private final boolean _exitArray[];
+    private final boolean[] _exitArray;
+
+    /** The exit count. */
+    private int _exitCount = 0;
 
     /** The exit. */
-    private boolean _exit = false;
+    private volatile boolean _exit = false;
+
+    /** The closed. */
+    private volatile boolean _closed = false;
+
+    /** The reader. */
+    private volatile Thread _reader = null;
 
-    /** The in index. */
-    private int _inIndex = 0;
+    /** The sequence number of the packet to read. */
+    private volatile int _outIndex = 0;
 
-    /** The out index. */
-    private int _outIndex = 0;
+    /** The position in the packet to read. */
+    private int _outPosition = 0;
 
     /**
      * Instantiates a new PTCP buffer.
@@ -65,13 +100,29 @@ public class PTCPBuffer {
      *            the number of streams
      */
     public PTCPBuffer(final int numberOfStreams) {
+        this(numberOfStreams, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Instantiates a new PTCP buffer.
+     *
+     * @param numberOfStreams
+     *            the number of streams
+     * @param depth
+     *            the number of packets per stream which can be received in advance
+     */
+    public PTCPBuffer(final int numberOfStreams, final int depth) {
         _numberOfStreams = numberOfStreams;
-        _bufferSize = numberOfStreams;
-        _exitArray = new boolean[numberOfStreams];
-        for (var i = 0; i < numberOfStreams; i++) {
-            _exitArray[i] = false;
+        _capacity = numberOfStreams * Math.max(1, depth);
+        _slots = new byte[_capacity][];
+        _sizes = new int[_capacity];
+        _published = new AtomicIntegerArray(_capacity);
+        for (var i = 0; i < _capacity; i++) {
+            _slots[i] = new byte[0];
+            _published.set(i, EMPTY);
         }
-        _buffer = new ConcurrentHashMap<>();
+        _writers = new Thread[numberOfStreams];
+        _exitArray = new boolean[numberOfStreams];
     }
 
     /**
@@ -81,76 +132,130 @@ public class PTCPBuffer {
      *            the new exit
      */
     public synchronized void setExit(final int id) {
-        _exitArray[id] = true;
-        _exit = _exitArray[0];
-        for (var i = 1; i < _numberOfStreams; i++) {
-            _exit = _exit && _exitArray[i];
+        if (!_exitArray[id]) {
+            _exitArray[id] = true;
+            _exitCount++;
+        }
+        _exit = _exitCount == _numberOfStreams;
+        LockSupport.unpark(_reader);
+    }
+
+    /**
+     * Close the buffer. Any stream waiting for a free slot is released.
+     */
+    public void close() {
+        _closed = true;
+        LockSupport.unpark(_reader);
+        for (final Thread writer : _writers) {
+            LockSupport.unpark(writer);
         }
     }
 
     /**
-     * Write.
+     * Park the current thread for a short period of time. Spin first as the other side is usually very close.
+     *
+     * @param spin
+     *            the number of iterations already done
+     *
+     * @throws InterruptedException
+     *             the interrupted exception
+     */
+    private static void _park(final int spin) throws InterruptedException {
+        if (spin < SPIN_COUNT) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Read a packet from the input stream directly into its slot. Wait for the slot to be released by the consumer if
+     * the stream is ahead of the others.
      *
      * @param index
-     *            the index
-     * @param o
-     *            the o
+     *            the packet number
+     * @param in
+     *            the input stream of the packet
+     * @param size
+     *            the size of the packet
+     *
+     * @return true, if successful (false if the buffer was closed)
      *
-     * @throws java.lang.InterruptedException
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     * @throws InterruptedException
      *             the interrupted exception
      */
-    public synchronized void write(final int index, final Object o) throws InterruptedException {
-        while (index != _inIndex || _buffer.size() == _bufferSize) {
-            wait(TIME_WAIT);
-            if (_exit) {
-                break;
+    public boolean write(final int index, final DataInputStream in, final int size)
+            throws IOException, InterruptedException {
+        final var slot = index % _capacity;
+        _writers[index % _numberOfStreams] = Thread.currentThread();
+        for (var spin = 0; index - _outIndex >= _capacity; spin++) {
+            if (_closed) {
+                return false;
             }
+            _park(spin);
         }
-        _buffer.put(String.valueOf(index), o);
-        _inIndex++;
-        notifyAll();
+        var data = _slots[slot];
+        if (data.length < size) {
+            _slots[slot] = data = new byte[size];
+        }
+        in.readFully(data, 0, size);
+        _sizes[slot] = size;
+        _published.set(slot, index);
+        LockSupport.unpark(_reader);
+        return true;
     }
 
     /**
-     * Read.
+     * Read up to len bytes into the array of the caller. Block until at least one byte is available or the end of the
+     * stream is reached. The data are gathered from as many consecutive packets as required.
+     *
+     * @param b
+     *            the buffer
+     * @param off
+     *            the offset
+     * @param len
+     *            the length
      *
-     * @return the byte[]
+     * @return the number of bytes read or -1 if the end of the stream is reached
      *
-     * @throws java.lang.InterruptedException
+     * @throws InterruptedException
      *             the interrupted exception
      */
-    public synchronized byte[] read() throws InterruptedException {
-        final var limit = _outIndex + _bufferSize;
-        while (_buffer.size() < _bufferSize && !_exit) {
-            wait(TIME_WAIT);
-        }
-        var size = 0;
-        for (var i = _outIndex; i < limit; i++) {
-            final var packet = (byte[]) _buffer.get(String.valueOf(i));
-            if (packet != null) {
-                size += packet.length;
+    public int read(final byte[] b, int off, final int len) throws InterruptedException {
+        _reader = Thread.currentThread();
+        var count = 0;
+        for (var spin = 0; count < len;) {
+            final var index = _outIndex;
+            final var slot = index % _capacity;
+            if (_published.get(slot) != index) {
+                if (count > 0) {
+                    break; // Let's return what we have!
+                }
+                if (_closed || _exit && _published.get(slot) != index) {
+                    return -1;
+                }
+                _park(spin++);
+                continue;
             }
-        }
-        final var data = new byte[size];
-        var start = 0;
-        final var end = _outIndex;
-        for (var i = end; i < limit; i++) {
-            final var packet = (byte[]) _buffer.get(String.valueOf(i));
-            if (packet != null) {
-                System.arraycopy(packet, 0, data, start, packet.length);
-                start += packet.length;
+            final var size = _sizes[slot];
+            final var length = Math.min(len - count, size - _outPosition);
+            System.arraycopy(_slots[slot], _outPosition, b, off, length);
+            off += length;
+            count += length;
+            _outPosition += length;
+            if (_outPosition >= size) {
+                // The packet is completed so release the slot!
+                _outPosition = 0;
+                _published.set(slot, EMPTY);
+                _outIndex = index + 1;
+                LockSupport.unpark(_writers[index % _numberOfStreams]);
             }
-            _buffer.remove(String.valueOf(i));
-            _outIndex++;
-        }
-        notifyAll();
-        if (!_exit) {
-            return data;
-        }
-        if (data.length > 0) {
-            return data;
-        } else {
-            return null;
         }
+        return count;
     }
 }
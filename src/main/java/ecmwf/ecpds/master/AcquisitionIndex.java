@@ -0,0 +1,314 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ecmwf.common.database.DataTransfer;
+import ecmwf.common.database.ECpdsBase;
+import ecmwf.ecpds.master.transfer.StatusFactory;
+
+/**
+ * The Class AcquisitionIndex. In-memory index of the unique keys already acquired per Destination, with the time and
+ * size of their DataFiles, used by the AcquisitionThreads to avoid one DataBase request per listed file. The index of
+ * a Destination is loaded from the DataBase the first time the Destination is acquired and re-loaded at regular
+ * interval. It is updated when new files are scheduled and the unique keys are invalidated when one of their
+ * DataTransfers is failed or deleted, in which case the next listing of the file will check the DataBase again. The
+ * unique keys which are not in the index are always checked in the DataBase.
+ */
+final class AcquisitionIndex {
+    /** The Constant _log. */
+    private static final Logger _log = LogManager.getLogger(AcquisitionIndex.class);
+
+    /** The _destinations. */
+    private final Map<String, Keys> _destinations = new ConcurrentHashMap<>();
+
+    /** The _reload interval. */
+    private final long _reloadInterval;
+
+    /** The _max entries (per Destination). */
+    private final int _maxEntries;
+
+    /** The _hit count. */
+    private final AtomicLong _hitCount = new AtomicLong(0);
+
+    /** The _miss count. */
+    private final AtomicLong _missCount = new AtomicLong(0);
+
+    /** The _load count. */
+    private final AtomicLong _loadCount = new AtomicLong(0);
+
+    /**
+     * Instantiates a new acquisition index.
+     *
+     * @param reloadInterval
+     *            the interval between two loads of the index of a Destination
+     * @param maxEntries
+     *            the max number of unique keys per Destination (the index is disabled for the Destinations above)
+     */
+    AcquisitionIndex(final long reloadInterval, final int maxEntries) {
+        _reloadInterval = reloadInterval;
+        _maxEntries = maxEntries;
+    }
+
+    /**
+     * The Class Entry. What the DataBase knows about a unique key.
+     */
+    static final class Entry {
+        /** The data file id. */
+        final long dataFileId;
+
+        /** The time of the data file. */
+        final long time;
+
+        /** The size of the data file. */
+        final long size;
+
+        /** At least one data transfer is failed. */
+        final boolean failed;
+
+        /**
+         * Instantiates a new entry.
+         *
+         * @param dataFileId
+         *            the data file id
+         * @param time
+         *            the time
+         * @param size
+         *            the size
+         * @param failed
+         *            the failed
+         */
+        Entry(final long dataFileId, final long time, final long size, final boolean failed) {
+            this.dataFileId = dataFileId;
+            this.time = time;
+            this.size = size;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * The Class Keys. The unique keys of a Destination.
+     */
+    private static final class Keys {
+        /** The entries. */
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        /** The next load. */
+        volatile long nextLoad = 0;
+
+        /** The disabled (too many unique keys). */
+        volatile boolean disabled = false;
+
+        /** The loading. */
+        volatile boolean loading = false;
+
+        /** The unique keys invalidated while loading. */
+        final Set<String> invalidated = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Checks if is failed.
+     *
+     * @param transfer
+     *            the transfer
+     *
+     * @return true, if is failed
+     */
+    private static boolean _isFailed(final DataTransfer transfer) {
+        return StatusFactory.FAIL.equals(transfer.getStatusCode());
+    }
+
+    /**
+     * Gets the unique keys of the Destination. Load them from the DataBase if required.
+     *
+     * @param base
+     *            the base
+     * @param destinationName
+     *            the destination name
+     *
+     * @return the keys or null if the index is disabled for this Destination
+     */
+    private Keys _getKeys(final ECpdsBase base, final String destinationName) {
+        final var keys = _destinations.computeIfAbsent(destinationName, _ -> new Keys());
+        if (System.currentTimeMillis() >= keys.nextLoad) {
+            synchronized (keys) {
+                if (System.currentTimeMillis() >= keys.nextLoad) {
+                    _load(base, destinationName, keys);
+                }
+            }
+        }
+        return keys.disabled ? null : keys;
+    }
+
+    /**
+     * Load the unique keys of the Destination from the DataBase.
+     *
+     * @param base
+     *            the base
+     * @param destinationName
+     *            the destination name
+     * @param keys
+     *            the keys
+     */
+    private void _load(final ECpdsBase base, final String destinationName, final Keys keys) {
+        final var start = System.currentTimeMillis();
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        var disabled = false;
+        keys.invalidated.clear();
+        keys.loading = true;
+        try (var it = base.getAcquisitionIndex(destinationName)) {
+            while (it.hasNext()) {
+                final var transfer = it.next();
+                final var uniqueKey = transfer.getUniqueKey();
+                if (uniqueKey == null) {
+                    continue;
+                }
+                final var current = entries.get(uniqueKey);
+                if (current == null) {
+                    if (entries.size() >= _maxEntries) {
+                        disabled = true;
+                        break;
+                    }
+                    final var dataFile = transfer.getDataFile();
+                    final var time = dataFile.getTimeFile();
+                    entries.put(uniqueKey, new Entry(dataFile.getId(), time != null ? time.getTime() : -1,
+                            dataFile.getSize(), _isFailed(transfer)));
+                } else if (!current.failed && _isFailed(transfer)) {
+                    entries.put(uniqueKey, new Entry(current.dataFileId, current.time, current.size, true));
+                }
+            }
+        } catch (final Exception e) {
+            // We will try again at the next load and the DataBase is checked in the meantime
+            _log.warn("Loading acquisition index for Destination {}", destinationName, e);
+            disabled = true;
+            entries.clear();
+        }
+        keys.entries.clear();
+        keys.entries.putAll(entries);
+        keys.loading = false;
+        keys.entries.keySet().removeAll(keys.invalidated);
+        keys.invalidated.clear();
+        keys.disabled = disabled;
+        keys.nextLoad = System.currentTimeMillis() + _reloadInterval;
+        _loadCount.incrementAndGet();
+        _log.debug("Acquisition index for Destination {} loaded in {} ms ({} unique key(s){})", destinationName,
+                System.currentTimeMillis() - start, entries.size(), disabled ? ", disabled" : "");
+    }
+
+    /**
+     * Gets what the DataBase knows about the unique key of a Destination.
+     *
+     * @param base
+     *            the base
+     * @param destinationName
+     *            the destination name
+     * @param uniqueKey
+     *            the unique key
+     *
+     * @return the entry or null if the DataBase has to be checked
+     */
+    Entry get(final ECpdsBase base, final String destinationName, final String uniqueKey) {
+        final var keys = _getKeys(base, destinationName);
+        final var entry = keys != null ? keys.entries.get(uniqueKey) : null;
+        (entry != null ? _hitCount : _missCount).incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Record what the DataBase knows about the unique key of a Destination (e.g. after a DataBase check or once a new
+     * file was scheduled).
+     *
+     * @param destinationName
+     *            the destination name
+     * @param uniqueKey
+     *            the unique key
+     * @param entry
+     *            the entry
+     */
+    void put(final String destinationName, final String uniqueKey, final Entry entry) {
+        final var keys = _destinations.get(destinationName);
+        if (keys != null && !keys.disabled && (keys.entries.size() < _maxEntries
+                || keys.entries.containsKey(uniqueKey))) {
+            keys.entries.put(uniqueKey, entry);
+        }
+    }
+
+    /**
+     * Update the index with the DataTransfer. If the DataTransfer is failed or deleted then its unique key is removed
+     * from the index, so that the DataBase is checked again the next time the file is listed.
+     *
+     * @param transfer
+     *            the transfer
+     */
+    void update(final DataTransfer transfer) {
+        final var uniqueKey = transfer.getUniqueKey();
+        if (uniqueKey != null && (transfer.getDeleted() || _isFailed(transfer))) {
+            invalidate(uniqueKey);
+        }
+    }
+
+    /**
+     * Remove the unique key from the index of all the Destinations (the DataTransfers of the aliases are also in the
+     * index of the original Destination).
+     *
+     * @param uniqueKey
+     *            the unique key
+     */
+    void invalidate(final String uniqueKey) {
+        for (final Keys keys : _destinations.values()) {
+            if (keys.loading) {
+                keys.invalidated.add(uniqueKey);
+            }
+            keys.entries.remove(uniqueKey);
+        }
+    }
+
+    /**
+     * Gets the status of the index.
+     *
+     * @return the status
+     */
+    String getStatus() {
+        var size = 0L;
+        var disabled = 0;
+        for (final Keys keys : _destinations.values()) {
+            size += keys.entries.size();
+            if (keys.disabled) {
+                disabled++;
+            }
+        }
+        return "destinations=" + _destinations.size() + ",disabled=" + disabled + ",keys=" + size + ",hits="
+                + _hitCount.get() + ",misses=" + _missCount.get() + ",loads=" + _loadCount.get();
+    }
+}
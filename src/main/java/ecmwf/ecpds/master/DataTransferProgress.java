@@ -0,0 +1,437 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import ecmwf.common.database.DataTransfer;
+
+/**
+ * The Class DataTransferProgress. Progress of a DataTransfer sent by a DataMover to its MasterServer: the identifier
+ * of the DataTransfer and the fields which have changed since the last progress acknowledged by the MasterServer. The
+ * progress records are encoded in binary by the Encoder on the DataMover and applied by the MasterServer on its own
+ * copy of the DataTransfer, so that the whole DataTransfer object graph (DataFile, Destination, Host ...) does not
+ * have to be sent and deserialized every time.
+ *
+ * The changes are relative to what was acknowledged by a given instance of the MasterServer (its epoch). If the
+ * MasterServer was restarted in the meantime then the batch is refused and the Encoder sends all the fields again.
+ */
+public final class DataTransferProgress {
+    /** The Constant VERSION (of the binary encoding). */
+    private static final byte VERSION = 1;
+
+    /** The Constant FIELDS. */
+    private static final Field[] FIELDS = Field.values();
+
+    /** The Constant ALL (all the fields are set). */
+    private static final int ALL = (1 << FIELDS.length) - 1;
+
+    /** The _id. */
+    private final long _id;
+
+    /** The _mask (the fields which are set). */
+    private final int _mask;
+
+    /** The _values (indexed by field). */
+    private final Object[] _values;
+
+    /**
+     * The Enum Type.
+     */
+    private enum Type {
+        /** The int. */
+        INT,
+        /** The long. */
+        LONG,
+        /** The double. */
+        DOUBLE,
+        /** The boolean. */
+        BOOLEAN,
+        /** The string. */
+        STRING,
+        /** The timestamp. */
+        TIMESTAMP
+    }
+
+    /**
+     * The Enum Field. The fields of the DataTransfer which are updated by the DataMover during a transmission.
+     */
+    private enum Field {
+        /** The status code. */
+        STATUS_CODE(Type.STRING, DataTransfer::getStatusCode, (t, v) -> t.setStatusCode((String) v)),
+        /** The start count. */
+        START_COUNT(Type.INT, DataTransfer::getStartCount, (t, v) -> t.setStartCount((Integer) v)),
+        /** The sent. */
+        SENT(Type.LONG, DataTransfer::getSent, (t, v) -> t.setSent((Long) v)),
+        /** The duration. */
+        DURATION(Type.LONG, DataTransfer::getDuration, (t, v) -> t.setDuration((Long) v)),
+        /** The duration on close. */
+        DURATION_ON_CLOSE(Type.LONG, DataTransfer::getDurationOnClose, (t, v) -> t.setDurationOnClose((Long) v)),
+        /** The ratio. */
+        RATIO(Type.DOUBLE, DataTransfer::getRatio, (t, v) -> t.setRatio((Double) v)),
+        /** The put time. */
+        PUT_TIME(Type.TIMESTAMP, DataTransfer::getPutTime, (t, v) -> t.setPutTime((Timestamp) v)),
+        /** The finish time. */
+        FINISH_TIME(Type.TIMESTAMP, DataTransfer::getFinishTime, (t, v) -> t.setFinishTime((Timestamp) v)),
+        /** The failed time. */
+        FAILED_TIME(Type.TIMESTAMP, DataTransfer::getFailedTime, (t, v) -> t.setFailedTime((Timestamp) v)),
+        /** The compressed. */
+        COMPRESSED(Type.STRING, DataTransfer::getCompressed, (t, v) -> t.setCompressed((String) v)),
+        /** The compressed on the fly. */
+        COMPRESSED_ON_THE_FLY(Type.BOOLEAN, DataTransfer::getCompressedOnTheFly,
+                (t, v) -> t.setCompressedOnTheFly((Boolean) v)),
+        /** The comment. */
+        COMMENT(Type.STRING, DataTransfer::getComment, (t, v) -> t.setComment((String) v)),
+        /** The statistics. */
+        STATISTICS(Type.STRING, DataTransfer::getStatistics, (t, v) -> t.setStatistics((String) v)),
+        /** The host name. */
+        HOST_NAME(Type.STRING, DataTransfer::getHostName, (t, v) -> t.setHostName((String) v)),
+        /** The mover name. */
+        MOVER_NAME(Type.STRING, DataTransfer::getMoverName, (t, v) -> t.setMoverName((String) v));
+
+        /** The type. */
+        private final Type type;
+
+        /** The getter. */
+        private final Function<DataTransfer, Object> getter;
+
+        /** The setter. */
+        private final BiConsumer<DataTransfer, Object> setter;
+
+        /**
+         * Instantiates a new field.
+         *
+         * @param type
+         *            the type
+         * @param getter
+         *            the getter
+         * @param setter
+         *            the setter
+         */
+        Field(final Type type, final Function<DataTransfer, Object> getter,
+                final BiConsumer<DataTransfer, Object> setter) {
+            this.type = type;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * The Batch. The progress records decoded by the MasterServer.
+     *
+     * @param epoch
+     *            the epoch of the MasterServer the changes are relative to (0 if all the fields are set)
+     * @param progress
+     *            the progress records
+     */
+    public record Batch(long epoch, DataTransferProgress[] progress) {
+    }
+
+    /**
+     * Instantiates a new data transfer progress.
+     *
+     * @param id
+     *            the id
+     * @param mask
+     *            the mask
+     * @param values
+     *            the values
+     */
+    private DataTransferProgress(final long id, final int mask, final Object[] values) {
+        _id = id;
+        _mask = mask;
+        _values = values;
+    }
+
+    /**
+     * Gets the id of the DataTransfer.
+     *
+     * @return the id
+     */
+    public long getId() {
+        return _id;
+    }
+
+    /**
+     * Apply the fields which are set to the DataTransfer.
+     *
+     * @param transfer
+     *            the transfer
+     */
+    public void apply(final DataTransfer transfer) {
+        for (final Field field : FIELDS) {
+            if ((_mask & 1 << field.ordinal()) != 0) {
+                field.setter.accept(transfer, _values[field.ordinal()]);
+            }
+        }
+    }
+
+    /**
+     * Get the values of the fields of the DataTransfer.
+     *
+     * @param transfer
+     *            the transfer
+     *
+     * @return the values
+     */
+    private static Object[] getValues(final DataTransfer transfer) {
+        final var values = new Object[FIELDS.length];
+        for (final Field field : FIELDS) {
+            values[field.ordinal()] = field.getter.apply(transfer);
+        }
+        return values;
+    }
+
+    /**
+     * Decode the progress records sent by the DataMover.
+     *
+     * @param data
+     *            the data
+     *
+     * @return the batch
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public static Batch decode(final byte[] data) throws IOException {
+        try (final var in = new DataInputStream(new ByteArrayInputStream(data))) {
+            final var version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported progress encoding (version " + version + ")");
+            }
+            final var epoch = in.readLong();
+            final var progress = new DataTransferProgress[in.readInt()];
+            for (var i = 0; i < progress.length; i++) {
+                final var id = in.readLong();
+                final var mask = in.readInt();
+                final var values = new Object[FIELDS.length];
+                for (final Field field : FIELDS) {
+                    if ((mask & 1 << field.ordinal()) != 0) {
+                        values[field.ordinal()] = read(in, field.type);
+                    }
+                }
+                progress[i] = new DataTransferProgress(id, mask, values);
+            }
+            return new Batch(epoch, progress);
+        }
+    }
+
+    /**
+     * Read a value.
+     *
+     * @param in
+     *            the in
+     * @param type
+     *            the type
+     *
+     * @return the object
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static Object read(final DataInputStream in, final Type type) throws IOException {
+        return switch (type) {
+        case INT -> in.readInt();
+        case LONG -> in.readLong();
+        case DOUBLE -> in.readDouble();
+        case BOOLEAN -> in.readBoolean();
+        case TIMESTAMP -> {
+            final var time = in.readLong();
+            yield time == Long.MIN_VALUE ? null : new Timestamp(time);
+        }
+        case STRING -> {
+            final var length = in.readInt();
+            if (length < 0) {
+                yield null;
+            }
+            final var bytes = new byte[length];
+            in.readFully(bytes);
+            yield new String(bytes, StandardCharsets.UTF_8);
+        }
+        };
+    }
+
+    /**
+     * Write a value.
+     *
+     * @param out
+     *            the out
+     * @param type
+     *            the type
+     * @param value
+     *            the value
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static void write(final DataOutputStream out, final Type type, final Object value) throws IOException {
+        switch (type) {
+        case INT -> out.writeInt((Integer) value);
+        case LONG -> out.writeLong((Long) value);
+        case DOUBLE -> out.writeDouble((Double) value);
+        case BOOLEAN -> out.writeBoolean((Boolean) value);
+        case TIMESTAMP -> out.writeLong(value != null ? ((Timestamp) value).getTime() : Long.MIN_VALUE);
+        case STRING -> {
+            if (value == null) {
+                out.writeInt(-1);
+            } else {
+                final var bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        }
+    }
+
+    /**
+     * The Class Encoder. Used on the DataMover to encode the progress of the DataTransfers, remembering for every
+     * DataTransfer what was acknowledged by the MasterServer. The same DataTransfer can be encoded many times before
+     * the batch is acknowledged (e.g. if the MasterServer is not reachable), only its latest state is sent. This class
+     * is not thread safe.
+     */
+    public static final class Encoder {
+        /** The _acknowledged (per DataTransfer id). */
+        private final Map<Long, Sent> _acknowledged = new HashMap<>();
+
+        /** The _staged (per DataTransfer id, waiting for the acknowledgement of the current batch). */
+        private final Map<Long, Sent> _staged = new HashMap<>();
+
+        /** The _epoch (of the MasterServer which acknowledged the last batch). */
+        private long _epoch = 0;
+
+        /**
+         * The Sent. The values sent for a DataTransfer. A new DataTransfer object for the same id (e.g. a new
+         * submission of the DataTransfer) is always sent with all its fields.
+         *
+         * @param transfer
+         *            the transfer
+         * @param values
+         *            the values
+         */
+        private record Sent(DataTransfer transfer, Object[] values) {
+        }
+
+        /**
+         * Encode the progress of the DataTransfers. Only the fields which have changed since the last acknowledgement
+         * are encoded, and the DataTransfers which have not changed at all are not encoded. What is remembered for the
+         * DataTransfers which are not in the collection is dropped.
+         *
+         * @param transfers
+         *            the transfers
+         *
+         * @return the encoded batch or null if there is nothing to send
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        public byte[] encode(final Collection<DataTransfer> transfers) throws IOException {
+            _staged.clear();
+            final var ids = new HashSet<Long>(transfers.size());
+            final var bytes = new ByteArrayOutputStream();
+            var count = 0;
+            try (final var out = new DataOutputStream(bytes)) {
+                for (final DataTransfer transfer : transfers) {
+                    final var id = transfer.getId();
+                    ids.add(id);
+                    final var values = getValues(transfer);
+                    final var previous = _epoch != 0 ? _acknowledged.get(id) : null;
+                    var mask = 0;
+                    if (previous == null || previous.transfer() != transfer) {
+                        mask = ALL;
+                    } else {
+                        for (final Field field : FIELDS) {
+                            if (!Objects.equals(values[field.ordinal()], previous.values()[field.ordinal()])) {
+                                mask |= 1 << field.ordinal();
+                            }
+                        }
+                    }
+                    if (mask != 0) {
+                        out.writeLong(id);
+                        out.writeInt(mask);
+                        for (final Field field : FIELDS) {
+                            if ((mask & 1 << field.ordinal()) != 0) {
+                                write(out, field.type, values[field.ordinal()]);
+                            }
+                        }
+                        _staged.put(id, new Sent(transfer, values));
+                        count++;
+                    }
+                }
+            }
+            _acknowledged.keySet().retainAll(ids);
+            if (count == 0) {
+                return null;
+            }
+            final var header = new ByteArrayOutputStream(13);
+            try (final var out = new DataOutputStream(header)) {
+                out.writeByte(VERSION);
+                out.writeLong(_epoch);
+                out.writeInt(count);
+            }
+            final var result = new byte[header.size() + bytes.size()];
+            System.arraycopy(header.toByteArray(), 0, result, 0, header.size());
+            System.arraycopy(bytes.toByteArray(), 0, result, header.size(), bytes.size());
+            return result;
+        }
+
+        /**
+         * Acknowledge the last batch with the epoch returned by the MasterServer. If the epoch has changed (the
+         * MasterServer was restarted) and the batch was relative to the previous epoch then it was refused, and
+         * everything is forgotten so that the next batch contains all the fields.
+         *
+         * @param epoch
+         *            the epoch
+         *
+         * @return true, if the batch was accepted by the MasterServer
+         */
+        public boolean acknowledge(final long epoch) {
+            final var accepted = _epoch == 0 || _epoch == epoch;
+            if (accepted) {
+                _acknowledged.putAll(_staged);
+                _epoch = epoch;
+            } else {
+                _acknowledged.clear();
+                _epoch = 0;
+            }
+            _staged.clear();
+            return accepted;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Class DestinationCacheDelta. The DestinationCaches which have changed since a generation known by the caller,
+ * with the names of all the Destinations so that the caller can remove the ones which no longer exist. If the
+ * generation of the caller is not known by the master (e.g. first call or the master was restarted) then all the
+ * DestinationCaches are provided.
+ */
+public final class DestinationCacheDelta implements Serializable {
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = 2937624590214436117L;
+
+    /** The _epoch (identify the master which provided the generation). */
+    private final long _epoch;
+
+    /** The _generation. */
+    private final long _generation;
+
+    /** The _full (all the DestinationCaches are provided). */
+    private final boolean _full;
+
+    /** The _changed destination caches. */
+    private final Map<String, DestinationCache> _changed;
+
+    /** The _destination names. */
+    private final Set<String> _destinationNames;
+
+    /**
+     * Instantiates a new destination cache delta.
+     *
+     * @param epoch
+     *            the epoch
+     * @param generation
+     *            the generation
+     * @param full
+     *            the full
+     * @param changed
+     *            the changed destination caches
+     * @param destinationNames
+     *            the destination names
+     */
+    public DestinationCacheDelta(final long epoch, final long generation, final boolean full,
+            final Map<String, DestinationCache> changed, final Set<String> destinationNames) {
+        _epoch = epoch;
+        _generation = generation;
+        _full = full;
+        _changed = changed;
+        _destinationNames = destinationNames;
+    }
+
+    /**
+     * Gets the epoch.
+     *
+     * @return the epoch
+     */
+    public long getEpoch() {
+        return _epoch;
+    }
+
+    /**
+     * Gets the generation.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return _generation;
+    }
+
+    /**
+     * Checks if is full.
+     *
+     * @return true, if all the DestinationCaches are provided
+     */
+    public boolean isFull() {
+        return _full;
+    }
+
+    /**
+     * Gets the changed destination caches.
+     *
+     * @return the changed destination caches
+     */
+    public Map<String, DestinationCache> getChanged() {
+        return _changed;
+    }
+
+    /**
+     * Gets the destination names.
+     *
+     * @return the destination names
+     */
+    public Set<String> getDestinationNames() {
+        return _destinationNames;
+    }
+}
@@ -31,6 +31,8 @@ import static ecmwf.common.text.Util.isNotEmpty;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -39,11 +41,14 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.rmi.RemoteException;
 import java.rmi.server.ServerNotActiveException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -120,8 +125,28 @@ final class ManagementImpl extends CallBackObject implements ManagementInterface
     /** The destination caches. */
     private final transient Map<String, DestinationCache> destinationCaches = new ConcurrentHashMap<>();
 
-    /** The destination caches last update. */
-    private transient long destinationCachesLastUpdate = -1;
+    /** The destination caches last update (-1 to force an update). */
+    private transient volatile long destinationCachesLastUpdate = -1;
+
+    /** The destination caches versions (fingerprint and generation of the last change of each destination). */
+    private final transient Map<String, CacheVersion> destinationCachesVersions = new HashMap<>();
+
+    /** The destination caches generation (incremented every time some destination caches have changed). */
+    private transient long destinationCachesGeneration = 0;
+
+    /** The destination caches epoch (the generations are only valid for this instance of the master). */
+    private final transient long destinationCachesEpoch = System.currentTimeMillis();
+
+    /**
+     * The Record CacheVersion.
+     *
+     * @param fingerprint
+     *            the fingerprint of the content of the destination cache
+     * @param generation
+     *            the generation of the last change
+     */
+    private record CacheVersion(byte[] fingerprint, long generation) {
+    }
 
     /** The contacts cache. */
     private final transient Map<String, String> contactsCache = new ConcurrentHashMap<>();
@@ -545,16 +570,117 @@ final class ManagementImpl extends CallBackObject implements ManagementInterface
             throws MonitorException, MasterException, DataBaseException, RemoteException {
         final var monitor = new MonitorCall("getDestinationCaches()");
         synchronized (destinationCaches) {
-            if (destinationCaches.isEmpty()
-                    || System.currentTimeMillis() - destinationCachesLastUpdate > 10 * Timer.ONE_SECOND) {
-                destinationCaches.clear();
-                destinationCaches.putAll(master.getDestinationCaches());
-                destinationCachesLastUpdate = System.currentTimeMillis();
-            }
+            _updateDestinationCaches();
         }
         return monitor.done(destinationCaches);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Gets the destination caches which have changed since the specified generation.
+     */
+    @Override
+    public DestinationCacheDelta getDestinationCaches(final long epoch, final long generation)
+            throws MonitorException, MasterException, DataBaseException, RemoteException {
+        final var monitor = new MonitorCall("getDestinationCaches(" + epoch + "," + generation + ")");
+        synchronized (destinationCaches) {
+            _updateDestinationCaches();
+            final var full = epoch != destinationCachesEpoch || generation < 0
+                    || generation > destinationCachesGeneration;
+            final var changed = new HashMap<String, DestinationCache>();
+            for (final Entry<String, DestinationCache> entry : destinationCaches.entrySet()) {
+                final var version = destinationCachesVersions.get(entry.getKey());
+                if (full || version == null || version.generation() > generation) {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return monitor.done(new DestinationCacheDelta(destinationCachesEpoch, destinationCachesGeneration, full,
+                    changed, new HashSet<>(destinationCaches.keySet())));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Gets the monitoring snapshot.
+     */
+    @Override
+    public MonitoringSnapshot getMonitoringSnapshot() throws MasterException, DataBaseException, RemoteException {
+        final var monitor = new MonitorCall("getMonitoringSnapshot()");
+        return monitor.done(master.getMonitoringSnapshot());
+    }
+
+    /**
+     * Update the destination caches if they are too old (must be called in a block synchronized on destinationCaches).
+     * The destination caches which have not changed are kept, so that only the ones which have changed get a new
+     * generation.
+     *
+     * @throws MonitorException
+     *             the monitor exception
+     * @throws MasterException
+     *             the master exception
+     * @throws DataBaseException
+     *             the data base exception
+     */
+    private void _updateDestinationCaches() throws MonitorException, MasterException, DataBaseException {
+        if (!destinationCaches.isEmpty()
+                && System.currentTimeMillis() - destinationCachesLastUpdate <= 10 * Timer.ONE_SECOND) {
+            return;
+        }
+        final var generation = destinationCachesGeneration + 1;
+        var changed = 0;
+        final var caches = master.getDestinationCaches();
+        for (final Entry<String, DestinationCache> entry : caches.entrySet()) {
+            final var destinationName = entry.getKey();
+            final var fingerprint = _getFingerprint(entry.getValue());
+            final var version = destinationCachesVersions.get(destinationName);
+            if (version != null && fingerprint != null && Arrays.equals(fingerprint, version.fingerprint())
+                    && destinationCaches.containsKey(destinationName)) {
+                continue; // Same content, let's keep the current cache!
+            }
+            destinationCachesVersions.put(destinationName, new CacheVersion(fingerprint, generation));
+            destinationCaches.put(destinationName, entry.getValue());
+            changed++;
+        }
+        final var removed = destinationCaches.keySet().retainAll(caches.keySet());
+        destinationCachesVersions.keySet().retainAll(caches.keySet());
+        if (changed > 0 || removed) {
+            destinationCachesGeneration = generation;
+        }
+        destinationCachesLastUpdate = System.currentTimeMillis();
+        _log.debug("DestinationCaches updated (generation={},changed={},removed={})", destinationCachesGeneration,
+                changed, removed);
+    }
+
+    /**
+     * Gets the fingerprint of the content of a destination cache (the creation and update times of the cache are not
+     * taken into account).
+     *
+     * @param cache
+     *            the cache
+     *
+     * @return the fingerprint or null if it can not be computed
+     */
+    private static byte[] _getFingerprint(final DestinationCache cache) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            try (final var out = new ObjectOutputStream(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+                out.writeObject(cache.getDestination());
+                out.writeObject(cache.getAssociations());
+                out.writeObject(cache.getAliases());
+                out.writeObject(cache.getDestinationECUsers());
+                out.writeInt(cache.getBadDataTransfersCount());
+                out.writeObject(cache.getDestinationSchedulerCache());
+            }
+            return digest.digest();
+        } catch (final Throwable t) {
+            _log.debug("Cannot get fingerprint for {}", cache.getDestinationName(), t);
+            return null;
+        }
+    }
+
     /**
      * Gets the ecpds session.
      *
@@ -725,7 +851,7 @@ final class ManagementImpl extends CallBackObject implements ManagementInterface
         Exception exception = null;
         try {
             destination = master.copyDestination(fromDestination, toDestination, label, copySharedHost);
-            destinationCaches.clear();
+            destinationCachesLastUpdate = -1;
             // Force an update of the monitoring!
             if (MonitorManager.isActivated()) {
                 try {
@@ -1398,7 +1524,7 @@ final class ManagementImpl extends CallBackObject implements ManagementInterface
                 }
                 // Remove the DataTransfers and the Destination from the DataBase
                 base.removeDestination(destinationName, true);
-                destinationCaches.clear();
+                destinationCachesLastUpdate = -1;
                 base.clearCache(); // We need to make sure there are no leftover
                 // Force an update of the monitoring!
                 if (MonitorManager.isActivated()) {
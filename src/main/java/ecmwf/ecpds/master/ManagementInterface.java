@@ -128,6 +128,44 @@ public interface ManagementInterface extends Remote {
     Map<String, DestinationCache> getDestinationCaches()
             throws MonitorException, MasterException, DataBaseException, RemoteException;
 
+    /**
+     * Gets the destination caches which have changed since the specified generation (all of them if the epoch or the
+     * generation is not known by the master).
+     *
+     * @param epoch
+     *            the epoch of the last delta received (-1 if none)
+     * @param generation
+     *            the generation of the last delta received (-1 if none)
+     *
+     * @return the destination cache delta
+     *
+     * @throws ecmwf.common.monitor.MonitorException
+     *             the monitor exception
+     * @throws ecmwf.ecpds.master.MasterException
+     *             the master exception
+     * @throws ecmwf.common.database.DataBaseException
+     *             the data base exception
+     * @throws java.rmi.RemoteException
+     *             the remote exception
+     */
+    DestinationCacheDelta getDestinationCaches(long epoch, long generation)
+            throws MonitorException, MasterException, DataBaseException, RemoteException;
+
+    /**
+     * Gets the monitoring snapshot of all the Destinations (queue size, bad DataTransfers, status, last transfer,
+     * primary host and status of the MonitorManager) in a single call.
+     *
+     * @return the monitoring snapshot
+     *
+     * @throws ecmwf.ecpds.master.MasterException
+     *             the master exception
+     * @throws ecmwf.common.database.DataBaseException
+     *             the data base exception
+     * @throws java.rmi.RemoteException
+     *             the remote exception
+     */
+    MonitoringSnapshot getMonitoringSnapshot() throws MasterException, DataBaseException, RemoteException;
+
     /**
      * Gets the monitor manager.
      *
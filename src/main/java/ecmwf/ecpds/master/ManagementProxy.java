@@ -145,6 +145,28 @@ final class ManagementProxy implements ManagementInterface {
         throw new MasterException("Not available for Plugin");
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Gets the destination caches which have changed since the specified generation.
+     */
+    @Override
+    public DestinationCacheDelta getDestinationCaches(final long epoch, final long generation)
+            throws MonitorException, MasterException, DataBaseException, RemoteException {
+        throw new MasterException("Not available for Plugin");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Gets the monitoring snapshot.
+     */
+    @Override
+    public MonitoringSnapshot getMonitoringSnapshot() throws MasterException, DataBaseException, RemoteException {
+        final var monitor = new MonitorCall("getMonitoringSnapshot()");
+        return monitor.done(managementInterface.getMonitoringSnapshot());
+    }
+
     /**
      * {@inheritDoc}
      *
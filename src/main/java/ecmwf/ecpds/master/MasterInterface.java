@@ -81,6 +81,20 @@ public interface MasterInterface extends ProviderInterface {
      */
     void updateDataTransfers(DataTransfer[] transfers) throws RemoteException;
 
+    /**
+     * Update the data transfers with the progress records encoded by a DataTransferProgress.Encoder. The records are
+     * applied only if they are relative to the current instance of the MasterServer (or if all their fields are set).
+     *
+     * @param progress
+     *            the encoded progress records
+     *
+     * @return the epoch of the MasterServer
+     *
+     * @throws RemoteException
+     *             the remote exception
+     */
+    long updateDataTransferProgress(byte[] progress) throws RemoteException;
+
     /**
      * Update download progress.
      *
@@ -85,6 +85,12 @@ public final class MasterManager {
     /** The ready. */
     private static boolean ready = false;
 
+    /** The epoch of the last DestinationCacheDelta received. */
+    private static long cacheEpoch = -1;
+
+    /** The generation of the last DestinationCacheDelta received. */
+    private static long cacheGeneration = -1;
+
     /**
      * Checks if is ready.
      *
@@ -505,29 +511,34 @@ public final class MasterManager {
         try {
             final var ecaccess = getECaccessInterface();
             final var management = ecaccess.getManagementInterface();
-            final var destinationCaches = management.getDestinationCaches();
-            final Map<String, DestinationCache> updatedCaches = new HashMap<>();
             var start = System.currentTimeMillis();
-            synchronized (DESTINATIONS_MAP) {
-                for (final DestinationCache destinationCache : destinationCaches.values()) {
-                    final var destinationName = destinationCache.getDestinationName();
-                    final var originalCache = DESTINATIONS_MAP.get(destinationName);
-                    if (originalCache != null && originalCache.getCreationTime() > destinationCache.getCreationTime()) {
-                        _log.debug("Keep current destination cache for Destination {}", destinationName);
-                        updatedCaches.put(destinationName, originalCache);
-                    }
-                }
-                DESTINATIONS_MAP.clear();
-                DESTINATIONS_MAP.putAll(destinationCaches);
-                DESTINATIONS_MAP.putAll(updatedCaches);
+            final var delta = management.getDestinationCaches(cacheEpoch, cacheGeneration);
+            final var destinationCaches = delta.getChanged();
+            // Only the DestinationCaches which have changed are provided, so let's apply them one by one without
+            // locking the whole map, unless the one we already have is more recent!
+            for (final DestinationCache destinationCache : destinationCaches.values()) {
+                DESTINATIONS_MAP.merge(destinationCache.getDestinationName(), destinationCache,
+                        (originalCache, newCache) -> {
+                            if (originalCache.getCreationTime() > newCache.getCreationTime()) {
+                                _log.debug("Keep current destination cache for Destination {}",
+                                        originalCache.getDestinationName());
+                                return originalCache;
+                            }
+                            return newCache;
+                        });
             }
+            // The Destinations which no longer exist are removed
+            DESTINATIONS_MAP.keySet().retainAll(delta.getDestinationNames());
+            cacheEpoch = delta.getEpoch();
+            cacheGeneration = delta.getGeneration();
             if (_log.isInfoEnabled()) {
-                _log.info("DestinationCache(s) updated with {} element(s) in {}", destinationCaches.size(),
-                        Format.formatDuration(start, System.currentTimeMillis()));
+                _log.info("DestinationCache(s) updated with {} element(s) out of {} (generation {}{}) in {}",
+                        destinationCaches.size(), DESTINATIONS_MAP.size(), cacheGeneration,
+                        delta.isFull() ? ", full" : "", Format.formatDuration(start, System.currentTimeMillis()));
             }
             final var database = ecaccess.getDataBaseInterface();
-            final var categories = database.getCatUrlArray();
             start = System.currentTimeMillis();
+            final var categories = database.getCatUrlArray();
             synchronized (CATURLS_LIST) {
                 CATURLS_LIST.clear();
                 CATURLS_LIST.addAll(Arrays.asList(categories));
@@ -536,18 +547,17 @@ public final class MasterManager {
                 _log.info("CatUrl(s) updated with {} element(s) in {}", categories.length,
                         Format.formatDuration(start, System.currentTimeMillis()));
             }
+            start = System.currentTimeMillis();
             final var ecusers = new HashMap<String, ECUser>();
-            for (final DestinationCache destinationCache : destinationCaches.values()) {
+            for (final DestinationCache destinationCache : DESTINATIONS_MAP.values()) {
                 final var ecuser = destinationCache.getDestination().getECUser();
                 if (ecuser != null) {
                     ecusers.put(ecuser.getName(), ecuser);
                 }
             }
-            start = System.currentTimeMillis();
-            synchronized (ECUSERS_MAP) {
-                ECUSERS_MAP.clear();
-                ECUSERS_MAP.putAll(ecusers);
-            }
+            // No need to clear the map first, so the readers never see an empty map
+            ECUSERS_MAP.putAll(ecusers);
+            ECUSERS_MAP.keySet().retainAll(ecusers.keySet());
             if (_log.isInfoEnabled()) {
                 _log.info("ECUser(s) updated with {} element(s) in {}", ecusers.size(),
                         Format.formatDuration(start, System.currentTimeMillis()));
@@ -147,6 +147,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -183,6 +184,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.graalvm.polyglot.Value;
 
+import ecmwf.common.callback.LocalInputStream;
 import ecmwf.common.callback.RemoteInputStreamImp;
 import ecmwf.common.database.Alias;
 import ecmwf.common.database.Association;
@@ -255,6 +257,7 @@ import ecmwf.common.text.Format;
 import ecmwf.common.text.Options;
 import ecmwf.common.version.Version;
 import ecmwf.ecpds.master.plugin.ecpds.ECpdsClient;
+import ecmwf.ecpds.master.transfer.AliasesParser;
 import ecmwf.ecpds.master.transfer.DestinationOption;
 import ecmwf.ecpds.master.transfer.HostOption;
 import ecmwf.ecpds.master.transfer.StatusFactory;
@@ -436,6 +439,9 @@ public final class MasterServer extends ECaccessProvider
     /** The database access. */
     private final transient DataBaseImpl databaseAccess;
 
+    /** The progress epoch (the progress records of the DataMovers are relative to this instance of the master). */
+    private final transient long progressEpoch = System.currentTimeMillis();
+
     /** The attachment access. */
     private final transient AttachmentAccessImpl attachmentAccess;
 
@@ -1567,6 +1573,80 @@ public final class MasterServer extends ECaccessProvider
         return result;
     }
 
+    /**
+     * Gets the monitoring snapshot of all the Destinations. The Destinations, Associations and Hosts are read once and
+     * the other facts come from the memory of the TransferScheduler (the bad DataTransfers are counted with a single
+     * request for all the Destinations).
+     *
+     * @return the monitoring snapshot
+     *
+     * @throws MasterException
+     *             the master exception
+     * @throws DataBaseException
+     *             the data base exception
+     */
+    public MonitoringSnapshot getMonitoringSnapshot() throws MasterException, DataBaseException {
+        final var start = System.currentTimeMillis();
+        final var base = getECpdsBase();
+        final var scheduler = getTransferScheduler();
+        MonitoringThread monitoringThread;
+        try {
+            monitoringThread = scheduler.getMonitoringThread();
+        } catch (final MasterException e) {
+            monitoringThread = null;
+        }
+        final var hosts = new HashMap<String, Host>();
+        for (final Host host : base.getHostArray()) {
+            if (HostOption.DISSEMINATION.equals(host.getType())) {
+                hosts.put(host.getName(), host);
+            }
+        }
+        final var primaryHosts = new HashMap<String, Association>();
+        for (final Association association : base.getAssociationArray()) {
+            if (hosts.containsKey(association.getHostName())) {
+                final var primary = primaryHosts.get(association.getDestinationName());
+                if (primary == null || association.getPriority() < primary.getPriority()) {
+                    primaryHosts.put(association.getDestinationName(), association);
+                }
+            }
+        }
+        // Share the counts of the MonitoringThread rather than counting the bad DataTransfers again!
+        final var badDataTransfersCount = monitoringThread != null ? monitoringThread.getBadDataTransfersCounts()
+                : base.getBadDataTransfersCount();
+        final var destinations = base.getDestinationArray();
+        final var snapshot = new MonitoringSnapshot(destinations.length);
+        for (var i = 0; i < destinations.length; i++) {
+            final var destination = destinations[i];
+            final var destinationName = destination.getName();
+            try {
+                final var lastTransfer = scheduler.getDestinationLastTransfer(destinationName, true);
+                final var primary = primaryHosts.get(destinationName);
+                final var badCount = badDataTransfersCount.get(destinationName);
+                snapshot.set(i, destinationName, scheduler.getPendingDataTransfersCount(destinationName),
+                        badCount != null ? badCount : 0,
+                        StatusFactory.getDestinationStatusName(destination,
+                                scheduler.getDestinationStatus(destinationName, destination.getStatusCode())),
+                        lastTransfer != null && lastTransfer.getFinishTime() != null ? lastTransfer : null,
+                        primary != null ? hosts.get(primary.getHostName()) : null);
+            } catch (final Throwable t) {
+                _log.warn("Destination {} not added to MonitoringSnapshot", destinationName, t);
+                continue;
+            }
+            if (monitoringThread != null) {
+                try {
+                    final var manager = monitoringThread.getMonitorManager(destinationName);
+                    if (manager != null) {
+                        snapshot.setMonitor(i, manager.getStatus(), manager.getComment());
+                    }
+                } catch (final MonitorException e) {
+                    _log.debug("No MonitorManager for Destination {}", destinationName, e);
+                }
+            }
+        }
+        snapshot.setBuildDuration(System.currentTimeMillis() - start);
+        return snapshot;
+    }
+
     /**
      * Gets the destination cache. This is called when a host or a destination is duplicated, so the calculation of the
      * number of bad data transfers is not relevant (0 if it is a new destination and same as before in the cache if it
@@ -3960,7 +4040,12 @@ public final class MasterServer extends ECaccessProvider
                                 "Trace: show remote calls from monitoring interface in logs.", true, true, false),
                         new MBeanAttributeInfo("SynchronizedCount", "java.lang.Long",
                                 "SynchronizedCount: total number of elements for all instances of Synchronized.", true,
-                                false, false) },
+                                false, false),
+                        new MBeanAttributeInfo("AliasesGraph", "java.lang.String",
+                                "AliasesGraph: activity of the in-memory graph of the aliases.", true, false, false),
+                        new MBeanAttributeInfo("RemoteInputStreams", "java.lang.String",
+                                "RemoteInputStreams: round trip time, chunk size and stalls of the remote streams.",
+                                true, false, false) },
                 new MBeanOperationInfo[] { new MBeanOperationInfo("computeFilterEfficiency",
                         "computeFilterEfficiency(destination,email,filter,date,includeStdby): check the efficiency of filtering",
                         new MBeanParameterInfo[] {
@@ -4106,6 +4191,12 @@ public final class MasterServer extends ECaccessProvider
             if ("Trace".equals(attributeName)) {
                 return MonitorCall.getTrace();
             }
+            if ("AliasesGraph".equals(attributeName)) {
+                return AliasesParser.getGraphStatus();
+            }
+            if ("RemoteInputStreams".equals(attributeName)) {
+                return LocalInputStream.getStatistics();
+            }
         } catch (final Exception e) {
             _log.warn("Getting an MBean attribute", e);
             throw new MBeanException(e);
@@ -4347,6 +4438,60 @@ public final class MasterServer extends ECaccessProvider
         }
     }
 
+    /**
+     * Update the data transfers with the progress records of a DataMover. Every record is applied on a clone of the
+     * DataTransfer found in the cache, so that the DataTransfer does not have to be sent nor loaded from the
+     * DataBase. The records for DataTransfers which are not in the cache are ignored, as in updateDataTransfer.
+     *
+     * @param progress
+     *            the encoded progress records
+     *
+     * @return the epoch of the master
+     *
+     * @throws RemoteException
+     *             the remote exception
+     */
+    @Override
+    public long updateDataTransferProgress(final byte[] progress) throws RemoteException {
+        try {
+            final var batch = DataTransferProgress.decode(progress);
+            if (batch.epoch() != 0 && batch.epoch() != progressEpoch) {
+                _log.debug("Progress for {} DataTransfer(s) relative to another master (refused)",
+                        batch.progress().length);
+                return progressEpoch;
+            }
+            for (final DataTransferProgress record : batch.progress()) {
+                final var id = record.getId();
+                final var found = getDataTransferFromCache(id);
+                if (found == null) {
+                    _log.debug("DataTransfer-{} not in cache (progress ignored)", id);
+                    continue;
+                }
+                // We have to create a clone otherwise the TransferRepository will
+                // detect the status change and if the file is DONE then it will be
+                // removed from the repository too soon!
+                if (!(found.clone() instanceof final DataTransfer local)) {
+                    _log.warn("Couldn't clone DataTransfer-{}", id);
+                    continue;
+                }
+                try {
+                    final var hostName = local.getHostName();
+                    record.apply(local);
+                    if (local.getHostName() != null && !local.getHostName().equals(hostName)) {
+                        local.setHost(getECpdsBase().getHost(local.getHostName()));
+                    }
+                } catch (final Throwable t) {
+                    _log.warn("Couldn't update DataTransfer-{} from progress", id, t);
+                    continue;
+                }
+                updateDataTransfer(local);
+            }
+            return progressEpoch;
+        } catch (final Throwable t) {
+            throw Format.getRemoteException("MasterServer=" + getRoot(), t);
+        }
+    }
+
     /**
      * Update download progress.
      *
@@ -6524,6 +6669,28 @@ public final class MasterServer extends ECaccessProvider
                 && transfer.getMonitoringValue() != null;
     }
 
+    /**
+     * Feed the pending index of the TransferScheduler with the DataTransfer updates and product resets, so that only
+     * the Destinations with changes are processed by the scheduler. The DataTransfer updates are also used to
+     * invalidate the failed or deleted unique keys of the index of the AcquisitionScheduler.
+     *
+     * @param event
+     *            the event
+     */
+    private void _notifyTransferScheduler(final PluginEvent<?> event) {
+        if (theAcquisitionScheduler != null && event instanceof final DataTransferEvent dataTransferEvent) {
+            theAcquisitionScheduler.updateIndex(dataTransferEvent.getDataTransfer());
+        }
+        if (theTransferScheduler == null) {
+            return;
+        }
+        if (event instanceof final DataTransferEvent dataTransferEvent) {
+            theTransferScheduler.notifyUpdate(dataTransferEvent.getDataTransfer());
+        } else if (event instanceof ResetProductEvent && !(event instanceof ResetDestinationProductEvent)) {
+            theTransferScheduler.notifyReset();
+        }
+    }
+
     /**
      * Handle.
      *
@@ -6532,6 +6699,7 @@ public final class MasterServer extends ECaccessProvider
      */
     @Override
     public void handle(final PluginEvent<?> event) {
+        _notifyTransferScheduler(event);
         if (event instanceof final DataTransferEvent dataTransferEvent
                 && !_isValidDataTransferEvent(dataTransferEvent)) {
             return;
@@ -6839,6 +7007,9 @@ public final class MasterServer extends ECaccessProvider
             super(name, Cnf.at("StorageRepository", "transferSize", 5),
                     Cnf.at("StorageRepository", "transferDelay", 250));
             setComparator(new TransferComparator(false));
+            setMaxQueueSize(Cnf.at("StorageRepository", "transferMaxQueueSize", 10_000));
+            setBatch(Cnf.at("StorageRepository", "transferBatchSize", 100),
+                    Cnf.at("StorageRepository", "transferBatchWindow", 250));
         }
 
         /**
@@ -6948,13 +7119,63 @@ public final class MasterServer extends ECaccessProvider
          */
         @Override
         public void update(final DataTransfer transfer) throws Exception {
+            if (_prepareUpdate(transfer)) {
+                getDataBase().tryUpdate(transfer);
+                _addTransferHistory(transfer);
+            }
+        }
+
+        /**
+         * Update a batch of DataTransfers. The DataTransfers are updated in the DataBase within a single transaction.
+         *
+         * @param transfers
+         *            the transfers
+         *
+         * @throws Exception
+         *             the exception
+         */
+        @Override
+        public void update(final List<DataTransfer> transfers) throws Exception {
+            final List<DataTransfer> updates = new ArrayList<>(transfers.size());
+            for (final DataTransfer transfer : transfers) {
+                if (_prepareUpdate(transfer)) {
+                    updates.add(transfer);
+                }
+            }
+            getDataBase().tryStore(updates, true);
+            for (final DataTransfer transfer : updates) {
+                _addTransferHistory(transfer);
+            }
+        }
+
+        /**
+         * Adds the transfer history if required.
+         *
+         * @param transfer
+         *            the transfer
+         */
+        private void _addTransferHistory(final DataTransfer transfer) {
+            if (!transfer.getDeleted() && !StatusFactory.RETR.equals(transfer.getStatusCode())) {
+                addTransferHistory(transfer);
+            }
+        }
+
+        /**
+         * Prepare the update of the DataTransfer and send the event.
+         *
+         * @param transfer
+         *            the transfer
+         *
+         * @return true, if the DataTransfer has to be updated in the DataBase
+         */
+        private boolean _prepareUpdate(final DataTransfer transfer) {
             final var size = transfer.getDataFile().getSize();
             final var filterSize = transfer.getDataFile().getFilterSize();
             final var sent = transfer.getSent();
             final var code = transfer.getStatusCode();
             final var comment = transfer.getComment();
             if (StatusFactory.INIT.equals(code) || StatusFactory.SCHE.equals(code) || StatusFactory.FETC.equals(code)) {
-                return;
+                return false;
             }
             _log.debug("Update DataTransfer-{}={} ({})", transfer.getId(), code, StatusFactory.DONE.equals(code)
                     ? Format.formatRate(sent, transfer.getDuration()) : isNotEmpty(comment) ? comment : "no-comment");
@@ -6965,10 +7186,7 @@ public final class MasterServer extends ECaccessProvider
             final var event = new DataTransferEvent(transfer);
             event.setSource("MasterServer.TransferRepository.update");
             handle(event);
-            getDataBase().tryUpdate(transfer);
-            if (!transfer.getDeleted() && !StatusFactory.RETR.equals(code)) {
-                addTransferHistory(transfer);
-            }
+            return true;
         }
     }
 
@@ -6987,6 +7205,8 @@ public final class MasterServer extends ECaccessProvider
             super(name, Cnf.at("StorageRepository", "historySize", 5),
                     Cnf.at("StorageRepository", "historyDelay", 30 * Timer.ONE_SECOND));
             setMaxAuthorisedSize(Cnf.at("StorageRepository", "historyMaxAuthorisedSize", 0));
+            setBatch(Cnf.at("StorageRepository", "historyBatchSize", 200),
+                    Cnf.at("StorageRepository", "historyBatchWindow", Timer.ONE_SECOND));
         }
 
         /**
@@ -7014,6 +7234,45 @@ public final class MasterServer extends ECaccessProvider
          */
         @Override
         public void update(final TransferHistory history) throws Exception {
+            // Let's insert a new transfer history!
+            try {
+                getDataBase().insert(history, true);
+            } catch (final Exception e) {
+                _log.error("History NOT recorded: {}", history, e);
+                return;
+            }
+            _process(history);
+        }
+
+        /**
+         * Update a batch of TransferHistories. The TransferHistories are inserted in the DataBase within a single
+         * transaction, and only the ones which were recorded are then processed.
+         *
+         * @param histories
+         *            the histories
+         *
+         * @throws Exception
+         *             the exception
+         */
+        @Override
+        public void update(final List<TransferHistory> histories) throws Exception {
+            final var recorded = getDataBase().tryStore(histories, false);
+            if (recorded.size() < histories.size()) {
+                _log.error("{} History(ies) NOT recorded", histories.size() - recorded.size());
+            }
+            for (final TransferHistory history : recorded) {
+                _process(history);
+            }
+        }
+
+        /**
+         * Process a TransferHistory which was recorded (host statistics, UploadHistory and remote Master
+         * notification). It is not retried as the TransferHistory would then be recorded twice.
+         *
+         * @param history
+         *            the history
+         */
+        private void _process(final TransferHistory history) {
             final var transfer = history.getDataTransfer();
             final var host = history.getHost();
             final var code = transfer.getStatusCode();
@@ -7022,8 +7281,12 @@ public final class MasterServer extends ECaccessProvider
             if ((completed || StatusFactory.STOP.equals(code) || StatusFactory.FAIL.equals(code)
                     || StatusFactory.RETR.equals(code) || StatusFactory.INTR.equals(code)) && transfer.getSent() > 0
                     && host != null) {
-                _updateHostStats(host, 1, sent, transfer.getDuration(), completed,
-                        new Timestamp(System.currentTimeMillis()));
+                try {
+                    _updateHostStats(host, 1, sent, transfer.getDuration(), completed,
+                            new Timestamp(System.currentTimeMillis()));
+                } catch (final DataBaseException e) {
+                    _log.warn("Host statistics NOT updated for DataTransfer {}", transfer.getId(), e);
+                }
             }
             final var file = transfer.getDataFile();
             final var base = getDataBase();
@@ -7124,12 +7387,6 @@ public final class MasterServer extends ECaccessProvider
                     _log.error("Creating UploadHistory", t);
                 }
             }
-            // Let's insert a new transfer history!
-            try {
-                base.insert(history, true);
-            } catch (final Exception e) {
-                _log.error("History NOT recorded: {}", history, e);
-            }
             // Let's see if we should notify a remote Master?
             if (completed) {
                 final var setup = DESTINATION_SCHEDULER.getECtransSetup(transfer.getDestination().getData());
@@ -10260,6 +10517,12 @@ public final class MasterServer extends ECaccessProvider
         /** The _current key. */
         private String _currentKey = "[none]";
 
+        /** The _index (null if disabled). */
+        private final AcquisitionIndex _index = Cnf.at("Scheduler", "acquisitionIndex", true)
+                ? new AcquisitionIndex(Cnf.durationAt("Scheduler", "acquisitionIndexReload", Timer.ONE_HOUR),
+                        Cnf.at("Scheduler", "acquisitionIndexMaxEntries", 1_000_000))
+                : null;
+
         /** The _pause. */
         private boolean _pause = false;
 
@@ -10385,7 +10648,10 @@ public final class MasterServer extends ECaccessProvider
                                     "MaximumDuration: maximum duration for an acquisition in milliseconds.", true, true,
                                     false),
                             new MBeanAttributeInfo("InterruptSlow", "boolean",
-                                    "InterruptSlow: automaticaly interrupt slow acquisitions.", true, true, false) },
+                                    "InterruptSlow: automaticaly interrupt slow acquisitions.", true, true, false),
+                            new MBeanAttributeInfo("AcquisitionIndex", "java.lang.String",
+                                    "AcquisitionIndex: status of the index of the unique keys already acquired.", true,
+                                    false, false) },
                     new MBeanOperationInfo[0]);
         }
 
@@ -10420,6 +10686,9 @@ public final class MasterServer extends ECaccessProvider
                 if ("InterruptSlow".equals(attributeName)) {
                     return _interruptSlow;
                 }
+                if ("AcquisitionIndex".equals(attributeName)) {
+                    return _index != null ? _index.getStatus() : "disabled";
+                }
             } catch (final Exception e) {
                 _log.warn("Getting an MBean attribute", e);
                 throw new MBeanException(e);
@@ -10460,6 +10729,30 @@ public final class MasterServer extends ECaccessProvider
             return super.setAttribute(name, value);
         }
 
+        /**
+         * Update the index of the unique keys already acquired with the DataTransfer.
+         *
+         * @param transfer
+         *            the transfer
+         */
+        void updateIndex(final DataTransfer transfer) {
+            if (_index != null) {
+                _index.update(transfer);
+            }
+        }
+
+        /**
+         * Remove the unique key from the index of the unique keys already acquired.
+         *
+         * @param uniqueKey
+         *            the unique key
+         */
+        void invalidateIndex(final String uniqueKey) {
+            if (_index != null && uniqueKey != null) {
+                _index.invalidate(uniqueKey);
+            }
+        }
+
         /**
          * Sets the pause.
          *
@@ -11355,58 +11648,70 @@ public final class MasterServer extends ECaccessProvider
                             // This is a queue request. Check if the file is not
                             // already in the database?
                             final var standby = _getBoolean(HOST_ACQUISITION_STANDBY);
-                            final var transfers = base.getScheduledDataTransfer(
-                                    TransferManagement.getUniqueKey(standby, _desName, effectiveTarget, uniqueName),
-                                    _desName);
-                            final var found = transfers.length > 0;
+                            final var uniqueKey = TransferManagement.getUniqueKey(standby, _desName, effectiveTarget,
+                                    uniqueName);
+                            // Do we know this file from a previous check?
+                            var known = _index != null ? _index.get(base, _desName, uniqueKey) : null;
+                            if (known == null) {
+                                final var transfers = base.getScheduledDataTransfer(uniqueKey, _desName);
+                                if (transfers.length > 0) {
+                                    final var dataFile = transfers[0].getDataFile();
+                                    var failed = false;
+                                    for (final DataTransfer transfer : transfers) {
+                                        if (StatusFactory.FAIL.equals(transfer.getStatusCode())) {
+                                            failed = true;
+                                            break;
+                                        }
+                                    }
+                                    known = new AcquisitionIndex.Entry(transfers[0].getDataFileId(),
+                                            dataFile.getTimeFile().getTime(), dataFile.getSize(), failed);
+                                    if (_index != null) {
+                                        _index.put(_desName, uniqueKey, known);
+                                    }
+                                }
+                            }
+                            final var found = known != null;
                             var force = false;
                             if (found) {
                                 // The datafile is already in the database so
                                 // let's find the time and size and check if it
                                 // should be requeued or not?
-                                final var dataFile = transfers[0].getDataFile();
                                 // Let's be compatible with the old parameters
                                 // if the new parameter requeueon is not found!
                                 final var requeueonupdate = _getBoolean(HOST_ACQUISITION_REQUEUEONUPDATE);
                                 final var requeueonsamesize = _getBoolean(HOST_ACQUISITION_REQUEUEONSAMESIZE);
-                                var requeueon = _getString(HOST_ACQUISITION_REQUEUEON, requeueonupdate
+                                final var requeueon = _getString(HOST_ACQUISITION_REQUEUEON, requeueonupdate
                                         ? requeueonsamesize ? "$time2 > $time1" : "$time2 > $time1 && $size2 != $size1"
                                         : "false");
                                 try {
-                                    requeueon = Format.replaceAll(requeueon, "$time1",
-                                            dataFile.getTimeFile().getTime());
-                                    requeueon = Format.replaceAll(requeueon, "$size1", dataFile.getSize());
-                                    requeueon = Format.replaceAll(requeueon, "$time2", entry.time / 1000L * 1000L);
-                                    requeueon = Format.replaceAll(requeueon, "$size2",
-                                            entry.size >= 0 ? entry.size : -1);
-                                    requeueon = Format.replaceAllExt(requeueon, "$destination", destination.getName());
-                                    requeueon = Format.replaceAllExt(requeueon, "$target", initialTarget);
-                                    requeueon = Format.replaceAllExt(requeueon, "$original", original);
+                                    final Map<String, Object> parameters = new LinkedHashMap<>();
+                                    parameters.put("$time1", known.time);
+                                    parameters.put("$size1", known.size);
+                                    parameters.put("$time2", entry.time / 1000L * 1000L);
+                                    parameters.put("$size2", entry.size >= 0 ? entry.size : -1);
+                                    parameters.put("$destination", destination.getName());
+                                    parameters.put("$target", initialTarget);
+                                    parameters.put("$original", original);
                                     // Should we requeue it?
-                                    force = ScriptManager.exec(Boolean.class, ScriptManager.JS, requeueon);
+                                    force = ScriptManager.execTemplate(Boolean.class, ScriptManager.JS, requeueon,
+                                            parameters, true);
                                 } catch (final Throwable t) {
                                     return "not-selected: requeueon error (" + Format.getMessage(t) + ")";
                                 }
                             }
                             var failedOnly = false;
-                            if (found && !force) {
-                                for (final DataTransfer transfer : transfers) {
-                                    final var status = transfer.getStatusCode();
-                                    if (StatusFactory.FAIL.equals(status)) {
-                                        // The file has not been retrieved so
-                                        // let's re-queue it
-                                        _log.debug("Requeuing DataFile: " + transfer.getDataFileId()
-                                                + " (retrieval didn't succeed last time)");
-                                        failedOnly = true;
-                                        force = true;
-                                        break;
-                                    }
-                                }
+                            if (found && !force && known.failed) {
+                                // The file has not been retrieved so
+                                // let's re-queue it
+                                _log.debug("Requeuing DataFile: " + known.dataFileId
+                                        + " (retrieval didn't succeed last time)");
+                                failedOnly = true;
+                                force = true;
                             }
                             if (found && !force) {
                                 // The file has already been recorded in the
                                 // database
-                                return "not-selected: exists DatafileId=" + transfers[0].getDataFileId();
+                                return "not-selected: exists DatafileId=" + known.dataFileId;
                             } else {
                                 // The file has not been found in the
                                 // database or should be re-queued. Let's
@@ -11456,6 +11761,7 @@ public final class MasterServer extends ECaccessProvider
                                                 _getBoolean(HOST_ACQUISITION_NORETRIEVAL), force, failedOnly,
                                                 _getBoolean(HOST_ACQUISITION_DELETEORIGINAL),
                                                 _getString(HOST_ACQUISITION_TRANSFERGROUP));
+                                        _indexScheduled(uniqueKey, dataFileId, entry);
                                         // The file has been selected and registered in the database for later retrieval
                                         return "selected: " + (force ? "re-" : "") + "scheduled with DatafileId="
                                                 + dataFileId + (notificationId >= 0
@@ -11474,6 +11780,7 @@ public final class MasterServer extends ECaccessProvider
                                                 _getBoolean(HOST_ACQUISITION_DELETEORIGINAL),
                                                 _getString(HOST_ACQUISITION_TRANSFERGROUP),
                                                 Base64.getDecoder().decode(body));
+                                        _indexScheduled(uniqueKey, dataFileId, entry);
                                         // The file has been registered in the database and sent to the mover
                                         return "selected: " + (force ? "re-" : "") + "received with DatafileId="
                                                 + dataFileId + (notificationId >= 0
@@ -11507,6 +11814,30 @@ public final class MasterServer extends ECaccessProvider
                 }
             }
 
+            /**
+             * Record a new file scheduled for retrieval in the index. The file is only recorded if its time and size
+             * are known, otherwise its unique key is removed from the index (e.g. a previous failed entry) and the
+             * DataBase will be checked the next time the file is listed.
+             *
+             * @param uniqueKey
+             *            the unique key
+             * @param dataFileId
+             *            the data file id
+             * @param entry
+             *            the entry
+             */
+            void _indexScheduled(final String uniqueKey, final long dataFileId, final FileEntry entry) {
+                if (_index == null) {
+                    return;
+                }
+                if (entry.time != -1 && entry.size >= 0) {
+                    _index.put(_desName, uniqueKey, new AcquisitionIndex.Entry(dataFileId, entry.time, entry.size,
+                            false));
+                } else {
+                    _index.invalidate(uniqueKey);
+                }
+            }
+
             /**
              * The Class ListThread.
              */
@@ -12840,10 +13171,17 @@ public final class MasterServer extends ECaccessProvider
                         dataFile.setGetTime(dr.dataFile.getGetTime());
                         dataFile.setGetCompleteDuration(completed - start);
                         dataFile.setGetDuration(dr.dataFile.getGetDuration());
+                        final var sizeChanged = dataFile.getSize() != dr.dataFile.getSize();
                         dataFile.setSize(dr.dataFile.getSize());
                         dataFile.setChecksum(checksum);
                         dataFile.setDownloaded(true);
                         base.update(dataFile);
+                        if (sizeChanged && theAcquisitionScheduler != null) {
+                            // The size known by the acquisition index is no longer valid!
+                            for (final DataTransfer transfer : relatedTransfers) {
+                                theAcquisitionScheduler.invalidateIndex(transfer.getUniqueKey());
+                            }
+                        }
                         for (final DataTransfer transfer : relatedTransfers) {
                             // First let's add a new history with the transfer rate!
                             final var index = dataFile.getIndex();
@@ -0,0 +1,309 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import ecmwf.common.database.DataTransfer;
+import ecmwf.common.database.Host;
+
+/**
+ * The Class MonitoringSnapshot. The monitoring facts of all the Destinations, built by the MasterServer in a single
+ * pass from the state of the TransferScheduler, so that the web monitoring does not have to call the master for
+ * every Destination. The facts are stored in columns (one array per fact, all indexed in the same way) to keep the
+ * serialized form small.
+ */
+public final class MonitoringSnapshot implements Serializable {
+    /** The Constant serialVersionUID. */
+    private static final long serialVersionUID = -6027735319164582041L;
+
+    /** The _creation time. */
+    private final long _creationTime = System.currentTimeMillis();
+
+    /** The _destination names. */
+    private final String[] _destinationNames;
+
+    /** The _queue sizes. */
+    private final int[] _queueSizes;
+
+    /** The _bad data transfers counts. */
+    private final int[] _badDataTransfersCounts;
+
+    /** The _statuses (formatted). */
+    private final String[] _statuses;
+
+    /** The _last transfers (successful and finished, null if none). */
+    private final DataTransfer[] _lastTransfers;
+
+    /** The _primary hosts (dissemination Host with the highest priority, null if none). */
+    private final Host[] _primaryHosts;
+
+    /** The _monitor available (false if the MonitorManager could not be found). */
+    private final boolean[] _monitorAvailable;
+
+    /** The _monitor statuses. */
+    private final int[] _monitorStatuses;
+
+    /** The _monitor comments. */
+    private final String[] _monitorComments;
+
+    /** The _build duration. */
+    private long _buildDuration = 0;
+
+    /** The _indexes (per Destination name, built on demand). */
+    private transient Map<String, Integer> _indexes = null;
+
+    /**
+     * Instantiates a new monitoring snapshot.
+     *
+     * @param size
+     *            the number of Destinations
+     */
+    MonitoringSnapshot(final int size) {
+        _destinationNames = new String[size];
+        _queueSizes = new int[size];
+        _badDataTransfersCounts = new int[size];
+        _statuses = new String[size];
+        _lastTransfers = new DataTransfer[size];
+        _primaryHosts = new Host[size];
+        _monitorAvailable = new boolean[size];
+        _monitorStatuses = new int[size];
+        _monitorComments = new String[size];
+    }
+
+    /**
+     * Sets the facts of a Destination.
+     *
+     * @param index
+     *            the index
+     * @param destinationName
+     *            the destination name
+     * @param queueSize
+     *            the queue size
+     * @param badDataTransfersCount
+     *            the bad data transfers count
+     * @param status
+     *            the formatted status
+     * @param lastTransfer
+     *            the last transfer
+     * @param primaryHost
+     *            the primary host
+     */
+    void set(final int index, final String destinationName, final int queueSize, final int badDataTransfersCount,
+            final String status, final DataTransfer lastTransfer, final Host primaryHost) {
+        _destinationNames[index] = destinationName;
+        _queueSizes[index] = queueSize;
+        _badDataTransfersCounts[index] = badDataTransfersCount;
+        _statuses[index] = status;
+        _lastTransfers[index] = lastTransfer;
+        _primaryHosts[index] = primaryHost;
+    }
+
+    /**
+     * Sets the status of the MonitorManager of a Destination.
+     *
+     * @param index
+     *            the index
+     * @param status
+     *            the status
+     * @param comment
+     *            the comment
+     */
+    void setMonitor(final int index, final int status, final String comment) {
+        _monitorAvailable[index] = true;
+        _monitorStatuses[index] = status;
+        _monitorComments[index] = comment;
+    }
+
+    /**
+     * Sets the build duration.
+     *
+     * @param buildDuration
+     *            the build duration
+     */
+    void setBuildDuration(final long buildDuration) {
+        _buildDuration = buildDuration;
+    }
+
+    /**
+     * Gets the creation time.
+     *
+     * @return the creation time
+     */
+    public long getCreationTime() {
+        return _creationTime;
+    }
+
+    /**
+     * Gets the build duration (on the master).
+     *
+     * @return the build duration
+     */
+    public long getBuildDuration() {
+        return _buildDuration;
+    }
+
+    /**
+     * Gets the number of Destinations.
+     *
+     * @return the size
+     */
+    public int size() {
+        return _destinationNames.length;
+    }
+
+    /**
+     * Gets the index of a Destination.
+     *
+     * @param destinationName
+     *            the destination name
+     *
+     * @return the index or -1 if the Destination is not in the snapshot
+     */
+    public synchronized int indexOf(final String destinationName) {
+        if (_indexes == null) {
+            _indexes = new HashMap<>(_destinationNames.length * 2);
+            for (var i = 0; i < _destinationNames.length; i++) {
+                if (_destinationNames[i] != null) {
+                    _indexes.put(_destinationNames[i], i);
+                }
+            }
+        }
+        final var index = _indexes.get(destinationName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Gets the destination name.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the destination name
+     */
+    public String getDestinationName(final int index) {
+        return _destinationNames[index];
+    }
+
+    /**
+     * Gets the queue size.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the queue size
+     */
+    public int getQueueSize(final int index) {
+        return _queueSizes[index];
+    }
+
+    /**
+     * Gets the bad data transfers count.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the bad data transfers count
+     */
+    public int getBadDataTransfersCount(final int index) {
+        return _badDataTransfersCounts[index];
+    }
+
+    /**
+     * Gets the formatted status.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the status
+     */
+    public String getStatus(final int index) {
+        return _statuses[index];
+    }
+
+    /**
+     * Gets the last successful transfer.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the last transfer
+     */
+    public DataTransfer getLastTransfer(final int index) {
+        return _lastTransfers[index];
+    }
+
+    /**
+     * Gets the primary host.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the primary host
+     */
+    public Host getPrimaryHost(final int index) {
+        return _primaryHosts[index];
+    }
+
+    /**
+     * Checks if the status of the MonitorManager is available.
+     *
+     * @param index
+     *            the index
+     *
+     * @return true, if available
+     */
+    public boolean isMonitorAvailable(final int index) {
+        return _monitorAvailable[index];
+    }
+
+    /**
+     * Gets the status of the MonitorManager.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the monitor status
+     */
+    public int getMonitorStatus(final int index) {
+        return _monitorStatuses[index];
+    }
+
+    /**
+     * Gets the comment of the MonitorManager.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the monitor comment
+     */
+    public String getMonitorComment(final int index) {
+        return _monitorComments[index];
+    }
+}
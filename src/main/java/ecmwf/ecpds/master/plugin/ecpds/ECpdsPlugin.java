@@ -342,7 +342,7 @@ public final class ECpdsPlugin extends SimplePlugin implements ProgressInterface
     private String key = null;
 
     /** The start. */
-    private final long start = System.currentTimeMillis();
+    private long start = System.currentTimeMillis();
 
     /** The currentStreams. */
     private int currentStreams = -1;
@@ -2012,6 +2012,9 @@ public final class ECpdsPlugin extends SimplePlugin implements ProgressInterface
             }
             send(message);
             newDataFile = false;
+            if (errorMessage == null && getOpts("batch", false)) {
+                nextFile();
+            }
         } catch (final Throwable t) {
             _log.error("Process aborted", t);
             final var error = t.getMessage();
@@ -2019,6 +2022,82 @@ public final class ECpdsPlugin extends SimplePlugin implements ProgressInterface
         }
     }
 
+    /**
+     * Prepare the connection for the next file in batch mode (requested by the client with "opts batch"). The lock on
+     * the current transfer is released and all the settings of the current file are reset, while the login, version
+     * and origin of the session are kept, so that many files can be registered on the same control connection.
+     */
+    private void nextFile() {
+        if (key != null) {
+            MASTER.unlockTransfer(key);
+            key = null;
+        }
+        _log.debug("Batch mode: waiting for next file (DataFileId={} registered)", dataFileId);
+        metaDataList.clear();
+        if (processMetadata) {
+            metaDataList.put("target", "None");
+            metaDataList.put("stream", "None");
+            metaDataList.put("time", "00");
+        }
+        currentTransfer = null;
+        datafileToDelete = null;
+        transfersList = null;
+        errorMessage = null;
+        message = null;
+        caller = null;
+        selectedDestination = null;
+        source = null;
+        currentTarget = null;
+        identity = null;
+        original = null;
+        hostForAcquisition = null;
+        requestId = -1;
+        dataFileId = -1;
+        currentRoot = null;
+        currentByteSent = 0;
+        currentSize = -1;
+        currentPriority = 99;
+        lifeTime = 2 * Timer.ONE_DAY;
+        lifeTimeString = "2d";
+        currentDelay = 0;
+        at = -1;
+        atString = null;
+        timeCritical = false;
+        standBy = false;
+        currentIndex = 0;
+        groupBy = null;
+        remove = false;
+        reQueue = false;
+        force = false;
+        noRetrieval = false;
+        failedOnly = false;
+        dateFormat = "yyyyMMddHHmmss";
+        transferGroup = Cnf.at("ECpdsPlugin", "transferGroup");
+        purge = false;
+        acquisition = false;
+        timeStep = -1;
+        currentBuffer = 0;
+        metaData = null;
+        metaStream = null;
+        metaTime = null;
+        metaTarget = null;
+        metaType = null;
+        uniqueName = null;
+        domain = "";
+        currentProductDate = -1;
+        timeFile = -1;
+        timeFileString = null;
+        newDataFile = false;
+        start = System.currentTimeMillis();
+        currentStreams = -1;
+        currentTimeout = -1;
+        currentAsap = false;
+        currentEvent = false;
+        provider = null;
+        putReq = null;
+        setLoop(true);
+    }
+
     /**
      * Puts the req.
      */
@@ -2221,6 +2300,9 @@ public final class ECpdsPlugin extends SimplePlugin implements ProgressInterface
                         send("MESSAGE DataFile already exist with " + transfersList.length
                                 + " DataTransfer(s) (DataFileId=" + dataFile.getId() + ")");
                         setLoop(false);
+                        if (getOpts("batch", false)) {
+                            nextFile();
+                        }
                     }
                     return;
                 }
@@ -2243,6 +2325,9 @@ public final class ECpdsPlugin extends SimplePlugin implements ProgressInterface
                     send("MESSAGE Purge completed with " + transfersList.length
                             + " DataTransfer(s) deleted (DataFileId=" + dataFile.getId() + ")");
                     setLoop(false);
+                    if (getOpts("batch", false)) {
+                        nextFile();
+                    }
                     return;
                 }
                 // Is re-queue or force so delete the original DataFile!
@@ -35,19 +35,29 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
 import javax.management.timer.Timer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import ecmwf.common.ecaccess.MBeanScheduler;
+import ecmwf.common.mbean.MBeanManager;
 import ecmwf.ecpds.master.MasterManager;
+import ecmwf.ecpds.master.MonitoringSnapshot;
 import ecmwf.ecpds.master.plugin.http.controller.monitoring.MonitoringRequest;
+import ecmwf.ecpds.master.plugin.http.dao.transfer.DataTransferBaseBean;
+import ecmwf.ecpds.master.plugin.http.dao.transfer.HostBean;
 import ecmwf.ecpds.master.plugin.http.home.monitoring.DestinationProductStatusHome;
 import ecmwf.ecpds.master.plugin.http.home.monitoring.ProductStatusHome;
 import ecmwf.ecpds.master.plugin.http.home.monitoring.ProductStepStatusHome;
 import ecmwf.ecpds.master.plugin.http.home.transfer.DestinationHome;
 import ecmwf.ecpds.master.plugin.http.model.monitoring.DestinationProductStatus;
+import ecmwf.ecpds.master.plugin.http.model.monitoring.DestinationStatus;
 import ecmwf.ecpds.master.plugin.http.model.monitoring.GenerationMonitoringStatus;
 import ecmwf.ecpds.master.plugin.http.model.monitoring.MonitoringException;
 import ecmwf.ecpds.master.plugin.http.model.monitoring.ProductStatus;
@@ -69,6 +79,18 @@ public class MonitoringStatusCalculatorTask extends MBeanScheduler {
     /** The Constant CODES. */
     private static final String[] CODES = { Status.INIT, Status.EXEC, Status.DONE, "" };
 
+    /** The last cycle duration. */
+    private volatile long lastCycleDuration = -1;
+
+    /** The last snapshot duration. */
+    private volatile long lastSnapshotDuration = -1;
+
+    /** The last snapshot build duration. */
+    private volatile long lastSnapshotBuildDuration = -1;
+
+    /** The snapshot destinations. */
+    private volatile int snapshotDestinations = 0;
+
     /**
      * Instantiates a new monitoring status calculator task.
      *
@@ -95,8 +117,8 @@ public class MonitoringStatusCalculatorTask extends MBeanScheduler {
             if (!contactsPerDestinations.isEmpty()) {
                 MonitoringRequest.refreshContactsList(contactsPerDestinations);
             }
-            log.info("Finished calculating Monitoring Status. Time taken: "
-                    + (System.currentTimeMillis() - start) / 1000 + " seconds.");
+            lastCycleDuration = System.currentTimeMillis() - start;
+            log.info("Finished calculating Monitoring Status. Time taken: " + lastCycleDuration / 1000 + " seconds.");
         } catch (final Exception e) {
             log.error("Error calculating Monitoring Status", e);
         }
@@ -104,11 +126,13 @@ public class MonitoringStatusCalculatorTask extends MBeanScheduler {
     }
 
     /**
-     * Fill data in the DestinationStatus cache and return the contacts per destinations!
+     * Fill data in the DestinationStatus cache and return the contacts per destinations! The monitoring facts of all
+     * the Destinations are requested from the master in a single call, and the Destinations which are not in the
+     * snapshot (e.g. just created) are requested one by one.
      *
      * @return the hash map
      */
-    private static final HashMap<String, String> fillDestinationStatii() {
+    private HashMap<String, String> fillDestinationStatii() {
         final var contactsPerDestinations = new HashMap<String, String>();
         try {
             try {
@@ -116,42 +140,24 @@ public class MonitoringStatusCalculatorTask extends MBeanScheduler {
             } catch (final Throwable t) {
                 log.warn("Couldn't get contacts per Destinations", t);
             }
+            MonitoringSnapshot snapshot = null;
+            try {
+                final var start = System.currentTimeMillis();
+                snapshot = MasterManager.getMI().getMonitoringSnapshot();
+                lastSnapshotDuration = System.currentTimeMillis() - start;
+                lastSnapshotBuildDuration = snapshot.getBuildDuration();
+                snapshotDestinations = snapshot.size();
+            } catch (final Throwable t) {
+                log.warn("Couldn't get Monitoring Snapshot (requesting Destinations one by one)", t);
+            }
             for (final Destination destination : DestinationHome.findAll()) {
                 final var ds = destination.getMonitoringStatus();
                 ds.setCalculationDate(new Date());
-                // Bad data transfers
-                ds.setBadDataTransfersSize(destination.getBadDataTransfersSize());
-                // Last successful transfer
-                ds.setLastTransfer(destination.getLastTransfer());
-                // Queue size
-                try {
-                    ds.setQueueSize(MasterManager.getMI().getPendingDataTransfersCount(destination.getName()));
-                } catch (final Exception e) {
-                    log.warn("Error trying to get Queue Size for destination '" + destination.getName() + "'", e);
-                }
-                // Primary host information for dissemination ... ?
-                Host primaryHost = null;
-                var maxPriority = Integer.MAX_VALUE;
-                for (final Pair pair : destination.getDisseminationHostsAndPriorities()) {
-                    final var host = (Host) pair.getName();
-                    final var priority = (Integer) pair.getValue();
-                    if (priority < maxPriority) {
-                        primaryHost = host;
-                        maxPriority = priority;
-                    }
-                }
-                ds.setPrimaryHost(primaryHost);
-                ds.setStatus(destination.getFormattedStatus());
-                try {
-                    final var bsm = MasterManager.getMI().getMonitorManager(destination.getName());
-                    ds.setBigSisterStatus(bsm.getStatus());
-                    ds.setBigSisterStatusComment(bsm.getComment() != null ? bsm.getComment() : "");
-                } catch (final Exception e) {
-                    final var message = e.getMessage();
-                    if (!"MonitorManager is off line".equals(message)
-                            && !"MonitoringThread is off line".equals(message)) {
-                        log.warn("Problem getting Monitor status for destination '" + destination.getName() + "'", e);
-                    }
+                final var index = snapshot != null ? snapshot.indexOf(destination.getName()) : -1;
+                if (index >= 0) {
+                    fillDestinationStatus(ds, snapshot, index);
+                } else {
+                    fillDestinationStatus(ds, destination);
                 }
             }
         } catch (final TransferException e) {
@@ -160,6 +166,131 @@ public class MonitoringStatusCalculatorTask extends MBeanScheduler {
         return contactsPerDestinations;
     }
 
+    /**
+     * Fill the DestinationStatus from the monitoring snapshot.
+     *
+     * @param ds
+     *            the destination status
+     * @param snapshot
+     *            the snapshot
+     * @param index
+     *            the index of the Destination in the snapshot
+     */
+    private static void fillDestinationStatus(final DestinationStatus ds, final MonitoringSnapshot snapshot,
+            final int index) {
+        ds.setBadDataTransfersSize(snapshot.getBadDataTransfersCount(index));
+        final var lastTransfer = snapshot.getLastTransfer(index);
+        ds.setLastTransfer(lastTransfer != null ? new DataTransferBaseBean(lastTransfer) : null);
+        ds.setQueueSize(snapshot.getQueueSize(index));
+        final var primaryHost = snapshot.getPrimaryHost(index);
+        ds.setPrimaryHost(primaryHost != null ? new HostBean(primaryHost) : null);
+        ds.setStatus(snapshot.getStatus(index));
+        if (snapshot.isMonitorAvailable(index)) {
+            final var comment = snapshot.getMonitorComment(index);
+            ds.setBigSisterStatus(snapshot.getMonitorStatus(index));
+            ds.setBigSisterStatusComment(comment != null ? comment : "");
+        }
+    }
+
+    /**
+     * Fill the DestinationStatus with one request to the master per fact.
+     *
+     * @param ds
+     *            the destination status
+     * @param destination
+     *            the destination
+     *
+     * @throws TransferException
+     *             the transfer exception
+     */
+    private static void fillDestinationStatus(final DestinationStatus ds, final Destination destination)
+            throws TransferException {
+        // Bad data transfers
+        ds.setBadDataTransfersSize(destination.getBadDataTransfersSize());
+        // Last successful transfer
+        ds.setLastTransfer(destination.getLastTransfer());
+        // Queue size
+        try {
+            ds.setQueueSize(MasterManager.getMI().getPendingDataTransfersCount(destination.getName()));
+        } catch (final Exception e) {
+            log.warn("Error trying to get Queue Size for destination '" + destination.getName() + "'", e);
+        }
+        // Primary host information for dissemination ... ?
+        Host primaryHost = null;
+        var maxPriority = Integer.MAX_VALUE;
+        for (final Pair pair : destination.getDisseminationHostsAndPriorities()) {
+            final var host = (Host) pair.getName();
+            final var priority = (Integer) pair.getValue();
+            if (priority < maxPriority) {
+                primaryHost = host;
+                maxPriority = priority;
+            }
+        }
+        ds.setPrimaryHost(primaryHost);
+        ds.setStatus(destination.getFormattedStatus());
+        try {
+            final var bsm = MasterManager.getMI().getMonitorManager(destination.getName());
+            ds.setBigSisterStatus(bsm.getStatus());
+            ds.setBigSisterStatusComment(bsm.getComment() != null ? bsm.getComment() : "");
+        } catch (final Exception e) {
+            final var message = e.getMessage();
+            if (!"MonitorManager is off line".equals(message) && !"MonitoringThread is off line".equals(message)) {
+                log.warn("Problem getting Monitor status for destination '" + destination.getName() + "'", e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Gets the MBean info.
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        return MBeanManager.addMBeanInfo(super.getMBeanInfo(),
+                "The MonitoringStatusCalculatorTask is calculating the monitoring status of the Destinations.",
+                new MBeanAttributeInfo[] {
+                        new MBeanAttributeInfo("LastCycleDuration", "long",
+                                "LastCycleDuration: duration of the last calculation (ms).", true, false, false),
+                        new MBeanAttributeInfo("LastSnapshotDuration", "long",
+                                "LastSnapshotDuration: duration of the last monitoring snapshot request (ms).", true,
+                                false, false),
+                        new MBeanAttributeInfo("LastSnapshotBuildDuration", "long",
+                                "LastSnapshotBuildDuration: time spent by the master to build the last snapshot (ms).",
+                                true, false, false),
+                        new MBeanAttributeInfo("SnapshotDestinations", "int",
+                                "SnapshotDestinations: number of Destinations in the last snapshot.", true, false,
+                                false) },
+                new MBeanOperationInfo[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Gets the attribute.
+     */
+    @Override
+    public Object getAttribute(final String attributeName) throws AttributeNotFoundException, MBeanException {
+        try {
+            if ("LastCycleDuration".equals(attributeName)) {
+                return lastCycleDuration;
+            }
+            if ("LastSnapshotDuration".equals(attributeName)) {
+                return lastSnapshotDuration;
+            }
+            if ("LastSnapshotBuildDuration".equals(attributeName)) {
+                return lastSnapshotBuildDuration;
+            }
+            if ("SnapshotDestinations".equals(attributeName)) {
+                return snapshotDestinations;
+            }
+        } catch (final Exception e) {
+            log.warn("Getting an MBean attribute", e);
+            throw new MBeanException(e);
+        }
+        return super.getAttribute(attributeName);
+    }
+
     /**
      * Update ProductStatus and ProductStepStatus in the absence of events.
      */
@@ -81,7 +81,7 @@ public class DataTransferBaseBean extends ModelBeanBase implements DataTransfer,
      * @param transfer
      *            the transfer
      */
-    protected DataTransferBaseBean(final ecmwf.common.database.DataTransfer transfer) {
+    public DataTransferBaseBean(final ecmwf.common.database.DataTransfer transfer) {
         this.transfer = transfer;
     }
 
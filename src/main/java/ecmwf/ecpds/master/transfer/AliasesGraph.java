@@ -0,0 +1,263 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master.transfer;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import static ecmwf.common.ectrans.ECtransGroups.Module.DESTINATION_ALIAS;
+
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.management.timer.Timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ecmwf.common.database.Alias;
+import ecmwf.common.database.DataBaseException;
+import ecmwf.common.database.Destination;
+import ecmwf.common.database.ECpdsBase;
+import ecmwf.common.ectrans.ECtransSetup;
+import ecmwf.common.technical.Cnf;
+import ecmwf.common.text.Options;
+
+/**
+ * The Class AliasesGraph. In memory routing graph used by the AliasesParser. For each Destination the list of the
+ * Destinations it is aliased to is loaded once from the DataBase, along with the parsed options of its alias module.
+ * The whole graph is dropped when a Destination or an Alias is modified through the DataBase of the master (and after
+ * a maximum age, to catch the changes done directly in the DataBase), and the nodes are then rebuilt on demand. The
+ * regular expressions and date formats used by the alias options are compiled once.
+ */
+final class AliasesGraph {
+    /** The Constant _log. */
+    private static final Logger _log = LogManager.getLogger(AliasesGraph.class);
+
+    /** The Constant MAX_AGE. */
+    private static final long MAX_AGE = Cnf.durationAt("AliasesParser", "graphMaxAge", 5 * Timer.ONE_MINUTE);
+
+    /** The Constant MAX_PATTERNS. */
+    private static final int MAX_PATTERNS = Cnf.at("AliasesParser", "maxPatterns", 10000);
+
+    /** The Constant _nodes. */
+    private static final Map<String, Node> _nodes = new ConcurrentHashMap<>();
+
+    /** The Constant _patterns. */
+    private static final Map<String, Pattern> _patterns = new ConcurrentHashMap<>();
+
+    /** The Constant _dateFormats (SimpleDateFormat is not thread safe). */
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> _dateFormats = ThreadLocal
+            .withInitial(HashMap::new);
+
+    /** The Constant _hits. */
+    private static final AtomicLong _hits = new AtomicLong(0);
+
+    /** The Constant _misses. */
+    private static final AtomicLong _misses = new AtomicLong(0);
+
+    /** The Constant _rebuilds. */
+    private static final AtomicLong _rebuilds = new AtomicLong(0);
+
+    /** The _version (modifications of the Destinations and Aliases when the graph was started). */
+    private static volatile long _version = -1;
+
+    /** The _started. */
+    private static volatile long _started = 0;
+
+    /**
+     * The Node. The alias options of a Destination and the Destinations it is aliased to.
+     *
+     * @param data
+     *            the data of the Destination used to build the node
+     * @param setup
+     *            the alias setup (read only)
+     * @param aliases
+     *            the aliases
+     */
+    record Node(String data, ECtransSetup setup, Destination[] aliases) {
+    }
+
+    /**
+     * The Interface Source. Where the Destinations and their Aliases are loaded from.
+     */
+    interface Source {
+        /**
+         * Gets the version (number of modifications of the Destinations and Aliases).
+         *
+         * @return the version
+         */
+        long getVersion();
+
+        /**
+         * Gets the Destination and the Destinations it is aliased to (the Destination is the first in the list).
+         *
+         * @param name
+         *            the name of the Destination
+         *
+         * @return the destinations
+         *
+         * @throws DataBaseException
+         *             the data base exception
+         */
+        Destination[] getDestinations(String name) throws DataBaseException;
+    }
+
+    /**
+     * Instantiates a new aliases graph.
+     */
+    private AliasesGraph() {
+    }
+
+    /**
+     * Gets the source for the DataBase of the master.
+     *
+     * @param dataBase
+     *            the data base
+     *
+     * @return the source
+     */
+    static Source getSource(final ECpdsBase dataBase) {
+        return new Source() {
+            @Override
+            public long getVersion() {
+                return dataBase.getModifications(Destination.class) + dataBase.getModifications(Alias.class);
+            }
+
+            @Override
+            public Destination[] getDestinations(final String name) throws DataBaseException {
+                return dataBase.getDestinations(name);
+            }
+        };
+    }
+
+    /**
+     * Gets the node for the Destination. The graph is dropped first if a Destination or an Alias was modified since
+     * it was started.
+     *
+     * @param source
+     *            the source of the Destinations and Aliases
+     * @param destination
+     *            the destination
+     *
+     * @return the node
+     *
+     * @throws DataBaseException
+     *             the data base exception
+     */
+    static Node getNode(final Source source, final Destination destination) throws DataBaseException {
+        final var version = source.getVersion();
+        final var now = System.currentTimeMillis();
+        if (version != _version || MAX_AGE > 0 && now - _started > MAX_AGE) {
+            synchronized (_nodes) {
+                if (version != _version || MAX_AGE > 0 && now - _started > MAX_AGE) {
+                    _log.debug("Rebuilding aliases graph (version: {})", version);
+                    _nodes.clear();
+                    _rebuilds.incrementAndGet();
+                    _version = version;
+                    _started = now;
+                }
+            }
+        }
+        final var destinationName = destination.getName();
+        final var data = destination.getData();
+        var node = _nodes.get(destinationName);
+        if (node != null && Objects.equals(node.data(), data)) {
+            _hits.incrementAndGet();
+            return node;
+        }
+        _misses.incrementAndGet();
+        node = new Node(data, DESTINATION_ALIAS.getECtransSetup(data), source.getDestinations(destinationName));
+        if (version == _version) {
+            // Not recorded if the graph was dropped in the meantime!
+            _nodes.put(destinationName, node);
+        }
+        return node;
+    }
+
+    /**
+     * Check if the value is matching the regular expression of the option (as Options.matches but with a compiled
+     * pattern).
+     *
+     * @param options
+     *            the options
+     * @param option
+     *            the option
+     * @param value
+     *            the value
+     * @param defaultRegex
+     *            the default regex
+     *
+     * @return true, if successful
+     */
+    static boolean matches(final Options options, final String option, final String value,
+            final String defaultRegex) {
+        final var regex = options.get(option, defaultRegex);
+        if (regex == null || value == null) {
+            return false;
+        }
+        try {
+            var pattern = _patterns.get(regex);
+            if (pattern == null) {
+                pattern = Pattern.compile(regex);
+                if (_patterns.size() >= MAX_PATTERNS) {
+                    _patterns.clear();
+                }
+                _patterns.put(regex, pattern);
+            }
+            return pattern.matcher(value).matches();
+        } catch (final PatternSyntaxException e) {
+            _log.warn("Pattern matching {} -> {}", value, regex, e);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the date format for the pattern (one instance per thread).
+     *
+     * @param pattern
+     *            the pattern
+     *
+     * @return the date format
+     */
+    static SimpleDateFormat getDateFormat(final String pattern) {
+        return _dateFormats.get().computeIfAbsent(pattern, SimpleDateFormat::new);
+    }
+
+    /**
+     * Gets the status of the graph.
+     *
+     * @return the status
+     */
+    static String getStatus() {
+        return "nodes=" + _nodes.size() + ",hits=" + _hits.get() + ",misses=" + _misses.get() + ",rebuilds="
+                + _rebuilds.get() + ",patterns=" + _patterns.size();
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master.transfer;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import ecmwf.common.database.Destination;
+
+/**
+ * Simple manual benchmark of the AliasesParser over a synthetic graph of Destinations, which does not require a
+ * DataBase.
+ *
+ * <p>
+ * The graph is made of hubs, each aliased to a fan-out of leaves (recursive, with a pattern, an ignore rule and a
+ * target rewritten with the date), and each leaf aliased to two leaves of the next hub (not recursive). Every put
+ * selects one hub and goes through the whole alias tree. The loading of the aliases of a Destination simulates a
+ * query to the DataBase which lasts the specified number of microseconds.
+ * </p>
+ *
+ * <p>
+ * The first test drops the graph before every put, which is the cost of the AliasesParser without the graph (one query
+ * and one parsing of the alias options per level). The second test keeps the graph, as it is done as long as no
+ * Destination or Alias is modified.
+ * </p>
+ *
+ * <pre>
+ * Usage: java AliasesGraphBenchmark [destinations] [fanout] [puts] [queryMicros]
+ * </pre>
+ */
+public class AliasesGraphBenchmark {
+
+    /**
+     * The main method.
+     *
+     * @param args
+     *            the arguments
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public static void main(final String[] args) throws Exception {
+        final var destinations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        final var fanout = args.length > 1 ? Integer.parseInt(args[1]) : 49;
+        final var puts = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        final var queryMicros = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        final var source = new SyntheticSource(destinations, fanout, queryMicros);
+        System.out.println("AliasesGraph benchmark: destinations=" + source.size() + ", hubs=" + source.hubs.size()
+                + ", fanout=" + fanout + ", puts=" + puts + ", queryMicros=" + queryMicros);
+        for (final boolean graph : new boolean[] { false, true }) {
+            _puts(source, graph, puts / 10); // Warm up!
+            _puts(source, graph, puts);
+        }
+        System.out.println("  " + AliasesParser.getGraphStatus());
+    }
+
+    /**
+     * Run the specified number of puts.
+     *
+     * @param source
+     *            the source
+     * @param graph
+     *            keep the graph between the puts
+     * @param puts
+     *            the puts
+     *
+     * @throws Exception
+     *             the exception
+     */
+    private static void _puts(final SyntheticSource source, final boolean graph, final int puts) throws Exception {
+        final var queries = source.queries.get();
+        var routed = 0L;
+        final var start = System.nanoTime();
+        for (var i = 0; i < puts; i++) {
+            if (!graph) {
+                source.version.incrementAndGet();
+            }
+            final var hub = source.hubs.get(i % source.hubs.size());
+            final var parser = new AliasesParser(source, hub, "/data/20240701/product" + i + ".grib", null, 0, -1,
+                    false, false);
+            routed += parser.getDestinations().size();
+        }
+        final var duration = System.nanoTime() - start;
+        System.out.printf("  %-8s put: avg=%dus destinations=%d queries=%d%n", graph ? "graph" : "no graph",
+                duration / puts / 1000, routed / puts, (source.queries.get() - queries) / puts);
+    }
+
+    /**
+     * The Class SyntheticSource. The Destinations and Aliases of the synthetic graph.
+     */
+    private static final class SyntheticSource implements AliasesGraph.Source {
+
+        /** The version. */
+        final AtomicLong version = new AtomicLong(0);
+
+        /** The queries. */
+        final AtomicLong queries = new AtomicLong(0);
+
+        /** The hubs. */
+        final List<Destination> hubs = new ArrayList<>();
+
+        /** The aliases (the Destination first). */
+        private final Map<String, Destination[]> aliases = new HashMap<>();
+
+        /** The query nanos. */
+        private final long queryNanos;
+
+        /**
+         * Instantiates a new synthetic source.
+         *
+         * @param destinations
+         *            the destinations
+         * @param fanout
+         *            the fanout
+         * @param queryMicros
+         *            the query micros
+         */
+        SyntheticSource(final int destinations, final int fanout, final int queryMicros) {
+            queryNanos = queryMicros * 1000L;
+            final var count = Math.max(1, destinations / (fanout + 1));
+            final var leaves = new Destination[count][fanout];
+            for (var h = 0; h < count; h++) {
+                for (var l = 0; l < fanout; l++) {
+                    leaves[h][l] = new Destination("DST" + h + "X" + l);
+                }
+            }
+            for (var h = 0; h < count; h++) {
+                final var hub = new Destination("HUB" + h);
+                final var data = new StringBuilder();
+                final List<Destination> list = new ArrayList<>();
+                list.add(hub);
+                for (var l = 0; l < fanout; l++) {
+                    final var leaf = leaves[h][l];
+                    list.add(leaf);
+                    data.append("alias.").append(leaf.getName()).append(" = \"pattern=.*\\.grib,ignore=.*\\.tmp")
+                            .append(",recursive=yes,target=/").append(l).append("/$date/$name,dateformat=yyyyMMdd\"\n");
+                    // Each leaf is aliased to two leaves of the next hub!
+                    final var next = leaves[(h + 1) % count];
+                    final var leafData = "alias." + next[l].getName() + " = \"pattern=.*product.*\"\n" + "alias."
+                            + next[(l + 1) % fanout].getName() + " = \"pattern=.*\\.bufr\"\n";
+                    leaf.setData(leafData);
+                    aliases.put(leaf.getName(), new Destination[] { leaf, next[l], next[(l + 1) % fanout] });
+                }
+                hub.setData(data.toString());
+                aliases.put(hub.getName(), list.toArray(new Destination[0]));
+                hubs.add(hub);
+            }
+        }
+
+        /**
+         * Gets the number of destinations.
+         *
+         * @return the size
+         */
+        int size() {
+            return aliases.size();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Gets the version.
+         */
+        @Override
+        public long getVersion() {
+            return version.get();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Gets the destinations (simulate a query to the DataBase).
+         */
+        @Override
+        public Destination[] getDestinations(final String name) {
+            queries.incrementAndGet();
+            if (queryNanos > 0) {
+                LockSupport.parkNanos(queryNanos);
+            }
+            final var result = aliases.get(name);
+            return result != null ? result : new Destination[0];
+        }
+    }
+}
@@ -26,13 +26,10 @@ package ecmwf.ecpds.master.transfer;
  * @since 2024-07-01
  */
 
-import static ecmwf.common.ectrans.ECtransGroups.Module.DESTINATION_ALIAS;
-
 import static ecmwf.common.text.Util.isNotEmpty;
 
 import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -56,9 +53,15 @@ public final class AliasesParser {
     /** The Constant _log. */
     private static final Logger _log = LogManager.getLogger(AliasesParser.class);
 
-    /** The Constant _dataBase. */
-    private static final ECpdsBase dataBase = StarterServer.getInstance(ECaccessServer.class)
-            .getDataBase(ECpdsBase.class);
+    /**
+     * The Class MasterSource. The Destinations and Aliases of the DataBase of the master (only resolved when the first
+     * AliasesParser is created with it).
+     */
+    private static final class MasterSource {
+        /** The Constant SOURCE. */
+        static final AliasesGraph.Source SOURCE = AliasesGraph
+                .getSource(StarterServer.getInstance(ECaccessServer.class).getDataBase(ECpdsBase.class));
+    }
 
     /** The _destinations. */
     private final HashMap<String, Destination> destinations = new HashMap<>();
@@ -91,7 +94,48 @@ public final class AliasesParser {
      */
     public AliasesParser(final Destination destination, final String target, final String lifetime, final long delay,
             final int priority, final boolean asap, final boolean event) throws IOException, DataBaseException {
-        parse(destinations, rules, destination, new ArrayList<>(), target, lifetime, delay, priority, asap, event);
+        this(MasterSource.SOURCE, destination, target, lifetime, delay, priority, asap, event);
+    }
+
+    /**
+     * Instantiates a new aliases parser with the Destinations and Aliases of the specified source.
+     *
+     * @param source
+     *            the source
+     * @param destination
+     *            the destination
+     * @param target
+     *            the target
+     * @param lifetime
+     *            the lifetime
+     * @param delay
+     *            the delay
+     * @param priority
+     *            the priority
+     * @param asap
+     *            the asap
+     * @param event
+     *            the event
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     * @throws DataBaseException
+     *             the data base exception
+     */
+    AliasesParser(final AliasesGraph.Source source, final Destination destination, final String target,
+            final String lifetime, final long delay, final int priority, final boolean asap, final boolean event)
+            throws IOException, DataBaseException {
+        parse(source, destinations, rules, destination, new ArrayList<>(), target, lifetime, delay, priority, asap,
+                event);
+    }
+
+    /**
+     * Gets the status of the in-memory graph of the aliases.
+     *
+     * @return the status
+     */
+    public static String getGraphStatus() {
+        return AliasesGraph.getStatus();
     }
 
     /**
@@ -234,8 +278,12 @@ public final class AliasesParser {
     }
 
     /**
-     * Go through each Alias and if not already in the queue then process it recursively if requested.
+     * Go through each Alias and if not already in the queue then process it recursively if requested. The Aliases and
+     * options of each Destination are taken from the in-memory graph (no access to the DataBase unless the graph was
+     * updated).
      *
+     * @param source
+     *            the source
      * @param destinations
      *            the destinations
      * @param rules
@@ -262,7 +310,7 @@ public final class AliasesParser {
      * @throws DataBaseException
      *             the data base exception
      */
-    private static void parse(final HashMap<String, Destination> destinations,
+    private static void parse(final AliasesGraph.Source source, final HashMap<String, Destination> destinations,
             final HashMap<String, AliasOptions> rules, final Destination destination, final ArrayList<String> via,
             final String target, final String lifeTime, final long delay, final int priority, final boolean asap,
             final boolean event) throws IOException, DataBaseException {
@@ -270,9 +318,10 @@ public final class AliasesParser {
         _log.debug("Adding rule for {}", destinationName);
         destinations.put(destinationName, destination);
         rules.put(destinationName, new AliasOptions(via, target, lifeTime, delay, priority, asap, event));
-        final var setup = DESTINATION_ALIAS.getECtransSetup(destination.getData());
+        final var node = AliasesGraph.getNode(source, destination);
+        final var setup = node.setup();
         _log.debug("Recursive search on {} for {}", destinationName, target);
-        for (final Destination alias : dataBase.getDestinations(destinationName)) {
+        for (final Destination alias : node.aliases()) {
             // Should we alias this Data Transfer to this Destination?
             final var aliasName = alias.getName();
             if (!destinations.containsKey(aliasName)) {
@@ -289,16 +338,16 @@ public final class AliasesParser {
                 final var delta = options.get("datedelta", "0");
                 final var format = options.get("dateformat", "yyyyMMdd");
                 // Do we have a source to parse the date from?
-                final var source = options.get("datesource", null);
-                if (isNotEmpty(source)) {
+                final var dateSource = options.get("datesource", null);
+                if (isNotEmpty(dateSource)) {
                     // Let's parse the date from the source according to the
                     // provided pattern!
                     final var pattern = options.get("datepattern", format);
-                    final var simpleFormat = new SimpleDateFormat(pattern);
+                    final var simpleFormat = AliasesGraph.getDateFormat(pattern);
                     try {
-                        date = simpleFormat.parse(source).getTime();
+                        date = simpleFormat.parse(dateSource).getTime();
                     } catch (final Throwable t) {
-                        throw new IOException("parsing date in " + source);
+                        throw new IOException("parsing date in " + dateSource);
                     }
                 } else {
                     // There is no source to parse the date from so let's use
@@ -307,7 +356,8 @@ public final class AliasesParser {
                 }
                 // Let's now inject the date!
                 options.inject("$date", Format.formatTime(format, date + Format.getDuration(delta)));
-                if (options.matches("pattern", target, ".*") && !options.matches("ignore", target)) {
+                if (AliasesGraph.matches(options, "pattern", target, ".*")
+                        && !AliasesGraph.matches(options, "ignore", target, null)) {
                     // We have a new level!
                     @SuppressWarnings("unchecked")
                     final var newVia = (ArrayList<String>) via.clone();
@@ -330,8 +380,8 @@ public final class AliasesParser {
                     }
                     if (options.get("recursive", false)) {
                         // We continue to parse recursively!
-                        parse(destinations, rules, alias, newVia, newTarget, newLifeTime, delay + newDelay, newPriority,
-                                newAsap, newEvent);
+                        parse(source, destinations, rules, alias, newVia, newTarget, newLifeTime, delay + newDelay,
+                                newPriority, newAsap, newEvent);
                     } else {
                         // We stop there!
                         _log.debug("Adding rule for {}", aliasName);
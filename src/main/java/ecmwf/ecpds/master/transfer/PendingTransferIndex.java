@@ -0,0 +1,373 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.master.transfer;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ecmwf.common.database.DataTransfer;
+import ecmwf.common.database.DestinationExt;
+
+/**
+ * The Class PendingTransferIndex. In-memory index of the pending DataTransfers (WAIT or RETR) per Destination, used
+ * by the TransferScheduler to only wake up the Destinations which had a change since the last step. The index is
+ * incrementally maintained from the DataTransfer notifications and is re-synchronised with the DataBase (through the
+ * getDestinationExts request) at regular interval, which also fixes any drift in the counters.
+ */
+final class PendingTransferIndex {
+    /** The _entries. */
+    private final Map<String, Entry> _entries = new ConcurrentHashMap<>();
+
+    /** The _dirty. */
+    private final Set<String> _dirty = ConcurrentHashMap.newKeySet();
+
+    /** The _resync interval. */
+    private final long _resyncInterval;
+
+    /** The _next resync. */
+    private volatile long _nextResync = 0;
+
+    /** The _resync count. */
+    private final AtomicLong _resyncCount = new AtomicLong(0);
+
+    /** The _signal count. */
+    private final AtomicLong _signalCount = new AtomicLong(0);
+
+    /** The _drain count. */
+    private final AtomicLong _drainCount = new AtomicLong(0);
+
+    /**
+     * Instantiates a new pending transfer index.
+     *
+     * @param resyncInterval
+     *            the interval between two full re-synchronisations with the DataBase (0 to re-synchronise at every
+     *            step)
+     */
+    PendingTransferIndex(final long resyncInterval) {
+        _resyncInterval = resyncInterval;
+    }
+
+    /**
+     * The Class Entry.
+     */
+    private static final class Entry {
+        /** The pendings (DataTransfer identifier to queue time). */
+        final Map<Long, Long> pendings = new ConcurrentHashMap<>();
+
+        /** The count. */
+        int count = 0;
+
+        /**
+         * The count comes from the DataBase and the identifiers of the DataTransfers it includes are not known (a
+         * DataTransfer not in the pendings might already be counted).
+         */
+        boolean resynced = false;
+
+        /** The min queue time. */
+        long minQueueTime = Long.MAX_VALUE;
+
+        /** The due time. */
+        long dueTime = Long.MAX_VALUE;
+    }
+
+    /**
+     * Gets the entry. Create it if it does not exist yet.
+     *
+     * @param destinationName
+     *            the destination name
+     *
+     * @return the entry
+     */
+    private Entry _getEntry(final String destinationName) {
+        return _entries.computeIfAbsent(destinationName, _ -> new Entry());
+    }
+
+    /**
+     * Checks if is pending.
+     *
+     * @param transfer
+     *            the transfer
+     *
+     * @return true, if is pending
+     */
+    private static boolean _isPending(final DataTransfer transfer) {
+        final var code = transfer.getStatusCode();
+        return !transfer.getDeleted() && (StatusFactory.WAIT.equals(code) || StatusFactory.RETR.equals(code));
+    }
+
+    /**
+     * Update the index with the current status of the DataTransfer. If the DataTransfer is now pending then its
+     * Destination is marked as dirty and will be processed at the next step of the scheduler. After a
+     * re-synchronisation the count is not incremented for a DataTransfer which is not yet in the pendings, as it might
+     * already be included in the count from the DataBase (it is only kept above the number of known pendings).
+     *
+     * @param transfer
+     *            the transfer
+     *
+     * @return true, if the Destination was marked as dirty
+     */
+    boolean update(final DataTransfer transfer) {
+        final var destinationName = transfer.getDestinationName();
+        if (destinationName == null) {
+            return false;
+        }
+        _signalCount.incrementAndGet();
+        final var entry = _getEntry(destinationName);
+        final var id = transfer.getId();
+        synchronized (entry) {
+            if (_isPending(transfer)) {
+                final var queueTime = transfer.getQueueTime();
+                final var time = queueTime != null ? queueTime.getTime() : System.currentTimeMillis();
+                if (entry.pendings.put(id, time) == null) {
+                    entry.count = entry.resynced ? Math.max(entry.count, entry.pendings.size()) : entry.count + 1;
+                }
+                entry.minQueueTime = Math.min(entry.minQueueTime, time);
+                entry.dueTime = Math.min(entry.dueTime, time);
+            } else {
+                if (entry.pendings.remove(id) != null && entry.count > 0) {
+                    entry.count--;
+                }
+                return false;
+            }
+        }
+        _dirty.add(destinationName);
+        return true;
+    }
+
+    /**
+     * Notify the index that a pending DataTransfer was started by its DestinationThread, and is therefore no longer
+     * pending.
+     *
+     * @param transfer
+     *            the transfer
+     */
+    void started(final DataTransfer transfer) {
+        final var entry = _entries.get(transfer.getDestinationName());
+        if (entry != null) {
+            synchronized (entry) {
+                entry.pendings.remove(transfer.getId());
+                if (entry.count > 0) {
+                    entry.count--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Request the Destination to be processed again by the scheduler once the specified time is reached (e.g. a
+     * DataTransfer was delayed by its DestinationThread).
+     *
+     * @param destinationName
+     *            the destination name
+     * @param time
+     *            the time
+     */
+    void delay(final String destinationName, final long time) {
+        final var entry = _getEntry(destinationName);
+        synchronized (entry) {
+            entry.dueTime = Math.min(entry.dueTime, time);
+        }
+    }
+
+    /**
+     * Request the Destination to be processed at the next step of the scheduler.
+     *
+     * @param destinationName
+     *            the destination name
+     */
+    void touch(final String destinationName) {
+        _dirty.add(destinationName);
+    }
+
+    /**
+     * Force a full re-synchronisation with the DataBase at the next step of the scheduler.
+     */
+    void invalidate() {
+        _nextResync = 0;
+    }
+
+    /**
+     * Checks if a full re-synchronisation with the DataBase is required.
+     *
+     * @return true, if is resync required
+     */
+    boolean isResyncRequired() {
+        return System.currentTimeMillis() >= _nextResync;
+    }
+
+    /**
+     * Re-synchronise the index with the content of the DataBase. All the Destinations which are not in the list are
+     * considered to have no pending DataTransfers.
+     *
+     * @param destinations
+     *            the destinations with pending DataTransfers
+     *
+     * @return the destinations
+     */
+    List<DestinationExt> resync(final DestinationExt[] destinations) {
+        final Set<String> found = new HashSet<>();
+        for (final DestinationExt destination : destinations) {
+            final var name = destination.getName();
+            final var minQueueTime = destination.getMinQueueTime();
+            final var entry = _getEntry(name);
+            synchronized (entry) {
+                entry.pendings.clear();
+                entry.count = destination.getPendingTransferCount();
+                entry.resynced = true;
+                entry.minQueueTime = minQueueTime != null ? minQueueTime.getTime() : Long.MAX_VALUE;
+                entry.dueTime = entry.minQueueTime;
+            }
+            found.add(name);
+        }
+        for (final Map.Entry<String, Entry> element : _entries.entrySet()) {
+            if (!found.contains(element.getKey())) {
+                final var entry = element.getValue();
+                synchronized (entry) {
+                    entry.pendings.clear();
+                    entry.count = 0;
+                    entry.resynced = false;
+                    entry.minQueueTime = Long.MAX_VALUE;
+                    entry.dueTime = Long.MAX_VALUE;
+                }
+            }
+        }
+        _dirty.clear();
+        _resyncCount.incrementAndGet();
+        _nextResync = System.currentTimeMillis() + _resyncInterval;
+        return List.of(destinations);
+    }
+
+    /**
+     * Get and clear the list of Destinations which were marked as dirty or for which a delayed DataTransfer is now
+     * due.
+     *
+     * @return the destination names
+     */
+    List<String> drain() {
+        final var current = System.currentTimeMillis();
+        final List<String> result = new ArrayList<>();
+        for (final Map.Entry<String, Entry> element : _entries.entrySet()) {
+            final var name = element.getKey();
+            final var entry = element.getValue();
+            var due = false;
+            synchronized (entry) {
+                if (entry.dueTime <= current) {
+                    entry.dueTime = Long.MAX_VALUE;
+                    due = entry.count > 0;
+                }
+            }
+            if (_dirty.remove(name) || due) {
+                result.add(name);
+            }
+        }
+        // Destinations touched but not yet in the index!
+        for (final String name : _dirty) {
+            if (_dirty.remove(name)) {
+                result.add(name);
+            }
+        }
+        _drainCount.addAndGet(result.size());
+        return result;
+    }
+
+    /**
+     * Gets the pending count. This is an estimate between two re-synchronisations.
+     *
+     * @param destinationName
+     *            the destination name
+     *
+     * @return the pending count
+     */
+    int getPendingCount(final String destinationName) {
+        final var entry = _entries.get(destinationName);
+        if (entry == null) {
+            return 0;
+        }
+        synchronized (entry) {
+            return entry.count;
+        }
+    }
+
+    /**
+     * Gets the min queue time.
+     *
+     * @param destinationName
+     *            the destination name
+     *
+     * @return the min queue time (or Long.MAX_VALUE if not known)
+     */
+    long getMinQueueTime(final String destinationName) {
+        final var entry = _entries.get(destinationName);
+        if (entry == null) {
+            return Long.MAX_VALUE;
+        }
+        synchronized (entry) {
+            return entry.minQueueTime;
+        }
+    }
+
+    /**
+     * Gets the resync count.
+     *
+     * @return the resync count
+     */
+    long getResyncCount() {
+        return _resyncCount.get();
+    }
+
+    /**
+     * Gets the signal count.
+     *
+     * @return the signal count
+     */
+    long getSignalCount() {
+        return _signalCount.get();
+    }
+
+    /**
+     * Gets the drain count.
+     *
+     * @return the drain count
+     */
+    long getDrainCount() {
+        return _drainCount.get();
+    }
+
+    /**
+     * Gets the dirty count.
+     *
+     * @return the dirty count
+     */
+    int getDirtyCount() {
+        return _dirty.size();
+    }
+}
@@ -50,6 +50,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -135,8 +136,9 @@ public final class TransferScheduler extends MBeanScheduler {
     /** The _threads. */
     private final Map<String, DestinationThread> _threads = new ConcurrentHashMap<>();
 
-    /** The _pendings. */
-    private final Map<String, Integer> _pendings = new ConcurrentHashMap<>();
+    /** The _index. */
+    private final PendingTransferIndex _index = new PendingTransferIndex(
+            Cnf.durationAt("Scheduler", "transferSchedulerResync", Timer.ONE_MINUTE));
 
     /** The _pool size. */
     private int _poolSize = Cnf.at("TransferScheduler", "poolSize", 400);
@@ -178,6 +180,7 @@ public final class TransferScheduler extends MBeanScheduler {
     public void notifyCompletion(final DataTransfer transfer) {
         final var destination = transfer.getDestination();
         final var thread = _threads.get(destination.getName());
+        _index.update(transfer);
         if (thread == null) {
             _log.warn("DestinationThread {} not found (completion notification ignored)", destination.getName());
         } else {
@@ -207,11 +210,39 @@ public final class TransferScheduler extends MBeanScheduler {
 
     /**
      * Notify requeue.
+     *
+     * @param transfer
+     *            the transfer
      */
     public void notifyRequeue(final DataTransfer transfer) {
         final var thread = _threads.get(transfer.getDestination().getName());
         if (thread != null)
             thread.removeValue(transfer);
+        _index.update(transfer);
+        _notified = true;
+        wakeup();
+    }
+
+    /**
+     * Notify a DataTransfer update (e.g. from a DataTransferEvent). The scheduler is only woken up if the
+     * DataTransfer is now pending for its Destination.
+     *
+     * @param transfer
+     *            the transfer
+     */
+    public void notifyUpdate(final DataTransfer transfer) {
+        if (_index.update(transfer)) {
+            _notified = true;
+            wakeup();
+        }
+    }
+
+    /**
+     * Notify a product reset (e.g. from a ResetProductEvent). As we don't know which Destinations are affected, a full
+     * re-synchronisation of the pending DataTransfers is requested.
+     */
+    public void notifyReset() {
+        _index.invalidate();
         _notified = true;
         wakeup();
     }
@@ -415,8 +446,7 @@ public final class TransferScheduler extends MBeanScheduler {
      * @return the pending data transfers count
      */
     public int getPendingDataTransfersCount(final String destinationName) {
-        final var count = _pendings.get(destinationName);
-        return count != null ? count : 0;
+        return _index.getPendingCount(destinationName);
     }
 
     /**
@@ -575,6 +605,30 @@ public final class TransferScheduler extends MBeanScheduler {
         return _monitoringThread;
     }
 
+    /**
+     * Gets the destinations to process. The full list of Destinations with pending DataTransfers is only requested
+     * from the DataBase when a re-synchronisation of the index is due, otherwise only the Destinations which were
+     * notified since the last step (or which have delayed DataTransfers now due) are returned.
+     *
+     * @return the destinations to process
+     */
+    private List<DestinationExt> _getDestinationsToProcess() {
+        if (_index.isResyncRequired()) {
+            return _index.resync(BASE.getDestinationExts());
+        }
+        final List<DestinationExt> destinations = new ArrayList<>();
+        for (final String name : _index.drain()) {
+            try {
+                final var minQueueTime = _index.getMinQueueTime(name);
+                destinations.add(new DestinationExt(BASE.getDestination(name), _index.getPendingCount(name),
+                        new Timestamp(minQueueTime == Long.MAX_VALUE ? System.currentTimeMillis() : minQueueTime)));
+            } catch (final DataBaseException e) {
+                _log.warn("Destination {} not found (ignored)", name, e);
+            }
+        }
+        return destinations;
+    }
+
     /**
      * Next step.
      *
@@ -583,16 +637,13 @@ public final class TransferScheduler extends MBeanScheduler {
     @Override
     public int nextStep() {
         _notified = false;
-        final List<String> remainingDestination = new ArrayList<>(_pendings.keySet());
         final var referenceTime = System.currentTimeMillis() + 2 * Timer.ONE_MINUTE;
-        for (final DestinationExt destination : BASE.getDestinationExts()) {
+        for (final DestinationExt destination : _getDestinationsToProcess()) {
             if (!isRunning()) {
                 break;
             }
             final var code = destination.getStatusCode();
             final var name = destination.getName();
-            remainingDestination.remove(name);
-            _pendings.put(name, destination.getPendingTransferCount());
             if (!StatusFactory.EXEC.equals(code) && !StatusFactory.WAIT.equals(code)) {
                 continue;
             }
@@ -657,9 +708,6 @@ public final class TransferScheduler extends MBeanScheduler {
                 }
             }
         }
-        for (final String destination : remainingDestination) {
-            _pendings.put(destination, 0);
-        }
         return _notified ? NEXT_STEP_CONTINUE : NEXT_STEP_DELAY;
     }
 
@@ -2471,8 +2519,21 @@ public final class TransferScheduler extends MBeanScheduler {
     public MBeanInfo getMBeanInfo() {
         return MBeanManager.addMBeanInfo(super.getMBeanInfo(),
                 "This MBean provides operations to monitor and manage " + "the TransferScheduler",
-                new MBeanAttributeInfo[] { new MBeanAttributeInfo("DebugScheduler", "java.lang.Boolean",
-                        "DebugScheduler: display debug informations in the log file.", true, true, false) },
+                new MBeanAttributeInfo[] {
+                        new MBeanAttributeInfo("DebugScheduler", "java.lang.Boolean",
+                                "DebugScheduler: display debug informations in the log file.", true, true, false),
+                        new MBeanAttributeInfo("IndexResyncCount", "java.lang.Long",
+                                "IndexResyncCount: number of re-synchronisations of the pending index.", true, false,
+                                false),
+                        new MBeanAttributeInfo("IndexSignalCount", "java.lang.Long",
+                                "IndexSignalCount: number of DataTransfer notifications received by the pending index.",
+                                true, false, false),
+                        new MBeanAttributeInfo("IndexDrainCount", "java.lang.Long",
+                                "IndexDrainCount: number of Destinations processed on notification.", true, false,
+                                false),
+                        new MBeanAttributeInfo("IndexDirtyCount", "java.lang.Integer",
+                                "IndexDirtyCount: number of Destinations waiting to be processed.", true, false,
+                                false) },
                 new MBeanOperationInfo[0]);
     }
 
@@ -2495,6 +2556,18 @@ public final class TransferScheduler extends MBeanScheduler {
             if ("DebugScheduler".equals(attributeName)) {
                 return _debug;
             }
+            if ("IndexResyncCount".equals(attributeName)) {
+                return _index.getResyncCount();
+            }
+            if ("IndexSignalCount".equals(attributeName)) {
+                return _index.getSignalCount();
+            }
+            if ("IndexDrainCount".equals(attributeName)) {
+                return _index.getDrainCount();
+            }
+            if ("IndexDirtyCount".equals(attributeName)) {
+                return _index.getDirtyCount();
+            }
         } catch (final Exception e) {
             _log.warn("Getting an MBean attribute", e);
             throw new MBeanException(e);
@@ -2550,6 +2623,12 @@ public final class TransferScheduler extends MBeanScheduler {
         /** Cache of status per Destination. */
         final Map<String, CacheElement> _cache = new ConcurrentHashMap<>();
 
+        /** Number of bad DataTransfers per Destination (counted for all the Destinations at once). */
+        Map<String, Integer> _badCounts = null;
+
+        /** Time of the last count of bad DataTransfers. */
+        long _badCountsTime = 0;
+
         /** Allow stopping the Thread. */
         boolean _run = true;
 
@@ -2761,7 +2840,7 @@ public final class TransferScheduler extends MBeanScheduler {
                         }
                     }
                     if (status != MonitorManager.RED) {
-                        final var size = BASE.getBadDataTransfersByDestinationCount(destinationName);
+                        final var size = _getBadDataTransfersCount(destinationName);
                         if (size > 0) {
                             // Outstanding files are there
                             result.setStatus(MonitorManager.YELLOW);
@@ -2784,6 +2863,44 @@ public final class TransferScheduler extends MBeanScheduler {
             return result;
         }
 
+        /**
+         * Gets the number of bad DataTransfers for the Destination.
+         *
+         * @param destinationName
+         *            the destination name
+         *
+         * @return the bad data transfers count
+         *
+         * @throws DataBaseException
+         *             the data base exception
+         */
+        private int _getBadDataTransfersCount(final String destinationName) throws DataBaseException {
+            final var count = getBadDataTransfersCounts().get(destinationName);
+            return count != null ? count : 0;
+        }
+
+        /**
+         * Gets the number of bad DataTransfers per Destination. The bad DataTransfers are counted for all the
+         * Destinations with a single request, which is done again only once the counts are older than the monitoring
+         * delay (so at most once per cycle of the MonitorThread). The counts are shared with the MonitoringSnapshot.
+         *
+         * @return the bad data transfers counts
+         *
+         * @throws DataBaseException
+         *             the data base exception
+         */
+        public Map<String, Integer> getBadDataTransfersCounts() throws DataBaseException {
+            synchronized (_cache) {
+                final var now = System.currentTimeMillis();
+                if (_badCounts == null || now - _badCountsTime >= Cnf.durationAt("TransferScheduler",
+                        "monitoringBadCountsMaxAge", MonitorManager.getDelay() / 2)) {
+                    _badCounts = BASE.getBadDataTransfersCount();
+                    _badCountsTime = now;
+                }
+                return _badCounts;
+            }
+        }
+
         /**
          * Shutdown.
          */
@@ -2858,6 +2975,9 @@ public final class TransferScheduler extends MBeanScheduler {
         /** The _reset. */
         private boolean _reset = false;
 
+        /** The _has more. */
+        private volatile boolean _hasMore = false;
+
         /** The _re schedule. */
         private boolean _reSchedule = false;
 
@@ -3089,6 +3209,9 @@ public final class TransferScheduler extends MBeanScheduler {
                     reset();
                 }
             }
+            if (start) {
+                _index.started(transfer);
+            }
             if (start || retry || stop || done) {
                 final var action = start ? "started" : retry || stop ? "failed" : "completed";
                 _log.debug("DataTransfer " + transfer.getId() + " " + action + " on " + transfer.getTransferServerName()
@@ -3286,6 +3409,7 @@ public final class TransferScheduler extends MBeanScheduler {
          */
         public void loadPendingDataTransfers() {
             final Collection<DataTransfer> transfers = BASE.getPendingDataTransfers(_destination, _queueSize);
+            _hasMore = transfers.size() >= _queueSize;
             synchronized (_transfers) {
                 _transfers.clear();
                 _transfers.addAll(transfers);
@@ -3357,9 +3481,15 @@ public final class TransferScheduler extends MBeanScheduler {
                         }
                         put(fromCache);
                         _performed++;
-                    } else if (_debug) {
-                        _log.debug("Transfer: " + transferId + " (" + transfer.getStatusCode() + ") (code=" + code
-                                + ",inQueue=" + inQueue + ",inCache=" + inCache + ",inTime=" + inTime + ")");
+                    } else {
+                        if (!inTime) {
+                            _index.delay(_destination.getName(), transfer.getRetryTime().getTime());
+                        }
+                        if (_debug) {
+                            _log.debug("Transfer: " + transferId + " (" + transfer.getStatusCode() + ") (code="
+                                    + code + ",inQueue=" + inQueue + ",inCache=" + inCache + ",inTime=" + inTime
+                                    + ")");
+                        }
                     }
                 }
                 if (_performed > 0) {
@@ -3427,6 +3557,13 @@ public final class TransferScheduler extends MBeanScheduler {
             final var transfersList = getList();
             if (transfersList.size() == 0) {
                 _destinationStep = DestinationStep.DESTINATION_STEP_NO_TRANSFER;
+                if (_hasMore) {
+                    // The last load was limited by the queue size so let's ask
+                    // the scheduler for the next batch!
+                    _hasMore = false;
+                    _index.touch(_destination.getName());
+                    TransferScheduler.this.wakeup();
+                }
                 if (_provider.getTransferCount() == 0) {
                     if (_inactivity == -1) {
                         _inactivity = System.currentTimeMillis();
@@ -3488,6 +3625,7 @@ public final class TransferScheduler extends MBeanScheduler {
                     || StatusFactory.STOP.equals(transferStatus) || (delayed = queueTime > currentTime)) {
                 removeValue(_currentTransfer);
                 if (delayed) {
+                    _index.delay(_destination.getName(), queueTime);
                     _log.debug("DataTransfer " + _currentTransfer.getId() + " was delayed (next start: "
                             + Format.formatTime(queueTime) + ")");
                 }
@@ -3842,14 +3980,14 @@ public final class TransferScheduler extends MBeanScheduler {
             final var dataFile1 = transfer1.getDataFile();
             final var dataFile2 = transfer2.getDataFile();
             try {
-                final var sb = new StringBuilder(option);
-                Format.replaceAll(sb, "$time2", dataFile2.getTimeFile().getTime());
-                Format.replaceAll(sb, "$size2", dataFile2.getSize());
-                Format.replaceAll(sb, "$time1", dataFile1.getTimeFile().getTime());
-                Format.replaceAll(sb, "$size1", dataFile1.getSize());
-                Format.replaceAll(sb, "$destination", _destination.getName());
-                Format.replaceAll(sb, "$target", target);
-                return ScriptManager.exec(Boolean.class, ScriptManager.JS, sb.toString());
+                final Map<String, Object> parameters = new LinkedHashMap<>();
+                parameters.put("$time2", dataFile2.getTimeFile().getTime());
+                parameters.put("$size2", dataFile2.getSize());
+                parameters.put("$time1", dataFile1.getTimeFile().getTime());
+                parameters.put("$size1", dataFile1.getSize());
+                parameters.put("$destination", _destination.getName());
+                parameters.put("$target", target);
+                return ScriptManager.execTemplate(Boolean.class, ScriptManager.JS, option, parameters, false);
             } catch (final Throwable t) {
                 _log.warn("Checking duplicates for DataTransfer-" + transfer1.getId(), t);
             }
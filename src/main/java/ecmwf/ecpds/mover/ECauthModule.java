@@ -65,6 +65,7 @@ import java.net.SocketTimeoutException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -740,10 +741,10 @@ public final class ECauthModule extends ProxyModule {
             // Let's now execute the command as requested!
             final String command;
             try {
-                final var sb = new StringBuilder(execCmd);
-                Format.replaceAll(sb, "$filepath", currentWorkingDirectory + target);
-                Format.replaceAll(sb, "$filename", new File(target).getName());
-                command = Format.choose(sb.toString());
+                final Map<String, Object> parameters = new LinkedHashMap<>();
+                parameters.put("$filepath", currentWorkingDirectory + target);
+                parameters.put("$filename", new File(target).getName());
+                command = Format.choose(execCmd, parameters);
             } catch (final DuplicatedChooseScore e) {
                 throw new IOException("Could not compute exec command (multiple choices selected)");
             } catch (final ScriptException e) {
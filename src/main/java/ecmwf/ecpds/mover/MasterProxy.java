@@ -54,6 +54,29 @@ public interface MasterProxy {
      */
     void updateDataTransfers(DataTransfer[] transfers) throws Exception;
 
+    /**
+     * Checks if the compact progress records are supported by this proxy. If not then the DataTransfers are sent
+     * with the updateDataTransfers method.
+     *
+     * @return true, if the updateDataTransferProgress method is supported
+     */
+    default boolean supportsProgress() {
+        return true;
+    }
+
+    /**
+     * Update data transfer progress. Only called when the supportsProgress method returns true.
+     *
+     * @param progress
+     *            the encoded progress records
+     *
+     * @return the epoch of the MasterServer
+     *
+     * @throws java.lang.Exception
+     *             the exception
+     */
+    long updateDataTransferProgress(byte[] progress) throws Exception;
+
     /**
      * Update download progress.
      *
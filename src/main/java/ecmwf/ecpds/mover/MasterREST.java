@@ -52,6 +52,9 @@ final class MasterREST implements MasterProxy {
     /** The Constant _log. */
     private static final Logger _log = LogManager.getLogger(MasterREST.class);
 
+    /** The progress records are only sent when all the relay DataMovers support them. */
+    private static final boolean progress = Cnf.at("MasterREST", "progress", false);
+
     /** The _rest. */
     private final RESTInterface _rest;
 
@@ -109,6 +112,26 @@ final class MasterREST implements MasterProxy {
         _rest.updateDataTransfers(Arrays.asList(transfers));
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Supports progress (by default the ProxyHost is sending the DataTransfers in JSON).
+     */
+    @Override
+    public boolean supportsProgress() {
+        return progress;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Update data transfer progress.
+     */
+    @Override
+    public long updateDataTransferProgress(final byte[] progress) throws Exception {
+        return _rest.updateDataTransferProgress(progress);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -82,6 +82,16 @@ final class MasterRMI implements MasterProxy {
         _mover.getMasterInterface().updateDataTransfers(transfers);
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * Update data transfer progress.
+     */
+    @Override
+    public long updateDataTransferProgress(final byte[] progress) throws Exception {
+        return _mover.getMasterInterface().updateDataTransferProgress(progress);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -53,6 +53,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -61,12 +62,15 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
 import java.rmi.RemoteException;
+import java.rmi.UnmarshalException;
 import java.sql.Timestamp;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.concurrent.ThreadLocalRandom;
@@ -130,6 +134,7 @@ import ecmwf.common.ectrans.ECtransRmdir;
 import ecmwf.common.ectrans.ECtransSetup;
 import ecmwf.common.ectrans.ECtransSize;
 import ecmwf.common.ectrans.NotificationInterface;
+import ecmwf.common.ectrans.RemoteDirectoryCache;
 import ecmwf.common.ectrans.TransferModule;
 import ecmwf.common.mbean.MBeanManager;
 import ecmwf.common.monitor.MonitorCallback;
@@ -139,6 +144,8 @@ import ecmwf.common.monitor.MonitorThread;
 import ecmwf.common.rmi.ClientSocketStatistics;
 import ecmwf.common.rmi.SocketConfig;
 import ecmwf.common.rmi.interruptible.InterruptibleInputStream;
+import ecmwf.common.rmi.interruptible.InterruptibleRMIServerSocket;
+import ecmwf.common.ssh.MinaFileSystemAccessor;
 import ecmwf.common.starter.Starter;
 import ecmwf.common.technical.BoundedInputStream;
 import ecmwf.common.technical.ByteSize;
@@ -159,6 +166,7 @@ import ecmwf.common.technical.StreamManagerImp;
 import ecmwf.common.technical.StreamPlugThread;
 import ecmwf.common.technical.Synchronized;
 import ecmwf.common.technical.ThreadService;
+import ecmwf.common.technical.TokenBucket;
 import ecmwf.common.technical.ThreadService.ConfigurableLoopRunnable;
 import ecmwf.common.technical.ThreadService.ConfigurableRunnable;
 import ecmwf.common.text.Format;
@@ -166,6 +174,7 @@ import ecmwf.common.text.Format.DuplicatedChooseScore;
 import ecmwf.common.text.Options;
 import ecmwf.common.version.Version;
 import ecmwf.ecpds.master.DataAccessInterface;
+import ecmwf.ecpds.master.DataTransferProgress;
 import ecmwf.ecpds.master.DownloadProgress;
 import ecmwf.ecpds.master.MasterConnection;
 import ecmwf.ecpds.master.MasterException;
@@ -188,6 +197,9 @@ public final class MoverServer extends StarterServer implements MoverInterface {
     /** The Constant operational. */
     private static final transient boolean OPERATIONAL = Cnf.at("Mover", "operational", true);
 
+    /** The volume usage (counters of bytes/files per volume of the repository). */
+    private static VolumeUsage volumeUsage = null;
+
     /** The _algorithm used for the hash of the files. */
     private static final Algorithm _algorithm = Algorithm.ADLER32;
 
@@ -324,7 +336,8 @@ public final class MoverServer extends StarterServer implements MoverInterface {
      * per-volume quota is applied to give the load balancer meaningful differentiation:
      * <ul>
      * <li>virtual total per volume = {@code diskTotal / numberOfVolumesOnThisDisk}</li>
-     * <li>virtual used per volume = recursive byte sum of the volume directory ({@code listSize()})</li>
+     * <li>virtual used per volume = bytes stored in the volume directory, as maintained by the {@link VolumeUsage}
+     * counters (a scan of the volume is only required the first time if no checkpoint is available)</li>
      * </ul>
      * This makes the WeightedAllocator aware of which volumes actually hold more data even though the underlying
      * filesystem reports identical free space for all of them.
@@ -387,13 +400,20 @@ public final class MoverServer extends StarterServer implements MoverInterface {
                     // Shared disk: use virtual per-volume quota so the load balancer can
                     // differentiate volumes that hold different amounts of data.
                     // virtualTotal = diskTotal / numberOfVolumesOnThisDisk
-                    // virtualUsed = actual bytes stored in this volume directory (recursive scan)
+                    // virtualUsed = actual bytes stored in this volume directory (incremental counters)
                     final var virtualTotal = diskTotal / indices.size();
                     for (final var idx : indices) {
                         final var vol = indexToVolume.get(idx);
                         maxCapacityPerVolume[idx] = virtualTotal;
                         try {
-                            usedPerVolume[idx] = vol.listSize();
+                            final var used = volumeUsage != null ? volumeUsage.getBytes(idx) : -1;
+                            if (used >= 0) {
+                                usedPerVolume[idx] = used;
+                            } else if (volumeUsage != null) {
+                                usedPerVolume[idx] = volumeUsage.reconcile(idx, vol.getFile());
+                            } else {
+                                usedPerVolume[idx] = vol.listSize();
+                            }
                         } catch (final IOException e) {
                             _log.warn("Cannot compute content size for {}: {}", vol.getAbsolutePath(), e.getMessage());
                         }
@@ -688,10 +708,14 @@ public final class MoverServer extends StarterServer implements MoverInterface {
                                         continue;
                                     }
                                     // This is not a valid DataFile!
+                                    final var size = volumeUsage != null && dataFile.isFile() ? dataFile.length() : -1;
                                     final var deleted = dataFile.delete();
                                     _log.debug("Deleting file {} (not a valid DataFile): {}", path, deleted);
                                     if (deleted) {
                                         filesDeleted++;
+                                        if (size >= 0) {
+                                            volumeUsage.update(path, -size, -1);
+                                        }
                                     }
                                 }
                                 // Let's remove the dataStep directory if all
@@ -809,6 +833,175 @@ public final class MoverServer extends StarterServer implements MoverInterface {
             setException(currentPath);
         }
 
+        /**
+         * Gets the size of the file if it is in a volume of the repository.
+         *
+         * @return the size of the file or -1 if it does not exist (or is not in a volume)
+         */
+        private long _getVolumeFileSize() {
+            if (volumeUsage == null || volumeUsage.getVolumeIndex(getAbsolutePath()) < 0) {
+                return -1;
+            }
+            try {
+                final var file = super.getGenericFile().getFile();
+                return file.isFile() ? file.length() : -1;
+            } catch (final Throwable t) {
+                return -1;
+            }
+        }
+
+        /**
+         * Update the usage of the volume of the file after it was modified.
+         *
+         * @param before
+         *            the size of the file before the modification (-1 if it did not exist)
+         */
+        private void _updateVolumeUsage(final long before) {
+            final var after = _getVolumeFileSize();
+            if (volumeUsage != null && (before >= 0 || after >= 0)) {
+                volumeUsage.update(getAbsolutePath(), Math.max(after, 0) - Math.max(before, 0),
+                        (after >= 0 ? 1 : 0) - (before >= 0 ? 1 : 0));
+            }
+        }
+
+        /**
+         * Receive file.
+         *
+         * @param in
+         *            the in
+         * @param size
+         *            the size
+         *
+         * @return the long
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        @Override
+        public long receiveFile(final InputStream in, final long size) throws IOException {
+            final var before = _getVolumeFileSize();
+            try {
+                return super.receiveFile(in, size);
+            } finally {
+                _updateVolumeUsage(before);
+            }
+        }
+
+        /**
+         * Gets the output stream.
+         *
+         * @return the output stream
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            final var before = _getVolumeFileSize();
+            return _getVolumeOutputStream(super.getOutputStream(), before);
+        }
+
+        /**
+         * Gets the output stream.
+         *
+         * @param append
+         *            the append
+         *
+         * @return the output stream
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        @Override
+        public OutputStream getOutputStream(final boolean append) throws IOException {
+            final var before = _getVolumeFileSize();
+            return _getVolumeOutputStream(super.getOutputStream(append), before);
+        }
+
+        /**
+         * Wrap the output stream to update the usage of the volume when it is closed.
+         *
+         * @param out
+         *            the out
+         * @param before
+         *            the size of the file before it was opened (-1 if it did not exist)
+         *
+         * @return the output stream
+         */
+        private OutputStream _getVolumeOutputStream(final OutputStream out, final long before) {
+            if (volumeUsage == null || volumeUsage.getVolumeIndex(getAbsolutePath()) < 0) {
+                return out;
+            }
+            return new FilterOutputStream(out) {
+                /** The closed. */
+                private boolean closed = false;
+
+                @Override
+                public void write(final byte[] b, final int off, final int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        if (!closed) {
+                            closed = true;
+                            _updateVolumeUsage(before);
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * Delete.
+         *
+         * @return true, if successful
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        @Override
+        public boolean delete() throws IOException {
+            final var before = _getVolumeFileSize();
+            final var deleted = super.delete();
+            if (deleted && before >= 0) {
+                volumeUsage.update(getAbsolutePath(), -before, -1);
+            }
+            return deleted;
+        }
+
+        /**
+         * Rename to.
+         *
+         * @param path
+         *            the path
+         *
+         * @return true, if successful
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        @Override
+        public boolean renameTo(final String path) throws IOException {
+            final var before = _getVolumeFileSize();
+            final var renamed = super.renameTo(path);
+            if (renamed && volumeUsage != null) {
+                if (before >= 0) {
+                    volumeUsage.move(getAbsolutePath(), path, before);
+                } else {
+                    // The file was not in a volume of the repository!
+                    final var file = new File(path);
+                    if (file.isFile()) {
+                        volumeUsage.update(path, file.length(), 1);
+                    }
+                }
+            }
+            return renamed;
+        }
+
         /**
          * Gets the generic file.
          *
@@ -1102,6 +1295,12 @@ public final class MoverServer extends StarterServer implements MoverInterface {
         container.startPlugins();
         fileCheckerMonitor = new FileCheckerMonitor();
         fileCheckerMonitor.start();
+        final var repository = getRepository();
+        if (repository != null && Cnf.at("VolumeUsage", "enabled", true)) {
+            volumeUsage = new VolumeUsage(repository,
+                    Cnf.at("VolumeUsage", "checkpoint", repository + File.separator + ".volumeUsage"));
+            volumeUsage.start();
+        }
         if (masterManager != null) {
             // Directly connected to the MasterServer!
             masterManager.setStarted(true);
@@ -1427,11 +1626,40 @@ public final class MoverServer extends StarterServer implements MoverInterface {
                                 "IncomingConnections: list of all incoming connections.", true, false, false),
                         new MBeanAttributeInfo("SynchronizedCount", "java.lang.Long",
                                 "SynchronizedCount: total number of elements for all instances of Synchronized.", true,
+                                false, false),
+                        new MBeanAttributeInfo("VolumeUsage", "java.lang.String",
+                                "VolumeUsage: bytes and files stored in each volume of the repository.", true, false,
+                                false),
+                        new MBeanAttributeInfo("BandwidthClasses", "java.lang.String",
+                                "BandwidthClasses: rate, current rate and utilisation of each bandwidth class.", true,
+                                false, false),
+                        new MBeanAttributeInfo("RemoteDirectoryCache", "java.lang.String",
+                                "RemoteDirectoryCache: round trips avoided by the ftp/ftps/sftp directory caches.",
+                                true, false, false),
+                        new MBeanAttributeInfo("SftpReadWindow", "java.lang.String",
+                                "SftpReadWindow: streams opened and reopened for the downloads of the sftp server.",
+                                true, false, false),
+                        new MBeanAttributeInfo("FilterStatistics", "java.lang.String",
+                                "FilterStatistics: throughput and compression ratio of the DataFile filters.", true,
+                                false, false),
+                        new MBeanAttributeInfo("InterruptibleMonitor", "java.lang.String",
+                                "InterruptibleMonitor: RMI sockets and streams watched for client disconnection.", true,
                                 false, false) },
                 new MBeanOperationInfo[] {
                         new MBeanOperationInfo("purgeAllDirectories",
                                 "purgeAllDirectories(): remove expired files from all directories",
                                 new MBeanParameterInfo[0], "java.lang.Boolean", MBeanOperationInfo.ACTION),
+                        new MBeanOperationInfo("reconcileVolumeUsage",
+                                "reconcileVolumeUsage(): scan the volumes to reconcile the volume usage counters",
+                                new MBeanParameterInfo[0], "java.lang.Boolean", MBeanOperationInfo.ACTION),
+                        new MBeanOperationInfo("setBandwidthRate",
+                                "setBandwidthRate(path,rate,burst): set the rate and burst of a bandwidth class",
+                                new MBeanParameterInfo[] {
+                                        new MBeanParameterInfo("path", "java.lang.String",
+                                                "class path (e.g. mover/network.INTERNET)"),
+                                        new MBeanParameterInfo("rate", "java.lang.String", "rate per second (e.g. 10MB)"),
+                                        new MBeanParameterInfo("burst", "java.lang.String", "burst (e.g. 1MB)") },
+                                "java.lang.Boolean", MBeanOperationInfo.ACTION),
                         new MBeanOperationInfo("closeIncomingConnection",
                                 "closeIncomingConnection(id): close incoming connection",
                                 new MBeanParameterInfo[] {
@@ -1505,6 +1733,24 @@ public final class MoverServer extends StarterServer implements MoverInterface {
             if ("Connected".equals(attributeName)) {
                 return masterManager != null && masterManager.isConnected();
             }
+            if ("VolumeUsage".equals(attributeName)) {
+                return volumeUsage != null ? volumeUsage.toString() : "disabled";
+            }
+            if ("BandwidthClasses".equals(attributeName)) {
+                return TokenBucket.getRoot().getStatus();
+            }
+            if ("RemoteDirectoryCache".equals(attributeName)) {
+                return RemoteDirectoryCache.getStatus();
+            }
+            if ("SftpReadWindow".equals(attributeName)) {
+                return MinaFileSystemAccessor.getReadStatus();
+            }
+            if ("FilterStatistics".equals(attributeName)) {
+                return StreamManagerImp.getFilterStatistics();
+            }
+            if ("InterruptibleMonitor".equals(attributeName)) {
+                return InterruptibleRMIServerSocket.getMonitorStatus();
+            }
         } catch (final Exception e) {
             _log.warn("Getting an MBean attribute", e);
             throw new MBeanException(e);
@@ -1537,6 +1783,21 @@ public final class MoverServer extends StarterServer implements MoverInterface {
                 purge();
                 return Boolean.TRUE;
             }
+            if ("reconcileVolumeUsage".equals(operationName) && signature.length == 0) {
+                if (volumeUsage == null) {
+                    return Boolean.FALSE;
+                }
+                volumeUsage.reconcileAll();
+                return Boolean.TRUE;
+            }
+            if ("setBandwidthRate".equals(operationName) && signature.length == 3) {
+                final var bucket = TokenBucket.getRoot().find((String) params[0]);
+                if (bucket == null) {
+                    return Boolean.FALSE;
+                }
+                bucket.setRate(ByteSize.parse((String) params[1]).size(), ByteSize.parse((String) params[2]).size());
+                return Boolean.TRUE;
+            }
             if ("closeIncomingConnection".equals(operationName) && signature.length == 1
                     && "java.lang.String".equals(signature[0])) {
                 return closeIncomingConnection((String) params[0]);
@@ -1697,6 +1958,7 @@ public final class MoverServer extends StarterServer implements MoverInterface {
             Checksum checksumFiltered = null;
             dataFile.setChecksum(null);
             var size = 0L;
+            final var start = System.currentTimeMillis();
             try {
                 fis = in.getInputStream();
                 fos = tmp.getOutputStream();
@@ -1769,6 +2031,8 @@ public final class MoverServer extends StarterServer implements MoverInterface {
                     _log.info("DataFile {} filtered: {}{}", dataFile.getId(), outFileName,
                             remove ? " (to be removed)" : "");
                     dataFile.setFilterSize(out.length());
+                    StreamManagerImp.recordFilter(filter, size, dataFile.getFilterSize(),
+                            System.currentTimeMillis() - start);
                     if (remove && !out.delete()) {
                         _log.warn("DataFile {} filtered file NOT deleted as requested: {}", dataFile.getId(),
                                 outFileName);
@@ -3347,6 +3611,9 @@ public final class MoverServer extends StarterServer implements MoverInterface {
         if (fileCheckerMonitor != null) {
             fileCheckerMonitor.stop();
         }
+        if (volumeUsage != null) {
+            volumeUsage.stop();
+        }
         if (masterManager != null) {
             masterManager.shutdown();
         }
@@ -3563,12 +3830,12 @@ public final class MoverServer extends StarterServer implements MoverInterface {
             final var hostSelector = setup.getString(HOST_ECTRANS_HOST_SELECTOR);
             if (isNotEmpty(hostSelector)) {
                 try {
-                    final var sb = new StringBuilder(hostSelector);
-                    Format.replaceAll(sb, "$mover", getRoot());
-                    Format.replaceAll(sb, "$host", host.getHost());
-                    Format.replaceAll(sb, "$network", host.getNetworkName());
-                    Format.replaceAll(sb, "$group", host.getTransferGroupName());
-                    hostName = Format.choose(sb.toString());
+                    final Map<String, Object> parameters = new LinkedHashMap<>();
+                    parameters.put("$mover", getRoot());
+                    parameters.put("$host", host.getHost());
+                    parameters.put("$network", host.getNetworkName());
+                    parameters.put("$group", host.getTransferGroupName());
+                    hostName = Format.choose(hostSelector, parameters);
                     _log.debug("Using alternative hostname: {}", hostName);
                 } catch (final DuplicatedChooseScore e) {
                     throw new ECtransException("Could not resolve host field (multiple choices selected)");
@@ -4262,6 +4529,22 @@ public final class MoverServer extends StarterServer implements MoverInterface {
             return _name;
         }
 
+        /**
+         * Gets the token bucket of the destination, under the bucket of the network of the host.
+         *
+         * @return the token bucket
+         */
+        @Override
+        public TokenBucket getTokenBucket() {
+            final var host = _transfer != null ? _transfer.getHost() : null;
+            if (host == null) {
+                return null;
+            }
+            final var network = host.getNetworkCode();
+            return TokenBucket.getRoot().getChild("network", isNotEmpty(network) ? network : "default")
+                    .getChild("destination", _transfer.getDestinationName());
+        }
+
         /**
          * Sets the MS user.
          *
@@ -5290,8 +5573,14 @@ public final class MoverServer extends StarterServer implements MoverInterface {
      * The Class TransferRepository.
      */
     private final class TransferRepository extends MBeanRepository<DataTransfer> {
-        /** The _list. */
-        private final List<DataTransfer> _list = new ArrayList<>();
+        /** The _pending transfers (not yet sent to the master, coalesced by id). */
+        private final Map<Long, DataTransfer> _pending = new LinkedHashMap<>();
+
+        /** The _encoder (for the progress records). */
+        private final DataTransferProgress.Encoder _encoder = new DataTransferProgress.Encoder();
+
+        /** The _progress (send the progress records rather than the DataTransfers). */
+        private boolean _progress = Cnf.at("Scheduler", "transferProgress", true);
 
         /**
          * Instantiates a new transfer repository.
@@ -5356,7 +5645,7 @@ public final class MoverServer extends StarterServer implements MoverInterface {
         @Override
         public void clear() {
             super.clear();
-            _list.clear();
+            _pending.clear();
         }
 
         /**
@@ -5370,17 +5659,17 @@ public final class MoverServer extends StarterServer implements MoverInterface {
                 return NEXT_STEP_DELAY;
             }
             for (final DataTransfer transfer : getList()) {
-                if (!_list.contains(transfer)) {
-                    _list.add(transfer);
-                }
+                _pending.putIfAbsent(transfer.getId(), transfer);
             }
-            final var size = _list.size();
+            final var size = _pending.size();
             if (size > 0) {
-                final var array = _list.toArray(new DataTransfer[size]);
+                final var array = _pending.values().toArray(new DataTransfer[size]);
                 synchronized (transferRepository) {
                     try {
-                        getMasterProxy().updateDataTransfers(array);
-                        _list.clear();
+                        if (!_progress || !updateDataTransferProgress(array)) {
+                            getMasterProxy().updateDataTransfers(array);
+                        }
+                        _pending.clear();
                     } catch (final Exception e) {
                         _log.warn("updateDataTransfers", e);
                         return NEXT_STEP_DELAY;
@@ -5393,6 +5682,71 @@ public final class MoverServer extends StarterServer implements MoverInterface {
             return NEXT_STEP_DELAY;
         }
 
+        /**
+         * Send the progress of the DataTransfers to the master (only the DataTransfers and the fields which have
+         * changed since the last update are sent). If the master was restarted since the last update then all the
+         * fields are sent again.
+         *
+         * @param transfers
+         *            the transfers
+         *
+         * @return true, if successful (false if the master does not support the progress records)
+         *
+         * @throws Exception
+         *             the exception
+         */
+        private boolean updateDataTransferProgress(final DataTransfer[] transfers) throws Exception {
+            final var proxy = getMasterProxy();
+            if (!proxy.supportsProgress()) {
+                return false;
+            }
+            for (var attempt = 0; attempt < 2; attempt++) {
+                final var progress = _encoder.encode(Arrays.asList(transfers));
+                if (progress == null) {
+                    return true; // Nothing has changed!
+                }
+                final long epoch;
+                try {
+                    epoch = proxy.updateDataTransferProgress(progress);
+                } catch (final RemoteException e) {
+                    if (!isUnknownMethod(e)) {
+                        throw e;
+                    }
+                    // The master is running a version without the progress records (unrecognized method hash)
+                    _log.info("Progress records not supported by the master (sending the DataTransfers)");
+                    _progress = false;
+                    return false;
+                }
+                if (_encoder.acknowledge(epoch)) {
+                    _log.debug("Progress sent for {} DataTransfer(s) ({} bytes)", transfers.length, progress.length);
+                    return true;
+                }
+                _log.info("MasterServer restarted (sending all the progress fields)");
+            }
+            return false;
+        }
+
+        /**
+         * Checks if the RemoteException was thrown because the method is not known by the remote object. The
+         * UnmarshalException is wrapped in a ServerException when it is thrown on the server side. Any other
+         * UnmarshalException (e.g. error unmarshalling return on a dropped connection) is not related to the version
+         * of the master.
+         *
+         * @param e
+         *            the exception
+         *
+         * @return true, if the method is not known by the master
+         */
+        private static boolean isUnknownMethod(final RemoteException e) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof UnmarshalException && t.getMessage() != null
+                        && t.getMessage().contains("unrecognized method hash")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         /**
          * Del data transfer.
          *
@@ -199,6 +199,19 @@ public interface RESTInterface {
      */
     void updateDataTransfers(List<DataTransfer> transfers) throws Exception;
 
+    /**
+     * Requests an update of the transfers on the master with the encoded progress records.
+     *
+     * @param progress
+     *            the encoded progress records
+     *
+     * @return the epoch of the master
+     *
+     * @throws java.lang.Exception
+     *             the exception
+     */
+    long updateDataTransferProgress(byte[] progress) throws Exception;
+
     /**
      * Sends a message to Monitor.
      *
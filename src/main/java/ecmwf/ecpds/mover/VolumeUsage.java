@@ -0,0 +1,418 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.mover;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ * @version 6.7.7
+ * @since 2024-07-01
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.timer.Timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ecmwf.common.technical.Cnf;
+import ecmwf.common.technical.ThreadService.ConfigurableLoopRunnable;
+import ecmwf.common.text.Format;
+
+/**
+ * The Class VolumeUsage. In-memory count of the bytes and files stored in each volume of the data repository (e.g.
+ * repository/volume0, repository/volume1...). The counters are updated by the FileChecker whenever a file is received,
+ * written, renamed or deleted, so that the usage of a volume is available without scanning its content. They are
+ * regularly saved into a checkpoint file to survive a restart, and reconciled by a low priority background scan of the
+ * volumes to fix any drift (e.g. files removed from outside of the DataMover).
+ */
+final class VolumeUsage {
+    /** The Constant _log. */
+    private static final Logger _log = LogManager.getLogger(VolumeUsage.class);
+
+    /** The Constant VOLUME_PREFIX. */
+    private static final String VOLUME_PREFIX = "volume";
+
+    /** The Constant CHECKPOINT_TIME. */
+    private static final String CHECKPOINT_TIME = "time";
+
+    /** The root of the repository. */
+    private final String root;
+
+    /** The checkpoint file. */
+    private final File checkpoint;
+
+    /** The counters per volume index. */
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    /** The time of the last reconciliation. */
+    private volatile long lastReconcile = 0;
+
+    /** The modified since the last checkpoint. */
+    private volatile boolean modified = false;
+
+    /** The thread. */
+    private VolumeUsageThread thread = null;
+
+    /**
+     * The Class Counter.
+     */
+    static final class Counter {
+        /** The bytes. */
+        final AtomicLong bytes = new AtomicLong(0);
+
+        /** The files. */
+        final AtomicLong files = new AtomicLong(0);
+
+        /** The known (loaded from the checkpoint or reconciled). */
+        volatile boolean known = false;
+    }
+
+    /**
+     * Instantiates a new volume usage.
+     *
+     * @param root
+     *            the root of the repository
+     * @param checkpoint
+     *            the checkpoint file
+     */
+    VolumeUsage(final String root, final String checkpoint) {
+        this.root = new File(root).getAbsolutePath();
+        this.checkpoint = new File(checkpoint);
+        load();
+    }
+
+    /**
+     * Gets the volume index from the absolute path of a file of the repository.
+     *
+     * @param path
+     *            the path
+     *
+     * @return the volume index or -1 if the file is not in a volume of the repository
+     */
+    int getVolumeIndex(final String path) {
+        if (path == null || path.length() <= root.length() + 1 || !path.startsWith(root)
+                || path.charAt(root.length()) != File.separatorChar) {
+            return -1;
+        }
+        final var start = root.length() + 1;
+        if (!path.startsWith(VOLUME_PREFIX, start)) {
+            return -1;
+        }
+        var end = path.indexOf(File.separatorChar, start);
+        if (end == -1) {
+            end = path.length();
+        }
+        var index = 0;
+        for (var i = start + VOLUME_PREFIX.length(); i < end; i++) {
+            final var c = path.charAt(i);
+            if (c < '0' || c > '9' || index > Integer.MAX_VALUE / 10) {
+                return -1;
+            }
+            index = index * 10 + c - '0';
+        }
+        return end > start + VOLUME_PREFIX.length() ? index : -1;
+    }
+
+    /**
+     * Gets the counter. Create it if it does not exist yet.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the counter
+     */
+    private Counter getCounter(final int index) {
+        return counters.computeIfAbsent(index, _ -> new Counter());
+    }
+
+    /**
+     * Update the usage of the volume of the file.
+     *
+     * @param path
+     *            the absolute path of the file
+     * @param bytes
+     *            the bytes added (negative if removed)
+     * @param files
+     *            the files added (negative if removed)
+     */
+    void update(final String path, final long bytes, final long files) {
+        final var index = getVolumeIndex(path);
+        if (index >= 0 && (bytes != 0 || files != 0)) {
+            final var counter = getCounter(index);
+            counter.bytes.addAndGet(bytes);
+            counter.files.addAndGet(files);
+            modified = true;
+        }
+    }
+
+    /**
+     * Move the usage of a file from one volume to another (e.g. the file was renamed).
+     *
+     * @param from
+     *            the absolute path of the original file
+     * @param to
+     *            the absolute path of the new file
+     * @param bytes
+     *            the size of the file
+     */
+    void move(final String from, final String to, final long bytes) {
+        if (getVolumeIndex(from) != getVolumeIndex(to)) {
+            update(from, -bytes, -1);
+            update(to, bytes, 1);
+        }
+    }
+
+    /**
+     * Gets the number of bytes stored in the volume.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the bytes or -1 if not known yet
+     */
+    long getBytes(final int index) {
+        final var counter = counters.get(index);
+        return counter != null && counter.known ? Math.max(0, counter.bytes.get()) : -1;
+    }
+
+    /**
+     * Gets the number of files stored in the volume.
+     *
+     * @param index
+     *            the index
+     *
+     * @return the files or -1 if not known yet
+     */
+    long getFiles(final int index) {
+        final var counter = counters.get(index);
+        return counter != null && counter.known ? Math.max(0, counter.files.get()) : -1;
+    }
+
+    /**
+     * Reconcile the counters of the volume with its content on disk. The updates received during the scan are kept.
+     * Only one reconciliation at a time is allowed for a volume, otherwise the drift would be applied twice.
+     *
+     * @param index
+     *            the index
+     * @param volume
+     *            the volume directory
+     *
+     * @return the bytes stored in the volume
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    long reconcile(final int index, final File volume) throws IOException {
+        final var counter = getCounter(index);
+        synchronized (counter) {
+            final var bytesBefore = counter.bytes.get();
+            final var filesBefore = counter.files.get();
+            final var start = System.currentTimeMillis();
+            final long[] scanned = new long[2];
+            Files.walkFileTree(volume.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        scanned[0] += attrs.size();
+                        scanned[1]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+                    // The file was probably removed during the scan!
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            final var bytes = counter.bytes.addAndGet(scanned[0] - bytesBefore);
+            counter.files.addAndGet(scanned[1] - filesBefore);
+            if (counter.known && bytesBefore != scanned[0]) {
+                _log.info("Volume {} reconciled in {} (drift of {} byte(s))", index,
+                        Format.formatDuration(System.currentTimeMillis() - start), scanned[0] - bytesBefore);
+            }
+            counter.known = true;
+            modified = true;
+            return bytes;
+        }
+    }
+
+    /**
+     * Reconcile all the volumes found in the repository.
+     */
+    void reconcileAll() {
+        final var volumes = new File(root).listFiles();
+        if (volumes == null) {
+            _log.warn("Repository {} not a directory?", root);
+            return;
+        }
+        for (final File volume : volumes) {
+            final var index = getVolumeIndex(volume.getAbsolutePath());
+            if (index >= 0 && volume.isDirectory()) {
+                try {
+                    reconcile(index, volume);
+                } catch (final IOException e) {
+                    _log.warn("Cannot reconcile volume {}", volume.getAbsolutePath(), e);
+                }
+            }
+        }
+        lastReconcile = System.currentTimeMillis();
+    }
+
+    /**
+     * Load the counters from the checkpoint file (if any).
+     */
+    private void load() {
+        if (!checkpoint.exists()) {
+            return;
+        }
+        final var properties = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint.toPath())) {
+            properties.load(in);
+            lastReconcile = Long.parseLong(properties.getProperty(CHECKPOINT_TIME, "0"));
+            for (final String name : properties.stringPropertyNames()) {
+                if (name.startsWith(VOLUME_PREFIX) && name.endsWith(".bytes")) {
+                    final var volume = name.substring(0, name.length() - 6);
+                    final var counter = getCounter(Integer.parseInt(volume.substring(VOLUME_PREFIX.length())));
+                    counter.bytes.set(Long.parseLong(properties.getProperty(name)));
+                    counter.files.set(Long.parseLong(properties.getProperty(volume + ".files", "0")));
+                    counter.known = true;
+                }
+            }
+            _log.info("Volume usage loaded from {} ({} volume(s))", checkpoint, counters.size());
+        } catch (final Exception e) {
+            _log.warn("Cannot load volume usage from {}", checkpoint, e);
+            counters.clear();
+            lastReconcile = 0;
+        }
+    }
+
+    /**
+     * Save the counters into the checkpoint file if they were modified.
+     */
+    void save() {
+        if (!modified) {
+            return;
+        }
+        modified = false;
+        final var properties = new Properties();
+        properties.setProperty(CHECKPOINT_TIME, String.valueOf(lastReconcile));
+        counters.forEach((index, counter) -> {
+            if (counter.known) {
+                properties.setProperty(VOLUME_PREFIX + index + ".bytes", String.valueOf(counter.bytes.get()));
+                properties.setProperty(VOLUME_PREFIX + index + ".files", String.valueOf(counter.files.get()));
+            }
+        });
+        final var tmp = new File(checkpoint.getPath() + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+                properties.store(out, "Volume usage of " + root);
+            }
+            Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            _log.warn("Cannot save volume usage to {}", checkpoint, e);
+            modified = true;
+        }
+    }
+
+    /**
+     * Start the background thread (checkpoints and reconciliations).
+     */
+    synchronized void start() {
+        if (thread == null) {
+            thread = new VolumeUsageThread();
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.execute();
+        }
+    }
+
+    /**
+     * Stop the background thread and save the counters.
+     */
+    synchronized void stop() {
+        if (thread != null) {
+            thread.shutdown();
+            thread = null;
+        }
+        save();
+    }
+
+    /**
+     * Gets the status (e.g. "volume0=1.2 GB/1024 file(s) volume1=unknown").
+     *
+     * @return the status
+     */
+    @Override
+    public String toString() {
+        final var result = new StringBuilder();
+        new TreeMap<>(counters).forEach((index, counter) -> result.append(result.isEmpty() ? "" : " ")
+                .append(VOLUME_PREFIX).append(index).append('=').append(counter.known
+                        ? Format.formatSize(counter.bytes.get()) + "/" + counter.files.get() + " file(s)" : "unknown"));
+        return result.toString();
+    }
+
+    /**
+     * The Class VolumeUsageThread. Save the counters at regular interval and reconcile them with the content of the
+     * volumes when they are too old (or not known yet).
+     */
+    private final class VolumeUsageThread extends ConfigurableLoopRunnable {
+        /** The reconcile interval. */
+        private final long reconcileInterval = Cnf.durationAt("VolumeUsage", "reconcileInterval", 6 * Timer.ONE_HOUR);
+
+        /**
+         * Instantiates a new volume usage thread.
+         */
+        VolumeUsageThread() {
+            setPause(Cnf.durationAt("VolumeUsage", "checkpointInterval", Timer.ONE_MINUTE));
+        }
+
+        /**
+         * Configurable loop run.
+         */
+        @Override
+        public void configurableLoopRun() {
+            try {
+                if (System.currentTimeMillis() - lastReconcile > reconcileInterval) {
+                    reconcileAll();
+                }
+                save();
+            } catch (final Throwable t) {
+                _log.warn("Processing volume usage", t);
+            }
+        }
+    }
+}
@@ -31,6 +31,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -128,6 +130,11 @@ public class BlobStore implements Closeable {
     /**
      * List.
      *
+     * The keys are listed in lexicographical order, starting after the marker of the options (if any). The destination
+     * is walked only once for a listing: the result of the walk is kept in a snapshot which is used for the next pages
+     * requested with a marker, and the walk only goes down the directories which can contain keys starting with the
+     * prefix.
+     *
      * @param containerName
      *            the container name
      * @param options
@@ -144,27 +151,60 @@ public class BlobStore implements Closeable {
      */
     public List<StorageMetadata> list(final String containerName, final ListContainerOptions options,
             final String prefix, final int maxKeys) throws S3Exception {
-        final var path = _getFilename(containerName + "/" + prefix);
-        final List<StorageMetadata> result = new ArrayList<>();
-        logger.debug("list: bucket=" + containerName + ", maxKeys=" + maxKeys + ": " + path);
+        final var marker = options.getMarker();
+        final var safePrefix = prefix != null ? prefix : "";
+        final var key = _session.getUser() + ":" + containerName + ":" + options.isRecursive() + ":" + safePrefix;
+        var snapshot = marker != null && !marker.isEmpty() ? ListingSnapshot.get(key) : null;
+        logger.debug("list: bucket=" + containerName + ", prefix=" + safePrefix + ", marker=" + marker + ", maxKeys="
+                + maxKeys + ", snapshot=" + (snapshot != null));
+        if (snapshot == null) {
+            final List<StorageMetadata> entries = new ArrayList<>();
+            _walk(containerName, options.isRecursive(), safePrefix.substring(0, safePrefix.lastIndexOf('/') + 1),
+                    safePrefix, entries);
+            snapshot = new ListingSnapshot(entries);
+            ListingSnapshot.put(key, snapshot);
+        }
+        return snapshot.page(marker, maxKeys);
+    }
+
+    /**
+     * Walk the directory and add the entries starting with the prefix. If the walk is recursive then the
+     * sub-directories which can contain such entries are walked as well.
+     *
+     * @param containerName
+     *            the container name
+     * @param recursive
+     *            the recursive
+     * @param directory
+     *            the directory (relative to the container, empty or ending with a slash)
+     * @param prefix
+     *            the prefix
+     * @param entries
+     *            the entries
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     */
+    private void _walk(final String containerName, final boolean recursive, final String directory,
+            final String prefix, final List<StorageMetadata> entries) throws S3Exception {
+        final var path = _getFilename(containerName + "/" + directory);
+        final var container = "".equals(containerName);
         try {
             for (final FileListElement element : _session.getFileList(path.getValue())) {
-                if (options.isRecursive() && element.isDirectory()) {
-                    // This is a new directory and the request is recursive so let's call this
-                    // method recursively, unless we have already reached the maximum number of keys
-                    final var newMaxKeys = maxKeys - result.size();
-                    if (newMaxKeys > 0) {
-                        for (final StorageMetadata metadata : list(containerName, options,
-                                prefix + "/" + element.getName(), newMaxKeys)) {
-                            if (_isTruncated(result, newMaxKeys, metadata)) {
-                                break;
-                            }
-                        }
+                final var name = directory + element.getName();
+                final var folder = !container && element.isDirectory();
+                final var candidate = folder ? name + "/" : name;
+                if (folder && recursive) {
+                    if (candidate.startsWith(prefix) || prefix.startsWith(candidate)) {
+                        _walk(containerName, true, candidate, prefix, entries);
                     }
-                } else if (_isTruncated(result, maxKeys, new StorageMetadata("".equals(containerName), element))) {
-                    break;
+                } else if (candidate.startsWith(prefix)) {
+                    logger.debug("add: " + candidate);
+                    entries.add(new StorageMetadata(container, element, name));
                 }
             }
+        } catch (final S3Exception e) {
+            throw e;
         } catch (final EccmdException t) {
             final var message = t.getMessage();
             if (message != null && message.startsWith("Destination not found")) {
@@ -174,31 +214,6 @@ public class BlobStore implements Closeable {
         } catch (final Throwable t) {
             logger.warn("list", t);
         }
-        return result;
-    }
-
-    /**
-     * Checks if is truncated.
-     *
-     * Add the metadata to the list and check if the listing should be stopped there (meaning we have reached the limit
-     * specified by the max keys parameter).
-     *
-     * @param result
-     *            the result
-     * @param maxKeys
-     *            the max keys
-     * @param metadata
-     *            the metadata
-     *
-     * @return true, if successful
-     */
-    private static boolean _isTruncated(final List<StorageMetadata> result, final int maxKeys,
-            final StorageMetadata metadata) {
-        logger.debug("add" + metadata.getType() + ": " + metadata.getName());
-        result.add(metadata);
-        final var truncated = maxKeys > 0 && result.size() >= maxKeys;
-        metadata.setTruncated(truncated);
-        return truncated;
     }
 
     /**
@@ -360,27 +375,7 @@ public class BlobStore implements Closeable {
             out.close();
             out = null;
             proxy.close();
-            // Record the transfer event BEFORE check() so DataFileAccessImpl picks it up
-            final var setup = _session.getECtransSetup();
-            if (setup == null || setup.getBoolean(ecmwf.common.ectrans.ECtransOptions.USER_PORTAL_TRIGGER_EVENT)) {
-                final var event = new ProxyEvent(proxy); // constructor attaches event to proxy
-                event.setProtocol("s3");
-                event.setLocalHost(_mover.getRoot());
-                event.setRemoteHost(_remoteAddress);
-                event.setUserType(ProxyEvent.UserType.DATA_USER);
-                event.setUserName(_session.getUser());
-                event.setUpload(true);
-                event.setStartTime(startTime);
-                event.setDuration(System.currentTimeMillis() - startTime);
-                event.setSent(bytesSent[0]);
-            }
-            _session.check(proxy);
-            if (message != null) {
-                throw new IOException("Upload failed: " + message);
-            }
-            // Return the ECPDS ETag for the uploaded object
-            final var element = _session.getFileListElement(path.getValue());
-            return _mover.getMasterInterface().getETag(Long.parseLong(element.getComment().trim()));
+            return _complete(path.getValue(), proxy, startTime, bytesSent[0], message);
         } catch (final IOException ioe) {
             throw ioe;
         } catch (final Throwable t) {
@@ -392,6 +387,205 @@ public class BlobStore implements Closeable {
         }
     }
 
+    /**
+     * Complete an upload which has been fully sent to ECPDS (the proxy is closed).
+     *
+     * Record the transfer event, check the upload and return the ECPDS ETag of the object.
+     *
+     * @param path
+     *            the normalized internal path in ECPDS
+     * @param proxy
+     *            the proxy
+     * @param startTime
+     *            the start time
+     * @param sent
+     *            the number of bytes sent
+     * @param message
+     *            the error message of the upload (if any)
+     *
+     * @return the ETag string assigned by ECPDS for the stored object
+     *
+     * @throws Throwable
+     *             the throwable
+     */
+    private String _complete(final String path, final ProxySocket proxy, final long startTime, final long sent,
+            final String message) throws Throwable {
+        // Record the transfer event BEFORE check() so DataFileAccessImpl picks it up
+        final var setup = _session.getECtransSetup();
+        if (setup == null || setup.getBoolean(ecmwf.common.ectrans.ECtransOptions.USER_PORTAL_TRIGGER_EVENT)) {
+            final var event = new ProxyEvent(proxy); // constructor attaches event to proxy
+            event.setProtocol("s3");
+            event.setLocalHost(_mover.getRoot());
+            event.setRemoteHost(_remoteAddress);
+            event.setUserType(ProxyEvent.UserType.DATA_USER);
+            event.setUserName(_session.getUser());
+            event.setUpload(true);
+            event.setStartTime(startTime);
+            event.setDuration(System.currentTimeMillis() - startTime);
+            event.setSent(sent);
+        }
+        _session.check(proxy);
+        if (message != null) {
+            throw new IOException("Upload failed: " + message);
+        }
+        // Return the ECPDS ETag for the uploaded object
+        final var element = _session.getFileListElement(path);
+        return _mover.getMasterInterface().getETag(Long.parseLong(element.getComment().trim()));
+    }
+
+    /**
+     * Open upload.
+     *
+     * Open an upload to containerName/blobName which is fed by successive writes and completed later, possibly with
+     * another BlobStore (e.g. the parts of a multipart upload are sent as they are received and the upload is
+     * completed by the CompleteMultipartUpload request).
+     *
+     * @param containerName
+     *            the container name
+     * @param blobName
+     *            the blob name
+     *
+     * @return the upload
+     *
+     * @throws ecmwf.ecpds.mover.plugin.http.S3Exception
+     *             the s 3 exception
+     * @throws java.io.IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    Upload openUpload(final String containerName, final String blobName) throws S3Exception, IOException {
+        final var path = _getFilename(containerName + "/" + blobName);
+        logger.debug("openUpload: bucket=" + containerName + ", blob=" + blobName + ": " + path);
+        ProxySocket proxy = null;
+        try {
+            proxy = _session.getProxySocketOutput(path.getValue(), 0, 640);
+            final var upload = new Upload(path.getValue(), proxy, proxy.getDataOutputStream());
+            proxy = null;
+            return upload;
+        } catch (final IOException ioe) {
+            throw ioe;
+        } catch (final Throwable t) {
+            throw new IOException("openUpload failed: " + Format.getMessage(t), t);
+        } finally {
+            StreamPlugThread.closeQuietly(proxy);
+        }
+    }
+
+    /**
+     * The Class Upload.
+     *
+     * An upload opened with {@link BlobStore#openUpload(String, String)}. Closing the upload before it is completed
+     * aborts it.
+     */
+    static final class Upload implements Closeable {
+
+        /** The path. */
+        private final String _path;
+
+        /** The proxy. */
+        private final ProxySocket _proxy;
+
+        /** The out. */
+        private final OutputStream _out;
+
+        /** The start time. */
+        private final long _startTime = System.currentTimeMillis();
+
+        /** The sent. */
+        private long _sent = 0;
+
+        /**
+         * Instantiates a new upload.
+         *
+         * @param path
+         *            the path
+         * @param proxy
+         *            the proxy
+         * @param out
+         *            the out
+         */
+        private Upload(final String path, final ProxySocket proxy, final OutputStream out) {
+            _path = path;
+            _proxy = proxy;
+            _out = out;
+        }
+
+        /**
+         * Write some bytes.
+         *
+         * @param b
+         *            the b
+         * @param off
+         *            the off
+         * @param len
+         *            the len
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        void write(final byte[] b, final int off, final int len) throws IOException {
+            _out.write(b, off, len);
+            _sent += len;
+        }
+
+        /**
+         * Write the content of a file.
+         *
+         * @param file
+         *            the file
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        void write(final Path file) throws IOException {
+            _sent += Files.copy(file, _out);
+        }
+
+        /**
+         * Gets the number of bytes sent.
+         *
+         * @return the sent
+         */
+        long getSent() {
+            return _sent;
+        }
+
+        /**
+         * Complete the upload.
+         *
+         * @param blobStore
+         *            the blob store used to check the upload
+         *
+         * @return the ETag string assigned by ECPDS for the stored object
+         *
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        String complete(final BlobStore blobStore) throws IOException {
+            try {
+                _out.close();
+                _proxy.close();
+                return blobStore._complete(_path, _proxy, _startTime, _sent, null);
+            } catch (final IOException ioe) {
+                throw ioe;
+            } catch (final Throwable t) {
+                throw new IOException("complete failed: " + Format.getMessage(t), t);
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Close (abort the upload if it was not completed).
+         */
+        @Override
+        public void close() {
+            StreamPlugThread.closeQuietly(_out);
+            StreamPlugThread.closeQuietly(_proxy);
+        }
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.mover.plugin.http;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project.
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ *
+ * @version 6.7.7
+ *
+ * @since 2024-07-01
+ */
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.timer.Timer;
+
+import ecmwf.common.technical.Cnf;
+
+/**
+ * The Class ListingSnapshot.
+ *
+ * Sorted result of the walk done for a ListObjects request, kept for a short time so that the next pages requested
+ * with a marker or a continuation token are served from memory instead of walking the destination again from the
+ * start. A new snapshot is built for every first page, so a listing always starts with fresh data and the following
+ * pages are consistent with it.
+ */
+final class ListingSnapshot {
+
+    /** The Constant TTL. */
+    private static final long TTL = Cnf.durationAt("HttpPlugin", "s3ListingTtl", 2 * Timer.ONE_MINUTE);
+
+    /** The Constant MAX_SNAPSHOTS. */
+    private static final int MAX_SNAPSHOTS = Cnf.at("HttpPlugin", "s3ListingSnapshots", 100);
+
+    /** The Constant _snapshots. */
+    private static final Map<String, ListingSnapshot> _snapshots = new ConcurrentHashMap<>();
+
+    /** The entries (sorted by name). */
+    private final StorageMetadata[] _entries;
+
+    /** The names (sorted). */
+    private final String[] _names;
+
+    /** The expiry. */
+    private final long _expiry;
+
+    /**
+     * Instantiates a new listing snapshot. The entries are sorted by name and all of them but the last are flagged as
+     * truncated, so that the last entry of any page tells if there are more entries to come.
+     *
+     * @param entries
+     *            the entries
+     */
+    ListingSnapshot(final List<StorageMetadata> entries) {
+        _entries = entries.toArray(new StorageMetadata[0]);
+        Arrays.sort(_entries, Comparator.comparing(StorageMetadata::getName));
+        _names = new String[_entries.length];
+        for (var i = 0; i < _entries.length; i++) {
+            _names[i] = _entries[i].getName();
+            _entries[i].setTruncated(i < _entries.length - 1);
+        }
+        _expiry = System.currentTimeMillis() + TTL;
+    }
+
+    /**
+     * Gets the snapshot for the key, if it is still valid.
+     *
+     * @param key
+     *            the key
+     *
+     * @return the listing snapshot or null
+     */
+    static ListingSnapshot get(final String key) {
+        final var snapshot = _snapshots.get(key);
+        if (snapshot != null && snapshot._expiry < System.currentTimeMillis()) {
+            _snapshots.remove(key, snapshot);
+            return null;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Put the snapshot in the cache. The expired snapshots are removed and if the cache is still full then the oldest
+     * snapshot is dropped.
+     *
+     * @param key
+     *            the key
+     * @param snapshot
+     *            the snapshot
+     */
+    static void put(final String key, final ListingSnapshot snapshot) {
+        if (TTL <= 0 || MAX_SNAPSHOTS <= 0) {
+            return;
+        }
+        if (_snapshots.size() >= MAX_SNAPSHOTS) {
+            final var now = System.currentTimeMillis();
+            _snapshots.values().removeIf(current -> current._expiry < now);
+            if (_snapshots.size() >= MAX_SNAPSHOTS) {
+                _snapshots.entrySet().stream().min(Comparator.comparingLong(entry -> entry.getValue()._expiry))
+                        .ifPresent(entry -> _snapshots.remove(entry.getKey(), entry.getValue()));
+            }
+        }
+        _snapshots.put(key, snapshot);
+    }
+
+    /**
+     * Gets a page of the snapshot, starting with the first entry after the marker (if any).
+     *
+     * @param marker
+     *            the marker (exclusive)
+     * @param maxKeys
+     *            the max keys
+     *
+     * @return the list
+     */
+    List<StorageMetadata> page(final String marker, final int maxKeys) {
+        var from = 0;
+        if (marker != null && !marker.isEmpty()) {
+            final var index = Arrays.binarySearch(_names, marker);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        final var to = maxKeys > 0 ? (int) Math.min((long) from + maxKeys, _entries.length) : from;
+        return Arrays.asList(_entries).subList(from, to);
+    }
+
+    /**
+     * Gets the size.
+     *
+     * @return the size
+     */
+    int size() {
+        return _entries.length;
+    }
+}
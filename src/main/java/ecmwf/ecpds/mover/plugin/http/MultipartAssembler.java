@@ -0,0 +1,663 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * In applying the License, ECMWF does not waive the privileges and immunities
+ * granted to it by virtue of its status as an inter-governmental organization
+ * nor does it submit to any jurisdiction.
+ */
+
+package ecmwf.ecpds.mover.plugin.http;
+
+/**
+ * ECMWF Product Data Store (OpenECPDS) Project.
+ *
+ * @author Laurent Gougeon - syi@ecmwf.int, ECMWF.
+ *
+ * @version 6.7.7
+ *
+ * @since 2024-07-01
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import ecmwf.common.technical.Cnf;
+import ecmwf.common.technical.StreamPlugThread;
+
+/**
+ * The Class MultipartAssembler.
+ *
+ * Assemble the parts of a multipart upload directly into the ECPDS upload of the object. The upload is opened with the
+ * first part and every part is sent as soon as all the parts before it have been sent. The part received in order is
+ * streamed directly into the upload, so that it is neither kept in memory nor written to the local disk. The parts
+ * received out of order are kept in memory (up to a limit per part and a global budget) or in a temporary file until
+ * their turn comes.
+ *
+ * Once a part has been sent it can no longer be replaced (unless with the same content) or left out of the
+ * CompleteMultipartUpload request. A part which fails while being streamed can be sent again as long as none of its
+ * bytes were sent (or if it is the first part), otherwise the multipart upload fails and must be restarted.
+ */
+final class MultipartAssembler {
+
+    /** The Constant logger. */
+    private static final Logger logger = LogManager.getLogger(MultipartAssembler.class);
+
+    /** The Constant MEMORY_PART_SIZE (parts up to this size are kept in memory until they are assembled). */
+    private static final int MEMORY_PART_SIZE = Cnf.at("HttpPlugin", "s3PartMemoryLimit", 16 * 1024 * 1024);
+
+    /** The Constant MEMORY_BUDGET (memory available for all the parts waiting to be assembled). */
+    private static final long MEMORY_BUDGET = Cnf.at("HttpPlugin", "s3PartMemoryBudget", 256L * 1024 * 1024);
+
+    /** The Constant _memoryUsed. */
+    private static final AtomicLong _memoryUsed = new AtomicLong(0);
+
+    /** The container name. */
+    private final String _containerName;
+
+    /** The blob name. */
+    private final String _blobName;
+
+    /** The temp dir. */
+    private final Path _tempDir;
+
+    /** The parts received (last version of each part number). */
+    private final Map<Integer, Part> _parts = new TreeMap<>();
+
+    /** The parts waiting to be assembled. */
+    private final Map<Integer, Part> _pending = new TreeMap<>();
+
+    /** The parts assembled (in order). */
+    private final List<Part> _assembled = new ArrayList<>();
+
+    /** The upload (opened with the first part assembled). */
+    private BlobStore.Upload _upload = null;
+
+    /** The next part number expected. */
+    private int _nextPart = 1;
+
+    /** A part is being sent. */
+    private boolean _sending = false;
+
+    /** The upload is being completed. */
+    private boolean _completing = false;
+
+    /** The failure (the upload can no longer be completed). */
+    private IOException _failure = null;
+
+    /** The last activity. */
+    private volatile long _lastActivity = System.currentTimeMillis();
+
+    /**
+     * Instantiates a new multipart assembler.
+     *
+     * @param containerName
+     *            the container name
+     * @param blobName
+     *            the blob name
+     * @param tempDir
+     *            the temp dir for the parts which can not be kept in memory
+     */
+    MultipartAssembler(final String containerName, final String blobName, final Path tempDir) {
+        _containerName = containerName;
+        _blobName = blobName;
+        _tempDir = tempDir;
+    }
+
+    /**
+     * Upload a part. If it is the next part expected and no other part is being sent then its content is streamed
+     * directly into the upload, otherwise it is received and kept until its turn comes.
+     *
+     * @param blobStore
+     *            the blob store used to open the upload
+     * @param partNumber
+     *            the part number
+     * @param is
+     *            the input stream
+     *
+     * @return the part
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    Part upload(final BlobStore blobStore, final int partNumber, final InputStream is) throws S3Exception, IOException {
+        synchronized (this) {
+            if (partNumber == _nextPart && !_sending && !_completing && _failure == null) {
+                _sending = true;
+                _nextPart++;
+            } else {
+                final var part = receive(partNumber, is);
+                add(blobStore, part);
+                return part;
+            }
+        }
+        final var part = _stream(blobStore, partNumber, is);
+        _send(blobStore);
+        return part;
+    }
+
+    /**
+     * Stream the next part directly into the upload, which is opened if required. The MD5 of the part is computed on
+     * the fly. The part must have been taken for sending (the next part number and the sending flag are already set).
+     *
+     * @param blobStore
+     *            the blob store used to open the upload
+     * @param partNumber
+     *            the part number
+     * @param is
+     *            the input stream
+     *
+     * @return the part
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private Part _stream(final BlobStore blobStore, final int partNumber, final InputStream is)
+            throws S3Exception, IOException {
+        _lastActivity = System.currentTimeMillis();
+        final var md5 = _md5();
+        var size = 0L;
+        try {
+            if (_upload == null) {
+                _upload = blobStore.openUpload(_containerName, _blobName);
+            }
+            try (final var in = new DigestInputStream(is, md5)) {
+                final var buf = new byte[StreamPlugThread.DEFAULT_BUFF_SIZE];
+                int count;
+                while ((count = in.read(buf)) > 0) {
+                    _upload.write(buf, 0, count);
+                    size += count;
+                }
+            }
+            final var part = new Part(partNumber, md5.digest(), size, null, null);
+            synchronized (this) {
+                final var pending = _pending.remove(partNumber);
+                if (pending != null) {
+                    pending.release();
+                }
+                _parts.put(partNumber, part);
+                _assembled.add(part);
+            }
+            logger.debug("Part {} streamed for {}/{} ({} bytes sent)", partNumber, _containerName, _blobName,
+                    _upload.getSent());
+            return part;
+        } catch (final S3Exception | IOException e) {
+            _restart(partNumber, size, e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                _sending = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * A part failed while being streamed. If none of its bytes were sent, or if it is the first part (the upload is
+     * then closed and opened again with the next attempt), then the part can be sent again by the client. Otherwise
+     * the bytes already sent can not be taken back and the upload fails (the client has to restart the multipart
+     * upload).
+     *
+     * @param partNumber
+     *            the part number
+     * @param size
+     *            the number of bytes of the part already sent
+     * @param e
+     *            the exception
+     */
+    private synchronized void _restart(final int partNumber, final long size, final Exception e) {
+        if (size > 0 && !_assembled.isEmpty()) {
+            _fail(new IOException("Part " + partNumber + " failed after " + size
+                    + " bytes were streamed, the multipart upload must be restarted: " + e.getMessage(), e));
+            return;
+        }
+        if (size > 0 && _upload != null) {
+            _upload.close();
+            _upload = null;
+        }
+        _nextPart = partNumber;
+        logger.debug("Part {} failed for {}/{} (can be sent again)", partNumber, _containerName, _blobName, e);
+    }
+
+    /**
+     * Receive a part. The content is read until the end of the stream and the MD5 of the part is computed on the fly.
+     *
+     * @param partNumber
+     *            the part number
+     * @param is
+     *            the input stream
+     *
+     * @return the part
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private Part receive(final int partNumber, final InputStream is) throws IOException {
+        _lastActivity = System.currentTimeMillis();
+        final var md5 = _md5();
+        final long reserved = _reserve(MEMORY_PART_SIZE) ? MEMORY_PART_SIZE : 0;
+        var buffer = new ByteArrayOutputStream((int) Math.min(reserved, StreamPlugThread.DEFAULT_BUFF_SIZE));
+        Path file = null;
+        OutputStream out = null;
+        var size = 0L;
+        var success = false;
+        try (final var in = new DigestInputStream(is, md5)) {
+            final var buf = new byte[StreamPlugThread.DEFAULT_BUFF_SIZE];
+            int count;
+            while ((count = in.read(buf)) > 0) {
+                if (out == null && size + count > reserved) {
+                    // Too big for the memory, let's continue on the disk!
+                    file = Files.createTempFile(_tempDir, "part-" + partNumber + "-", null);
+                    out = Files.newOutputStream(file);
+                    buffer.writeTo(out);
+                    buffer = null;
+                }
+                if (out != null) {
+                    out.write(buf, 0, count);
+                } else {
+                    buffer.write(buf, 0, count);
+                }
+                size += count;
+            }
+            if (out != null) {
+                out.close();
+            }
+            success = true;
+        } finally {
+            StreamPlugThread.closeQuietly(out);
+            _memoryUsed.addAndGet(-(buffer != null && success ? reserved - size : reserved));
+            if (!success && file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+        return new Part(partNumber, md5.digest(), size, buffer != null ? buffer.toByteArray() : null, file);
+    }
+
+    /**
+     * Add a part which was received and send it (and the parts following it) if all the parts before it have been
+     * sent.
+     *
+     * @param blobStore
+     *            the blob store used to open the upload
+     * @param part
+     *            the part
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void add(final BlobStore blobStore, final Part part) throws S3Exception, IOException {
+        synchronized (this) {
+            final var previous = _parts.get(part.number);
+            if (part.number < _nextPart) {
+                // This part was already sent or is being streamed (e.g. the client retried it)!
+                part.release();
+                if (previous == null || !_assembled.contains(previous) || !part.etag.equals(previous.etag)) {
+                    throw new S3Exception(S3ErrorCode.INVALID_PART, "Part " + part.number + " already assembled");
+                }
+                return;
+            }
+            if (_completing) {
+                part.release();
+                throw new S3Exception(S3ErrorCode.INVALID_PART, "Upload being completed");
+            }
+            _checkFailure();
+            final var pending = _pending.put(part.number, part);
+            if (pending != null) {
+                pending.release();
+            }
+            _parts.put(part.number, part);
+        }
+        _send(blobStore);
+    }
+
+    /**
+     * Send the parts which are next in the sequence, unless another thread is already doing it.
+     *
+     * @param blobStore
+     *            the blob store used to open the upload
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void _send(final BlobStore blobStore) throws S3Exception, IOException {
+        while (true) {
+            final Part part;
+            synchronized (this) {
+                if (_sending || _completing || _failure != null || (part = _pending.remove(_nextPart)) == null) {
+                    return;
+                }
+                _take(part);
+                _nextPart++;
+            }
+            _write(blobStore, part);
+        }
+    }
+
+    /**
+     * Take the part for sending (must be called in a synchronized block).
+     *
+     * @param part
+     *            the part
+     */
+    private void _take(final Part part) {
+        _sending = true;
+        _assembled.add(part);
+    }
+
+    /**
+     * Write the part to the upload, which is opened if required.
+     *
+     * @param blobStore
+     *            the blob store used to open the upload
+     * @param part
+     *            the part
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void _write(final BlobStore blobStore, final Part part) throws S3Exception, IOException {
+        try {
+            if (_upload == null) {
+                _upload = blobStore.openUpload(_containerName, _blobName);
+            }
+            if (part.data != null) {
+                _upload.write(part.data, 0, part.data.length);
+            } else if (part.file != null) {
+                _upload.write(part.file);
+            }
+            logger.debug("Part {} assembled for {}/{} ({} bytes sent)", part.number, _containerName, _blobName,
+                    _upload.getSent());
+        } catch (final S3Exception | IOException e) {
+            _fail(e instanceof final IOException ioe ? ioe : new IOException(e.getMessage(), e));
+            throw e;
+        } finally {
+            part.release();
+            synchronized (this) {
+                _sending = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Complete the upload with the parts listed in the CompleteMultipartUpload request. The parts already sent must
+     * be the first ones in the list and the remaining parts are sent in the order of the list.
+     *
+     * @param blobStore
+     *            the blob store used to complete the upload
+     * @param parts
+     *            the part numbers (sorted) with their ETag (null if not provided)
+     *
+     * @return the ETag string assigned by ECPDS for the stored object
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    String complete(final BlobStore blobStore, final Map<Integer, String> parts) throws S3Exception, IOException {
+        _lastActivity = System.currentTimeMillis();
+        final List<Part> remaining = new ArrayList<>();
+        synchronized (this) {
+            while (_sending) {
+                try {
+                    wait();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted");
+                }
+            }
+            _checkFailure();
+            if (_completing) {
+                throw new S3Exception(S3ErrorCode.INVALID_PART, "Upload being completed");
+            }
+            var index = 0;
+            for (final Map.Entry<Integer, String> entry : parts.entrySet()) {
+                final var etag = entry.getValue();
+                final var part = index < _assembled.size() ? _assembled.get(index) : _pending.get(entry.getKey());
+                if (part == null || part.number != entry.getKey() || etag != null && !part.etag.equals(etag)) {
+                    throw new S3Exception(S3ErrorCode.INVALID_PART, "Invalid part " + entry.getKey());
+                }
+                if (index++ >= _assembled.size()) {
+                    remaining.add(part);
+                }
+            }
+            if (index < _assembled.size()) {
+                throw new S3Exception(S3ErrorCode.INVALID_PART, "Part " + _assembled.get(index).number + " missing");
+            }
+            for (final Part part : remaining) {
+                _pending.remove(part.number);
+            }
+            _completing = true;
+        }
+        for (final Part part : remaining) {
+            synchronized (this) {
+                _take(part);
+            }
+            _write(blobStore, part);
+        }
+        final String eTag;
+        synchronized (this) {
+            _checkFailure();
+            try {
+                eTag = _upload.complete(blobStore);
+            } catch (final IOException e) {
+                _fail(e);
+                throw e;
+            } finally {
+                _upload = null;
+            }
+            logger.debug("Multipart upload {}/{} completed: size={} parts={}", _containerName, _blobName, _getSize(),
+                    _assembled.size());
+            _fail(new IOException("Upload already completed"));
+        }
+        return eTag;
+    }
+
+    /**
+     * Abort the upload and release all the parts.
+     */
+    synchronized void abort() {
+        _fail(new IOException("Upload aborted"));
+    }
+
+    /**
+     * Gets the parts received (sorted by part number).
+     *
+     * @return the parts
+     */
+    synchronized List<Part> getParts() {
+        return new ArrayList<>(_parts.values());
+    }
+
+    /**
+     * Gets the last activity.
+     *
+     * @return the last activity
+     */
+    long getLastActivity() {
+        return _lastActivity;
+    }
+
+    /**
+     * Record the failure, abort the upload and release the parts waiting to be assembled.
+     *
+     * @param failure
+     *            the failure
+     */
+    private synchronized void _fail(final IOException failure) {
+        if (_failure == null) {
+            _failure = failure;
+        }
+        if (_upload != null) {
+            _upload.close();
+            _upload = null;
+        }
+        for (final Part part : _pending.values()) {
+            part.release();
+        }
+        _pending.clear();
+    }
+
+    /**
+     * Check if the upload failed (must be called in a synchronized block).
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     */
+    private void _checkFailure() throws S3Exception {
+        if (_failure != null) {
+            throw new S3Exception(S3ErrorCode.INVALID_REQUEST, "Multipart upload failed: " + _failure.getMessage(),
+                    _failure);
+        }
+    }
+
+    /**
+     * Gets the size of the parts assembled.
+     *
+     * @return the size
+     */
+    private long _getSize() {
+        var size = 0L;
+        for (final Part part : _assembled) {
+            size += part.size;
+        }
+        return size;
+    }
+
+    /**
+     * Reserve some memory in the global budget.
+     *
+     * @param size
+     *            the size
+     *
+     * @return true, if successful
+     */
+    private static boolean _reserve(final long size) {
+        if (_memoryUsed.addAndGet(size) > MEMORY_BUDGET) {
+            _memoryUsed.addAndGet(-size);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get a new MD5 digest.
+     *
+     * @return the message digest
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static MessageDigest _md5() throws IOException {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * The Class Part. A part received, with its content until it is assembled.
+     */
+    static final class Part {
+
+        /** The number. */
+        final int number;
+
+        /** The md5. */
+        final byte[] md5;
+
+        /** The etag (MD5 hex). */
+        final String etag;
+
+        /** The size. */
+        final long size;
+
+        /** The last modified. */
+        final Date lastModified = new Date();
+
+        /** The data (if in memory). */
+        private byte[] data;
+
+        /** The file (if on the disk). */
+        private Path file;
+
+        /**
+         * Instantiates a new part.
+         *
+         * @param number
+         *            the number
+         * @param md5
+         *            the md5
+         * @param size
+         *            the size
+         * @param data
+         *            the data
+         * @param file
+         *            the file
+         */
+        private Part(final int number, final byte[] md5, final long size, final byte[] data, final Path file) {
+            this.number = number;
+            this.md5 = md5;
+            this.etag = HexFormat.of().formatHex(md5);
+            this.size = size;
+            this.data = data;
+            this.file = file;
+        }
+
+        /**
+         * Release the content of the part.
+         */
+        synchronized void release() {
+            if (data != null) {
+                _memoryUsed.addAndGet(-data.length);
+                data = null;
+            }
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (final IOException e) {
+                    logger.warn("Cannot delete part file: {}", file, e);
+                }
+                file = null;
+            }
+        }
+    }
+}
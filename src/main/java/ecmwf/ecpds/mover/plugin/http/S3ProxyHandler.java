@@ -24,22 +24,22 @@ import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.DigestInputStream;
 import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -47,6 +47,7 @@ import java.util.concurrent.TimeUnit;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import javax.management.timer.Timer;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
@@ -67,6 +68,7 @@ import com.google.common.net.HttpHeaders;
 import com.google.common.net.PercentEscaper;
 
 import ecmwf.common.ecaccess.ConnectionException;
+import ecmwf.common.technical.Cnf;
 import ecmwf.common.technical.StreamPlugThread;
 
 /**
@@ -126,40 +128,30 @@ public class S3ProxyHandler {
     private static final Escaper urlEscaper = new PercentEscaper("*-./_", /* plusForSpace= */ false);
 
     /**
-     * In-progress multipart upload state. Key = uploadId. Parts are stored as local temp files so that the final
-     * CompleteMultipartUpload can stream them in order to ECPDS in a single getProxySocketOutput call.
+     * In-progress multipart upload state. Key = uploadId. The parts are sent to ECPDS in a single getProxySocketOutput
+     * call as soon as they can be appended in order (see MultipartAssembler), only the parts received out of order are
+     * kept until their turn comes.
      */
     private static final ConcurrentHashMap<String, MultipartUpload> _multipartUploads = new ConcurrentHashMap<>();
 
+    /** The Constant MULTIPART_IDLE_TIMEOUT (idle multipart uploads are aborted after this time). */
+    private static final long MULTIPART_IDLE_TIMEOUT = Cnf.durationAt("HttpPlugin", "s3MultipartIdleTimeout",
+            24 * Timer.ONE_HOUR);
+
     /** Tracks a single in-progress multipart upload. */
     private static final class MultipartUpload {
         final String containerName;
         final String blobName;
         final Date initiated;
         final Path tempDir;
-        /** partNumber (1-based) → {tempFile, etag(MD5 hex)} */
-        final ConcurrentHashMap<Integer, PartInfo> parts = new ConcurrentHashMap<>();
+        final MultipartAssembler assembler;
 
         MultipartUpload(final String containerName, final String blobName, final Path tempDir) {
             this.containerName = containerName;
             this.blobName = blobName;
             this.initiated = new Date();
             this.tempDir = tempDir;
-        }
-    }
-
-    /** Metadata for a single uploaded part. */
-    private static final class PartInfo {
-        final Path file;
-        final String etag;
-        final long size;
-        final Date lastModified;
-
-        PartInfo(final Path file, final String etag, final long size) {
-            this.file = file;
-            this.etag = etag;
-            this.size = size;
-            this.lastModified = new Date();
+            this.assembler = new MultipartAssembler(containerName, blobName, tempDir);
         }
     }
 
@@ -1129,7 +1121,7 @@ public class S3ProxyHandler {
                 throw new S3Exception(S3ErrorCode.INVALID_ARGUMENT);
             }
             if (continuationToken != null) {
-                marker = continuationToken;
+                marker = decodeContinuationToken(continuationToken);
             } else {
                 marker = startAfter;
             }
@@ -1152,6 +1144,9 @@ public class S3ProxyHandler {
             }
         }
         options.maxResults(maxKeys);
+        if (marker != null) {
+            options.afterMarker(marker);
+        }
 
         final var set = blobStore.list(containerName, options, options.getPrefix(), options.getMaxKeys());
 
@@ -1242,8 +1237,17 @@ public class S3ProxyHandler {
                 xml.writeEndElement();
             }
 
-            writeSimpleElement(xml, "IsTruncated",
-                    lastMetadata != null && lastMetadata.isTruncated() ? "true" : "false");
+            final var truncated = lastMetadata != null && lastMetadata.isTruncated();
+            writeSimpleElement(xml, "IsTruncated", truncated ? "true" : "false");
+            if (truncated) {
+                // The next page starts after the last key (or common prefix) of this page
+                if (isListV2) {
+                    writeSimpleElement(xml, "NextContinuationToken",
+                            encodeContinuationToken(lastMetadata.getName()));
+                } else {
+                    writeSimpleElement(xml, "NextMarker", encodeBlob(encodingType, lastMetadata.getName()));
+                }
+            }
 
             for (final String commonPrefix : commonPrefixes) {
                 xml.writeStartElement("CommonPrefixes");
@@ -1260,6 +1264,38 @@ public class S3ProxyHandler {
         }
     }
 
+    /**
+     * Encode continuation token. The token is opaque for the client and contains the last key of the page, which is
+     * where the next page should start.
+     *
+     * @param lastKey
+     *            the last key
+     *
+     * @return the string
+     */
+    private static String encodeContinuationToken(final String lastKey) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode continuation token.
+     *
+     * @param continuationToken
+     *            the continuation token
+     *
+     * @return the last key of the previous page
+     *
+     * @throws S3Exception
+     *             the s 3 exception
+     */
+    private static String decodeContinuationToken(final String continuationToken) throws S3Exception {
+        try {
+            return new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+        } catch (final IllegalArgumentException e) {
+            throw new S3Exception(S3ErrorCode.INVALID_ARGUMENT, e);
+        }
+    }
+
     /**
      * Handle blob remove.
      *
@@ -1668,6 +1704,16 @@ public class S3ProxyHandler {
         if (!blobStore.containerExists(containerName)) {
             throw new S3Exception(S3ErrorCode.NO_SUCH_BUCKET);
         }
+        // Let's get rid of the multipart uploads which were neither completed nor aborted!
+        final var idleLimit = System.currentTimeMillis() - MULTIPART_IDLE_TIMEOUT;
+        for (final var entry : _multipartUploads.entrySet()) {
+            final var mpu = entry.getValue();
+            if (mpu.assembler.getLastActivity() < idleLimit && _multipartUploads.remove(entry.getKey(), mpu)) {
+                logger.warn("Idle multipart upload aborted: {}/{} uploadId={}", mpu.containerName, mpu.blobName,
+                        entry.getKey());
+                _deleteMultipartTempDir(mpu);
+            }
+        }
         final var uploadId = UUID.randomUUID().toString();
         final var tempDir = Files.createTempDirectory("s3mpu-" + uploadId);
         _multipartUploads.put(uploadId, new MultipartUpload(containerName, blobName, tempDir));
@@ -1718,7 +1764,7 @@ public class S3ProxyHandler {
             throw new S3Exception(S3ErrorCode.NO_SUCH_UPLOAD);
         }
         // Parse the <CompleteMultipartUpload> body for ordered part list
-        final List<PartEntry> parts = new ArrayList<>();
+        final Map<Integer, String> parts = new TreeMap<>();
         try {
             final var dbf = DocumentBuilderFactory.newInstance();
             dbf.setNamespaceAware(false);
@@ -1734,11 +1780,11 @@ public class S3ProxyHandler {
                     if ("PartNumber".equals(child.getNodeName())) {
                         partNumber = Integer.parseInt(child.getTextContent().trim());
                     } else if ("ETag".equals(child.getNodeName())) {
-                        etag = child.getTextContent().trim();
+                        etag = CharMatcher.is('"').trimFrom(child.getTextContent().trim());
                     }
                 }
                 if (partNumber > 0) {
-                    parts.add(new PartEntry(partNumber, etag));
+                    parts.put(partNumber, etag);
                 }
             }
         } catch (final Exception e) {
@@ -1747,49 +1793,30 @@ public class S3ProxyHandler {
         if (parts.isEmpty()) {
             throw new S3Exception(S3ErrorCode.MALFORMED_X_M_L);
         }
-        parts.sort(Comparator.comparingInt((PartEntry p) -> p.partNumber));
 
-        // Validate all parts are present
-        for (final var p : parts) {
-            if (!mpu.parts.containsKey(p.partNumber)) {
-                throw new S3Exception(S3ErrorCode.INVALID_PART);
-            }
-        }
-
-        // Stream all parts in order as a single SequenceInputStream into putBlob
-        final var partStreams = new ArrayList<InputStream>();
-        try {
-            for (final var p : parts) {
-                partStreams.add(Files.newInputStream(mpu.parts.get(p.partNumber).file));
-            }
-            final InputStream combined = new java.io.SequenceInputStream(Collections.enumeration(partStreams));
-            final var eTag = blobStore.putBlob(containerName, blobName, combined);
-            _multipartUploads.remove(uploadId);
-            _deleteMultipartTempDir(mpu);
-            logger.debug("CompleteMultipartUpload: {}/{} uploadId={} eTag={}", containerName, blobName, uploadId, eTag);
-            addCorsResponseHeader(request, response);
-            response.setCharacterEncoding(UTF_8);
-            try (final Writer writer = response.getWriter()) {
-                response.setContentType(XML_CONTENT_TYPE);
-                final var xml = xmlOutputFactory.createXMLStreamWriter(writer);
-                xml.writeStartDocument();
-                xml.writeStartElement("CompleteMultipartUploadResult");
-                xml.writeDefaultNamespace(AWS_XMLNS);
-                writeSimpleElement(xml, "Location", "/" + containerName + "/" + blobName);
-                writeSimpleElement(xml, "Bucket", containerName);
-                writeSimpleElement(xml, "Key", blobName);
-                if (eTag != null) {
-                    writeSimpleElement(xml, "ETag", maybeQuoteETag(eTag));
-                }
-                xml.writeEndElement();
-                xml.flush();
-            } catch (final XMLStreamException xse) {
-                throw new IOException(xse);
-            }
-        } finally {
-            for (final var s : partStreams) {
-                StreamPlugThread.closeQuietly(s);
+        // Send the parts which were not assembled yet and complete the upload
+        final var eTag = mpu.assembler.complete(blobStore, parts);
+        _multipartUploads.remove(uploadId);
+        _deleteMultipartTempDir(mpu);
+        logger.debug("CompleteMultipartUpload: {}/{} uploadId={} eTag={}", containerName, blobName, uploadId, eTag);
+        addCorsResponseHeader(request, response);
+        response.setCharacterEncoding(UTF_8);
+        try (final Writer writer = response.getWriter()) {
+            response.setContentType(XML_CONTENT_TYPE);
+            final var xml = xmlOutputFactory.createXMLStreamWriter(writer);
+            xml.writeStartDocument();
+            xml.writeStartElement("CompleteMultipartUploadResult");
+            xml.writeDefaultNamespace(AWS_XMLNS);
+            writeSimpleElement(xml, "Location", "/" + containerName + "/" + blobName);
+            writeSimpleElement(xml, "Bucket", containerName);
+            writeSimpleElement(xml, "Key", blobName);
+            if (eTag != null) {
+                writeSimpleElement(xml, "ETag", maybeQuoteETag(eTag));
             }
+            xml.writeEndElement();
+            xml.flush();
+        } catch (final XMLStreamException xse) {
+            throw new IOException(xse);
         }
     }
 
@@ -1864,12 +1891,9 @@ public class S3ProxyHandler {
             writeSimpleElement(xml, "MaxParts", String.valueOf(maxParts));
             writeSimpleElement(xml, "IsTruncated", "false");
             writeOwnerStanza(xml);
-            final var sorted = new ArrayList<>(mpu.parts.entrySet());
-            sorted.sort(Comparator.comparingInt(Map.Entry::getKey));
-            for (final var entry : sorted) {
-                final var info = entry.getValue();
+            for (final var info : mpu.assembler.getParts()) {
                 xml.writeStartElement("Part");
-                writeSimpleElement(xml, "PartNumber", String.valueOf(entry.getKey()));
+                writeSimpleElement(xml, "PartNumber", String.valueOf(info.number));
                 writeSimpleElement(xml, "LastModified", formatDate(info.lastModified));
                 writeSimpleElement(xml, "ETag", maybeQuoteETag(info.etag));
                 writeSimpleElement(xml, "Size", String.valueOf(info.size));
@@ -1945,23 +1969,11 @@ public class S3ProxyHandler {
         if (partNumber < 1 || partNumber > 10000) {
             throw new S3Exception(S3ErrorCode.INVALID_ARGUMENT);
         }
-        // Write part to a temp file, computing MD5 for the part ETag
-        final var partFile = mpu.tempDir.resolve(String.valueOf(partNumber));
-        final MessageDigest md5;
-        try {
-            md5 = MessageDigest.getInstance("MD5");
-        } catch (final NoSuchAlgorithmException e) {
-            throw new IOException(e);
-        }
-        long size;
-        try (final var dis = new DigestInputStream(is, md5); final var out = Files.newOutputStream(partFile)) {
-            size = StreamPlugThread.copy(out, dis, StreamPlugThread.DEFAULT_BUFF_SIZE);
-        }
-        final var etag = BaseEncoding.base16().lowerCase().encode(md5.digest());
-        mpu.parts.put(partNumber, new PartInfo(partFile, etag, size));
+        // Stream the part to ECPDS if its turn has come (or keep it until then), computing MD5 for the part ETag
+        final var part = mpu.assembler.upload(blobStore, partNumber, is);
         logger.debug("UploadPart: {}/{} uploadId={} part={} size={} etag={}", containerName, blobName, uploadId,
-                partNumber, size, etag);
-        response.addHeader(HttpHeaders.ETAG, maybeQuoteETag(etag));
+                partNumber, part.size, part.etag);
+        response.addHeader(HttpHeaders.ETAG, maybeQuoteETag(part.etag));
         response.setStatus(HttpServletResponse.SC_OK);
     }
 
@@ -2274,24 +2286,13 @@ public class S3ProxyHandler {
         return MessageDigest.isEqual(x.getBytes(StandardCharsets.UTF_8), y.getBytes(StandardCharsets.UTF_8));
     }
 
-    /** Deletes all temp files and the temp directory for a multipart upload. */
+    /** Aborts the assembly (if not completed) and deletes the temp directory for a multipart upload. */
     private static void _deleteMultipartTempDir(final MultipartUpload mpu) {
+        mpu.assembler.abort();
         try {
-            for (final var info : mpu.parts.values()) {
-                Files.deleteIfExists(info.file);
-            }
             Files.deleteIfExists(mpu.tempDir);
         } catch (final IOException e) {
             logger.warn("Failed to delete multipart temp dir: {}", mpu.tempDir, e);
         }
     }
-
-    /** Simple holder for a parsed part entry from a CompleteMultipartUpload body. */
-    private static final class PartEntry {
-        final int partNumber;
-
-        PartEntry(final int partNumber, final String etag) {
-            this.partNumber = partNumber;
-        }
-    }
 }
@@ -93,8 +93,23 @@ public class StorageMetadata {
      *            the element
      */
     StorageMetadata(final boolean container, final FileListElement element) {
+        this(container, element, element.getPath());
+    }
+
+    /**
+     * Instantiates a new storage metadata with the path of the element relative to the container (the path provided
+     * by the element is only the name for the directories).
+     *
+     * @param container
+     *            the container
+     * @param element
+     *            the element
+     * @param path
+     *            the path
+     */
+    StorageMetadata(final boolean container, final FileListElement element, final String path) {
         _element = element;
-        _name = element.getPath() + (!container && element.isDirectory() ? "/" : "");
+        _name = path + (!container && element.isDirectory() ? "/" : "");
         _type = container ? Type.CONTAINER : element.isDirectory() ? Type.FOLDER : Type.BLOB;
     }
 
@@ -357,6 +357,24 @@ public final class RESTClient implements RESTInterface {
         throw restException != null ? restException : new RestException("No MasterServer available");
     }
 
+    @Override
+    public long updateDataTransferProgress(final byte[] progress) throws RestException {
+        _log.debug("REST sending request: updateDataTransferProgress({})",
+                progress != null ? progress.length + " byte(s)" : "no-progress");
+        final var request = new UpdateProgressRequest();
+        request.progress = progress;
+        RestException restException = null;
+        for (final String dataMover : getDataMover()) {
+            try (final var response = send(httpProxy, dataMover + "/ecpds/master/updateDataTransferProgress",
+                    connectTimeout, "PUT", request, Map.of())) {
+                return parse(response, long.class);
+            } catch (final Throwable t) {
+                restException = new RestException("Connecting to " + dataMover, t);
+            }
+        }
+        throw restException != null ? restException : new RestException("No MasterServer available");
+    }
+
     @Override
     public void sendMessage(final MonitorRequest request) throws RestException {
         _log.debug("REST sending request: sendMessage({})", request);
@@ -498,6 +516,19 @@ public final class RESTClient implements RESTInterface {
         }
     }
 
+    /**
+     * The Class UpdateProgressRequest.
+     */
+    public static final class UpdateProgressRequest implements Serializable {
+        private static final long serialVersionUID = -2386404217315384917L;
+        public byte[] progress;
+
+        @Override
+        public String toString() {
+            return progress != null ? progress.length + " byte(s)" : "no-progress";
+        }
+    }
+
     private static CloseableClientResponse send(final String proxy, final String url, final int connectTimeout,
             final String method, final Object body, final Map<String, String> query) throws RestException {
         try {
@@ -104,6 +104,7 @@ import ecmwf.ecpds.mover.MoverServer;
 import ecmwf.ecpds.mover.service.RESTClient.MonitorRequest;
 import ecmwf.ecpds.mover.service.RESTClient.PutRequest;
 import ecmwf.ecpds.mover.service.RESTClient.UpdateDataRequest;
+import ecmwf.ecpds.mover.service.RESTClient.UpdateProgressRequest;
 
 /**
  * The Class RESTServer.
@@ -617,6 +618,37 @@ public final class RESTServer {
         }
     }
 
+    /**
+     * Update data transfer progress.
+     *
+     * @param ui
+     *            the ui
+     * @param request
+     *            the request
+     *
+     * @return the response
+     */
+    @PUT
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Path("master/updateDataTransferProgress")
+    public Response updateDataTransferProgress(@Context final UriInfo ui, final UpdateProgressRequest request) {
+        _log.debug("REST received request: updateDataTransferProgress({})", request);
+        checkIsControlChannel(ui);
+        checkParameter("progress", request.progress);
+        try {
+            final var message = RESTMessage.getSuccessMessage();
+            message.put("epoch", mover.getMasterProxy().updateDataTransferProgress(request.progress));
+            return message.getResponse();
+        } catch (final WebApplicationException w) {
+            _log.warn("updateDataTransferProgress - {}", describe(w));
+            throw w;
+        } catch (final Throwable t) {
+            _log.warn("updateDataTransferProgress", t);
+            return RESTMessage.getErrorMessage(t).getResponse();
+        }
+    }
+
     /**
      * Sends the message.
      *